@@ -0,0 +1,6 @@
+-- 商家列表游标（keyset）分页索引
+-- 列表排序为 avg_score DESC, created_at DESC, id DESC，且只查询 status = 1 的商家。
+-- 该联合索引让 ShopMapper.findByConditionsAfter 可以直接从游标位置开始范围扫描，
+-- 不再像 LIMIT offset, size 那样扫描并丢弃前面的所有行。
+ALTER TABLE shop
+    ADD INDEX idx_shop_status_score_created_id (status, avg_score, created_at, id);
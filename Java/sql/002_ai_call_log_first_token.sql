@@ -0,0 +1,5 @@
+-- AI 调用日志增加首个 token 耗时
+-- 流式生成草稿（/ai-draft/stream）时记录从开始处理请求到收到第一段文本的耗时，
+-- 与 latency_ms（总耗时）一起衡量用户感知延迟；非流式调用为 NULL。
+ALTER TABLE ai_call_log
+    ADD COLUMN first_token_ms INT NULL COMMENT '首个token耗时(ms)，仅流式调用记录' AFTER latency_ms;
@@ -0,0 +1,5 @@
+-- AI 调用日志增加提供方
+-- 多提供方路由（ai.providers）下记录实际产生结果的提供方（对冲时为胜出的一方，命中缓存时为原结果的提供方），
+-- 便于按提供方统计耗时与成功率；调用失败时为 NULL。
+ALTER TABLE ai_call_log
+    ADD COLUMN provider VARCHAR(32) NULL COMMENT '大模型提供方名称' AFTER type;
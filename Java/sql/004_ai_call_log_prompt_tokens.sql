@@ -0,0 +1,5 @@
+-- AI 调用日志增加 Prompt token 数
+-- PromptBuilder 按 ai.prompt.max-tokens 预算压缩上下文，这里记录实际发送的 Prompt 的估算 token 数，
+-- 便于观察 Prompt 大小与耗时、费用的关系；历史记录为 NULL。
+ALTER TABLE ai_call_log
+    ADD COLUMN prompt_tokens INT NULL COMMENT 'Prompt估算token数' AFTER prompt;
@@ -0,0 +1,15 @@
+-- 点评关键词索引任务表（outbox）
+-- 发表点评时只在同一事务内写入一行任务，关键词抽取与 review_keyword 写入由后台
+-- ReviewKeywordIndexer 异步批量完成，点评发表接口的耗时不再包含建索引。
+-- 处理成功后删除任务行；失败时 attempts + 1 并按指数退避设置 next_attempt_at，
+-- attempts 达到上限的行不再被拾取（死信），保留 last_error 供排查。
+CREATE TABLE review_index_outbox (
+    id              BIGINT       NOT NULL AUTO_INCREMENT COMMENT '主键',
+    review_id       BIGINT       NOT NULL COMMENT '待建索引的点评ID',
+    attempts        INT          NOT NULL DEFAULT 0 COMMENT '已失败次数',
+    next_attempt_at DATETIME(3)  NOT NULL COMMENT '最早可处理时间',
+    last_error      VARCHAR(255) NULL COMMENT '最近一次失败原因',
+    created_at      DATETIME(3)  NOT NULL COMMENT '入队时间，用于计算索引延迟',
+    PRIMARY KEY (id),
+    KEY idx_review_index_outbox_due (attempts, next_attempt_at, id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT '点评关键词索引任务表';
@@ -0,0 +1,16 @@
+-- 点评关键词全量重建任务的断点表
+-- 修改关键词词典后需要为历史点评重建 review_keyword。ReviewReindexJob 按 id 升序流式读取 review 表，
+-- 每写完一段连续的点评就把 last_review_id 记到这里；任务中断（停止、宕机、发布）后从断点继续，
+-- 不必从头再扫一遍几百万行。
+CREATE TABLE review_reindex_checkpoint (
+    job_name           VARCHAR(64)  NOT NULL COMMENT '任务名称',
+    last_review_id     BIGINT       NOT NULL DEFAULT 0 COMMENT '已完成的最大点评ID（此前的点评均已重建）',
+    processed_reviews  BIGINT       NOT NULL DEFAULT 0 COMMENT '累计处理点评数',
+    written_keywords   BIGINT       NOT NULL DEFAULT 0 COMMENT '累计写入关键词条数',
+    status             VARCHAR(16)  NOT NULL COMMENT 'RUNNING/COMPLETED/STOPPED/FAILED',
+    last_error         VARCHAR(255) NULL COMMENT '失败原因',
+    started_at         DATETIME     NOT NULL COMMENT '本轮开始时间',
+    updated_at         DATETIME     NOT NULL COMMENT '最近一次推进断点的时间',
+    finished_at        DATETIME     NULL COMMENT '结束时间',
+    PRIMARY KEY (job_name)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT '点评关键词全量重建断点';
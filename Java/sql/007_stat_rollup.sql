@@ -0,0 +1,26 @@
+-- 仪表盘趋势汇总表
+-- 按小时（period = 'H'）和按天（period = 'D'）保存新增商家、点评、订单数，以及 AI 调用次数、成功/失败次数和耗时。
+-- 写入路径在事务提交后把增量攒在内存中，由 StatRollupBuffer 定时合并写入（ON DUPLICATE KEY UPDATE 累加）；
+-- StatRollupCatchUpJob 定时从原始表按小时重新统计最近的时间段并覆盖（reconciled = 1），
+-- 再由小时数据汇总出天数据。趋势接口只读该表，查询 90 天也只读 90 行，不扫描原始表。
+CREATE TABLE stat_rollup (
+    period            CHAR(1)   NOT NULL COMMENT '粒度：H=小时，D=天',
+    bucket_start      DATETIME  NOT NULL COMMENT '时间段开始时间（整点或零点）',
+    new_shops         BIGINT    NOT NULL DEFAULT 0 COMMENT '新增正常商家数',
+    new_reviews       BIGINT    NOT NULL DEFAULT 0 COMMENT '新增正常点评数',
+    new_orders        BIGINT    NOT NULL DEFAULT 0 COMMENT '新增订单数',
+    ai_calls          BIGINT    NOT NULL DEFAULT 0 COMMENT 'AI 调用次数',
+    ai_success        BIGINT    NOT NULL DEFAULT 0 COMMENT 'AI 调用成功返回次数（成功、命中缓存、合并请求）',
+    ai_failed         BIGINT    NOT NULL DEFAULT 0 COMMENT 'AI 调用失败次数',
+    ai_latency_sum_ms BIGINT    NOT NULL DEFAULT 0 COMMENT '成功调用大模型的耗时之和（毫秒）',
+    ai_latency_count  BIGINT    NOT NULL DEFAULT 0 COMMENT '参与耗时统计的调用次数',
+    reconciled        TINYINT   NOT NULL DEFAULT 0 COMMENT '是否已由原始表重新统计覆盖',
+    updated_at        DATETIME  NOT NULL COMMENT '最近更新时间',
+    PRIMARY KEY (period, bucket_start)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT '仪表盘趋势汇总';
+
+-- 补算任务按 created_at 范围分组统计原始表，需要 created_at 索引（已有同列索引时可跳过对应语句）
+ALTER TABLE shop ADD INDEX idx_shop_created_at (created_at);
+ALTER TABLE review ADD INDEX idx_review_created_at (created_at);
+ALTER TABLE order_record ADD INDEX idx_order_record_created_at (created_at);
+ALTER TABLE ai_call_log ADD INDEX idx_ai_call_log_created_at (created_at);
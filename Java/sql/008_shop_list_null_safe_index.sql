@@ -0,0 +1,9 @@
+-- 商家列表排序键允许 NULL 的索引
+-- ShopMapper 的列表排序与游标条件改为 COALESCE(avg_score, 0)、COALESCE(created_at, TIMESTAMP '1970-01-01 00:00:00')，
+-- 使 avg_score/created_at 为 NULL 的商家在游标翻页时不会被跳过或重复。
+-- 用函数索引（MySQL 8.0.13+）替换 001 中的普通联合索引，表达式必须与 ShopMapper.xml 中 sortScore/sortCreatedAt 完全一致，
+-- 否则优化器无法用索引定位和排序。
+ALTER TABLE shop
+    DROP INDEX idx_shop_status_score_created_id,
+    ADD INDEX idx_shop_status_score_created_id (status, (COALESCE(avg_score, 0)),
+        (COALESCE(created_at, TIMESTAMP '1970-01-01 00:00:00')), id);
@@ -0,0 +1,251 @@
+package com.demo.dp.ai;
+
+import com.demo.dp.domain.entity.OrderRecord;
+import com.demo.dp.domain.entity.Tag;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 点评生成 Prompt 组装的基准测试：预编译模板的 {@link PromptBuilder} 与改造前的实现
+ * （每轮压缩都用 {@code String.formatted} 重新渲染整段 Prompt 再估算 token）对比。
+ *
+ * <p>maxTokens=400 时不需要压缩，只渲染一次；maxTokens=120 时需要多轮压缩，旧实现每轮都完整渲染。
+ * 运行：{@code mvn -P jmh test-compile exec:exec}，加 {@code -Djmh.args="PromptBuilderBenchmark -prof gc"} 可查看分配量。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromptBuilderBenchmark {
+
+    @Param({"400", "120"})
+    private int maxTokens;
+
+    private PromptBuilder current;
+    private LegacyPromptBuilder legacy;
+    private OrderRecord order;
+    private List<Tag> userTags;
+    private List<Tag> shopTags;
+    private TagProfile profile;
+    private final String preference = "偏爱微辣，希望分量足一些，环境安静适合聊天，服务态度要好";
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        current = new PromptBuilder(objectMapper, "", maxTokens, 5, 8, 100);
+        legacy = new LegacyPromptBuilder(objectMapper, maxTokens, 5, 8, 100);
+        order = new OrderRecord();
+        order.setAmount(new BigDecimal("268.50"));
+        order.setVisitTime(LocalDateTime.of(2026, 5, 1, 18, 30));
+        order.setItems("[{\"name\":\"水煮鱼\",\"price\":88,\"count\":1},{\"name\":\"毛血旺\",\"price\":68,\"count\":1},"
+                + "{\"name\":\"米饭\",\"price\":3,\"count\":4},{\"name\":\"酸梅汤\",\"price\":12,\"count\":2},"
+                + "{\"name\":\"夫妻肺片\",\"price\":38,\"count\":1},{\"name\":\"干煸豆角\",\"price\":28,\"count\":1},"
+                + "{\"name\":\"红糖糍粑\",\"price\":18,\"count\":1}]");
+        userTags = tags("辣", "川菜", "性价比", "聚餐", "夜宵", "安静", "甜品", "分量足", "服务好", "辣");
+        shopTags = tags("川菜", "麻辣", "环境好", "排队", "停车方便", "适合聚餐", "老字号", "辣", "性价比", "干净");
+        profile = new TagProfile(userTags, shopTags, null);
+        String expected = legacy.buildGeneratePrompt(1001L, 2002L, preference, order, userTags, shopTags);
+        String actual = current.buildGeneratePrompt(1001L, 2002L, preference, order, profile);
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException("新旧实现生成的 Prompt 不一致:\n" + expected + "\n----\n" + actual);
+        }
+    }
+
+    @Benchmark
+    public String precompiledTemplate() {
+        return current.buildGeneratePrompt(1001L, 2002L, preference, order, profile);
+    }
+
+    @Benchmark
+    public String legacyFormatted() {
+        return legacy.buildGeneratePrompt(1001L, 2002L, preference, order, userTags, shopTags);
+    }
+
+    private static List<Tag> tags(String... names) {
+        List<Tag> tags = new ArrayList<>(names.length);
+        for (int i = 0; i < names.length; i++) {
+            Tag tag = new Tag();
+            tag.setId((long) i + 1);
+            tag.setName(names[i]);
+            tags.add(tag);
+        }
+        return tags;
+    }
+
+    /**
+     * 改造前的 PromptBuilder.buildGeneratePrompt（去掉日志），作为对照组。
+     */
+    static final class LegacyPromptBuilder {
+
+        private static final int RAW_ITEMS_MAX_CHARS = 80;
+
+        private static final String TEMPLATE = """
+                请基于以下信息生成一条用户点评：
+                - 用户ID: %d
+                - 商家ID: %d
+                - 用户自由输入的偏好: %s
+                - 用户标签画像: %s
+                - 商家标签特征: %s
+                - 历史消费: %s
+                要求：结合上述信息，用中文生成一条真实、具体的用餐点评，50~120字，避免夸大或虚假表述。
+                """;
+
+        private final ObjectMapper objectMapper;
+        private final int maxTokens;
+        private final int maxOrderItems;
+        private final int maxTags;
+        private final int maxPreferenceChars;
+
+        LegacyPromptBuilder(ObjectMapper objectMapper, int maxTokens, int maxOrderItems, int maxTags,
+                            int maxPreferenceChars) {
+            this.objectMapper = objectMapper;
+            this.maxTokens = maxTokens;
+            this.maxOrderItems = maxOrderItems;
+            this.maxTags = maxTags;
+            this.maxPreferenceChars = maxPreferenceChars;
+        }
+
+        String buildGeneratePrompt(Long userId, Long shopId, String preference, OrderRecord latestOrder,
+                                   List<Tag> userTags, List<Tag> shopTags) {
+            List<String> userTagNames = topNames(userTags);
+            List<String> shopTagNames = topNames(shopTags);
+            List<OrderItem> orderItems = latestOrder == null ? List.of() : parseItems(latestOrder.getItems());
+            int itemLimit = Math.min(maxOrderItems, orderItems.size());
+            int prefLimit = preference == null ? 0 : Math.min(maxPreferenceChars, preference.length());
+            String pref = truncate(preference, prefLimit);
+
+            String prompt = render(userId, shopId, pref, userTagNames, shopTagNames, latestOrder, orderItems,
+                    itemLimit);
+            int tokens = TokenEstimator.estimate(prompt);
+            while (tokens > maxTokens) {
+                if (itemLimit > 0) {
+                    itemLimit--;
+                } else if (!userTagNames.isEmpty() && userTagNames.size() >= shopTagNames.size()) {
+                    userTagNames.remove(userTagNames.size() - 1);
+                } else if (!shopTagNames.isEmpty()) {
+                    shopTagNames.remove(shopTagNames.size() - 1);
+                } else if (prefLimit > 0) {
+                    prefLimit /= 2;
+                    pref = truncate(preference, prefLimit);
+                } else {
+                    break;
+                }
+                prompt = render(userId, shopId, pref, userTagNames, shopTagNames, latestOrder, orderItems,
+                        itemLimit);
+                tokens = TokenEstimator.estimate(prompt);
+            }
+            return prompt;
+        }
+
+        private String render(Long userId, Long shopId, String preference, List<String> userTagNames,
+                              List<String> shopTagNames, OrderRecord latestOrder, List<OrderItem> orderItems,
+                              int itemLimit) {
+            String orderContext = latestOrder == null ? "无历史消费记录"
+                    : "最近一次消费：金额 " + latestOrder.getAmount() + "，到店时间 " + latestOrder.getVisitTime()
+                    + "，消费项 " + summarizeItems(latestOrder.getItems(), orderItems, itemLimit);
+            String userTagStr = userTagNames.isEmpty() ? "无" : String.join("、", userTagNames);
+            String shopTagStr = shopTagNames.isEmpty() ? "无" : String.join("、", shopTagNames);
+            return TEMPLATE.formatted(userId, shopId, preference, userTagStr, shopTagStr, orderContext);
+        }
+
+        private String summarizeItems(String rawItems, List<OrderItem> items, int limit) {
+            if (items.isEmpty()) {
+                return rawItems == null || rawItems.isBlank() || "[]".equals(rawItems.strip())
+                        ? "无" : truncate(rawItems, RAW_ITEMS_MAX_CHARS);
+            }
+            List<String> parts = new ArrayList<>(limit);
+            for (int i = 0; i < limit; i++) {
+                OrderItem item = items.get(i);
+                parts.add(item.count > 1 ? item.name + "×" + item.count : item.name);
+            }
+            String listed = String.join("、", parts);
+            if (limit >= items.size()) {
+                return listed;
+            }
+            return (listed.isEmpty() ? "" : listed + "等") + "共 " + items.size() + " 项";
+        }
+
+        private List<OrderItem> parseItems(String rawItems) {
+            if (rawItems == null || rawItems.isBlank()) {
+                return List.of();
+            }
+            try {
+                JsonNode root = objectMapper.readTree(rawItems);
+                if (!root.isArray()) {
+                    return List.of();
+                }
+                List<OrderItem> items = new ArrayList<>(root.size());
+                for (JsonNode node : root) {
+                    String name = node.path("name").asText("");
+                    if (name.isBlank()) {
+                        continue;
+                    }
+                    int count = Math.max(1, node.path("count").asInt(1));
+                    BigDecimal price = node.path("price").isNumber()
+                            ? node.path("price").decimalValue() : BigDecimal.ZERO;
+                    items.add(new OrderItem(name.strip(), count, price.multiply(BigDecimal.valueOf(count))));
+                }
+                items.sort(Comparator.comparing((OrderItem i) -> i.subtotal).reversed());
+                return items;
+            } catch (Exception e) {
+                return List.of();
+            }
+        }
+
+        private List<String> topNames(List<Tag> tags) {
+            List<String> names = new ArrayList<>();
+            if (tags == null) {
+                return names;
+            }
+            Set<String> seen = new LinkedHashSet<>();
+            for (Tag tag : tags) {
+                String name = tag.getName();
+                if (name != null && !name.isBlank() && seen.add(name) && names.size() < maxTags) {
+                    names.add(name);
+                }
+            }
+            return names;
+        }
+
+        private static String truncate(String text, int maxChars) {
+            if (text == null || text.length() <= maxChars) {
+                return text;
+            }
+            return text.substring(0, maxChars) + "…";
+        }
+
+        private static final class OrderItem {
+            private final String name;
+            private final int count;
+            private final BigDecimal subtotal;
+
+            private OrderItem(String name, int count, BigDecimal subtotal) {
+                this.name = name;
+                this.count = count;
+                this.subtotal = subtotal;
+            }
+        }
+    }
+}
@@ -2,11 +2,14 @@ package com.demo.dp;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * 应用入口。运行 main 方法即可启动单体服务。
+ * 开启定时任务，用于内存索引的定时重建等后台工作。
  */
 @SpringBootApplication
+@EnableScheduling
 public class DemoDpApplication {
     public static void main(String[] args) {
         SpringApplication.run(DemoDpApplication.class, args);
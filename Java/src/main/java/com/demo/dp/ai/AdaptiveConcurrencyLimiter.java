@@ -0,0 +1,140 @@
+package com.demo.dp.ai;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 自适应并发限制（AIMD）：限制同时在途的上游调用数，并根据调用结果动态调整上限。
+ *
+ * <ul>
+ *   <li>加性增：成功且耗时未超过阈值，并且结束时在途数达到上限的 growUtilization 倍（上限确实被用满）时，
+ *       上限增加 1/limit，相当于每一轮并发全部成功后上限加 1；流量小时不增长，避免上限虚高到从未验证过的值</li>
+ *   <li>乘性减：拥塞信号（超时、429、5xx，或耗时超过阈值）时上限乘以 backoffRatio；
+ *       每个往返最多减一次——只有在上一次减小之后才发出的调用能再触发减小，
+ *       同一批在途调用一起超时不会把上限连乘到最小值</li>
+ *   <li>与拥塞无关的失败（4xx、响应无法解析、没有生成内容等）只归还名额，不调整上限</li>
+ *   <li>在途数达到上限时立即拒绝，而不是排队等待，避免上游变慢时请求在本地越积越多</li>
+ * </ul>
+ *
+ * <p>上游健康时上限逐步升到 maxLimit，上游变慢或开始报错时上限迅速收缩，
+ * 多余的请求被快速拒绝，不会每个都等满超时时间。
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    /**
+     * 调用结果。
+     */
+    public enum Outcome {
+        /** 成功 */
+        SUCCESS,
+        /** 与拥塞无关的失败：只归还名额 */
+        FAILURE,
+        /** 拥塞信号：超时、429、5xx */
+        CONGESTION
+    }
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdMs;
+    private final double growUtilization;
+
+    private double limit;
+    private int inFlight;
+    private long rejected;
+    private long decreases;
+    /** 最近一次减小上限的时间（System.nanoTime），在此之前发出的调用不再触发减小 */
+    private long lastDecreaseNanos;
+
+    /**
+     * @param name 名称，用于监控
+     * @param initialLimit 初始上限
+     * @param minLimit 最小上限
+     * @param maxLimit 最大上限
+     * @param backoffRatio 乘性减系数（0~1），如 0.5
+     * @param latencyThresholdMs 耗时阈值（毫秒），超过视为拥塞；小于等于0表示不按耗时判断
+     * @param growUtilization 在途数至少达到上限的多少倍（0~1）时成功才增加上限，如 0.5
+     */
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                                      double backoffRatio, long latencyThresholdMs, double growUtilization) {
+        if (minLimit <= 0 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("并发限制 minLimit 必须大于0且不大于 maxLimit");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("并发限制 backoffRatio 必须在 0~1 之间");
+        }
+        if (growUtilization < 0 || growUtilization > 1) {
+            throw new IllegalArgumentException("并发限制 growUtilization 必须在 0~1 之间");
+        }
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdMs = latencyThresholdMs;
+        this.growUtilization = growUtilization;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.lastDecreaseNanos = System.nanoTime();
+    }
+
+    /**
+     * 申请一个并发名额。获得名额后必须调用 {@link #onComplete} 或 {@link #onCancel()} 归还。
+     *
+     * @return 是否获得名额
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            rejected++;
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * 调用结束，归还名额并调整上限。
+     *
+     * @param outcome 调用结果
+     * @param startNanos 调用发出的时间（System.nanoTime）
+     * @param latencyMs 调用耗时（毫秒），小于0表示不参与耗时判断（如流式调用）
+     */
+    public synchronized void onComplete(Outcome outcome, long startNanos, long latencyMs) {
+        int inFlightBefore = inFlight;
+        inFlight = Math.max(0, inFlight - 1);
+        boolean congested = outcome == Outcome.CONGESTION
+                || (outcome == Outcome.SUCCESS && latencyThresholdMs > 0 && latencyMs > latencyThresholdMs);
+        if (congested) {
+            if (startNanos - lastDecreaseNanos > 0) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                lastDecreaseNanos = System.nanoTime();
+                decreases++;
+            }
+        } else if (outcome == Outcome.SUCCESS && inFlightBefore >= limit * growUtilization) {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    /**
+     * 获得名额后并未真正发起调用，归还名额，不调整上限。
+     */
+    public synchronized void onCancel() {
+        inFlight = Math.max(0, inFlight - 1);
+    }
+
+    /**
+     * 统计信息：limit（当前上限）、inFlight、rejected、decreases（减小上限的次数）。
+     *
+     * @return 统计信息
+     */
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("name", name);
+        stats.put("limit", (int) limit);
+        stats.put("minLimit", minLimit);
+        stats.put("maxLimit", maxLimit);
+        stats.put("inFlight", inFlight);
+        stats.put("rejected", rejected);
+        stats.put("decreases", decreases);
+        return stats;
+    }
+}
@@ -0,0 +1,246 @@
+package com.demo.dp.ai;
+
+import com.demo.dp.domain.entity.AiCallLog;
+import com.demo.dp.mapper.AiCallLogMapper;
+import com.demo.dp.stats.AiLatencyRegistry;
+import com.demo.dp.stats.DashboardCounterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AI 调用日志异步批量写入器：请求线程只把日志放入有界队列，由后台线程攒批后一次多行 INSERT 写入 ai_call_log。
+ *
+ * <p>写入规则：
+ * <ul>
+ *   <li>攒满 batch-size 条，或第一条入队后经过 flush-interval-ms，就写一批</li>
+ *   <li>背压策略：队列满时直接丢弃新日志并计数（dropped），请求线程从不因为写日志而阻塞。
+ *       调用日志用于审计和统计，丢少量日志的代价远小于拖慢用户请求</li>
+ *   <li>某一批写入失败时记录错误并计数（failed），不重试，避免故障期间越积越多</li>
+ *   <li>应用关闭时停止接收新日志，把队列中剩余的日志全部写完再退出（最多等待 shutdown-timeout-ms）</li>
+ * </ul>
+ *
+ * <p>created_at 在入队时确定，而不是写入时的 NOW()，因此批量写入不会改变日志的时间顺序。
+ *
+ * @author System
+ * @version 1.0
+ */
+@Component
+public class AiCallLogWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(AiCallLogWriter.class);
+
+    private final AiCallLogMapper aiCallLogMapper;
+    private final DashboardCounterRegistry dashboardCounters;
+    private final AiLatencyRegistry aiLatencyRegistry;
+    private final BlockingQueue<AiCallLog> queue;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long shutdownTimeoutMs;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    private volatile boolean running;
+    private Thread worker;
+
+    /**
+     * @param aiCallLogMapper AI 调用日志 Mapper
+     * @param dashboardCounters 仪表盘计数器，每批写入成功后累加 AI 调用次数
+     * @param aiLatencyRegistry AI 调用耗时统计，日志提交时记录耗时
+     * @param capacity 队列容量
+     * @param batchSize 每批最多写入条数
+     * @param flushIntervalMs 攒批最长等待时间（毫秒）
+     * @param shutdownTimeoutMs 关闭时等待剩余日志写完的最长时间（毫秒）
+     */
+    public AiCallLogWriter(AiCallLogMapper aiCallLogMapper,
+                           DashboardCounterRegistry dashboardCounters,
+                           AiLatencyRegistry aiLatencyRegistry,
+                           @Value("${ai.log-writer.queue-capacity:10000}") int capacity,
+                           @Value("${ai.log-writer.batch-size:200}") int batchSize,
+                           @Value("${ai.log-writer.flush-interval-ms:1000}") long flushIntervalMs,
+                           @Value("${ai.log-writer.shutdown-timeout-ms:5000}") long shutdownTimeoutMs) {
+        if (capacity <= 0 || batchSize <= 0 || flushIntervalMs <= 0) {
+            throw new IllegalArgumentException("ai.log-writer 的 queue-capacity、batch-size、flush-interval-ms 必须大于0");
+        }
+        this.aiCallLogMapper = aiCallLogMapper;
+        this.dashboardCounters = dashboardCounters;
+        this.aiLatencyRegistry = aiLatencyRegistry;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+    }
+
+    /**
+     * 启动后台写入线程。
+     */
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = new Thread(this::runLoop, "ai-log-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * 提交一条日志，立即返回。队列已满或写入器已关闭时丢弃并计数（耗时统计不受影响）。
+     *
+     * @param row 日志实体
+     * @return 是否成功入队
+     */
+    public boolean submit(AiCallLog row) {
+        if (row == null) {
+            return false;
+        }
+        if (row.getCreatedAt() == null) {
+            row.setCreatedAt(LocalDateTime.now());
+        }
+        aiLatencyRegistry.record(row);
+        if (!running || !queue.offer(row)) {
+            dropped.increment();
+            long d = dropped.sum();
+            // 丢弃通常是成批发生的，只在第1条和之后每1000条时打一次日志
+            if (d == 1 || d % 1000 == 0) {
+                log.warn("AI 调用日志队列已满或已关闭，丢弃日志, type={}, droppedTotal={}", row.getType(), d);
+            }
+            return false;
+        }
+        enqueued.increment();
+        return true;
+    }
+
+    /**
+     * 同步写入一批日志（一次多行 INSERT），不经过队列；用于批量操作结束时把整批调用日志一次写入。
+     * 写入失败时记录错误并计数，不抛出异常。
+     *
+     * @param rows 日志列表
+     * @return 是否写入成功
+     */
+    public boolean writeBatch(List<AiCallLog> rows) {
+        if (rows == null || rows.isEmpty()) {
+            return true;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (AiCallLog row : rows) {
+            if (row.getCreatedAt() == null) {
+                row.setCreatedAt(now);
+            }
+            aiLatencyRegistry.record(row);
+        }
+        return flush(rows);
+    }
+
+    /**
+     * 应用关闭时停止接收新日志，等待后台线程写完队列中剩余的日志。
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (worker == null) {
+            return;
+        }
+        try {
+            worker.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            log.warn("AI 调用日志写入器未能在 {}ms 内写完, 剩余 {} 条", shutdownTimeoutMs, queue.size());
+        } else {
+            log.info("AI 调用日志写入器已关闭, written={}, dropped={}, failed={}",
+                    written.sum(), dropped.sum(), failed.sum());
+        }
+    }
+
+    /**
+     * 供监控使用的统计信息：queueDepth（当前积压）、capacity、enqueued、written、dropped、failed、batches。
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("capacity", capacity);
+        stats.put("batchSize", batchSize);
+        stats.put("flushIntervalMs", flushIntervalMs);
+        stats.put("enqueued", enqueued.sum());
+        stats.put("written", written.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("failed", failed.sum());
+        stats.put("batches", batches.sum());
+        return stats;
+    }
+
+    /**
+     * 后台线程主循环：阻塞等待第一条日志，然后在 flushIntervalMs 内尽量攒满一批再写入。
+     * 关闭后继续循环直到队列为空。
+     */
+    private void runLoop() {
+        List<AiCallLog> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                AiCallLog first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize && running) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    AiCallLog next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                // 关闭过程中不再等待，直接取走能取的
+                queue.drainTo(batch, batchSize - batch.size());
+            } catch (InterruptedException e) {
+                running = false;
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    private boolean flush(List<AiCallLog> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        try {
+            aiCallLogMapper.insertBatch(batch);
+            written.add(batch.size());
+            batches.increment();
+        } catch (Exception e) {
+            failed.add(batch.size());
+            log.error("AI 调用日志批量写入失败, size={}", batch.size(), e);
+            return false;
+        }
+        dashboardCounters.onAiCallsLogged(batch);
+        return true;
+    }
+}
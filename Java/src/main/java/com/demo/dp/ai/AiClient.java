@@ -1,34 +1,42 @@
 package com.demo.dp.ai;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import com.demo.dp.ai.provider.LlmResult;
+import com.demo.dp.ai.provider.LlmRouter;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 
-import java.time.Duration;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 /**
- * LLM 客户端：支持配置化调用，含超时与简单降级。
+ * LLM 客户端：业务代码调用大模型的统一入口，具体调用哪个上游由 {@link LlmRouter} 决定。
  *
  * <p>配置项（application.yml）：
  * <ul>
- *     <li>ai.provider: mock / openai / qwen 等</li>
- *     <li>ai.endpoint: 大模型 HTTP 接口地址（如 OpenAI 或通义千问兼容模式）</li>
- *     <li>ai.api-key: API Key（也可以留空，使用环境变量）</li>
- *     <li>ai.model: 模型名称，如 gpt-3.5-turbo 或 qwen3-max</li>
- *     <li>ai.timeout-ms: 8000</li>
+ *     <li>ai.providers: 多个提供方（mock / openai-compatible / qwen），见 {@link com.demo.dp.config.LlmProviderProperties}</li>
+ *     <li>ai.routing.*: 路由参数（对冲延迟、统计窗口、错误率惩罚）</li>
+ *     <li>ai.provider / ai.endpoint / ai.api-key / ai.model: 未配置 ai.providers 时的单提供方配置</li>
+ *     <li>ai.timeout-ms: 8000（非流式调用从发出请求到收到完整响应的总超时；流式调用只约束收到响应头之前的等待）</li>
+ *     <li>ai.stream-idle-timeout-ms / ai.stream-timeout-ms: 流式调用相邻两行数据的最大间隔与整次调用的最长时间</li>
+ *     <li>ai.connect-timeout-ms: 3000（建立连接超时）</li>
+ *     <li>ai.http.threads: HTTP 客户端回调线程数（连接池参数见 {@link com.demo.dp.config.LlmProviderConfig}）</li>
  * </ul>
  *
- * <p>通义千问接入说明（你当前的需求）：
+ * <p>非阻塞调用：基于 JDK HttpClient 的 {@code sendAsync}，等待大模型响应期间不占用任何线程，
+ * {@link #callLlmAsync} 返回 CompletableFuture，控制器可以直接把它返回给 Spring MVC，
+ * 从而在大模型生成的几秒内释放 Tomcat 工作线程。
+ *
+ * <p>失败处理：调用失败时 Future 以 {@link AiUnavailableException} 失败（不返回兜底文案），
+ * 由调用方记为失败日志、由全局异常处理返回 503。每个提供方都有自己的熔断器与 AIMD 自适应并发限制，
+ * 首选提供方故障或变慢时，路由会转移或对冲到其他提供方。
+ *
+ * <p>流式调用：{@link #streamLlm} 边接收边把增量文本回调给调用方，
+ * 用于以 SSE 方式向前端推送草稿，缩短用户看到第一个字的时间。
+ *
+ * <p>通义千问接入说明：
  * <ul>
- *     <li>系统环境变量：DASHSCOPE_API_KEY（你已经配置好了）</li>
+ *     <li>系统环境变量：DASHSCOPE_API_KEY</li>
  *     <li>application.yml：
  *       <pre>
  *       ai:
@@ -40,118 +48,71 @@ import java.util.Map;
  *       </pre>
  *     </li>
  * </ul>
- *
- * <p>兼容模式说明：通义千问的 compatible-mode 接口与 OpenAI chat/completions 协议基本一致，
- * 因此这里直接复用同一套请求格式，只是 endpoint 和 model 不同。
  */
 @Component
 public class AiClient {
 
-    private static final Logger log = LoggerFactory.getLogger(AiClient.class);
-
-    private final RestTemplate restTemplate;
-
-    @Value("${ai.provider:mock}")
-    private String provider;   // mock / openai / qwen 等
-
-    @Value("${ai.endpoint:https://api.openai.com/v1/chat/completions}")
-    private String endpoint;   // 模型 HTTP 接口地址
-
-    @Value("${ai.api-key:}")
-    private String apiKey;     // 优先使用配置文件中的 key，对通义我们会从环境变量读取
-
-    @Value("${ai.model:gpt-3.5-turbo}")
-    private String model;      // 模型名称：如 gpt-3.5-turbo / qwen3-max
+    /**
+     * 未指定时的 max_tokens。
+     */
+    public static final int DEFAULT_MAX_TOKENS = 200;
 
-    @Value("${ai.timeout-ms:8000}")
-    private int timeoutMs;     // 读取超时时间（毫秒），目前用于构造 RestTemplate
+    private final LlmRouter router;
 
-    public AiClient(RestTemplateBuilder builder) {
-        this.restTemplate = builder
-                .setConnectTimeout(Duration.ofMillis(3000))
-                .setReadTimeout(Duration.ofMillis(8000))
-                .build();
+    /**
+     * @param router 多提供方路由
+     */
+    public AiClient(LlmRouter router) {
+        this.router = router;
     }
 
     /**
-     * 调用大模型生成。
+     * 调用大模型生成（阻塞版本）：等待 {@link #callLlmAsync} 完成。
      *
      * @param prompt 拼接好的 prompt
      * @return 大模型输出（或 mock）
      */
     public String callLlm(String prompt) {
-        // 统一解析 API Key（支持从环境变量读取通义千问的 DASHSCOPE_API_KEY）
-        String resolvedKey = resolveApiKey();
-
-        // 若未配置真实 Key 或 provider=mock，则走本地 mock，避免启动时报错
-        if (resolvedKey == null || resolvedKey.isBlank() || "mock".equalsIgnoreCase(provider)) {
-            return "【mock响应】" + prompt;
-        }
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            // 兼容模式下，通义千问也是标准的 Bearer 头；如果后续需要 X-DashScope-API-Key，可在此处调整
-            headers.setBearerAuth(resolvedKey);
-
-            Map<String, Object> body = new HashMap<>();
-            body.put("model", model);
-            // 简单 chat/completions 请求格式
-            body.put("messages", java.util.List.of(
-                    Map.of("role", "user", "content", prompt)
-            ));
-            body.put("temperature", 0.7);
-            body.put("max_tokens", 200);
-
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(body, headers);
-            Map<?, ?> resp = restTemplate.postForObject(endpoint, entity, Map.class);
-            // 解析简单返回
-            Object choices = resp == null ? null : resp.get("choices");
-            if (choices instanceof java.util.List && !((java.util.List<?>) choices).isEmpty()) {
-                Object first = ((java.util.List<?>) choices).get(0);
-                if (first instanceof Map) {
-                    Object msg = ((Map<?, ?>) first).get("message");
-                    if (msg instanceof Map) {
-                        Object content = ((Map<?, ?>) msg).get("content");
-                        if (content != null) {
-                            return content.toString();
-                        }
-                    }
-                }
-            }
-            // 未解析到内容时兜底
-            return "生成失败，请稍后重试";
-        } catch (Exception e) {
-            log.error("LLM 调用失败", e);
-            return "生成失败，请稍后重试";
+            return callLlmAsync(prompt).join().getText();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : e;
         }
     }
 
     /**
-     * 统一解析 API Key 的逻辑：
-     * <ul>
-     *     <li>优先使用 application.yml 中配置的 ai.api-key（如果不为空）</li>
-     *     <li>当 provider=qwen 时，若 ai.api-key 为空，则从环境变量 DASHSCOPE_API_KEY 读取</li>
-     *     <li>其他 provider 可按需扩展</li>
-     * </ul>
+     * 异步调用大模型生成：请求发出后立即返回，响应到达后在 HTTP 回调线程上完成 Future。
+     * 所有提供方都失败（上游报错、超时、响应无法解析，或被熔断/并发限制拒绝）时，
+     * Future 以 {@link AiUnavailableException} 失败。
      *
-     * @return 实际用于调用的 API Key，可能为 null
+     * @param prompt 拼接好的 prompt
+     * @return 大模型输出及产生结果的提供方
      */
-    private String resolveApiKey() {
-        // 1. 如果在 application.yml 中显式配置了 ai.api-key，则直接使用
-        if (apiKey != null && !apiKey.isBlank()) {
-            return apiKey;
-        }
+    public CompletableFuture<LlmResult> callLlmAsync(String prompt) {
+        return router.complete(prompt, DEFAULT_MAX_TOKENS);
+    }
 
-        // 2. 对于通义千问（provider=qwen），优先从环境变量 DASHSCOPE_API_KEY 读取
-        if ("qwen".equalsIgnoreCase(provider)) {
-            String envKey = System.getenv("DASHSCOPE_API_KEY");
-            if (envKey != null && !envKey.isBlank()) {
-                return envKey;
-            }
-        }
+    /**
+     * 流式调用大模型：每收到一段增量文本就回调一次 onToken。
+     *
+     * <p>失败时 Future 以 {@link AiUnavailableException} 结束；此时可能已经向用户推送了部分内容，
+     * 由调用方决定如何告知用户。只有尚未推送任何内容时才会转移到其他提供方。
+     *
+     * @param prompt 拼接好的 prompt
+     * @param maxTokens 生成的最大 token 数
+     * @param onToken 增量文本回调，在 HTTP 回调线程上按顺序执行，不应阻塞
+     * @return 完整的生成文本及产生结果的提供方
+     */
+    public CompletableFuture<LlmResult> streamLlm(String prompt, int maxTokens, Consumer<String> onToken) {
+        return router.stream(prompt, maxTokens, onToken);
+    }
 
-        // 3. 其他情况暂不做特殊处理，返回配置中的 apiKey（此时为空）
-        return apiKey;
+    /**
+     * 各提供方的路由统计与保护层状态（熔断器、并发上限、p95、错误率等）。
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> guardStats() {
+        return router.stats();
     }
 }
-
@@ -0,0 +1,110 @@
+package com.demo.dp.ai;
+
+import com.demo.dp.ai.provider.LlmResult;
+import com.demo.dp.cache.CacheRegistry;
+import com.demo.dp.cache.LocalCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+
+/**
+ * 大模型响应缓存：以"规范化后的 Prompt + 生成参数"的指纹为键，缓存成功的生成结果。
+ *
+ * <p>草稿 Prompt 由用户、商家、偏好、最近消费记录、标签确定性地拼出，同一用户对同一商家、同一偏好
+ * 在几分钟内重复请求时 Prompt 完全相同，直接返回缓存结果，省掉一次数秒且收费的大模型调用。
+ *
+ * <p>规则：
+ * <ul>
+ *   <li>指纹：去掉首尾空白、把连续空白压缩为一个空格后，与模型名、max_tokens 一起做 SHA-256</li>
+ *   <li>只缓存成功的结果（调用失败时 AiClient 抛出异常，不会走到这里）；连同产生结果的提供方一起缓存，
+ *       命中时日志仍能看出内容来自哪个提供方</li>
+ *   <li>TTL + LRU，同时限制条目数和总字节数（按 UTF-16 估算键和值的大小）</li>
+ *   <li>统计信息登记在 CacheRegistry 中，名称为 "ai-response"</li>
+ * </ul>
+ *
+ * @author System
+ * @version 1.0
+ */
+@Component
+public class AiResponseCache {
+
+    /**
+     * 每个条目除字符串内容外的固定开销估算（对象头、哈希表节点等）。
+     */
+    private static final long ENTRY_OVERHEAD_BYTES = 96;
+
+    private final boolean enabled;
+    private final String model;
+    private final LocalCache<String, LlmResult> cache;
+
+    /**
+     * @param cacheRegistry 本地缓存登记处
+     * @param enabled 是否启用
+     * @param model 模型名称，参与指纹计算，切换模型后旧结果自然失效
+     * @param maxEntries 最大条目数
+     * @param maxBytes 总字节数上限
+     * @param ttlSeconds 存活时间（秒）
+     */
+    public AiResponseCache(CacheRegistry cacheRegistry,
+                           @Value("${ai.cache.enabled:true}") boolean enabled,
+                           @Value("${ai.model:gpt-3.5-turbo}") String model,
+                           @Value("${ai.cache.max-entries:10000}") int maxEntries,
+                           @Value("${ai.cache.max-bytes:16777216}") long maxBytes,
+                           @Value("${ai.cache.ttl-seconds:600}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.model = model;
+        this.cache = cacheRegistry.create("ai-response", maxEntries, Duration.ofSeconds(ttlSeconds), maxBytes,
+                (key, value) -> ENTRY_OVERHEAD_BYTES + 2L * (key.length() + value.getText().length()
+                        + (value.getProvider() == null ? 0 : value.getProvider().length())));
+    }
+
+    /**
+     * 计算 Prompt 指纹。
+     *
+     * @param prompt Prompt 文本
+     * @param maxTokens 生成的最大 token 数
+     * @return 64 位十六进制 SHA-256
+     */
+    public String fingerprint(String prompt, int maxTokens) {
+        String normalized = prompt == null ? "" : prompt.strip().replaceAll("\\s+", " ");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(Integer.toString(maxTokens).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(normalized.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    /**
+     * 读取缓存的生成结果。
+     *
+     * @param fingerprint Prompt 指纹
+     * @return 缓存的结果，未命中或未启用时返回 null
+     */
+    public LlmResult get(String fingerprint) {
+        return enabled ? cache.get(fingerprint) : null;
+    }
+
+    /**
+     * 缓存一次成功的生成结果；空结果不缓存。
+     *
+     * @param fingerprint Prompt 指纹
+     * @param response 大模型输出及提供方
+     */
+    public void put(String fingerprint, LlmResult response) {
+        if (!enabled || response == null || response.getText() == null || response.getText().isBlank()) {
+            return;
+        }
+        cache.put(fingerprint, response);
+    }
+}
@@ -0,0 +1,45 @@
+package com.demo.dp.ai;
+
+/**
+ * 大模型调用失败：上游报错/超时/响应无法解析，或被熔断器、并发限制快速拒绝。
+ *
+ * <p>由 GlobalExceptionHandler 统一转换为 HTTP 503，调用日志中记为失败（status=0）。
+ */
+public class AiUnavailableException extends RuntimeException {
+
+    /**
+     * 是否为本地快速拒绝（熔断打开或并发已满），此时并未向上游发出请求。
+     */
+    private final boolean rejected;
+
+    /**
+     * 上游返回的 HTTP 状态码，没有收到响应时为 -1。
+     */
+    private final int statusCode;
+
+    public AiUnavailableException(String message, boolean rejected) {
+        super(message);
+        this.rejected = rejected;
+        this.statusCode = -1;
+    }
+
+    public AiUnavailableException(String message, int statusCode) {
+        super(message);
+        this.rejected = false;
+        this.statusCode = statusCode;
+    }
+
+    public AiUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+        this.rejected = false;
+        this.statusCode = -1;
+    }
+
+    public boolean isRejected() {
+        return rejected;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
@@ -0,0 +1,200 @@
+package com.demo.dp.ai;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 熔断器：最近 N 次调用的失败率超过阈值时"打开"，打开期间直接拒绝调用；
+ * 冷却时间过后进入"半开"，只放行少量探测调用，探测全部成功则"关闭"恢复正常，任一失败则重新打开。
+ *
+ * <p>失败率按固定长度的滑动窗口（最近 windowSize 次调用）统计，调用数不足 minimumCalls 时不打开，
+ * 避免低流量时一两次失败就熔断。
+ *
+ * <p>线程安全：所有状态变更在同一把锁内完成，临界区只有几次整数运算。
+ */
+public class CircuitBreaker {
+
+    /**
+     * 熔断器状态。
+     */
+    public enum State {
+        /** 正常放行 */
+        CLOSED,
+        /** 熔断中，直接拒绝 */
+        OPEN,
+        /** 冷却结束，放行少量探测调用 */
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenProbes;
+
+    /**
+     * 环形缓冲区：true 表示失败。
+     */
+    private final boolean[] window;
+    private int windowPos;
+    private int windowCount;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesIssued;
+    private int probesSucceeded;
+
+    private long rejected;
+    private long opened;
+
+    /**
+     * @param name 名称，用于日志与监控
+     * @param windowSize 统计失败率的最近调用次数
+     * @param minimumCalls 窗口内至少有多少次调用才计算失败率
+     * @param failureRateThreshold 失败率阈值（0~1），达到即打开
+     * @param openDurationMs 打开后的冷却时间（毫秒）
+     * @param halfOpenProbes 半开状态放行的探测调用数
+     */
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                          long openDurationMs, int halfOpenProbes) {
+        if (windowSize <= 0 || minimumCalls <= 0 || halfOpenProbes <= 0) {
+            throw new IllegalArgumentException("熔断器 windowSize、minimumCalls、halfOpenProbes 必须大于0");
+        }
+        this.name = name;
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = openDurationMs * 1_000_000L;
+        this.halfOpenProbes = halfOpenProbes;
+        this.window = new boolean[windowSize];
+    }
+
+    /**
+     * 申请一次调用许可。获得许可后必须调用 {@link #onSuccess()}、{@link #onFailure()} 或 {@link #onCancel()} 之一。
+     *
+     * @return 是否允许调用
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openDurationNanos) {
+                rejected++;
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probesIssued = 0;
+            probesSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesIssued >= halfOpenProbes) {
+                rejected++;
+                return false;
+            }
+            probesIssued++;
+        }
+        return true;
+    }
+
+    /**
+     * 记录一次成功调用。
+     */
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            probesSucceeded++;
+            if (probesSucceeded >= halfOpenProbes) {
+                state = State.CLOSED;
+                resetWindow();
+            }
+            return;
+        }
+        record(false);
+    }
+
+    /**
+     * 记录一次失败调用。
+     */
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(true);
+            if (windowCount >= minimumCalls && (double) windowFailures / windowCount >= failureRateThreshold) {
+                open();
+            }
+        }
+    }
+
+    /**
+     * 获得许可后并未真正发起调用（如被并发限制拒绝），归还半开状态下的探测名额。
+     */
+    public synchronized void onCancel() {
+        if (state == State.HALF_OPEN && probesIssued > 0) {
+            probesIssued--;
+        }
+    }
+
+    /**
+     * 当前状态。
+     *
+     * @return 状态；打开且冷却已结束时仍返回 OPEN，直到下一次申请许可
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * 当前是否会放行调用（不占用探测名额）：打开且仍在冷却期内时返回 false。
+     *
+     * @return 是否可能放行
+     */
+    public synchronized boolean isCallPermitted() {
+        return state != State.OPEN || System.nanoTime() - openedAt >= openDurationNanos;
+    }
+
+    /**
+     * 统计信息：state、failureRate（窗口内）、windowCalls、rejected（被拒绝次数）、opened（打开次数）。
+     *
+     * @return 统计信息
+     */
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("name", name);
+        stats.put("state", state.name());
+        stats.put("windowCalls", windowCount);
+        stats.put("failureRate", windowCount == 0 ? 0.0 : (double) windowFailures / windowCount);
+        stats.put("rejected", rejected);
+        stats.put("opened", opened);
+        return stats;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        opened++;
+        resetWindow();
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == windowSize) {
+            if (window[windowPos]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowPos] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowPos = (windowPos + 1) % windowSize;
+    }
+
+    private void resetWindow() {
+        windowPos = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+}
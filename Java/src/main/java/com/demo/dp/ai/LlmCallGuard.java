@@ -0,0 +1,102 @@
+package com.demo.dp.ai;
+
+import java.net.http.HttpTimeoutException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 上游大模型调用的保护层：先过自适应并发限制，再过熔断器，都放行才真正发起调用；
+ * 调用结束后把结果（成功/失败、耗时）反馈给两者。
+ *
+ * <p>被拒绝的调用立即以 {@link AiUnavailableException} 失败，不会等待超时。
+ *
+ * <p>熔断器按成功/失败统计；并发限制只把超时、429、5xx 当作拥塞信号，
+ * 其他失败（4xx、响应无法解析、没有生成内容、连接被拒绝等）不说明上游过载，只归还名额。
+ */
+public class LlmCallGuard {
+
+    private final CircuitBreaker circuitBreaker;
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public LlmCallGuard(CircuitBreaker circuitBreaker, AdaptiveConcurrencyLimiter limiter) {
+        this.circuitBreaker = circuitBreaker;
+        this.limiter = limiter;
+    }
+
+    /**
+     * 在保护下执行一次上游调用。
+     *
+     * @param call 发起上游调用
+     * @param measureLatency 是否按耗时判断拥塞（流式调用的总耗时取决于生成长度，不应参与判断）
+     * @param <T> 结果类型
+     * @return 调用结果；被拒绝时为以 AiUnavailableException 失败的 Future
+     */
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> call, boolean measureLatency) {
+        if (!limiter.tryAcquire()) {
+            return CompletableFuture.failedFuture(new AiUnavailableException("AI 服务繁忙，请稍后重试", true));
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            limiter.onCancel();
+            return CompletableFuture.failedFuture(new AiUnavailableException("AI 服务暂时不可用，请稍后重试", true));
+        }
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((value, error) -> {
+            long latencyMs = measureLatency ? (System.nanoTime() - start) / 1_000_000L : -1;
+            limiter.onComplete(outcome(error), start, latencyMs);
+            if (error == null) {
+                circuitBreaker.onSuccess();
+            } else {
+                circuitBreaker.onFailure();
+            }
+        });
+    }
+
+    /**
+     * 按失败原因区分是否为拥塞信号。
+     */
+    static AdaptiveConcurrencyLimiter.Outcome outcome(Throwable error) {
+        if (error == null) {
+            return AdaptiveConcurrencyLimiter.Outcome.SUCCESS;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof TimeoutException || cause instanceof HttpTimeoutException) {
+            return AdaptiveConcurrencyLimiter.Outcome.CONGESTION;
+        }
+        if (cause instanceof AiUnavailableException aue
+                && (aue.getStatusCode() == 429 || aue.getStatusCode() >= 500)) {
+            return AdaptiveConcurrencyLimiter.Outcome.CONGESTION;
+        }
+        return AdaptiveConcurrencyLimiter.Outcome.FAILURE;
+    }
+
+    /**
+     * 熔断器当前是否放行调用，供路由时判断提供方是否可用。
+     *
+     * @return 熔断器未打开（或冷却已结束）时返回 true
+     */
+    public boolean isAvailable() {
+        return circuitBreaker.isCallPermitted();
+    }
+
+    /**
+     * 熔断器与并发限制的统计信息。
+     *
+     * @return circuitBreaker、concurrency 两部分
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("circuitBreaker", circuitBreaker.stats());
+        stats.put("concurrency", limiter.stats());
+        return stats;
+    }
+}
@@ -0,0 +1,70 @@
+package com.demo.dp.ai;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 大模型上游调用保护的工厂：每个提供方一套独立的熔断器与 AIMD 自适应并发限制，参数共用。
+ *
+ * <p>熔断器（ai.circuit-breaker.*）：最近 window-size 次调用中失败率达到 failure-rate-threshold
+ * （且至少 minimum-calls 次）时打开，open-duration-ms 后半开放行 half-open-probes 次探测。
+ *
+ * <p>并发限制（ai.concurrency.*）：在途调用数上限从 initial-limit 开始，在 min-limit ~ max-limit 之间
+ * 按"成功且在途数达到上限的 grow-utilization 倍时加性增、超时/429/5xx 或耗时超过 latency-threshold-ms
+ * 时乘以 backoff-ratio（每个往返最多一次）"调整。
+ *
+ * <p>按提供方隔离后，一个上游故障只会熔断它自己，路由可以继续把请求转给其他提供方。
+ */
+@Component
+public class LlmCallGuardFactory {
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationMs;
+    private final int halfOpenProbes;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdMs;
+    private final double growUtilization;
+
+    public LlmCallGuardFactory(@Value("${ai.circuit-breaker.window-size:20}") int windowSize,
+                               @Value("${ai.circuit-breaker.minimum-calls:10}") int minimumCalls,
+                               @Value("${ai.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                               @Value("${ai.circuit-breaker.open-duration-ms:30000}") long openDurationMs,
+                               @Value("${ai.circuit-breaker.half-open-probes:2}") int halfOpenProbes,
+                               @Value("${ai.concurrency.initial-limit:20}") int initialLimit,
+                               @Value("${ai.concurrency.min-limit:2}") int minLimit,
+                               @Value("${ai.concurrency.max-limit:200}") int maxLimit,
+                               @Value("${ai.concurrency.backoff-ratio:0.7}") double backoffRatio,
+                               @Value("${ai.concurrency.latency-threshold-ms:6000}") long latencyThresholdMs,
+                               @Value("${ai.concurrency.grow-utilization:0.5}") double growUtilization) {
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationMs = openDurationMs;
+        this.halfOpenProbes = halfOpenProbes;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdMs = latencyThresholdMs;
+        this.growUtilization = growUtilization;
+    }
+
+    /**
+     * 为一个提供方创建调用保护层。
+     *
+     * @param name 提供方名称，用于日志与监控
+     * @return 熔断器 + 自适应并发限制
+     */
+    public LlmCallGuard create(String name) {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(name, windowSize, minimumCalls,
+                failureRateThreshold, openDurationMs, halfOpenProbes);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(name, initialLimit, minLimit,
+                maxLimit, backoffRatio, latencyThresholdMs, growUtilization);
+        return new LlmCallGuard(circuitBreaker, limiter);
+    }
+}
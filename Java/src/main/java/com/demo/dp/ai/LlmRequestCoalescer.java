@@ -0,0 +1,122 @@
+package com.demo.dp.ai;
+
+import com.demo.dp.ai.provider.LlmResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 大模型请求合并（single-flight）：同一时刻键相同的多个调用只向上游发出一次请求，共享同一个结果。
+ *
+ * <p>典型场景：用户连续点击"生成"、前端超时重试，会在前一次调用尚未返回时发出完全相同的请求。
+ * 第一个到达的调用（leader）真正发起请求，之后到达的调用（follower）直接等待 leader 的结果，
+ * 既省掉重复的费用，也减轻高峰期上游的限流压力。
+ *
+ * <p>上游调用结束（成功或失败）后立即从在途表中移除，之后到达的相同请求会重新发起调用
+ * （结果复用由 {@link AiResponseCache} 负责）。每个调用方拿到的都是共享结果的副本，
+ * 某个调用方取消或完成自己的 Future 不会影响其他调用方。
+ *
+ * @author System
+ * @version 1.0
+ */
+@Component
+public class LlmRequestCoalescer {
+
+    private final boolean enabled;
+    private final Map<String, CompletableFuture<LlmResult>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder leaders = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * @param enabled 是否启用请求合并（ai.coalesce.enabled，默认 true）
+     */
+    public LlmRequestCoalescer(@Value("${ai.coalesce.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * 执行调用：键相同的调用正在进行时加入等待，否则通过 call 发起新的调用。
+     *
+     * @param key 请求键（如 Prompt 指纹）
+     * @param call 发起上游调用
+     * @return 本次调用的结果以及是否为合并的调用
+     */
+    public Flight execute(String key, Supplier<CompletableFuture<LlmResult>> call) {
+        if (!enabled) {
+            return new Flight(invoke(call), false);
+        }
+        CompletableFuture<LlmResult> mine = new CompletableFuture<>();
+        CompletableFuture<LlmResult> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.increment();
+            return new Flight(existing.copy(), true);
+        }
+        leaders.increment();
+        invoke(call).whenComplete((value, error) -> {
+            // 先移除再完成，保证完成回调中再次发起的相同请求不会加入一个已结束的调用
+            inFlight.remove(key, mine);
+            if (error != null) {
+                mine.completeExceptionally(error);
+            } else {
+                mine.complete(value);
+            }
+        });
+        return new Flight(mine.copy(), false);
+    }
+
+    /**
+     * 供监控使用的统计信息：inFlight（当前在途的上游调用数）、leaders（发起的上游调用数）、coalesced（被合并的调用数）。
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("inFlight", inFlight.size());
+        stats.put("leaders", leaders.sum());
+        stats.put("coalesced", coalesced.sum());
+        return stats;
+    }
+
+    private static CompletableFuture<LlmResult> invoke(Supplier<CompletableFuture<LlmResult>> call) {
+        try {
+            return call.get();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * 一次调用的结果。
+     */
+    public static final class Flight {
+        private final CompletableFuture<LlmResult> future;
+        private final boolean coalesced;
+
+        private Flight(CompletableFuture<LlmResult> future, boolean coalesced) {
+            this.future = future;
+            this.coalesced = coalesced;
+        }
+
+        /**
+         * 调用结果（共享结果的副本）。
+         */
+        public CompletableFuture<LlmResult> getFuture() {
+            return future;
+        }
+
+        /**
+         * 是否加入了其他调用方发起的在途请求（未向上游发出请求）。
+         */
+        public boolean isCoalesced() {
+            return coalesced;
+        }
+    }
+}
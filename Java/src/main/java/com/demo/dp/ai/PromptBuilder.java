@@ -1,67 +1,230 @@
 package com.demo.dp.ai;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import com.demo.dp.domain.entity.OrderRecord;
-import com.demo.dp.domain.entity.Tag;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
- * Prompt 组装器，占位示例。
- * 可以扩展：
- * - 注入模板
- * - 控制上下文截断
- * - 多语言支持
+ * Prompt 组装器：按 token 预算拼装点评生成 Prompt。
+ *
+ * <p>模板在启动时用 {@link PromptTemplate} 预编译一次，可通过 ai.prompt.generate-template 覆盖
+ * （占位符：{userId}、{shopId}、{preference}、{userTags}、{shopTags}、{order}）。
+ *
+ * <p>上下文压缩规则：
+ * <ul>
+ *   <li>消费项：解析订单 items JSON，按小计（单价 × 数量）从高到低取前 ai.prompt.max-order-items 项，
+ *       以"名称×数量"列出，其余汇总为"等共 N 项"；JSON 无法解析时截断原文</li>
+ *   <li>标签：取 {@link TagProfile} 中已去重、按绑定权重从高到低排列的名称，各取前 ai.prompt.max-tags 个；
+ *       标签数未超过上限时直接复用 TagProfile 中与推荐理由共用的拼接字符串</li>
+ *   <li>偏好：用户自由输入，超过 ai.prompt.max-preference-chars 个字符的部分截断</li>
+ * </ul>
+ *
+ * <p>预算控制：按模板预先算好的固定部分 token 数加上各段取值估算 Prompt 大小（不实际渲染），
+ * 超过 ai.prompt.max-tokens 时依次减少消费项、减少权重最低的标签、缩短偏好，直到满足预算，最后只渲染一次。
  */
 @Component
 public class PromptBuilder {
 
+    private static final Logger log = LoggerFactory.getLogger(PromptBuilder.class);
+
     /**
-     * 拼装点评生成 Prompt：包含用户、商家、偏好，以及最近一次消费记录（若有）。
+     * items JSON 无法解析时保留的最大字符数。
+     */
+    private static final int RAW_ITEMS_MAX_CHARS = 80;
+
+    /**
+     * 默认的点评生成模板。
+     */
+    public static final String DEFAULT_GENERATE_TEMPLATE = """
+            请基于以下信息生成一条用户点评：
+            - 用户ID: {userId}
+            - 商家ID: {shopId}
+            - 用户自由输入的偏好: {preference}
+            - 用户标签画像: {userTags}
+            - 商家标签特征: {shopTags}
+            - 历史消费: {order}
+            要求：结合上述信息，用中文生成一条真实、具体的用餐点评，50~120字，避免夸大或虚假表述。
+            """;
+
+    private final ObjectMapper objectMapper;
+    private final PromptTemplate generateTemplate;
+    private final int maxTokens;
+    private final int maxOrderItems;
+    private final int maxTags;
+    private final int maxPreferenceChars;
+
+    /**
+     * @param objectMapper JSON 解析，用于读取订单 items
+     * @param generateTemplate 点评生成模板，为空时使用 {@link #DEFAULT_GENERATE_TEMPLATE}
+     * @param maxTokens Prompt 的 token 预算（估算值）
+     * @param maxOrderItems 最多列出的消费项数
+     * @param maxTags 用户标签、商家标签各自最多列出的个数
+     * @param maxPreferenceChars 偏好文本最多保留的字符数
+     */
+    public PromptBuilder(ObjectMapper objectMapper,
+                         @Value("${ai.prompt.generate-template:}") String generateTemplate,
+                         @Value("${ai.prompt.max-tokens:400}") int maxTokens,
+                         @Value("${ai.prompt.max-order-items:5}") int maxOrderItems,
+                         @Value("${ai.prompt.max-tags:8}") int maxTags,
+                         @Value("${ai.prompt.max-preference-chars:100}") int maxPreferenceChars) {
+        this.objectMapper = objectMapper;
+        this.generateTemplate = PromptTemplate.compile(
+                generateTemplate == null || generateTemplate.isBlank() ? DEFAULT_GENERATE_TEMPLATE : generateTemplate,
+                "userId", "shopId", "preference", "userTags", "shopTags", "order");
+        this.maxTokens = maxTokens;
+        this.maxOrderItems = Math.max(0, maxOrderItems);
+        this.maxTags = Math.max(0, maxTags);
+        this.maxPreferenceChars = Math.max(0, maxPreferenceChars);
+    }
+
+    /**
+     * 拼装点评生成 Prompt：包含用户、商家、偏好，以及最近一次消费记录（若有），总长度受 token 预算约束。
      *
      * @param userId      用户 ID
      * @param shopId      商家 ID
      * @param preference  用户的口味/风格偏好描述，可为空（来自前端输入）
      * @param latestOrder 用户在该店最近一次消费记录，可为空
-     * @param userTags    用户标签列表（如：爱吃辣、环境控），可为空
-     * @param shopTags    商家标签列表（如：火锅、适合聚会），可为空
+     * @param profile     本次请求的标签画像（标签按权重从高到低）
      * @return 拼装好的 Prompt 文本
      */
     public String buildGeneratePrompt(Long userId,
                                       Long shopId,
                                       String preference,
                                       OrderRecord latestOrder,
-                                      List<Tag> userTags,
-                                      List<Tag> shopTags) {
-        String orderContext = latestOrder == null ? "无历史消费记录"
-                : "最近一次消费：金额 " + latestOrder.getAmount() + "，到店时间 " + latestOrder.getVisitTime()
-                + "，消费项 " + latestOrder.getItems();
-
-        String userTagStr = (userTags == null || userTags.isEmpty())
-                ? "无"
-                : userTags.stream()
-                          .map(Tag::getName)
-                          .filter(n -> n != null && !n.isBlank())
-                          .collect(Collectors.joining("、"));
-
-        String shopTagStr = (shopTags == null || shopTags.isEmpty())
-                ? "无"
-                : shopTags.stream()
-                          .map(Tag::getName)
-                          .filter(n -> n != null && !n.isBlank())
-                          .collect(Collectors.joining("、"));
-
-        return """
-                请基于以下信息生成一条用户点评：
-                - 用户ID: %d
-                - 商家ID: %d
-                - 用户自由输入的偏好: %s
-                - 用户标签画像: %s
-                - 商家标签特征: %s
-                - 历史消费: %s
-                要求：结合上述信息，用中文生成一条真实、具体的用餐点评，50~120字，避免夸大或虚假表述。
-                """.formatted(userId, shopId, preference, userTagStr, shopTagStr, orderContext);
+                                      TagProfile profile) {
+        List<String> userTagNames = profile.getUserTagNames();
+        List<String> shopTagNames = profile.getShopTagNames();
+        int userTagLimit = Math.min(maxTags, userTagNames.size());
+        int shopTagLimit = Math.min(maxTags, shopTagNames.size());
+        List<String> itemLabels = latestOrder == null ? List.of() : parseItemLabels(latestOrder.getItems());
+        int itemLimit = Math.min(maxOrderItems, itemLabels.size());
+        int prefLimit = preference == null ? 0 : Math.min(maxPreferenceChars, preference.length());
+
+        String pref = truncate(preference, prefLimit);
+        String userTagStr = tagString(userTagNames, userTagLimit, profile.getUserTagStr());
+        String shopTagStr = tagString(shopTagNames, shopTagLimit, profile.getShopTagStr());
+        String order = orderContext(latestOrder, itemLabels, itemLimit);
+        int tokens = generateTemplate.estimateTokens(userId, shopId, pref, userTagStr, shopTagStr, order);
+        int originalTokens = tokens;
+        // 超出预算时按"消费项 -> 标签（两侧交替去掉最后一个）-> 偏好减半"的顺序逐步压缩
+        while (tokens > maxTokens) {
+            if (itemLimit > 0) {
+                itemLimit--;
+                order = orderContext(latestOrder, itemLabels, itemLimit);
+            } else if (userTagLimit > 0 && userTagLimit >= shopTagLimit) {
+                userTagLimit--;
+                userTagStr = tagString(userTagNames, userTagLimit, profile.getUserTagStr());
+            } else if (shopTagLimit > 0) {
+                shopTagLimit--;
+                shopTagStr = tagString(shopTagNames, shopTagLimit, profile.getShopTagStr());
+            } else if (prefLimit > 0) {
+                prefLimit /= 2;
+                pref = truncate(preference, prefLimit);
+            } else {
+                break;
+            }
+            tokens = generateTemplate.estimateTokens(userId, shopId, pref, userTagStr, shopTagStr, order);
+        }
+        if (tokens != originalTokens) {
+            log.debug("Prompt 已压缩, userId={}, shopId={}, tokens {} -> {}", userId, shopId, originalTokens, tokens);
+        }
+        return generateTemplate.render(userId, shopId, pref, userTagStr, shopTagStr, order);
     }
-}
 
+    /**
+     * 标签字符串：全部列出时直接复用 TagProfile 中已拼好的字符串，否则拼接前 limit 个；没有标签时为"无"。
+     */
+    private static String tagString(List<String> names, int limit, String joinedAll) {
+        if (limit <= 0) {
+            return "无";
+        }
+        return limit >= names.size() ? joinedAll : String.join("、", names.subList(0, limit));
+    }
+
+    /**
+     * 历史消费描述：消费项列出前 limit 项，其余汇总为"等共 N 项"；未能解析为列表时截断原文。
+     */
+    private static String orderContext(OrderRecord latestOrder, List<String> itemLabels, int limit) {
+        if (latestOrder == null) {
+            return "无历史消费记录";
+        }
+        String items;
+        String rawItems = latestOrder.getItems();
+        if (itemLabels.isEmpty()) {
+            items = rawItems == null || rawItems.isBlank() || "[]".equals(rawItems.strip())
+                    ? "无" : truncate(rawItems, RAW_ITEMS_MAX_CHARS);
+        } else if (limit >= itemLabels.size()) {
+            items = String.join("、", itemLabels);
+        } else {
+            items = (limit == 0 ? "" : String.join("、", itemLabels.subList(0, limit)) + "等")
+                    + "共 " + itemLabels.size() + " 项";
+        }
+        return "最近一次消费：金额 " + latestOrder.getAmount() + "，到店时间 " + latestOrder.getVisitTime()
+                + "，消费项 " + items;
+    }
+
+    /**
+     * 解析订单 items JSON（[{"name","price","count"}]），按小计从高到低排序后转为"名称×数量"；
+     * 无法解析时返回空列表。
+     */
+    private List<String> parseItemLabels(String rawItems) {
+        if (rawItems == null || rawItems.isBlank()) {
+            return List.of();
+        }
+        try {
+            JsonNode root = objectMapper.readTree(rawItems);
+            if (!root.isArray()) {
+                return List.of();
+            }
+            List<OrderItem> items = new ArrayList<>(root.size());
+            for (JsonNode node : root) {
+                String name = node.path("name").asText("");
+                if (name.isBlank()) {
+                    continue;
+                }
+                int count = Math.max(1, node.path("count").asInt(1));
+                BigDecimal price = node.path("price").isNumber() ? node.path("price").decimalValue() : BigDecimal.ZERO;
+                items.add(new OrderItem(name.strip(), count, price.multiply(BigDecimal.valueOf(count))));
+            }
+            items.sort(Comparator.comparing((OrderItem i) -> i.subtotal).reversed());
+            List<String> labels = new ArrayList<>(items.size());
+            for (OrderItem item : items) {
+                labels.add(item.count > 1 ? item.name + "×" + item.count : item.name);
+            }
+            return labels;
+        } catch (Exception e) {
+            return List.of();
+        }
+    }
+
+    private static String truncate(String text, int maxChars) {
+        if (text == null || text.length() <= maxChars) {
+            return text;
+        }
+        return text.substring(0, maxChars) + "…";
+    }
+
+    /**
+     * 一个消费项。
+     */
+    private static final class OrderItem {
+        private final String name;
+        private final int count;
+        private final BigDecimal subtotal;
+
+        private OrderItem(String name, int count, BigDecimal subtotal) {
+            this.name = name;
+            this.count = count;
+            this.subtotal = subtotal;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.demo.dp.ai;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译的 Prompt 模板：启动时把模板解析为"固定文本段 + 占位符"序列，渲染时按顺序写入线程复用的缓冲区。
+ *
+ * <p>模板语法：{@code {name}} 表示占位符，名称由字母、数字、下划线组成；{@code {{} 和 {@code }}} 分别输出
+ * 字面量的左右花括号。占位符的参数顺序由 {@link #compile(String, String...)} 的 names 决定，
+ * 同一个占位符可以在模板中出现多次。
+ *
+ * <p>与 {@code String.formatted} 相比：
+ * <ul>
+ *   <li>每次渲染不再重新解析格式串，不创建 Formatter</li>
+ *   <li>渲染写入每个线程复用的 StringBuilder，不再为每次渲染分配格式化缓冲区；
+ *       缓冲区超过 {@value #MAX_RETAINED_CAPACITY} 个字符时不再保留，避免个别超长 Prompt 长期占用内存</li>
+ *   <li>固定文本段的 token 数在编译时算好，{@link #estimateTokens} 不渲染即可估算 Prompt 大小</li>
+ * </ul>
+ *
+ * <p>不可变，线程安全。
+ */
+public final class PromptTemplate {
+
+    /**
+     * 线程复用缓冲区保留的最大容量（字符）。
+     */
+    private static final int MAX_RETAINED_CAPACITY = 16 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+    /**
+     * 固定文本段，literals[i] 在 slots[i] 之前输出；最后一段在所有占位符之后输出。
+     */
+    private final String[] literals;
+    private final int[] slots;
+    private final int argCount;
+    private final int fixedTokens;
+
+    private PromptTemplate(String[] literals, int[] slots, int argCount) {
+        this.literals = literals;
+        this.slots = slots;
+        this.argCount = argCount;
+        StringBuilder fixed = new StringBuilder();
+        for (String literal : literals) {
+            fixed.append(literal);
+        }
+        this.fixedTokens = TokenEstimator.estimate(fixed.toString());
+    }
+
+    /**
+     * 解析模板。
+     *
+     * @param template 模板文本
+     * @param names 占位符名称，顺序即 {@link #render} 的参数顺序
+     * @return 编译后的模板
+     * @throws IllegalArgumentException 模板引用了未声明的占位符，或花括号不配对
+     */
+    public static PromptTemplate compile(String template, String... names) {
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            index.put(names[i], i);
+        }
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < template.length()) {
+            char c = template.charAt(i);
+            if (c == '{' && i + 1 < template.length() && template.charAt(i + 1) == '{') {
+                literal.append('{');
+                i += 2;
+            } else if (c == '}' && i + 1 < template.length() && template.charAt(i + 1) == '}') {
+                literal.append('}');
+                i += 2;
+            } else if (c == '{') {
+                int end = template.indexOf('}', i);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Prompt 模板中的 { 没有配对的 }，位置 " + i);
+                }
+                String name = template.substring(i + 1, end);
+                Integer slot = index.get(name);
+                if (slot == null) {
+                    throw new IllegalArgumentException("Prompt 模板引用了未声明的占位符: {" + name + "}");
+                }
+                literals.add(literal.toString());
+                literal.setLength(0);
+                slots.add(slot);
+                i = end + 1;
+            } else if (c == '}') {
+                throw new IllegalArgumentException("Prompt 模板中的 } 没有配对的 {，位置 " + i);
+            } else {
+                literal.append(c);
+                i++;
+            }
+        }
+        literals.add(literal.toString());
+        return new PromptTemplate(literals.toArray(new String[0]),
+                slots.stream().mapToInt(Integer::intValue).toArray(), names.length);
+    }
+
+    /**
+     * 渲染模板。参数为 null 时输出 "null"（与 String.format 一致）。
+     *
+     * <p>分配：结果字符串，调用方的可变参数数组，以及调用方传入 long 时的装箱（-128~127 以外）；
+     * 非字符串、非 Long 的参数按 {@code StringBuilder.append(Object)} 输出，会调用其 toString。
+     *
+     * @param args 占位符取值，顺序与编译时的 names 一致
+     * @return 渲染结果
+     */
+    public String render(Object... args) {
+        if (args.length != argCount) {
+            throw new IllegalArgumentException("Prompt 模板需要 " + argCount + " 个参数，实际 " + args.length);
+        }
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        for (int i = 0; i < slots.length; i++) {
+            sb.append(literals[i]);
+            Object arg = args[slots[i]];
+            if (arg instanceof CharSequence cs) {
+                sb.append(cs);
+            } else if (arg instanceof Long l) {
+                sb.append(l.longValue());
+            } else {
+                sb.append(arg);
+            }
+        }
+        sb.append(literals[literals.length - 1]);
+        String result = sb.toString();
+        if (sb.capacity() > MAX_RETAINED_CAPACITY) {
+            BUFFER.remove();
+        }
+        return result;
+    }
+
+    /**
+     * 估算渲染结果的 token 数：固定文本段（编译时已算好）加上各占位符取值，不拼接完整 Prompt。
+     * 各段分别取整，结果可能比整体估算略大，偏保守。非字符串参数会先转为字符串（有分配）。
+     *
+     * @param args 占位符取值，顺序与编译时的 names 一致
+     * @return 估算的 token 数
+     */
+    public int estimateTokens(Object... args) {
+        int tokens = fixedTokens;
+        for (int slot : slots) {
+            Object arg = args[slot];
+            tokens += TokenEstimator.estimate(arg instanceof String s ? s : String.valueOf(arg));
+        }
+        return tokens;
+    }
+}
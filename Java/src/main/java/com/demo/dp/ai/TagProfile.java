@@ -0,0 +1,116 @@
+package com.demo.dp.ai;
+
+import com.demo.dp.domain.entity.Tag;
+import com.demo.dp.search.KeywordDictionary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 单次 AI 请求内的标签画像：用户标签、商家标签，以及由它们派生出的偏好关键词。
+ *
+ * <p>推荐/生成链路的多个步骤（推断偏好、构建排序关键词、拼装推荐理由、组装 Prompt）都需要同一份标签数据，
+ * 该对象在请求开始时加载一次，然后在整条链路中传递，避免每个步骤各自重新查询标签。
+ *
+ * <p>对象创建后不可变，可安全地在线程间传递。
+ */
+public class TagProfile {
+
+    private final List<Tag> userTags;
+    private final List<Tag> shopTags;
+    private final List<String> userTagNames;
+    private final List<String> shopTagNames;
+    private final String userTagStr;
+    private final String shopTagStr;
+    private final List<String> derivedKeywords;
+
+    /**
+     * @param userTags 用户标签，可为 null（匿名用户）
+     * @param shopTags 商家标签，可为 null
+     * @param dictionary 关键词词典（按优先级排列），为 null 时不推断偏好关键词
+     */
+    public TagProfile(List<Tag> userTags, List<Tag> shopTags, KeywordDictionary dictionary) {
+        this.userTags = userTags == null ? List.of() : Collections.unmodifiableList(userTags);
+        this.shopTags = shopTags == null ? List.of() : Collections.unmodifiableList(shopTags);
+        this.userTagNames = distinctNames(this.userTags);
+        this.shopTagNames = distinctNames(this.shopTags);
+        this.userTagStr = String.join("、", userTagNames);
+        this.shopTagStr = String.join("、", shopTagNames);
+        this.derivedKeywords = deriveKeywords(dictionary);
+    }
+
+    /**
+     * 用户标签列表（不可修改）。
+     */
+    public List<Tag> getUserTags() {
+        return userTags;
+    }
+
+    /**
+     * 商家标签列表（不可修改）。
+     */
+    public List<Tag> getShopTags() {
+        return shopTags;
+    }
+
+    /**
+     * 用户标签名称（去重、去空，保持传入顺序即权重顺序，不可修改）。
+     */
+    public List<String> getUserTagNames() {
+        return userTagNames;
+    }
+
+    /**
+     * 商家标签名称（去重、去空，保持传入顺序即权重顺序，不可修改）。
+     */
+    public List<String> getShopTagNames() {
+        return shopTagNames;
+    }
+
+    /**
+     * 用户标签名称，以"、"连接；没有标签时为空字符串。推荐理由与生成 Prompt 共用这一份字符串。
+     */
+    public String getUserTagStr() {
+        return userTagStr;
+    }
+
+    /**
+     * 商家标签名称，以"、"连接；没有标签时为空字符串。
+     */
+    public String getShopTagStr() {
+        return shopTagStr;
+    }
+
+    /**
+     * 在用户/商家标签名称中出现过的词典关键词，按词典顺序排列（如"辣"、"环境"）。
+     */
+    public List<String> getDerivedKeywords() {
+        return derivedKeywords;
+    }
+
+    /**
+     * 从词典中找出被任一标签名称包含的关键词，保持词典顺序并去重。
+     */
+    private List<String> deriveKeywords(KeywordDictionary dictionary) {
+        if (dictionary == null || (userTagNames.isEmpty() && shopTagNames.isEmpty())) {
+            return List.of();
+        }
+        List<String> names = new ArrayList<>(userTagNames.size() + shopTagNames.size());
+        names.addAll(userTagNames);
+        names.addAll(shopTagNames);
+        return Collections.unmodifiableList(dictionary.matchAny(names));
+    }
+
+    private static List<String> distinctNames(List<Tag> tags) {
+        Set<String> names = new LinkedHashSet<>();
+        for (Tag t : tags) {
+            if (t.getName() != null && !t.getName().isBlank()) {
+                names.add(t.getName());
+            }
+        }
+        return List.copyOf(names);
+    }
+}
@@ -0,0 +1,51 @@
+package com.demo.dp.ai;
+
+/**
+ * Token 数估算：不依赖具体模型的分词器，按字符类别粗略估算，用于控制 Prompt 大小和记录日志。
+ *
+ * <p>估算规则（偏保守，宁可高估）：
+ * <ul>
+ *   <li>中日韩文字、全角符号：每个字符记 1 个 token</li>
+ *   <li>其他字符（英文字母、数字、半角符号、空白）：每 4 个字符记 1 个 token</li>
+ * </ul>
+ * 主流中文模型（通义千问、GPT-4 系列）对常用汉字的实际切分通常在 0.6~1 个 token/字之间。
+ */
+public final class TokenEstimator {
+
+    private TokenEstimator() {
+    }
+
+    /**
+     * 估算文本的 token 数。
+     *
+     * @param text 文本，可为 null
+     * @return 估算的 token 数，空文本为 0
+     */
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int wide = 0;
+        int narrow = 0;
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            if (isWide(cp)) {
+                wide++;
+            } else {
+                narrow++;
+            }
+            i += Character.charCount(cp);
+        }
+        return wide + (narrow + 3) / 4;
+    }
+
+    private static boolean isWide(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL
+                || (cp >= 0x3000 && cp <= 0x303F)   // 中文标点
+                || (cp >= 0xFF00 && cp <= 0xFFEF);  // 全角字符
+    }
+}
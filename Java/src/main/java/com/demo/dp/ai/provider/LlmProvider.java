@@ -0,0 +1,64 @@
+package com.demo.dp.ai.provider;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * 大模型提供方 SPI：每个实现对应一个可调用的上游（本地 mock、OpenAI 兼容接口、通义千问等）。
+ *
+ * <p>实现要求：
+ * <ul>
+ *   <li>方法立即返回，不阻塞调用线程；失败时 Future 以 {@link com.demo.dp.ai.AiUnavailableException} 结束</li>
+ *   <li>自行负责熔断、并发限制等上游保护（见 {@link com.demo.dp.ai.LlmCallGuard}）</li>
+ *   <li>线程安全，可被多个请求并发调用</li>
+ * </ul>
+ *
+ * <p>由 {@link LlmRouter} 按近期延迟与错误率选择使用哪个提供方。
+ */
+public interface LlmProvider {
+
+    /**
+     * 提供方名称，在配置中唯一，会记录到 ai_call_log.provider。
+     *
+     * @return 名称，如 "qwen"、"openai"、"mock"
+     */
+    String name();
+
+    /**
+     * 非流式生成。
+     *
+     * @param prompt 拼接好的 prompt
+     * @param maxTokens 生成的最大 token 数
+     * @return 完整的生成文本
+     */
+    CompletableFuture<String> complete(String prompt, int maxTokens);
+
+    /**
+     * 流式生成：每收到一段增量文本回调一次 onToken。
+     *
+     * @param prompt 拼接好的 prompt
+     * @param maxTokens 生成的最大 token 数
+     * @param onToken 增量文本回调，按顺序执行，不应阻塞
+     * @return 完整的生成文本
+     */
+    CompletableFuture<String> stream(String prompt, int maxTokens, Consumer<String> onToken);
+
+    /**
+     * 当前是否可以接收调用（如熔断器未打开）。路由时不可用的提供方排在最后。
+     *
+     * @return 是否可用
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * 提供方自身的运行状态（如熔断器、并发限制），用于监控。
+     *
+     * @return 状态信息，可为空 Map
+     */
+    default Map<String, Object> guardStats() {
+        return Map.of();
+    }
+}
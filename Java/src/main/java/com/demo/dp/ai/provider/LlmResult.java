@@ -0,0 +1,29 @@
+package com.demo.dp.ai.provider;
+
+/**
+ * 一次大模型调用的结果：生成文本以及实际产生该结果的提供方。
+ */
+public class LlmResult {
+
+    private final String text;
+    private final String provider;
+
+    public LlmResult(String text, String provider) {
+        this.text = text;
+        this.provider = provider;
+    }
+
+    /**
+     * 生成文本。
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * 产生结果的提供方名称。
+     */
+    public String getProvider() {
+        return provider;
+    }
+}
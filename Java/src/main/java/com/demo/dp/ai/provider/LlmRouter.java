@@ -0,0 +1,325 @@
+package com.demo.dp.ai.provider;
+
+import com.demo.dp.ai.AiUnavailableException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 多提供方路由：按近期表现给提供方排序，优先调用表现最好的，慢了就对冲（hedging），失败就转移。
+ *
+ * <p>排序规则：
+ * <ul>
+ *   <li>每个提供方保留最近 window-size 次调用的成败，以及其中成功调用的耗时</li>
+ *   <li>得分 = 成功调用的 p95 耗时 × (1 + error-penalty × 错误率)，越小越优先；
+ *       窗口内没有成功调用的得分为无穷大（快速失败的提供方不会因为"耗时短"排到前面）</li>
+ *   <li>样本数不足 min-samples 的提供方得分为 0，排在前面，先积累样本（相同得分按配置顺序）</li>
+ *   <li>熔断中的提供方（{@link LlmProvider#isAvailable()} 为 false）排在最后，只作为最后的兜底</li>
+ *   <li>非流式调用记总耗时，流式调用记首字耗时，两者量级不同，分别统计、分别排名：
+ *       {@link #complete} 按非流式窗口排序，{@link #stream} 按流式窗口排序</li>
+ * </ul>
+ *
+ * <p>非流式调用 {@link #complete}：
+ * <ul>
+ *   <li>先调用排名第一的提供方；hedge-delay-ms 后仍未返回，就同时向排名第二的提供方发出请求（只对冲一次）</li>
+ *   <li>任一提供方失败，立即按排名调用下一个尚未调用的提供方（故障转移）</li>
+ *   <li>最先成功的结果胜出；落后的调用不取消，让它自然结束，其耗时照样计入统计</li>
+ *   <li>全部失败时以最后一个错误结束</li>
+ * </ul>
+ *
+ * <p>流式调用 {@link #stream} 不做对冲（两路同时推送会让用户看到重复内容），
+ * 只在还没推送任何内容时失败才转移到下一个提供方；已经推送了部分内容后失败则直接结束。
+ */
+public class LlmRouter {
+
+    private final List<LlmProvider> providers;
+    /**
+     * 非流式调用的总耗时窗口
+     */
+    private final Map<String, ProviderWindow> windows = new HashMap<>();
+    /**
+     * 流式调用的首字耗时窗口
+     */
+    private final Map<String, ProviderWindow> streamWindows = new HashMap<>();
+    private final long hedgeDelayMs;
+    private final int minSamples;
+    private final double errorPenalty;
+
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder failovers = new LongAdder();
+
+    /**
+     * @param providers 提供方列表（配置顺序），至少一个，名称不能重复
+     * @param hedgeDelayMs 对冲延迟（毫秒），小于等于0表示不对冲
+     * @param windowSize 每个提供方统计的最近调用次数
+     * @param minSamples 参与排序所需的最少样本数
+     * @param errorPenalty 错误率惩罚系数
+     */
+    public LlmRouter(List<LlmProvider> providers, long hedgeDelayMs, int windowSize, int minSamples,
+                     double errorPenalty) {
+        if (providers == null || providers.isEmpty()) {
+            throw new IllegalArgumentException("至少需要配置一个大模型提供方");
+        }
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("ai.routing.window-size 必须大于0");
+        }
+        for (LlmProvider provider : providers) {
+            if (windows.put(provider.name(), new ProviderWindow(windowSize)) != null) {
+                throw new IllegalArgumentException("大模型提供方名称重复: " + provider.name());
+            }
+            streamWindows.put(provider.name(), new ProviderWindow(windowSize));
+        }
+        this.providers = List.copyOf(providers);
+        this.hedgeDelayMs = hedgeDelayMs;
+        this.minSamples = Math.min(Math.max(1, minSamples), windowSize);
+        this.errorPenalty = errorPenalty;
+    }
+
+    /**
+     * 非流式生成，带对冲与故障转移。
+     *
+     * @param prompt 拼接好的 prompt
+     * @param maxTokens 生成的最大 token 数
+     * @return 生成结果及产生结果的提供方；全部失败时以 {@link AiUnavailableException} 结束
+     */
+    public CompletableFuture<LlmResult> complete(String prompt, int maxTokens) {
+        List<LlmProvider> ranked = rank(windows);
+        CompletableFuture<LlmResult> result = new CompletableFuture<>();
+        AtomicInteger launched = new AtomicInteger(1);
+        AtomicInteger outstanding = new AtomicInteger(1);
+        AtomicBoolean hedged = new AtomicBoolean();
+        Attempt attempt = new Attempt() {
+            @Override
+            public void launch(int index) {
+                LlmProvider provider = ranked.get(index);
+                long start = System.nanoTime();
+                invoke(() -> provider.complete(prompt, maxTokens)).whenComplete((text, error) -> {
+                    long latencyMs = (System.nanoTime() - start) / 1_000_000L;
+                    windows.get(provider.name()).record(error == null, latencyMs);
+                    if (error == null) {
+                        if (result.complete(new LlmResult(text, provider.name())) && index == 1 && hedged.get()) {
+                            hedgeWins.increment();
+                        }
+                        return;
+                    }
+                    // 失败：还有没调用过的提供方就转移过去，否则在所有在途调用都结束后整体失败
+                    int next = launched.getAndIncrement();
+                    if (!result.isDone() && next < ranked.size()) {
+                        failovers.increment();
+                        outstanding.incrementAndGet();
+                        launch(next);
+                    }
+                    if (outstanding.decrementAndGet() == 0) {
+                        result.completeExceptionally(unwrap(error));
+                    }
+                });
+            }
+        };
+        attempt.launch(0);
+        if (hedgeDelayMs > 0 && ranked.size() > 1) {
+            CompletableFuture.delayedExecutor(hedgeDelayMs, TimeUnit.MILLISECONDS).execute(() -> {
+                // 只有第二个提供方还没因为故障转移被调用过时才对冲
+                if (!result.isDone() && launched.compareAndSet(1, 2)) {
+                    hedges.increment();
+                    hedged.set(true);
+                    outstanding.incrementAndGet();
+                    attempt.launch(1);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * 流式生成：按排名依次尝试，只在尚未推送任何内容时失败才转移到下一个提供方。
+     *
+     * @param prompt 拼接好的 prompt
+     * @param maxTokens 生成的最大 token 数
+     * @param onToken 增量文本回调
+     * @return 完整文本及产生结果的提供方；失败时以 {@link AiUnavailableException} 结束
+     */
+    public CompletableFuture<LlmResult> stream(String prompt, int maxTokens, Consumer<String> onToken) {
+        List<LlmProvider> ranked = rank(streamWindows);
+        CompletableFuture<LlmResult> result = new CompletableFuture<>();
+        streamFrom(ranked, 0, prompt, maxTokens, onToken, result);
+        return result;
+    }
+
+    /**
+     * 路由统计：每个提供方的可用性、样本数、p95、错误率、得分与自身保护层状态（stream 下为流式调用的首字耗时统计），
+     * 非流式与流式的排名，以及对冲、故障转移次数。
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> perProvider = new LinkedHashMap<>();
+        for (LlmProvider provider : providers) {
+            Map<String, Object> item = windowStats(provider, windows);
+            item.put("available", provider.isAvailable());
+            item.put("stream", windowStats(provider, streamWindows));
+            item.put("guard", provider.guardStats());
+            perProvider.put(provider.name(), item);
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("providers", perProvider);
+        stats.put("ranking", rank(windows).stream().map(LlmProvider::name).toList());
+        stats.put("streamRanking", rank(streamWindows).stream().map(LlmProvider::name).toList());
+        stats.put("hedgeDelayMs", hedgeDelayMs);
+        stats.put("hedges", hedges.sum());
+        stats.put("hedgeWins", hedgeWins.sum());
+        stats.put("failovers", failovers.sum());
+        return stats;
+    }
+
+    private Map<String, Object> windowStats(LlmProvider provider, Map<String, ProviderWindow> source) {
+        ProviderWindow window = source.get(provider.name());
+        Map<String, Object> item = new HashMap<>();
+        item.put("samples", window.samples());
+        item.put("p95Ms", window.p95());
+        item.put("errorRate", window.errorRate());
+        item.put("score", score(window));
+        return item;
+    }
+
+    /**
+     * 当前排名：可用的在前，同组内按所给窗口的得分升序，得分相同保持配置顺序。
+     */
+    private List<LlmProvider> rank(Map<String, ProviderWindow> source) {
+        List<LlmProvider> ranked = new ArrayList<>(providers);
+        Map<String, Boolean> available = new HashMap<>();
+        Map<String, Double> scores = new HashMap<>();
+        for (LlmProvider provider : ranked) {
+            available.put(provider.name(), provider.isAvailable());
+            scores.put(provider.name(), score(source.get(provider.name())));
+        }
+        ranked.sort(Comparator.<LlmProvider, Boolean>comparing(p -> !available.get(p.name()))
+                .thenComparingDouble(p -> scores.get(p.name())));
+        return ranked;
+    }
+
+    private double score(ProviderWindow window) {
+        if (window.samples() < minSamples) {
+            return 0;
+        }
+        long p95 = window.p95();
+        if (p95 < 0) {
+            return Double.MAX_VALUE;
+        }
+        return p95 * (1 + errorPenalty * window.errorRate());
+    }
+
+    private void streamFrom(List<LlmProvider> ranked, int index, String prompt, int maxTokens,
+                            Consumer<String> onToken, CompletableFuture<LlmResult> result) {
+        LlmProvider provider = ranked.get(index);
+        AtomicBoolean emitted = new AtomicBoolean();
+        AtomicLong firstTokenMs = new AtomicLong(-1);
+        long start = System.nanoTime();
+        Consumer<String> tracked = token -> {
+            if (emitted.compareAndSet(false, true)) {
+                firstTokenMs.set((System.nanoTime() - start) / 1_000_000L);
+            }
+            onToken.accept(token);
+        };
+        invoke(() -> provider.stream(prompt, maxTokens, tracked)).whenComplete((text, error) -> {
+            // 流式调用的总耗时取决于生成长度，按首字耗时计入流式窗口；失败时按实际耗时计
+            long ttft = firstTokenMs.get();
+            long latencyMs = ttft >= 0 ? ttft : (System.nanoTime() - start) / 1_000_000L;
+            streamWindows.get(provider.name()).record(error == null, latencyMs);
+            if (error == null) {
+                result.complete(new LlmResult(text, provider.name()));
+            } else if (!emitted.get() && index + 1 < ranked.size()) {
+                failovers.increment();
+                streamFrom(ranked, index + 1, prompt, maxTokens, onToken, result);
+            } else {
+                result.completeExceptionally(unwrap(error));
+            }
+        });
+    }
+
+    private static CompletableFuture<String> invoke(Supplier<CompletableFuture<String>> call) {
+        try {
+            return call.get();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof AiUnavailableException ? cause : new AiUnavailableException("LLM 调用失败: " + cause, cause);
+    }
+
+    /**
+     * 发起第 index 个提供方的调用。
+     */
+    private interface Attempt {
+        void launch(int index);
+    }
+
+    /**
+     * 单个提供方最近 N 次调用的耗时与成败（环形缓冲区），失败调用的耗时记为 -1，不参与 p95。
+     */
+    private static final class ProviderWindow {
+        private final long[] latencies;
+        private final boolean[] failures;
+        private int pos;
+        private int count;
+        private int failureCount;
+
+        private ProviderWindow(int size) {
+            this.latencies = new long[size];
+            this.failures = new boolean[size];
+        }
+
+        synchronized void record(boolean success, long latencyMs) {
+            if (count == latencies.length) {
+                if (failures[pos]) {
+                    failureCount--;
+                }
+            } else {
+                count++;
+            }
+            latencies[pos] = success ? latencyMs : -1;
+            failures[pos] = !success;
+            if (!success) {
+                failureCount++;
+            }
+            pos = (pos + 1) % latencies.length;
+        }
+
+        synchronized int samples() {
+            return count;
+        }
+
+        synchronized double errorRate() {
+            return count == 0 ? 0.0 : (double) failureCount / count;
+        }
+
+        /**
+         * 窗口内成功调用耗时的 p95（毫秒），没有成功调用时返回 -1；窗口很小，直接复制排序。
+         */
+        synchronized long p95() {
+            long[] sorted = Arrays.stream(latencies, 0, count).filter(v -> v >= 0).sorted().toArray();
+            if (sorted.length == 0) {
+                return -1;
+            }
+            int idx = (int) Math.ceil(0.95 * sorted.length) - 1;
+            return sorted[Math.max(0, idx)];
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.demo.dp.ai.provider;
+
+import com.demo.dp.ai.AiUnavailableException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 本地 mock 提供方：不访问网络，直接返回 "【mock响应】+ prompt"。
+ *
+ * <p>可配置模拟延迟与失败率，用于在本地验证路由、对冲（hedging）、故障转移与熔断，
+ * 无需真实的大模型 Key。
+ */
+public class MockLlmProvider implements LlmProvider {
+
+    private static final int CHUNK_SIZE = 8;
+
+    private final String name;
+    private final long latencyMs;
+    private final double failureRate;
+
+    /**
+     * @param name 提供方名称
+     * @param latencyMs 模拟延迟（毫秒），0 表示立即返回
+     * @param failureRate 模拟失败率（0~1）
+     */
+    public MockLlmProvider(String name, long latencyMs, double failureRate) {
+        this.name = name;
+        this.latencyMs = Math.max(0, latencyMs);
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public CompletableFuture<String> complete(String prompt, int maxTokens) {
+        return CompletableFuture.supplyAsync(() -> respond(prompt), delayed());
+    }
+
+    @Override
+    public CompletableFuture<String> stream(String prompt, int maxTokens, Consumer<String> onToken) {
+        return CompletableFuture.supplyAsync(() -> {
+            // 把 mock 文本切成小段依次回调，便于联调前端的流式展示
+            String text = respond(prompt);
+            for (int i = 0; i < text.length(); i += CHUNK_SIZE) {
+                onToken.accept(text.substring(i, Math.min(text.length(), i + CHUNK_SIZE)));
+            }
+            return text;
+        }, delayed());
+    }
+
+    private String respond(String prompt) {
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new AiUnavailableException("mock 提供方模拟失败: " + name, false);
+        }
+        return "【mock响应】" + prompt;
+    }
+
+    private Executor delayed() {
+        return latencyMs == 0 ? Runnable::run : CompletableFuture.delayedExecutor(latencyMs, TimeUnit.MILLISECONDS);
+    }
+}
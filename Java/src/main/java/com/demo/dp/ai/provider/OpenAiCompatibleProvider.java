@@ -0,0 +1,310 @@
+package com.demo.dp.ai.provider;
+
+import com.demo.dp.ai.AiUnavailableException;
+import com.demo.dp.ai.LlmCallGuard;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * OpenAI chat/completions 兼容协议的提供方（OpenAI、各类兼容网关、本地 stub 服务等）。
+ *
+ * <p>请求格式：{@code {"model", "messages": [{"role": "user", "content": prompt}], "temperature", "max_tokens"}}，
+ * 流式时加 {@code "stream": true} 并按 SSE 逐行解析 {@code choices[0].delta.content}。
+ *
+ * <p>所有调用经过本提供方自己的 {@link LlmCallGuard}（熔断 + 自适应并发限制），
+ * 一个提供方故障不会影响其他提供方的放行。HttpClient 由所有提供方共享，复用连接池。
+ *
+ * <p>超时：{@code HttpRequest.timeout} 只约束收到响应头之前的等待，响应体迟迟不结束时不会触发。
+ * 因此非流式调用在 Future 上再加 timeoutMs 的总超时；流式调用加两道限制：相邻两行数据的最大间隔
+ * （streamIdleTimeoutMs）与整次调用的最长时间（streamMaxDurationMs）。超时后取消底层请求、关闭连接，
+ * 调用以失败结束，调用保护层据此归还并发名额并记一次熔断失败（不会因挂起的调用一直占着名额、卡在半开）。
+ */
+public class OpenAiCompatibleProvider implements LlmProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenAiCompatibleProvider.class);
+
+    private final String name;
+    private final String endpoint;
+    private final String model;
+    private final String apiKey;
+    private final long timeoutMs;
+    private final long streamIdleTimeoutMs;
+    private final long streamMaxDurationMs;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final LlmCallGuard callGuard;
+
+    /**
+     * @param name 提供方名称
+     * @param endpoint chat/completions 接口地址
+     * @param model 模型名称
+     * @param apiKey API Key，为空时不发送 Authorization 头（如本地 stub 服务）
+     * @param timeoutMs 单次调用超时（毫秒）：非流式调用为收到完整响应的总超时，流式调用为收到响应头之前的等待时间
+     * @param streamIdleTimeoutMs 流式调用相邻两行数据的最大间隔（毫秒）
+     * @param streamMaxDurationMs 流式调用的最长时间（毫秒）
+     * @param httpClient 共享的 HttpClient
+     * @param objectMapper JSON 序列化
+     * @param callGuard 本提供方的调用保护
+     */
+    public OpenAiCompatibleProvider(String name, String endpoint, String model, String apiKey, long timeoutMs,
+                                    long streamIdleTimeoutMs, long streamMaxDurationMs,
+                                    HttpClient httpClient, ObjectMapper objectMapper, LlmCallGuard callGuard) {
+        if (timeoutMs <= 0 || streamIdleTimeoutMs <= 0 || streamMaxDurationMs <= 0) {
+            throw new IllegalArgumentException("大模型调用超时必须大于0, provider=" + name);
+        }
+        this.name = name;
+        this.endpoint = endpoint;
+        this.model = model;
+        this.apiKey = apiKey;
+        this.timeoutMs = timeoutMs;
+        this.streamIdleTimeoutMs = streamIdleTimeoutMs;
+        this.streamMaxDurationMs = streamMaxDurationMs;
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.callGuard = callGuard;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public CompletableFuture<String> complete(String prompt, int maxTokens) {
+        HttpRequest request;
+        try {
+            request = buildRequest(prompt, maxTokens, false);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(new AiUnavailableException("LLM 请求构造失败", e));
+        }
+        return callGuard.execute(() -> {
+                    CompletableFuture<HttpResponse<String>> send =
+                            httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+                    return cancelOnFailure(send.thenApply(this::parseContent)
+                            .orTimeout(timeoutMs, TimeUnit.MILLISECONDS), send);
+                }, true)
+                .exceptionallyCompose(this::translateFailure);
+    }
+
+    @Override
+    public CompletableFuture<String> stream(String prompt, int maxTokens, Consumer<String> onToken) {
+        HttpRequest request;
+        try {
+            request = buildRequest(prompt, maxTokens, true);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(new AiUnavailableException("LLM 请求构造失败", e));
+        }
+        SseLineSubscriber subscriber = new SseLineSubscriber(onToken);
+        HttpResponse.BodyHandler<Void> handler = info -> {
+            if (info.statusCode() / 100 != 2) {
+                // 非 2xx：读完响应体后以异常结束，错误信息里带上状态码和响应体
+                return HttpResponse.BodySubscribers.mapping(
+                        HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8),
+                        body -> {
+                            throw new AiUnavailableException("LLM 流式调用失败, provider=" + name
+                                    + ", status=" + info.statusCode() + ", body=" + body, info.statusCode());
+                        });
+            }
+            return HttpResponse.BodySubscribers.fromLineSubscriber(subscriber);
+        };
+        return callGuard.execute(() -> {
+                    CompletableFuture<HttpResponse<Void>> send = httpClient.sendAsync(request, handler);
+                    CompletableFuture<String> result = send.thenApply(resp -> subscriber.text())
+                            .orTimeout(streamMaxDurationMs, TimeUnit.MILLISECONDS);
+                    // 调用结束（含超时）后不再回调增量文本，避免故障转移后旧连接的迟到数据混入
+                    result.whenComplete((text, error) -> subscriber.close());
+                    watchIdle(result, subscriber);
+                    return cancelOnFailure(result, send);
+                }, false)
+                .exceptionallyCompose(this::translateFailure);
+    }
+
+    /**
+     * 调用失败（含超时）时取消底层 HTTP 请求，释放连接。
+     */
+    private static <T> CompletableFuture<T> cancelOnFailure(CompletableFuture<T> result,
+                                                            CompletableFuture<?> send) {
+        result.whenComplete((value, error) -> {
+            if (error != null) {
+                send.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 流式调用空闲检查：距上一行数据超过 streamIdleTimeoutMs 时以超时结束；否则在剩余时间后再检查。
+     */
+    private void watchIdle(CompletableFuture<String> result, SseLineSubscriber subscriber) {
+        if (result.isDone()) {
+            return;
+        }
+        long remainingNanos = subscriber.lastActivityNanos
+                + TimeUnit.MILLISECONDS.toNanos(streamIdleTimeoutMs) - System.nanoTime();
+        if (remainingNanos <= 0) {
+            result.completeExceptionally(new TimeoutException(
+                    "LLM 流式响应超过 " + streamIdleTimeoutMs + "ms 没有新数据, provider=" + name));
+            return;
+        }
+        CompletableFuture.delayedExecutor(remainingNanos, TimeUnit.NANOSECONDS)
+                .execute(() -> watchIdle(result, subscriber));
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return callGuard.isAvailable();
+    }
+
+    @Override
+    public Map<String, Object> guardStats() {
+        return callGuard.stats();
+    }
+
+    /**
+     * 构造 chat/completions 请求。
+     */
+    private HttpRequest buildRequest(String prompt, int maxTokens, boolean stream) throws Exception {
+        Map<String, Object> body = new HashMap<>();
+        body.put("model", model);
+        body.put("messages", List.of(Map.of("role", "user", "content", prompt)));
+        body.put("temperature", 0.7);
+        body.put("max_tokens", maxTokens);
+        if (stream) {
+            body.put("stream", true);
+        }
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(endpoint))
+                .timeout(Duration.ofMillis(timeoutMs))
+                .header("Content-Type", "application/json")
+                .header("Accept", stream ? "text/event-stream" : "application/json");
+        if (apiKey != null && !apiKey.isBlank()) {
+            // 兼容模式下，通义千问也是标准的 Bearer 头
+            builder.header("Authorization", "Bearer " + apiKey);
+        }
+        return builder.POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body))).build();
+    }
+
+    /**
+     * 解析 chat/completions 响应中的 choices[0].message.content；非 2xx 或未解析到内容时抛出 AiUnavailableException。
+     */
+    private String parseContent(HttpResponse<String> response) {
+        if (response.statusCode() / 100 != 2) {
+            throw new AiUnavailableException("LLM 调用失败, provider=" + name
+                    + ", status=" + response.statusCode() + ", body=" + response.body(), response.statusCode());
+        }
+        JsonNode content;
+        try {
+            content = objectMapper.readTree(response.body())
+                    .path("choices").path(0).path("message").path("content");
+        } catch (Exception e) {
+            throw new AiUnavailableException("LLM 响应解析失败, provider=" + name, e);
+        }
+        if (content.isMissingNode() || content.isNull()) {
+            throw new AiUnavailableException("LLM 响应中没有生成内容, provider=" + name, false);
+        }
+        return content.asText();
+    }
+
+    /**
+     * 统一失败类型：保留 AiUnavailableException，其余（连接失败、超时等）包装为 AiUnavailableException。
+     * 快速拒绝只记一条 warn，上游失败记 error。
+     */
+    private CompletableFuture<String> translateFailure(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        AiUnavailableException ex = cause instanceof AiUnavailableException aue
+                ? aue
+                : new AiUnavailableException("LLM 调用失败, provider=" + name + ": " + cause, cause);
+        if (ex.isRejected()) {
+            log.warn("LLM 调用被拒绝, provider={}: {}", name, ex.getMessage());
+        } else {
+            log.error("LLM 调用失败, provider={}", name, ex);
+        }
+        return CompletableFuture.failedFuture(ex);
+    }
+
+    /**
+     * 逐行解析 OpenAI 兼容的 SSE 响应：只处理 "data:" 行，遇到 "[DONE]" 忽略，
+     * 其余行解析出 choices[0].delta.content 追加到完整文本并回调。每收到一行刷新最近活动时间，供空闲检查使用。
+     */
+    private final class SseLineSubscriber implements Flow.Subscriber<String> {
+        private final StringBuilder full = new StringBuilder();
+        private final Consumer<String> onToken;
+        private volatile long lastActivityNanos = System.nanoTime();
+        private volatile boolean closed;
+
+        private SseLineSubscriber(Consumer<String> onToken) {
+            this.onToken = onToken;
+        }
+
+        private synchronized String text() {
+            return full.toString();
+        }
+
+        private void close() {
+            closed = true;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            lastActivityNanos = System.nanoTime();
+            if (closed || !line.startsWith("data:")) {
+                return;
+            }
+            String data = line.substring(5).trim();
+            if (data.isEmpty() || "[DONE]".equals(data)) {
+                return;
+            }
+            String delta;
+            try {
+                JsonNode content = objectMapper.readTree(data)
+                        .path("choices").path(0).path("delta").path("content");
+                delta = content.isTextual() ? content.asText() : null;
+            } catch (Exception e) {
+                log.warn("LLM 流式响应行解析失败, provider={}, line={}", name, line);
+                return;
+            }
+            if (delta != null && !delta.isEmpty()) {
+                synchronized (this) {
+                    full.append(delta);
+                }
+                try {
+                    onToken.accept(delta);
+                } catch (Exception e) {
+                    // 回调异常（如客户端已断开）不影响继续接收，完整文本仍会返回给调用方记录日志
+                    log.debug("LLM 流式回调异常: {}", e.getMessage());
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // 错误由 sendAsync 返回的 Future 传递给调用方
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
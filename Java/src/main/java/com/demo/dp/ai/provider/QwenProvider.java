@@ -0,0 +1,55 @@
+package com.demo.dp.ai.provider;
+
+import com.demo.dp.ai.LlmCallGuard;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.http.HttpClient;
+
+/**
+ * 通义千问提供方：使用 DashScope 的 compatible-mode 接口，协议与 OpenAI chat/completions 一致。
+ *
+ * <p>与 {@link OpenAiCompatibleProvider} 的区别只在默认值：endpoint 默认为 DashScope 兼容模式地址，
+ * api-key 留空时从环境变量 DASHSCOPE_API_KEY 读取。
+ */
+public class QwenProvider extends OpenAiCompatibleProvider {
+
+    /**
+     * DashScope 兼容模式 chat/completions 地址。
+     */
+    public static final String DEFAULT_ENDPOINT = "https://dashscope.aliyuncs.com/compatible-mode/v1/chat/completions";
+
+    /**
+     * @param name 提供方名称
+     * @param endpoint 接口地址，为空时使用 {@link #DEFAULT_ENDPOINT}
+     * @param model 模型名称，如 qwen3-max
+     * @param apiKey API Key，为空时从环境变量 DASHSCOPE_API_KEY 读取
+     * @param timeoutMs 单次调用超时（毫秒）
+     * @param streamIdleTimeoutMs 流式调用相邻两行数据的最大间隔（毫秒）
+     * @param streamMaxDurationMs 流式调用的最长时间（毫秒）
+     * @param httpClient 共享的 HttpClient
+     * @param objectMapper JSON 序列化
+     * @param callGuard 本提供方的调用保护
+     */
+    public QwenProvider(String name, String endpoint, String model, String apiKey, long timeoutMs,
+                        long streamIdleTimeoutMs, long streamMaxDurationMs,
+                        HttpClient httpClient, ObjectMapper objectMapper, LlmCallGuard callGuard) {
+        super(name,
+                endpoint == null || endpoint.isBlank() ? DEFAULT_ENDPOINT : endpoint,
+                model,
+                resolveApiKey(apiKey),
+                timeoutMs, streamIdleTimeoutMs, streamMaxDurationMs, httpClient, objectMapper, callGuard);
+    }
+
+    /**
+     * 配置中的 api-key 优先，为空时读取环境变量 DASHSCOPE_API_KEY。
+     *
+     * @param apiKey 配置中的 api-key
+     * @return 实际使用的 Key，可能为空
+     */
+    public static String resolveApiKey(String apiKey) {
+        if (apiKey != null && !apiKey.isBlank()) {
+            return apiKey;
+        }
+        return System.getenv("DASHSCOPE_API_KEY");
+    }
+}
@@ -0,0 +1,64 @@
+package com.demo.dp.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * 本地缓存登记处：各业务缓存创建后在此按名称登记，便于统一查看命中率等统计信息。
+ */
+@Component
+public class CacheRegistry {
+
+    private final Map<String, LocalCache<?, ?>> caches = new ConcurrentHashMap<>();
+
+    /**
+     * 创建并登记一个本地缓存。
+     *
+     * @param name 缓存名称，如 "shop"
+     * @param maxSize 最大条目数
+     * @param ttl 存活时间
+     * @param <K> 键类型
+     * @param <V> 值类型
+     * @return 新建的缓存
+     */
+    public <K, V> LocalCache<K, V> create(String name, int maxSize, Duration ttl) {
+        LocalCache<K, V> cache = new LocalCache<>(maxSize, ttl);
+        caches.put(name, cache);
+        return cache;
+    }
+
+    /**
+     * 创建并登记一个同时限制条目数和总权重（如字节数）的本地缓存。
+     *
+     * @param name 缓存名称
+     * @param maxSize 最大条目数
+     * @param ttl 存活时间
+     * @param maxWeight 总权重上限
+     * @param weigher 单个条目的权重函数
+     * @param <K> 键类型
+     * @param <V> 值类型
+     * @return 新建的缓存
+     */
+    public <K, V> LocalCache<K, V> create(String name, int maxSize, Duration ttl,
+                                          long maxWeight, ToLongBiFunction<K, V> weigher) {
+        LocalCache<K, V> cache = new LocalCache<>(maxSize, ttl, maxWeight, weigher);
+        caches.put(name, cache);
+        return cache;
+    }
+
+    /**
+     * 所有已登记缓存的统计信息，按名称排序。
+     *
+     * @return 缓存名称 -> 统计信息
+     */
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        caches.forEach((name, cache) -> result.put(name, cache.stats()));
+        return result;
+    }
+}
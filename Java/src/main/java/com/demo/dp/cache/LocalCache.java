@@ -0,0 +1,282 @@
+package com.demo.dp.cache;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * 进程内本地缓存：容量上限 + 过期时间（TTL）+ LRU 淘汰，并统计命中/未命中/淘汰次数。
+ *
+ * <p>实现说明：
+ * <ul>
+ *   <li>基于访问顺序的 {@link LinkedHashMap}，超过容量时淘汰最久未访问的条目</li>
+ *   <li>可选按"权重"限制总量：构造时传入权重函数（如估算的字节数）和总权重上限，
+ *       条目数或总权重任一超限都会按 LRU 淘汰；单个权重超过上限的条目不缓存</li>
+ *   <li>每个条目记录写入时间，读取时发现已过期则删除并视为未命中</li>
+ *   <li>防止"读库-写缓存"与失效交错时把旧值写回：{@link #invalidate} 留下一个带序号的墓碑（tombstone），
+ *       调用方在读库前取 {@link #stamp()}，读完后用 {@link #put(Object, Object, long)} 写入，
+ *       如果读库期间该键被失效过（条目序号大于 stamp）则放弃写入。墓碑被新值覆盖时序号随新条目保留，
+ *       另一个读者先写入新值后，失效前开始的读者仍会被拒绝；带序号的条目被淘汰或过期后，
+ *       早于其序号的 stamp 一律不再写入（保守处理，只会少缓存一次，不会缓存旧值）</li>
+ *   <li>所有读写在同一把锁内完成，临界区只有几次哈希操作；缓存的目标是省掉一次数据库往返，
+ *       锁开销可以忽略</li>
+ * </ul>
+ *
+ * <p>缓存的值会被多个请求共享，调用方不应修改从缓存中取出的对象。
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class LocalCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final long maxWeight;
+    private final ToLongBiFunction<K, V> weigher;
+    private final LinkedHashMap<K, Entry<V>> map;
+
+    /**
+     * 当前所有条目的权重之和，在 map 锁内维护。
+     */
+    private long totalWeight;
+
+    /**
+     * 失效序号，每次 invalidate/invalidateAll 加一，在 map 锁内维护。
+     */
+    private long sequence;
+
+    /**
+     * 已丢失（被淘汰、过期或清空）的条目中最大的序号：stamp 小于它的写入无法确认是否读到旧值，一律放弃。
+     */
+    private long lostTombstoneSequence;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * @param maxSize 最大条目数，必须大于0
+     * @param ttl 条目写入后的存活时间
+     */
+    public LocalCache(int maxSize, Duration ttl) {
+        this(maxSize, ttl, Long.MAX_VALUE, (k, v) -> 0L);
+    }
+
+    /**
+     * @param maxSize 最大条目数，必须大于0
+     * @param ttl 条目写入后的存活时间
+     * @param maxWeight 所有条目的权重之和上限，必须大于0
+     * @param weigher 计算单个条目权重的函数（如估算的字节数），结果不能为负
+     */
+    public LocalCache(int maxSize, Duration ttl, long maxWeight, ToLongBiFunction<K, V> weigher) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize 必须大于0");
+        }
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("maxWeight 必须大于0");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.map = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * 读取缓存；不存在或已过期时返回 null。
+     *
+     * @param key 键
+     * @return 缓存的值，未命中返回 null
+     */
+    public V get(K key) {
+        long now = System.nanoTime();
+        synchronized (map) {
+            Entry<V> e = map.get(key);
+            if (e != null && e.value != null && now - e.writtenAt < ttlNanos) {
+                hits.increment();
+                return e.value;
+            }
+            if (e != null && now - e.writtenAt >= ttlNanos) {
+                removeEntry(key, e);
+                if (e.value != null) {
+                    expirations.increment();
+                }
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * 写入缓存；超过条目数或总权重上限时淘汰最久未访问的条目。null 值、权重超过上限的值不缓存。
+     *
+     * @param key 键
+     * @param value 值
+     */
+    public void put(K key, V value) {
+        put(key, value, Long.MAX_VALUE);
+    }
+
+    /**
+     * 当前失效序号。读库前取一次，读完后传给 {@link #put(Object, Object, long)}。
+     *
+     * @return 失效序号
+     */
+    public long stamp() {
+        synchronized (map) {
+            return sequence;
+        }
+    }
+
+    /**
+     * 写入从数据库读到的值：如果取 stamp 之后该键被失效过（或无法确认），说明读到的可能是旧值，放弃写入。
+     *
+     * @param key 键
+     * @param value 值
+     * @param stamp 读库前通过 {@link #stamp()} 取得的序号
+     * @return 是否写入
+     */
+    public boolean put(K key, V value, long stamp) {
+        if (value == null) {
+            return false;
+        }
+        long weight = weigher.applyAsLong(key, value);
+        long now = System.nanoTime();
+        synchronized (map) {
+            Entry<V> old = map.get(key);
+            // 不论旧条目是墓碑还是值：值条目继承了覆盖掉的墓碑序号
+            if (stamp < lostTombstoneSequence || (old != null && old.sequence > stamp)) {
+                return false;
+            }
+            if (weight > maxWeight) {
+                if (old != null) {
+                    removeEntry(key, old);
+                }
+                return false;
+            }
+            // 继承该键最近一次失效的序号，之后早于它开始的读者仍会被拒绝
+            map.put(key, new Entry<>(value, now, weight, old == null ? 0 : old.sequence));
+            if (old != null) {
+                totalWeight -= old.weight;
+            }
+            totalWeight += weight;
+            Iterator<Map.Entry<K, Entry<V>>> it = map.entrySet().iterator();
+            while ((map.size() > maxSize || totalWeight > maxWeight) && it.hasNext()) {
+                Entry<V> eldest = it.next().getValue();
+                it.remove();
+                totalWeight -= eldest.weight;
+                lostTombstoneSequence = Math.max(lostTombstoneSequence, eldest.sequence);
+                if (eldest.value != null) {
+                    evictions.increment();
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 删除指定键（数据变更后失效缓存），并留下墓碑，阻止失效前开始的读库结果写回。
+     *
+     * @param key 键
+     */
+    public void invalidate(K key) {
+        synchronized (map) {
+            sequence++;
+            Entry<V> old = map.put(key, new Entry<>(null, System.nanoTime(), 0, sequence));
+            if (old != null) {
+                totalWeight -= old.weight;
+            }
+            Iterator<Map.Entry<K, Entry<V>>> it = map.entrySet().iterator();
+            while (map.size() > maxSize && it.hasNext()) {
+                Entry<V> eldest = it.next().getValue();
+                it.remove();
+                totalWeight -= eldest.weight;
+                lostTombstoneSequence = Math.max(lostTombstoneSequence, eldest.sequence);
+                if (eldest.value != null) {
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * 清空缓存。
+     */
+    public void invalidateAll() {
+        synchronized (map) {
+            map.clear();
+            totalWeight = 0;
+            sequence++;
+            lostTombstoneSequence = sequence;
+        }
+    }
+
+    /**
+     * 当前条目数（可能包含尚未被清理的过期条目和墓碑）。
+     *
+     * @return 条目数
+     */
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    /**
+     * 统计信息快照：size、maxSize、hits、misses、hitRate、evictions（容量淘汰）、expirations（过期清理），
+     * 限制了总权重时还包括 weight、maxWeight。
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (map) {
+            stats.put("size", map.size());
+            if (maxWeight != Long.MAX_VALUE) {
+                stats.put("weight", totalWeight);
+                stats.put("maxWeight", maxWeight);
+            }
+        }
+        stats.put("maxSize", maxSize);
+        stats.put("ttlSeconds", Duration.ofNanos(ttlNanos).toSeconds());
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("hitRate", h + m == 0 ? 0.0 : (double) h / (h + m));
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        return stats;
+    }
+
+    /**
+     * 删除一个条目（调用方持有 map 锁），并记录其序号。
+     */
+    private void removeEntry(K key, Entry<V> e) {
+        map.remove(key);
+        totalWeight -= e.weight;
+        lostTombstoneSequence = Math.max(lostTombstoneSequence, e.sequence);
+    }
+
+    /**
+     * 缓存条目；value 为 null 时表示墓碑。sequence 为该键最近一次失效的序号，值条目从被覆盖的条目继承，从未失效过为 0。
+     */
+    private static final class Entry<V> {
+        private final V value;
+        private final long writtenAt;
+        private final long weight;
+        private final long sequence;
+
+        private Entry(V value, long writtenAt, long weight, long sequence) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+            this.weight = weight;
+            this.sequence = sequence;
+        }
+    }
+}
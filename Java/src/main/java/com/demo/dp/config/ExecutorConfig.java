@@ -0,0 +1,66 @@
+package com.demo.dp.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 线程池配置。
+ *
+ * <p>ioExecutor：有界线程池，用于请求内把多个相互独立的数据库查询并行化（如同时加载用户标签和商家标签）。
+ * 队列满时由调用线程自己执行（CallerRunsPolicy），高峰期退化为串行而不是丢任务。
+ *
+ * <p>sseExecutor：把事件写给 SSE 客户端（见 {@link com.demo.dp.util.SseEventQueue}）。写出可能因客户端网络慢而阻塞，
+ * 与产生事件的线程（大模型 HTTP 回调、定时推送）分开，慢客户端不会拖住它们。
+ * 队列满时拒绝（不能由调用线程执行，否则又回到了阻塞调用线程），对应的连接以错误结束。
+ */
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * 请求内并行查询使用的线程池。
+     *
+     * @param coreSize 核心线程数
+     * @param maxSize 最大线程数
+     * @param queueCapacity 队列容量
+     * @return 线程池
+     */
+    @Bean(name = "ioExecutor")
+    public ThreadPoolTaskExecutor ioExecutor(@Value("${executor.io.core-size:8}") int coreSize,
+                                             @Value("${executor.io.max-size:32}") int maxSize,
+                                             @Value("${executor.io.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("io-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        return executor;
+    }
+
+    /**
+     * SSE 事件写出使用的线程池。
+     *
+     * @param coreSize 核心线程数
+     * @param maxSize 最大线程数
+     * @param queueCapacity 队列容量（等待写出的连接数）
+     * @return 线程池
+     */
+    @Bean(name = "sseExecutor")
+    public ThreadPoolTaskExecutor sseExecutor(@Value("${executor.sse.core-size:4}") int coreSize,
+                                              @Value("${executor.sse.max-size:16}") int maxSize,
+                                              @Value("${executor.sse.queue-capacity:10000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("sse-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+}
@@ -1,5 +1,6 @@
 package com.demo.dp.config;
 
+import com.demo.dp.ai.AiUnavailableException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -35,6 +36,16 @@ public class GlobalExceptionHandler {
         return build(HttpStatus.BAD_REQUEST, msg);
     }
 
+    /**
+     * 大模型调用失败或被熔断/并发限制拒绝：返回 503，提示稍后重试。
+     */
+    @ExceptionHandler(AiUnavailableException.class)
+    public ResponseEntity<Map<String, Object>> handleAiUnavailable(AiUnavailableException ex) {
+        log.warn("AI unavailable: {}", ex.getMessage());
+        String message = ex.isRejected() ? ex.getMessage() : "AI 生成失败，请稍后重试";
+        return build(HttpStatus.SERVICE_UNAVAILABLE, message);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleOther(Exception ex) {
         log.error("Unexpected error", ex);
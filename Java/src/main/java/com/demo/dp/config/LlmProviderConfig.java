@@ -0,0 +1,166 @@
+package com.demo.dp.config;
+
+import com.demo.dp.ai.LlmCallGuardFactory;
+import com.demo.dp.ai.provider.LlmProvider;
+import com.demo.dp.ai.provider.LlmRouter;
+import com.demo.dp.ai.provider.MockLlmProvider;
+import com.demo.dp.ai.provider.OpenAiCompatibleProvider;
+import com.demo.dp.ai.provider.QwenProvider;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 大模型提供方与路由配置。
+ *
+ * <p>所有 HTTP 提供方共享一个 HttpClient（单例，内部维护 keep-alive 连接池，HTTP/2 下同一连接多路复用）
+ * 和一个回调线程池；每个提供方有自己的熔断器与并发限制（{@link LlmCallGuardFactory}）。
+ *
+ * <p>连接池参数：JDK HttpClient 的连接池是 JVM 全局的，参数只能用系统属性设置，且在连接池类初始化时读取一次，
+ * 运行期修改无效。需要调整时在启动参数中指定：
+ * {@code -Djdk.httpclient.keepalive.timeout=60}（空闲长连接保留秒数，HTTP/1.1 默认 1200）、
+ * {@code -Djdk.httpclient.connectionPoolSize=64}（最多保留的空闲连接数，默认不限）。
+ *
+ * <p>提供方来源：
+ * <ul>
+ *   <li>配置了 ai.providers：按列表顺序创建（见 {@link LlmProviderProperties}）</li>
+ *   <li>未配置：按旧的单提供方配置创建一个，名称取 ai.provider；
+ *       ai.provider=mock 或解析不到 API Key 时使用本地 mock，避免启动时报错</li>
+ * </ul>
+ */
+@Configuration
+@EnableConfigurationProperties(LlmProviderProperties.class)
+public class LlmProviderConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmProviderConfig.class);
+
+    /**
+     * 大模型 HttpClient 的回调线程池：只用于处理响应和执行后续回调，不会在等待响应期间被占用。
+     *
+     * @param httpThreads 线程数
+     * @return 线程池
+     */
+    @Bean(name = "aiHttpExecutor", destroyMethod = "shutdown")
+    public ExecutorService aiHttpExecutor(@Value("${ai.http.threads:4}") int httpThreads) {
+        AtomicInteger seq = new AtomicInteger();
+        return Executors.newFixedThreadPool(httpThreads, r -> {
+            Thread t = new Thread(r, "ai-http-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 所有提供方共享的 HttpClient。
+     *
+     * <p>连接池参数见类注释中的 -D 启动参数。
+     *
+     * @param aiHttpExecutor 回调线程池
+     * @param connectTimeoutMs 建立连接超时（毫秒）
+     * @return HttpClient
+     */
+    @Bean
+    public HttpClient aiHttpClient(ExecutorService aiHttpExecutor,
+                                   @Value("${ai.connect-timeout-ms:3000}") int connectTimeoutMs) {
+        return HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(aiHttpExecutor)
+                .build();
+    }
+
+    /**
+     * 多提供方路由。
+     *
+     * @param properties ai.providers / ai.routing
+     * @param aiHttpClient 共享 HttpClient
+     * @param objectMapper JSON 序列化
+     * @param guardFactory 每个提供方的调用保护
+     * @param legacyProvider 旧配置 ai.provider
+     * @param legacyEndpoint 旧配置 ai.endpoint
+     * @param legacyApiKey 旧配置 ai.api-key
+     * @param model 旧配置 ai.model，也是未指定 model 的提供方的默认值
+     * @param timeoutMs 默认单次调用超时（毫秒）
+     * @param streamIdleTimeoutMs 流式调用相邻两行数据的最大间隔（毫秒）
+     * @param streamMaxDurationMs 流式调用的最长时间（毫秒），与流式草稿连接的最长保持时间一致
+     * @return 路由
+     */
+    @Bean
+    public LlmRouter llmRouter(LlmProviderProperties properties,
+                               HttpClient aiHttpClient,
+                               ObjectMapper objectMapper,
+                               LlmCallGuardFactory guardFactory,
+                               @Value("${ai.provider:mock}") String legacyProvider,
+                               @Value("${ai.endpoint:https://api.openai.com/v1/chat/completions}") String legacyEndpoint,
+                               @Value("${ai.api-key:}") String legacyApiKey,
+                               @Value("${ai.model:gpt-3.5-turbo}") String model,
+                               @Value("${ai.timeout-ms:8000}") long timeoutMs,
+                               @Value("${ai.stream-idle-timeout-ms:15000}") long streamIdleTimeoutMs,
+                               @Value("${ai.stream-timeout-ms:60000}") long streamMaxDurationMs) {
+        List<LlmProvider> providers = new ArrayList<>();
+        if (properties.getProviders().isEmpty()) {
+            providers.add(legacyProvider(legacyProvider, legacyEndpoint, legacyApiKey, model, timeoutMs,
+                    streamIdleTimeoutMs, streamMaxDurationMs, aiHttpClient, objectMapper, guardFactory));
+        } else {
+            for (LlmProviderProperties.Provider p : properties.getProviders()) {
+                if (p.getName() == null || p.getName().isBlank()) {
+                    throw new IllegalArgumentException("ai.providers[].name 不能为空");
+                }
+                String providerModel = p.getModel() == null || p.getModel().isBlank() ? model : p.getModel();
+                long providerTimeout = p.getTimeoutMs() == null ? timeoutMs : p.getTimeoutMs();
+                providers.add(switch (p.getType() == null ? "" : p.getType().toLowerCase()) {
+                    case "mock" -> new MockLlmProvider(p.getName(), p.getLatencyMs(), p.getFailureRate());
+                    case "qwen" -> new QwenProvider(p.getName(), p.getEndpoint(), providerModel, p.getApiKey(),
+                            providerTimeout, streamIdleTimeoutMs, streamMaxDurationMs,
+                            aiHttpClient, objectMapper, guardFactory.create(p.getName()));
+                    case "openai-compatible", "openai" -> {
+                        if (p.getEndpoint() == null || p.getEndpoint().isBlank()) {
+                            throw new IllegalArgumentException("ai.providers[" + p.getName() + "].endpoint 不能为空");
+                        }
+                        yield new OpenAiCompatibleProvider(p.getName(), p.getEndpoint(), providerModel,
+                                p.getApiKey(), providerTimeout, streamIdleTimeoutMs, streamMaxDurationMs,
+                                aiHttpClient, objectMapper,
+                                guardFactory.create(p.getName()));
+                    }
+                    default -> throw new IllegalArgumentException("不支持的大模型提供方类型: " + p.getType());
+                });
+            }
+        }
+        LlmProviderProperties.Routing routing = properties.getRouting();
+        log.info("大模型提供方: {}, hedgeDelayMs={}",
+                providers.stream().map(LlmProvider::name).toList(), routing.getHedgeDelayMs());
+        return new LlmRouter(providers, routing.getHedgeDelayMs(), routing.getWindowSize(),
+                routing.getMinSamples(), routing.getErrorPenalty());
+    }
+
+    /**
+     * 按旧的单提供方配置创建提供方：provider=qwen 时 Key 可以来自 DASHSCOPE_API_KEY；
+     * provider=mock 或没有 Key 时使用本地 mock。
+     */
+    private static LlmProvider legacyProvider(String provider, String endpoint, String apiKey, String model,
+                                              long timeoutMs, long streamIdleTimeoutMs, long streamMaxDurationMs,
+                                              HttpClient httpClient, ObjectMapper objectMapper,
+                                              LlmCallGuardFactory guardFactory) {
+        String resolvedKey = "qwen".equalsIgnoreCase(provider) ? QwenProvider.resolveApiKey(apiKey) : apiKey;
+        if (resolvedKey == null || resolvedKey.isBlank() || "mock".equalsIgnoreCase(provider)) {
+            return new MockLlmProvider("mock", 0, 0);
+        }
+        if ("qwen".equalsIgnoreCase(provider)) {
+            return new QwenProvider(provider, endpoint, model, resolvedKey, timeoutMs,
+                    streamIdleTimeoutMs, streamMaxDurationMs, httpClient, objectMapper, guardFactory.create(provider));
+        }
+        return new OpenAiCompatibleProvider(provider, endpoint, model, resolvedKey, timeoutMs,
+                streamIdleTimeoutMs, streamMaxDurationMs, httpClient, objectMapper, guardFactory.create(provider));
+    }
+}
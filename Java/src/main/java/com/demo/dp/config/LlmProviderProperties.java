@@ -0,0 +1,188 @@
+package com.demo.dp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 多提供方大模型配置（ai.providers、ai.routing）。
+ *
+ * <p>示例：
+ * <pre>
+ * ai:
+ *   providers:
+ *     - name: qwen
+ *       type: qwen                # mock / openai-compatible / qwen
+ *       model: qwen3-max
+ *     - name: local
+ *       type: openai-compatible
+ *       endpoint: http://127.0.0.1:8000/v1/chat/completions
+ *       model: llama3
+ *   routing:
+ *     hedge-delay-ms: 2000
+ * </pre>
+ *
+ * <p>ai.providers 为空时沿用单提供方的旧配置（ai.provider / ai.endpoint / ai.api-key / ai.model）。
+ */
+@ConfigurationProperties(prefix = "ai")
+public class LlmProviderProperties {
+
+    private List<Provider> providers = new ArrayList<>();
+
+    private Routing routing = new Routing();
+
+    /**
+     * 单个提供方。
+     */
+    public static class Provider {
+        /** 名称，唯一，记录到 ai_call_log.provider */
+        private String name;
+        /** 类型：mock / openai-compatible / qwen */
+        private String type = "openai-compatible";
+        /** chat/completions 接口地址（qwen 可留空） */
+        private String endpoint;
+        /** 模型名称 */
+        private String model;
+        /** API Key（qwen 留空时读取 DASHSCOPE_API_KEY） */
+        private String apiKey;
+        /** 单次调用超时（毫秒），为空时使用 ai.timeout-ms */
+        private Long timeoutMs;
+        /** mock 专用：模拟延迟（毫秒） */
+        private long latencyMs;
+        /** mock 专用：模拟失败率（0~1） */
+        private double failureRate;
+
+        // region getters/setters
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public void setEndpoint(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        public String getModel() {
+            return model;
+        }
+
+        public void setModel(String model) {
+            this.model = model;
+        }
+
+        public String getApiKey() {
+            return apiKey;
+        }
+
+        public void setApiKey(String apiKey) {
+            this.apiKey = apiKey;
+        }
+
+        public Long getTimeoutMs() {
+            return timeoutMs;
+        }
+
+        public void setTimeoutMs(Long timeoutMs) {
+            this.timeoutMs = timeoutMs;
+        }
+
+        public long getLatencyMs() {
+            return latencyMs;
+        }
+
+        public void setLatencyMs(long latencyMs) {
+            this.latencyMs = latencyMs;
+        }
+
+        public double getFailureRate() {
+            return failureRate;
+        }
+
+        public void setFailureRate(double failureRate) {
+            this.failureRate = failureRate;
+        }
+        // endregion
+    }
+
+    /**
+     * 路由参数。
+     */
+    public static class Routing {
+        /** 首选提供方超过该时间未返回时，向第二个提供方发出对冲请求（毫秒）；小于等于0不对冲 */
+        private long hedgeDelayMs = 2000;
+        /** 每个提供方统计的最近调用次数 */
+        private int windowSize = 50;
+        /** 样本数达到该值才按 p95 参与排序，之前优先调用以积累样本 */
+        private int minSamples = 5;
+        /** 错误率惩罚系数：得分 = p95 × (1 + errorPenalty × 错误率) */
+        private double errorPenalty = 4.0;
+
+        // region getters/setters
+        public long getHedgeDelayMs() {
+            return hedgeDelayMs;
+        }
+
+        public void setHedgeDelayMs(long hedgeDelayMs) {
+            this.hedgeDelayMs = hedgeDelayMs;
+        }
+
+        public int getWindowSize() {
+            return windowSize;
+        }
+
+        public void setWindowSize(int windowSize) {
+            this.windowSize = windowSize;
+        }
+
+        public int getMinSamples() {
+            return minSamples;
+        }
+
+        public void setMinSamples(int minSamples) {
+            this.minSamples = minSamples;
+        }
+
+        public double getErrorPenalty() {
+            return errorPenalty;
+        }
+
+        public void setErrorPenalty(double errorPenalty) {
+            this.errorPenalty = errorPenalty;
+        }
+        // endregion
+    }
+
+    // region getters/setters
+    public List<Provider> getProviders() {
+        return providers;
+    }
+
+    public void setProviders(List<Provider> providers) {
+        this.providers = providers;
+    }
+
+    public Routing getRouting() {
+        return routing;
+    }
+
+    public void setRouting(Routing routing) {
+        this.routing = routing;
+    }
+    // endregion
+}
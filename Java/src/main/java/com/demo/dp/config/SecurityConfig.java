@@ -1,5 +1,6 @@
 package com.demo.dp.config;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -94,6 +95,10 @@ public class SecurityConfig {
             // 配置接口访问权限
             // 细粒度权限：仅放行登录/注册和公开查询，其余需认证
             .authorizeHttpRequests(auth -> auth
+                // 异步派发（返回 CompletableFuture 的接口写回结果）与错误派发：
+                // 原始请求已经过认证，无状态模式下派发时没有 SecurityContext，需放行，否则结果无法写回
+                .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
+
                 // 登录 / 注册
                 .requestMatchers("/api/users/login", "/api/users/register").permitAll()
                 .requestMatchers(HttpMethod.POST, "/api/users/login", "/api/users/register").permitAll()
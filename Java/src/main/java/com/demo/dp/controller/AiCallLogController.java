@@ -86,7 +86,7 @@ public class AiCallLogController {
      * @param page 页码（从0开始），可选，默认0
      * @param size 每页大小，可选，默认10
      * @param type 调用类型筛选（generate/recommend），可选
-     * @param status 状态筛选（1=成功，0=失败），可选
+     * @param status 状态筛选（1=成功，0=失败，2=命中缓存，3=合并请求），可选
      * @param userId 用户ID筛选，可选
      * @param authentication Spring Security 认证对象，用于获取当前登录用户信息（可选）
      * @return AI 调用日志列表（分页结果），HTTP 200 状态码
@@ -0,0 +1,118 @@
+package com.demo.dp.controller;
+
+import com.demo.dp.dto.AiDraftBatchItem;
+import com.demo.dp.dto.AiDraftBatchRequest;
+import com.demo.dp.dto.AiDraftBatchResult;
+import com.demo.dp.service.AiReviewService;
+import com.demo.dp.util.SseEventQueue;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * AI 草稿批量接口控制器。
+ *
+ * <p>面向运营的管理端功能：一次为多组（用户, 商家）预生成点评草稿，代替逐个调用
+ * {@code POST /api/shops/{shopId}/reviews/ai-draft}。
+ *
+ * <p>所有接口都需要用户登录（JWT 认证）。为其他用户生成草稿需要当前用户在 ai.batch.operator-user-ids 中，
+ * 其他用户只能为自己生成（userId 留空即为自己）。
+ *
+ * @author System
+ * @version 1.0
+ */
+@RestController
+@RequestMapping("/api/ai-drafts")
+public class AiDraftController {
+
+    private final AiReviewService aiReviewService;
+    private final long batchTimeoutMs;
+    private final int batchMaxItems;
+    private final Set<Long> operatorUserIds;
+    private final Executor sseExecutor;
+
+    /**
+     * 构造函数：注入 AI 点评服务。
+     *
+     * @param aiReviewService AI 点评业务服务
+     * @param batchTimeoutMs 批量生成连接的最长保持时间（ai.batch.timeout-ms，默认 600000）
+     * @param batchMaxItems 批量生成单次最多的项数（ai.batch.max-items，默认 500），决定发送队列容量
+     * @param operatorUserIds 可以为其他用户生成草稿的运营用户ID（ai.batch.operator-user-ids，默认无）
+     * @param sseExecutor SSE 事件写出线程池
+     */
+    public AiDraftController(AiReviewService aiReviewService,
+                             @Value("${ai.batch.timeout-ms:600000}") long batchTimeoutMs,
+                             @Value("${ai.batch.max-items:500}") int batchMaxItems,
+                             @Value("${ai.batch.operator-user-ids:}") Set<Long> operatorUserIds,
+                             @Qualifier("sseExecutor") Executor sseExecutor) {
+        this.aiReviewService = aiReviewService;
+        this.batchTimeoutMs = batchTimeoutMs;
+        this.batchMaxItems = batchMaxItems;
+        this.operatorUserIds = Set.copyOf(operatorUserIds);
+        this.sseExecutor = sseExecutor;
+    }
+
+    /**
+     * 批量生成点评草稿。
+     *
+     * <p>路径：POST /api/ai-drafts/batch
+     * <p>认证：需要用户登录（JWT）。
+     * <p>入参：AiDraftBatchRequest（items：userId、shopId、preference 可选；数量上限 ai.batch.max-items）
+     * <p>出参：Server-Sent Events 流，每完成一项推送一次，不必等整批结束：
+     * <ul>
+     *   <li>{@code event: result}，data 为 AiDraftBatchResult（index 对应请求项下标）</li>
+     *   <li>{@code event: done}，data 为 {@code {"total": 100, "succeeded": 98, "failed": 2}}，随后连接关闭</li>
+     * </ul>
+     * 参数不合法（为空项、超过上限）时直接返回 400；非运营用户为其他用户生成时返回 403。
+     * 客户端断开或连接超时后不再启动新的项，在途的项结束后记录日志。
+     */
+    @PostMapping(value = "/batch", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> generateBatch(@RequestBody AiDraftBatchRequest request,
+                                                    Authentication authentication) {
+        Long currentUserId = Long.parseLong(authentication.getName());
+        if (request.getItems() != null && !operatorUserIds.contains(currentUserId)) {
+            for (AiDraftBatchItem item : request.getItems()) {
+                if (item == null) {
+                    continue;
+                }
+                if (item.getUserId() == null) {
+                    item.setUserId(currentUserId);
+                } else if (!item.getUserId().equals(currentUserId)) {
+                    return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+                }
+            }
+        }
+        SseEmitter emitter = new SseEmitter(batchTimeoutMs);
+        // 每项一个事件，容量按单批上限，正常情况下不会满
+        SseEventQueue events = new SseEventQueue(emitter, sseExecutor, batchMaxItems + 1, null);
+        aiReviewService.generateDraftBatch(request.getItems(),
+                        result -> events.offer(SseEmitter.event().name("result").data(result)),
+                        events::isClosed)
+                .whenComplete((results, error) -> {
+                    if (error == null) {
+                        events.complete(SseEmitter.event().name("done").data(summary(results)));
+                    } else {
+                        events.complete(null);
+                    }
+                });
+        return ResponseEntity.ok(emitter);
+    }
+
+    private static Map<String, Object> summary(List<AiDraftBatchResult> results) {
+        long failed = results.stream().filter(r -> r.getError() != null).count();
+        return Map.of("total", results.size(), "succeeded", results.size() - failed, "failed", failed);
+    }
+}
@@ -1,14 +1,22 @@
 package com.demo.dp.controller;
 
 import com.demo.dp.dto.DashboardStats;
+import com.demo.dp.dto.DashboardTrendPoint;
 import com.demo.dp.service.DashboardService;
+import com.demo.dp.stats.DashboardStatsBroadcaster;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
 
 /**
  * 仪表盘数据统计接口控制器。
@@ -18,6 +26,8 @@ import org.springframework.web.bind.annotation.RestController;
  *   <li>商家总数、点评总数、订单总数</li>
  *   <li>AI 调用统计（总数、成功率）</li>
  *   <li>今日新增数据统计</li>
+ *   <li>按小时/按天的趋势数据</li>
+ *   <li>统计数据的实时推送（SSE）</li>
  * </ul>
  * 
  * <p>所有接口都需要用户登录（JWT 认证）。
@@ -35,14 +45,18 @@ public class DashboardController {
     private static final Logger log = LoggerFactory.getLogger(DashboardController.class);
 
     private final DashboardService dashboardService;
+    private final DashboardStatsBroadcaster dashboardStatsBroadcaster;
 
     /**
-     * 构造函数：注入仪表盘数据统计服务。
+     * 构造函数：注入仪表盘数据统计服务和统计推送。
      *
      * @param dashboardService 仪表盘数据统计服务
+     * @param dashboardStatsBroadcaster 仪表盘统计推送
      */
-    public DashboardController(DashboardService dashboardService) {
+    public DashboardController(DashboardService dashboardService,
+                               DashboardStatsBroadcaster dashboardStatsBroadcaster) {
         this.dashboardService = dashboardService;
+        this.dashboardStatsBroadcaster = dashboardStatsBroadcaster;
     }
 
     /**
@@ -62,6 +76,7 @@ public class DashboardController {
      *   <li>todayNewShops：今日新增商家数</li>
      *   <li>todayNewReviews：今日新增点评数</li>
      *   <li>todayNewOrders：今日新增订单数</li>
+     *   <li>aiLatencyP50Ms / aiLatencyP95Ms / aiLatencyP99Ms / aiLatencyMaxMs：近 5 分钟成功 AI 调用耗时（毫秒）</li>
      * </ul>
      * 
      * <p>响应示例：
@@ -74,7 +89,11 @@ public class DashboardController {
      *   "aiCallSuccessRate": 0.95,
      *   "todayNewShops": 5,
      *   "todayNewReviews": 50,
-     *   "todayNewOrders": 20
+     *   "todayNewOrders": 20,
+     *   "aiLatencyP50Ms": 1791,
+     *   "aiLatencyP95Ms": 3583,
+     *   "aiLatencyP99Ms": 4607,
+     *   "aiLatencyMaxMs": 4810
      * }
      * </pre>
      * 
@@ -96,5 +115,67 @@ public class DashboardController {
         
         return ResponseEntity.ok(stats);
     }
-}
 
+    /**
+     * 获取仪表盘趋势数据。
+     *
+     * <p>路径：GET /api/dashboard/trends?granularity=day&amp;days=30
+     * <p>认证：需要用户登录（JWT）。
+     * <p>功能：返回最近一段时间每天（或每小时）的新增商家、点评、订单数与 AI 调用次数、成功/失败次数、平均耗时，
+     * 只读取趋势汇总表，不扫描原始表。
+     *
+     * <p>响应示例：
+     * <pre>
+     * [
+     *   {
+     *     "bucket": "2024-05-01",
+     *     "newShops": 3,
+     *     "newReviews": 42,
+     *     "newOrders": 17,
+     *     "aiCalls": 120,
+     *     "aiSuccess": 115,
+     *     "aiFailed": 5,
+     *     "aiAvgLatencyMs": 1830.5
+     *   }
+     * ]
+     * </pre>
+     *
+     * @param granularity 粒度：day（默认，最多 90 天）或 hour（最多 7 天）
+     * @param days        最近多少天（含今天），默认 30
+     * @return 按时间升序的数据点，HTTP 200；参数不合法时 HTTP 400
+     */
+    @GetMapping("/trends")
+    public ResponseEntity<List<DashboardTrendPoint>> getTrends(
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(defaultValue = "30") int days) {
+        return ResponseEntity.ok(dashboardService.getTrends(granularity, days));
+    }
+
+    /**
+     * 订阅仪表盘统计数据的实时推送。
+     *
+     * <p>路径：GET /api/dashboard/stream（text/event-stream）
+     * <p>认证：需要用户登录（JWT）。
+     * <p>功能：代替轮询 /api/dashboard/stats。服务端每秒计算一次统计数据，所有订阅者共用同一份结果，
+     * 打开多少个仪表盘页面统计都只计算一次。
+     *
+     * <p>事件：
+     * <ul>
+     *   <li>snapshot：连接建立后的第一条，字段与 /api/dashboard/stats 的响应相同</li>
+     *   <li>delta：之后只在数据变化时发送，只包含变化的字段，客户端合并到当前值上</li>
+     *   <li>注释行（: ping）：数据没有变化时定时发送，用于保活</li>
+     * </ul>
+     *
+     * <p>连接超过 dashboard.push.timeout-ms 后由服务端关闭，客户端重连后重新收到 snapshot。
+     *
+     * @return SSE 连接；订阅者已达上限时 HTTP 503
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream() {
+        SseEmitter emitter = dashboardStatsBroadcaster.subscribe();
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+}
@@ -0,0 +1,309 @@
+package com.demo.dp.controller;
+
+import com.demo.dp.ai.AiCallLogWriter;
+import com.demo.dp.ai.AiClient;
+import com.demo.dp.ai.LlmRequestCoalescer;
+import com.demo.dp.cache.CacheRegistry;
+import com.demo.dp.search.HotReviewIndex;
+import com.demo.dp.search.ReviewKeywordIndexer;
+import com.demo.dp.stats.AiLatencyRegistry;
+import com.demo.dp.stats.DashboardCounterRegistry;
+import com.demo.dp.stats.DashboardStatsBroadcaster;
+import com.demo.dp.stats.StatRollupBuffer;
+import com.demo.dp.stats.StatRollupCatchUpJob;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * 运行指标接口控制器：暴露进程内缓存、后台任务等运行状态，供管理端排查性能问题。
+ *
+ * <p>所有接口都需要用户登录（JWT 认证）。
+ *
+ * @author System
+ * @version 1.0
+ */
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    private final CacheRegistry cacheRegistry;
+    private final HotReviewIndex hotReviewIndex;
+    private final AiCallLogWriter aiCallLogWriter;
+    private final LlmRequestCoalescer llmRequestCoalescer;
+    private final AiClient aiClient;
+    private final ReviewKeywordIndexer reviewKeywordIndexer;
+    private final DashboardCounterRegistry dashboardCounters;
+    private final StatRollupBuffer statRollupBuffer;
+    private final StatRollupCatchUpJob statRollupCatchUpJob;
+    private final DashboardStatsBroadcaster dashboardStatsBroadcaster;
+    private final AiLatencyRegistry aiLatencyRegistry;
+
+    /**
+     * 构造函数：注入缓存登记处、热门点评索引、AI 调用日志写入器、大模型请求合并器、大模型客户端、
+     * 点评关键词索引任务、仪表盘计数器、趋势汇总、统计推送与 AI 调用耗时统计。
+     *
+     * @param cacheRegistry 本地缓存登记处
+     * @param hotReviewIndex 商家热门点评内存索引
+     * @param aiCallLogWriter AI 调用日志异步批量写入器
+     * @param llmRequestCoalescer 大模型请求合并器
+     * @param aiClient 大模型客户端（熔断器与并发限制状态）
+     * @param reviewKeywordIndexer 点评关键词异步索引
+     * @param dashboardCounters 仪表盘计数器
+     * @param statRollupBuffer 趋势汇总增量缓冲
+     * @param statRollupCatchUpJob 趋势汇总补算任务
+     * @param dashboardStatsBroadcaster 仪表盘统计推送
+     * @param aiLatencyRegistry AI 调用耗时统计
+     */
+    public MetricsController(CacheRegistry cacheRegistry,
+                             HotReviewIndex hotReviewIndex,
+                             AiCallLogWriter aiCallLogWriter,
+                             LlmRequestCoalescer llmRequestCoalescer,
+                             AiClient aiClient,
+                             ReviewKeywordIndexer reviewKeywordIndexer,
+                             DashboardCounterRegistry dashboardCounters,
+                             StatRollupBuffer statRollupBuffer,
+                             StatRollupCatchUpJob statRollupCatchUpJob,
+                             DashboardStatsBroadcaster dashboardStatsBroadcaster,
+                             AiLatencyRegistry aiLatencyRegistry) {
+        this.cacheRegistry = cacheRegistry;
+        this.hotReviewIndex = hotReviewIndex;
+        this.aiCallLogWriter = aiCallLogWriter;
+        this.llmRequestCoalescer = llmRequestCoalescer;
+        this.aiClient = aiClient;
+        this.reviewKeywordIndexer = reviewKeywordIndexer;
+        this.dashboardCounters = dashboardCounters;
+        this.statRollupBuffer = statRollupBuffer;
+        this.statRollupCatchUpJob = statRollupCatchUpJob;
+        this.dashboardStatsBroadcaster = dashboardStatsBroadcaster;
+        this.aiLatencyRegistry = aiLatencyRegistry;
+    }
+
+    /**
+     * 查询所有本地缓存的统计信息。
+     *
+     * <p>路径：GET /api/metrics/caches
+     *
+     * <p>响应示例：
+     * <pre>
+     * {
+     *   "shop": {
+     *     "size": 120, "maxSize": 10000, "ttlSeconds": 300,
+     *     "hits": 9800, "misses": 200, "hitRate": 0.98,
+     *     "evictions": 0, "expirations": 35
+     *   }
+     * }
+     * </pre>
+     *
+     * @return 缓存名称 -> 统计信息
+     */
+    @GetMapping("/caches")
+    public ResponseEntity<Map<String, Map<String, Object>>> caches() {
+        return ResponseEntity.ok(cacheRegistry.snapshot());
+    }
+
+    /**
+     * 查询商家热门点评内存索引的统计信息。
+     *
+     * <p>路径：GET /api/metrics/hot-reviews
+     *
+     * <p>响应示例：
+     * <pre>
+     * { "shops": 320, "maxShops": 10000, "topK": 50, "hits": 15000, "misses": 40, "loads": 320 }
+     * </pre>
+     *
+     * @return 统计信息
+     */
+    @GetMapping("/hot-reviews")
+    public ResponseEntity<Map<String, Object>> hotReviews() {
+        return ResponseEntity.ok(hotReviewIndex.stats());
+    }
+
+    /**
+     * 查询 AI 调用日志写入器的状态：队列积压、已写入、丢弃、写入失败的条数。
+     *
+     * <p>路径：GET /api/metrics/ai-log-writer
+     *
+     * <p>响应示例：
+     * <pre>
+     * {
+     *   "queueDepth": 3, "capacity": 10000, "batchSize": 200, "flushIntervalMs": 1000,
+     *   "enqueued": 5230, "written": 5227, "dropped": 0, "failed": 0, "batches": 812
+     * }
+     * </pre>
+     *
+     * @return 统计信息
+     */
+    @GetMapping("/ai-log-writer")
+    public ResponseEntity<Map<String, Object>> aiLogWriter() {
+        return ResponseEntity.ok(aiCallLogWriter.stats());
+    }
+
+    /**
+     * 查询大模型请求合并的统计信息。
+     *
+     * <p>路径：GET /api/metrics/ai-coalescer
+     *
+     * <p>响应示例：
+     * <pre>
+     * { "enabled": true, "inFlight": 2, "leaders": 1800, "coalesced": 95 }
+     * </pre>
+     *
+     * @return 统计信息
+     */
+    @GetMapping("/ai-coalescer")
+    public ResponseEntity<Map<String, Object>> aiCoalescer() {
+        return ResponseEntity.ok(llmRequestCoalescer.stats());
+    }
+
+    /**
+     * 查询大模型多提供方路由与各提供方保护层的状态：非流式与流式的当前排名、每个提供方的 p95 耗时、错误率、得分
+     * （非流式按总耗时，stream 下为流式调用按首字耗时）、熔断器状态与自适应并发上限，以及对冲、故障转移次数。
+     *
+     * <p>路径：GET /api/metrics/ai-guard
+     *
+     * <p>响应示例：
+     * <pre>
+     * {
+     *   "ranking": ["qwen", "local"],
+     *   "streamRanking": ["local", "qwen"],
+     *   "providers": {
+     *     "qwen": {
+     *       "available": true, "samples": 50, "p95Ms": 2310, "errorRate": 0.02, "score": 2494.8,
+     *       "stream": { "samples": 40, "p95Ms": 820, "errorRate": 0.0, "score": 820.0 },
+     *       "guard": {
+     *         "circuitBreaker": { "name": "qwen", "state": "CLOSED", "windowCalls": 20, "failureRate": 0.05, "rejected": 0, "opened": 1 },
+     *         "concurrency": { "name": "qwen", "limit": 37, "minLimit": 2, "maxLimit": 200, "inFlight": 4, "rejected": 12 }
+     *       }
+     *     },
+     *     "local": { "available": true, "samples": 12, "p95Ms": 3900, "errorRate": 0.0, "score": 3900.0, "stream": { ... }, "guard": { ... } }
+     *   },
+     *   "hedgeDelayMs": 2000, "hedges": 31, "hedgeWins": 9, "failovers": 3
+     * }
+     * </pre>
+     */
+    @GetMapping("/ai-guard")
+    public ResponseEntity<Map<String, Object>> aiGuard() {
+        return ResponseEntity.ok(aiClient.guardStats());
+    }
+
+    /**
+     * 查询点评关键词异步索引的状态：处理量、失败与重试次数、积压与死信任务数，以及索引延迟。
+     *
+     * <p>路径：GET /api/metrics/review-indexer
+     *
+     * <p>响应示例：
+     * <pre>
+     * {
+     *   "batchSize": 200, "maxAttempts": 8,
+     *   "indexedReviews": 5230, "indexedKeywords": 14110, "batches": 2710, "retries": 3, "failures": 1,
+     *   "lastLagMs": 620, "maxLagMs": 4100, "pending": 2, "deadLetters": 0, "oldestPendingAgeMs": 310
+     * }
+     * </pre>
+     *
+     * @return 统计信息
+     */
+    @GetMapping("/review-indexer")
+    public ResponseEntity<Map<String, Object>> reviewIndexer() {
+        return ResponseEntity.ok(reviewKeywordIndexer.stats());
+    }
+
+    /**
+     * 查询仪表盘计数器的状态：当前计数、最近一次用数据库校正的时间、偏差，以及各条统计查询的耗时。
+     *
+     * <p>路径：GET /api/metrics/dashboard-counters
+     *
+     * <p>响应示例：
+     * <pre>
+     * {
+     *   "ready": true, "reconciles": 12, "lastReconciledAt": "2024-05-01T10:05:00",
+     *   "values": { "SHOPS": 320, "REVIEWS": 18230, "ORDERS": 5120, "AI_CALLS": 9021, "AI_CALLS_SUCCEEDED": 8876,
+     *               "TODAY_SHOPS": 2, "TODAY_REVIEWS": 131, "TODAY_ORDERS": 40 },
+     *   "lastDrift": { "SHOPS": 0, "REVIEWS": 0, "ORDERS": 1, ... },
+     *   "lastReconcileCostMs": 183,
+     *   "queryLatencyMs": { "SHOPS": 12, "REVIEWS": 181, "ORDERS": 64, "AI_CALLS": 95, ... }
+     * }
+     * </pre>
+     *
+     * @return 统计信息
+     */
+    @GetMapping("/dashboard-counters")
+    public ResponseEntity<Map<String, Object>> dashboardCounters() {
+        return ResponseEntity.ok(dashboardCounters.stats());
+    }
+
+    /**
+     * 查询仪表盘趋势汇总的状态：内存中尚未写入的小时数、增量写入次数与失败次数、最近一轮补算的范围与耗时。
+     *
+     * <p>路径：GET /api/metrics/dashboard-rollup
+     *
+     * <p>响应示例：
+     * <pre>
+     * {
+     *   "buffer": { "bufferedHours": 1, "flushes": 310, "flushedRows": 622, "flushFailures": 0,
+     *               "lastFlushedAt": "2024-05-01T10:05:55" },
+     *   "catchUp": { "runs": 4, "failures": 0, "lastRunAt": "2024-05-01T10:00:02",
+     *                "lastFrom": "2024-05-01T08:00:00", "lastHours": 3, "lastCostMs": 96 }
+     * }
+     * </pre>
+     *
+     * @return 统计信息
+     */
+    @GetMapping("/dashboard-rollup")
+    public ResponseEntity<Map<String, Object>> dashboardRollup() {
+        return ResponseEntity.ok(Map.of("buffer", statRollupBuffer.stats(), "catchUp", statRollupCatchUpJob.stats()));
+    }
+
+    /**
+     * 查询仪表盘统计推送的状态：当前订阅者数、计算次数、推送的 delta 事件数、因积压被断开与被拒绝的订阅数。
+     *
+     * <p>路径：GET /api/metrics/dashboard-push
+     *
+     * <p>响应示例：
+     * <pre>
+     * {
+     *   "subscribers": 10, "pending": 0, "maxSubscribers": 100, "intervalMs": 1000, "ticks": 3600, "deltas": 412,
+     *   "queueCapacity": 30, "slowDropped": 2, "rejected": 0, "lastTickCostMs": 1, "lastDeltaAt": "2024-05-01T10:05:41"
+     * }
+     * </pre>
+     *
+     * @return 统计信息
+     */
+    @GetMapping("/dashboard-push")
+    public ResponseEntity<Map<String, Object>> dashboardPush() {
+        return ResponseEntity.ok(dashboardStatsBroadcaster.stats());
+    }
+
+    /**
+     * 查询 AI 调用耗时分位数：按"调用类型/提供方"分组，最近 1/5/15 分钟滑动窗口内的 count、p50、p95、p99、max（毫秒）。
+     * 失败调用记入 "类型/failed" 分组，all 为所有成功调用合并后的结果。
+     *
+     * <p>路径：GET /api/metrics/ai-latency
+     *
+     * <p>响应示例：
+     * <pre>
+     * {
+     *   "slotSeconds": 10,
+     *   "groups": ["generate/failed", "generate/qwen"],
+     *   "windows": {
+     *     "1m": {
+     *       "all": { "count": 42, "p50": 1791, "p95": 3583, "p99": 4607, "max": 4810 },
+     *       "generate/failed": { "count": 2, "p50": 30719, "p95": 30719, "p99": 30719, "max": 30002 },
+     *       "generate/qwen": { "count": 42, "p50": 1791, "p95": 3583, "p99": 4607, "max": 4810 }
+     *     },
+     *     "5m": { ... },
+     *     "15m": { ... }
+     *   }
+     * }
+     * </pre>
+     *
+     * @return 统计信息
+     */
+    @GetMapping("/ai-latency")
+    public ResponseEntity<Map<String, Object>> aiLatency() {
+        return ResponseEntity.ok(aiLatencyRegistry.stats());
+    }
+}
@@ -1,5 +1,6 @@
 package com.demo.dp.controller;
 
+import com.demo.dp.ai.AiUnavailableException;
 import com.demo.dp.domain.entity.Review;
 import com.demo.dp.dto.AiDraftRequest;
 import com.demo.dp.dto.AiDraftResponse;
@@ -7,13 +8,20 @@ import com.demo.dp.dto.AiRecommendItemResponse;
 import com.demo.dp.dto.ReviewCreateRequest;
 import com.demo.dp.service.AiReviewService;
 import com.demo.dp.service.ReviewService;
+import com.demo.dp.util.SseEventQueue;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
     /**
      * 商家点评相关接口。
@@ -25,16 +33,33 @@ public class ReviewController {
 
     private final ReviewService reviewService;
     private final AiReviewService aiReviewService;
+    private final boolean aiAsyncEnabled;
+    private final long aiStreamTimeoutMs;
+    private final int aiStreamQueueCapacity;
+    private final Executor sseExecutor;
 
     /**
      * 构造函数：注入点评服务和 AI 点评服务。
      *
      * @param reviewService   点评业务服务
      * @param aiReviewService AI 点评业务服务
+     * @param aiAsyncEnabled  AI 草稿是否以异步方式执行（ai.async-enabled，默认 true）
+     * @param aiStreamTimeoutMs 流式草稿连接的最长保持时间（ai.stream-timeout-ms，默认 60000）
+     * @param aiStreamQueueCapacity 流式草稿每个连接最多排队的增量数（ai.stream-queue-capacity，默认 1000）
+     * @param sseExecutor SSE 事件写出线程池
      */
-    public ReviewController(ReviewService reviewService, AiReviewService aiReviewService) {
+    public ReviewController(ReviewService reviewService,
+                            AiReviewService aiReviewService,
+                            @Value("${ai.async-enabled:true}") boolean aiAsyncEnabled,
+                            @Value("${ai.stream-timeout-ms:60000}") long aiStreamTimeoutMs,
+                            @Value("${ai.stream-queue-capacity:1000}") int aiStreamQueueCapacity,
+                            @Qualifier("sseExecutor") Executor sseExecutor) {
         this.reviewService = reviewService;
         this.aiReviewService = aiReviewService;
+        this.aiAsyncEnabled = aiAsyncEnabled;
+        this.aiStreamTimeoutMs = aiStreamTimeoutMs;
+        this.aiStreamQueueCapacity = aiStreamQueueCapacity;
+        this.sseExecutor = sseExecutor;
     }
 
     @GetMapping
@@ -84,15 +109,61 @@ public class ReviewController {
      * <p>认证：需要用户登录（JWT），从 Authentication 读取 userId。
      * <p>入参：AiDraftRequest（偏好、期望长度可选）
      * <p>出参：AiDraftResponse（草稿文本）
+     * <p>执行方式：默认返回 CompletableFuture，Tomcat 工作线程在等待大模型响应期间被释放，
+     * 响应到达后由 Spring MVC 异步派发写回；ai.async-enabled=false 时退回到在请求线程上阻塞等待。
      */
     @PostMapping("/ai-draft")
-    public ResponseEntity<AiDraftResponse> generateDraft(@PathVariable Long shopId,
-                                                         @RequestBody AiDraftRequest request,
-                                                         Authentication authentication) {
+    public CompletableFuture<ResponseEntity<AiDraftResponse>> generateDraft(@PathVariable Long shopId,
+                                                                            @RequestBody AiDraftRequest request,
+                                                                            Authentication authentication) {
         Long userId = Long.parseLong(authentication.getName());
         String preference = request.getPreference();
-        String draft = aiReviewService.generateDraft(userId, shopId, preference);
-        return ResponseEntity.ok(new AiDraftResponse(draft));
+        if (!aiAsyncEnabled) {
+            String draft = aiReviewService.generateDraft(userId, shopId, preference);
+            return CompletableFuture.completedFuture(ResponseEntity.ok(new AiDraftResponse(draft)));
+        }
+        return aiReviewService.generateDraftAsync(userId, shopId, preference)
+                .thenApply(draft -> ResponseEntity.ok(new AiDraftResponse(draft)));
+    }
+
+    /**
+     * AI 辅助生成点评草稿（流式）。
+     *
+     * <p>路径：POST /api/shops/{shopId}/reviews/ai-draft/stream
+     * <p>认证：需要用户登录（JWT）。
+     * <p>入参：AiDraftRequest（偏好、maxTokens 可选，最大 1000）
+     * <p>出参：Server-Sent Events 流：
+     * <ul>
+     *   <li>{@code event: token}，data 为一段增量文本，按顺序拼接即为草稿</li>
+     *   <li>{@code event: done}，data 为 {@code {"draft": "完整草稿"}}，随后连接关闭</li>
+     *   <li>{@code event: error}，data 为 {@code {"message": "错误信息"}}，随后连接关闭</li>
+     * </ul>
+     * 客户端中途断开时不再推送，但生成会继续到结束，以便完整记录调用日志。
+     * 增量文本先放入连接自己的有界队列，由 sseExecutor 写出，大模型回调线程不会被慢客户端阻塞；
+     * 队列满时跳过后续增量，done 事件仍带完整草稿。
+     */
+    @PostMapping(value = "/ai-draft/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamDraft(@PathVariable Long shopId,
+                                  @RequestBody AiDraftRequest request,
+                                  Authentication authentication) {
+        Long userId = Long.parseLong(authentication.getName());
+        SseEmitter emitter = new SseEmitter(aiStreamTimeoutMs);
+        SseEventQueue events = new SseEventQueue(emitter, sseExecutor, aiStreamQueueCapacity, null);
+        aiReviewService.streamDraft(userId, shopId, request.getPreference(), request.getMaxTokens(),
+                        token -> events.offer(SseEmitter.event().name("token").data(token)))
+                .whenComplete((draft, error) -> {
+                    if (error == null) {
+                        events.complete(SseEmitter.event().name("done").data(Map.of("draft", draft)));
+                        return;
+                    }
+                    Throwable cause = error.getCause() != null ? error.getCause() : error;
+                    // 快速拒绝的提示可直接展示；上游错误详情只记日志，不返回给用户
+                    String message = cause instanceof AiUnavailableException aue && aue.isRejected()
+                            ? aue.getMessage()
+                            : "AI 生成失败，请稍后重试";
+                    events.complete(SseEmitter.event().name("error").data(Map.of("message", message)));
+                });
+        return emitter;
     }
 
     /**
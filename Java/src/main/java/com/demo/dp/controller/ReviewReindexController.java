@@ -0,0 +1,91 @@
+package com.demo.dp.controller;
+
+import com.demo.dp.search.ReviewReindexJob;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 点评关键词全量重建接口控制器。
+ *
+ * <p>面向运维的管理端功能：修改关键词词典（review.keywords）并重启后，调用该接口为历史点评重建 review_keyword。
+ * 任务在后台运行，可随时查询进度、停止，之后从断点继续。
+ *
+ * <p>所有接口都需要用户登录（JWT 认证）。
+ *
+ * @author System
+ * @version 1.0
+ */
+@RestController
+@RequestMapping("/api/review-keywords/reindex")
+public class ReviewReindexController {
+
+    private final ReviewReindexJob reviewReindexJob;
+
+    /**
+     * 构造函数：注入点评关键词全量重建任务。
+     *
+     * @param reviewReindexJob 点评关键词全量重建任务
+     */
+    public ReviewReindexController(ReviewReindexJob reviewReindexJob) {
+        this.reviewReindexJob = reviewReindexJob;
+    }
+
+    /**
+     * 启动全量重建。
+     *
+     * <p>路径：POST /api/review-keywords/reindex?resume=true
+     * <p>查询参数：resume（可选，默认 true）：从上次未完成的断点继续；false 表示从头开始。
+     * <p>出参：202 与当前进度；已有任务在运行时返回 409。
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> start(@RequestParam(defaultValue = "true") boolean resume) {
+        if (!reviewReindexJob.start(resume)) {
+            Map<String, Object> body = new HashMap<>();
+            body.put("code", HttpStatus.CONFLICT.value());
+            body.put("message", "已有关键词重建任务在运行");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(reviewReindexJob.status());
+    }
+
+    /**
+     * 查询重建进度。
+     *
+     * <p>路径：GET /api/review-keywords/reindex
+     *
+     * <p>响应示例：
+     * <pre>
+     * {
+     *   "running": true, "status": "RUNNING", "fromReviewId": 0, "checkpointReviewId": 1284000,
+     *   "processedReviews": 1290000, "writtenKeywords": 3521800, "processedThisRun": 1290000,
+     *   "elapsedMs": 61200, "rowsPerSecond": 21078, "inFlightChunks": 8, "lastError": null
+     * }
+     * </pre>
+     *
+     * @return 进度
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> status() {
+        return ResponseEntity.ok(reviewReindexJob.status());
+    }
+
+    /**
+     * 停止正在运行的重建任务：已提交的段写完后保存断点退出。
+     *
+     * <p>路径：POST /api/review-keywords/reindex/stop
+     */
+    @PostMapping("/stop")
+    public ResponseEntity<Map<String, Object>> stop() {
+        Map<String, Object> body = new HashMap<>();
+        body.put("stopping", reviewReindexJob.stop());
+        return ResponseEntity.ok(body);
+    }
+}
@@ -2,10 +2,12 @@ package com.demo.dp.controller;
 
 import com.demo.dp.domain.entity.Shop;
 import com.demo.dp.dto.ShopCreateRequest;
+import com.demo.dp.dto.ShopCursor;
 import com.demo.dp.dto.ShopUpdateRequest;
 import com.demo.dp.service.ShopService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -23,7 +25,7 @@ import java.util.Map;
  * 
  * <p>主要功能：
  * <ul>
- *   <li>GET /api/shops - 获取商家列表（支持分页、搜索、筛选）</li>
+ *   <li>GET /api/shops - 获取商家列表（支持页码/游标分页、搜索、筛选）</li>
  *   <li>GET /api/shops/{id} - 获取商家详情</li>
  *   <li>POST /api/shops - 创建新商家</li>
  *   <li>PUT /api/shops/{id} - 更新商家信息</li>
@@ -43,6 +45,11 @@ public class ShopController {
      */
     private static final Logger log = LoggerFactory.getLogger(ShopController.class);
 
+    /**
+     * 每页最多返回的商家数，size 超过时按此值返回（前端筛选下拉框一次取 1000 条商家）
+     */
+    private static final int MAX_PAGE_SIZE = 1000;
+
     /**
      * 商家服务对象，用于处理商家相关的业务逻辑。
      * 通过构造函数注入，确保不可变性和线程安全。
@@ -58,9 +65,22 @@ public class ShopController {
         this.shopService = shopService;
     }
 
+    /**
+     * 近似总数（total=approx）的计数上限，超过该值只返回"至少N条"。
+     */
+    @Value("${shop.list.approx-count-cap:1000}")
+    private int approxCountCap;
+
     /**
      * 获取商家列表接口，支持分页、搜索、多条件筛选。
      * 
+     * <p>支持两种分页方式：
+     * <ul>
+     *   <li>页码分页（默认）：使用 page/size 参数，适合前几页的普通浏览</li>
+     *   <li>游标分页：携带 cursor 参数（第一页传空字符串），按上一页返回的 nextCursor 继续翻页，
+     *       数据库只读取当页数据，适合管理端深翻页</li>
+     * </ul>
+     * 
      * <p>请求示例：
      * <ul>
      *   <li>GET /api/shops - 获取第一页，每页10条</li>
@@ -68,9 +88,18 @@ public class ShopController {
      *   <li>GET /api/shops?category=火锅 - 筛选火锅类商家</li>
      *   <li>GET /api/shops?keyword=海底捞 - 搜索包含"海底捞"的商家</li>
      *   <li>GET /api/shops?minScore=4.0&maxPrice=200 - 筛选评分>=4.0且价格<=200的商家</li>
+     *   <li>GET /api/shops?cursor=&size=20&total=none - 游标分页第一页，不统计总数</li>
+     *   <li>GET /api/shops?cursor=xxx&size=20&total=none - 使用上一页的 nextCursor 获取下一页</li>
      * </ul>
      * 
-     * <p>响应格式：
+     * <p>total 参数控制总数统计方式：
+     * <ul>
+     *   <li>exact（默认）：精确 COUNT，与原有行为一致</li>
+     *   <li>approx：最多统计 {@code shop.list.approx-count-cap} 条，返回 totalApprox=true 表示实际总数可能更多</li>
+     *   <li>none：不统计总数，响应中不包含 total/totalPages</li>
+     * </ul>
+     * 
+     * <p>页码分页响应格式：
      * <pre>
      * {
      *   "content": [...],      // 商家列表
@@ -81,12 +110,24 @@ public class ShopController {
      * }
      * </pre>
      * 
-     * @param page 页码，从0开始。默认值为0（第一页）
-     * @param size 每页返回的记录数。默认值为10
+     * <p>游标分页响应格式：
+     * <pre>
+     * {
+     *   "content": [...],      // 商家列表
+     *   "size": 10,            // 每页大小
+     *   "hasMore": true,       // 是否还有下一页
+     *   "nextCursor": "..."    // 下一页游标，没有更多数据时为null
+     * }
+     * </pre>
+     * 
+     * @param page 页码，从0开始。默认值为0（第一页）。游标分页时忽略
+     * @param size 每页返回的记录数。默认值为10，小于1时返回400，超过 {@value #MAX_PAGE_SIZE} 时按 {@value #MAX_PAGE_SIZE} 返回
      * @param category 分类筛选条件，可选。例如："火锅"、"川菜"、"日料"等
      * @param keyword 搜索关键词，可选。会在商家名称和地址中搜索
      * @param minScore 最低评分，可选。只返回评分>=该值的商家
      * @param maxPrice 最高人均价格，可选。只返回价格<=该值的商家
+     * @param cursor 游标，可选。传入该参数（包括空字符串）即切换为游标分页
+     * @param total 总数统计方式：exact / approx / none，默认 exact
      * @return ResponseEntity包含分页结果，HTTP状态码200表示成功
      */
     @GetMapping
@@ -96,27 +137,82 @@ public class ShopController {
             @RequestParam(required = false) String category,
             @RequestParam(required = false) String keyword,
             @RequestParam(required = false) Double minScore,
-            @RequestParam(required = false) Double maxPrice) {
-        
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "exact") String total) {
+
+        if (size < 1) {
+            throw new IllegalArgumentException("size 必须大于0");
+        }
+        size = Math.min(size, MAX_PAGE_SIZE);
+
+        // 构建返回结果Map
+        Map<String, Object> result = new HashMap<>();
+
+        if (cursor != null) {
+            // 游标分页：多取一条用于判断是否还有下一页
+            ShopCursor after = ShopCursor.decode(cursor);
+            List<Shop> shops = shopService.listShopsAfter(after, size + 1, category, keyword, minScore, maxPrice);
+            boolean hasMore = shops.size() > size;
+            if (hasMore) {
+                shops = shops.subList(0, size);
+            }
+            result.put("content", shops);  // 商家列表数据
+            result.put("size", size);      // 每页大小
+            result.put("hasMore", hasMore);
+            // 下一页游标：由当页最后一条记录生成，没有更多数据时为null
+            result.put("nextCursor", hasMore ? ShopCursor.after(shops.get(shops.size() - 1)).encode() : null);
+            putTotal(result, total, size, category, keyword, minScore, maxPrice);
+            return ResponseEntity.ok(result);
+        }
+
         // 调用Service层方法获取符合条件的商家列表
         List<Shop> shops = shopService.listShops(page, size, category, keyword, minScore, maxPrice);
         
-        // 调用Service层方法获取符合条件的商家总数（用于分页计算）
-        long total = shopService.countShops(category, keyword, minScore, maxPrice);
-        
-        // 构建返回结果Map
-        Map<String, Object> result = new HashMap<>();
         result.put("content", shops);  // 商家列表数据
-        result.put("total", total);    // 总记录数
         result.put("page", page);      // 当前页码
         result.put("size", size);     // 每页大小
+
+        // 按 total 参数统计总数（用于分页计算）
+        putTotal(result, total, size, category, keyword, minScore, maxPrice);
+        
+        // 返回HTTP 200状态码和结果数据
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 按 total 参数向列表结果中写入总数信息。
+     * 
+     * <p>exact 写入精确总数和总页数；approx 写入有上限的计数，并用 totalApprox 标记是否达到上限；
+     * none 不写入任何总数字段，也不会执行计数查询。
+     * 
+     * @param result 列表结果Map
+     * @param mode 总数统计方式：exact / approx / none
+     * @param size 每页大小，用于计算总页数
+     * @param category 分类筛选条件，可选
+     * @param keyword 搜索关键词，可选
+     * @param minScore 最低评分，可选
+     * @param maxPrice 最高人均价格，可选
+     */
+    private void putTotal(Map<String, Object> result, String mode, int size,
+                          String category, String keyword, Double minScore, Double maxPrice) {
+        if ("none".equalsIgnoreCase(mode)) {
+            return;
+        }
+        long total;
+        if ("approx".equalsIgnoreCase(mode)) {
+            total = shopService.countShopsCapped(category, keyword, minScore, maxPrice, approxCountCap);
+            // 达到上限说明实际总数可能更多，前端可展示为"1000+"
+            result.put("totalApprox", total >= approxCountCap);
+        } else {
+            // 调用Service层方法获取符合条件的商家总数
+            total = shopService.countShops(category, keyword, minScore, maxPrice);
+        }
+        result.put("total", total);    // 总记录数
         
         // 计算总页数：总页数 = (总记录数 + 每页大小 - 1) / 每页大小
         // 例如：100条记录，每页10条 -> (100 + 10 - 1) / 10 = 10页
         result.put("totalPages", (total + size - 1) / size);
-        
-        // 返回HTTP 200状态码和结果数据
-        return ResponseEntity.ok(result);
     }
 
     /**
@@ -7,19 +7,34 @@ import java.time.LocalDateTime;
  * MyBatis 使用，字段命名与数据库表对应（下划线转驼峰由 MyBatis 配置处理）。
  */
 public class AiCallLog {
+    /** 状态：调用失败 */
+    public static final int STATUS_FAILED = 0;
+    /** 状态：调用大模型成功 */
+    public static final int STATUS_SUCCESS = 1;
+    /** 状态：命中响应缓存，未调用大模型 */
+    public static final int STATUS_CACHE_HIT = 2;
+    /** 状态：合并到相同 Prompt 的在途调用，未单独调用大模型 */
+    public static final int STATUS_COALESCED = 3;
+
     private Long id; // 主键
 
     private Long userId; // 触发用户 ID，可空
 
     private String type; // 调用类型：generate/recommend（数据库 ENUM，MyBatis 映射为 String）
 
+    private String provider; // 产生结果的大模型提供方名称，失败时为空
+
     private String prompt; // 请求 Prompt
 
+    private Integer promptTokens; // Prompt 估算 token 数
+
     private String responseRef; // 响应引用/存储位置
 
     private Integer latencyMs; // 耗时 ms
 
-    private Integer status; // 状态：1 成功，0 失败
+    private Integer firstTokenMs; // 首个 token 耗时 ms，仅流式调用记录
+
+    private Integer status; // 状态：1 成功，0 失败，2 命中缓存，3 合并请求
 
     private LocalDateTime createdAt; // 创建时间
 
@@ -30,12 +45,18 @@ public class AiCallLog {
     public void setUserId(Long userId) { this.userId = userId; }
     public String getType() { return type; }
     public void setType(String type) { this.type = type; }
+    public String getProvider() { return provider; }
+    public void setProvider(String provider) { this.provider = provider; }
     public String getPrompt() { return prompt; }
     public void setPrompt(String prompt) { this.prompt = prompt; }
+    public Integer getPromptTokens() { return promptTokens; }
+    public void setPromptTokens(Integer promptTokens) { this.promptTokens = promptTokens; }
     public String getResponseRef() { return responseRef; }
     public void setResponseRef(String responseRef) { this.responseRef = responseRef; }
     public Integer getLatencyMs() { return latencyMs; }
     public void setLatencyMs(Integer latencyMs) { this.latencyMs = latencyMs; }
+    public Integer getFirstTokenMs() { return firstTokenMs; }
+    public void setFirstTokenMs(Integer firstTokenMs) { this.firstTokenMs = firstTokenMs; }
     public Integer getStatus() { return status; }
     public void setStatus(Integer status) { this.status = status; }
     public LocalDateTime getCreatedAt() { return createdAt; }
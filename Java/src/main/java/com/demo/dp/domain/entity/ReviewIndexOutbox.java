@@ -0,0 +1,37 @@
+package com.demo.dp.domain.entity;
+
+import java.time.LocalDateTime;
+
+/**
+ * 点评关键词索引任务实体，对应表 review_index_outbox。
+ * 发表点评时与点评在同一事务内写入，由后台索引任务异步处理后删除。
+ * MyBatis 使用，字段命名与数据库表对应（下划线转驼峰由 MyBatis 配置处理）。
+ */
+public class ReviewIndexOutbox {
+    private Long id; // 主键
+
+    private Long reviewId; // 待建索引的点评 ID
+
+    private Integer attempts; // 已失败次数
+
+    private LocalDateTime nextAttemptAt; // 最早可处理时间（失败后按指数退避推迟）
+
+    private String lastError; // 最近一次失败原因
+
+    private LocalDateTime createdAt; // 入队时间
+
+    // region getters/setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getReviewId() { return reviewId; }
+    public void setReviewId(Long reviewId) { this.reviewId = reviewId; }
+    public Integer getAttempts() { return attempts; }
+    public void setAttempts(Integer attempts) { this.attempts = attempts; }
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    // endregion
+}
@@ -0,0 +1,57 @@
+package com.demo.dp.domain.entity;
+
+import java.time.LocalDateTime;
+
+/**
+ * 点评关键词全量重建断点实体，对应表 review_reindex_checkpoint。
+ * MyBatis 使用，字段命名与数据库表对应（下划线转驼峰由 MyBatis 配置处理）。
+ */
+public class ReviewReindexCheckpoint {
+    /** 状态：运行中 */
+    public static final String STATUS_RUNNING = "RUNNING";
+    /** 状态：已全部完成 */
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    /** 状态：被手动停止，可从断点继续 */
+    public static final String STATUS_STOPPED = "STOPPED";
+    /** 状态：异常中止，可从断点继续 */
+    public static final String STATUS_FAILED = "FAILED";
+
+    private String jobName; // 任务名称
+
+    private Long lastReviewId; // 已完成的最大点评 ID
+
+    private Long processedReviews; // 累计处理点评数
+
+    private Long writtenKeywords; // 累计写入关键词条数
+
+    private String status; // 状态：RUNNING/COMPLETED/STOPPED/FAILED
+
+    private String lastError; // 失败原因
+
+    private LocalDateTime startedAt; // 本轮开始时间
+
+    private LocalDateTime updatedAt; // 最近一次推进断点的时间
+
+    private LocalDateTime finishedAt; // 结束时间
+
+    // region getters/setters
+    public String getJobName() { return jobName; }
+    public void setJobName(String jobName) { this.jobName = jobName; }
+    public Long getLastReviewId() { return lastReviewId; }
+    public void setLastReviewId(Long lastReviewId) { this.lastReviewId = lastReviewId; }
+    public Long getProcessedReviews() { return processedReviews; }
+    public void setProcessedReviews(Long processedReviews) { this.processedReviews = processedReviews; }
+    public Long getWrittenKeywords() { return writtenKeywords; }
+    public void setWrittenKeywords(Long writtenKeywords) { this.writtenKeywords = writtenKeywords; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+    // endregion
+}
@@ -0,0 +1,89 @@
+package com.demo.dp.domain.entity;
+
+import java.time.LocalDateTime;
+
+/**
+ * 仪表盘趋势汇总实体，对应表 stat_rollup，一行表示一个小时或一天的各项新增量。
+ * MyBatis 使用，字段命名与数据库表对应（下划线转驼峰由 MyBatis 配置处理）。
+ */
+public class StatRollup {
+    /** 粒度：小时 */
+    public static final String PERIOD_HOUR = "H";
+    /** 粒度：天 */
+    public static final String PERIOD_DAY = "D";
+
+    private String period; // 粒度：H/D
+
+    private LocalDateTime bucketStart; // 时间段开始时间
+
+    private long newShops; // 新增正常商家数
+
+    private long newReviews; // 新增正常点评数
+
+    private long newOrders; // 新增订单数
+
+    private long aiCalls; // AI 调用次数
+
+    private long aiSuccess; // AI 调用成功返回次数
+
+    private long aiFailed; // AI 调用失败次数
+
+    private long aiLatencySumMs; // 成功调用大模型的耗时之和（毫秒）
+
+    private long aiLatencyCount; // 参与耗时统计的调用次数
+
+    public StatRollup() {
+    }
+
+    public StatRollup(String period, LocalDateTime bucketStart) {
+        this.period = period;
+        this.bucketStart = bucketStart;
+    }
+
+    /**
+     * 把另一行的各项数值累加到本行。
+     *
+     * @param other 另一行
+     */
+    public void add(StatRollup other) {
+        newShops += other.newShops;
+        newReviews += other.newReviews;
+        newOrders += other.newOrders;
+        aiCalls += other.aiCalls;
+        aiSuccess += other.aiSuccess;
+        aiFailed += other.aiFailed;
+        aiLatencySumMs += other.aiLatencySumMs;
+        aiLatencyCount += other.aiLatencyCount;
+    }
+
+    /**
+     * 各项数值是否都为 0。
+     */
+    public boolean isEmpty() {
+        return newShops == 0 && newReviews == 0 && newOrders == 0 && aiCalls == 0
+                && aiSuccess == 0 && aiFailed == 0 && aiLatencySumMs == 0 && aiLatencyCount == 0;
+    }
+
+    // region getters/setters
+    public String getPeriod() { return period; }
+    public void setPeriod(String period) { this.period = period; }
+    public LocalDateTime getBucketStart() { return bucketStart; }
+    public void setBucketStart(LocalDateTime bucketStart) { this.bucketStart = bucketStart; }
+    public long getNewShops() { return newShops; }
+    public void setNewShops(long newShops) { this.newShops = newShops; }
+    public long getNewReviews() { return newReviews; }
+    public void setNewReviews(long newReviews) { this.newReviews = newReviews; }
+    public long getNewOrders() { return newOrders; }
+    public void setNewOrders(long newOrders) { this.newOrders = newOrders; }
+    public long getAiCalls() { return aiCalls; }
+    public void setAiCalls(long aiCalls) { this.aiCalls = aiCalls; }
+    public long getAiSuccess() { return aiSuccess; }
+    public void setAiSuccess(long aiSuccess) { this.aiSuccess = aiSuccess; }
+    public long getAiFailed() { return aiFailed; }
+    public void setAiFailed(long aiFailed) { this.aiFailed = aiFailed; }
+    public long getAiLatencySumMs() { return aiLatencySumMs; }
+    public void setAiLatencySumMs(long aiLatencySumMs) { this.aiLatencySumMs = aiLatencySumMs; }
+    public long getAiLatencyCount() { return aiLatencyCount; }
+    public void setAiLatencyCount(long aiLatencyCount) { this.aiLatencyCount = aiLatencyCount; }
+    // endregion
+}
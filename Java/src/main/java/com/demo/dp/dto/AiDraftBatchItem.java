@@ -0,0 +1,46 @@
+package com.demo.dp.dto;
+
+/**
+ * 批量生成点评草稿中的一项：为哪个用户、在哪个商家生成草稿。
+ */
+public class AiDraftBatchItem {
+
+    /**
+     * 用户ID。
+     */
+    private Long userId;
+
+    /**
+     * 商家ID。
+     */
+    private Long shopId;
+
+    /**
+     * 口味偏好/生成提示（可选），含义同 {@link AiDraftRequest#getPreference()}。
+     */
+    private String preference;
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getShopId() {
+        return shopId;
+    }
+
+    public void setShopId(Long shopId) {
+        this.shopId = shopId;
+    }
+
+    public String getPreference() {
+        return preference;
+    }
+
+    public void setPreference(String preference) {
+        this.preference = preference;
+    }
+}
@@ -0,0 +1,24 @@
+package com.demo.dp.dto;
+
+import java.util.List;
+
+/**
+ * 批量生成点评草稿请求 DTO。
+ *
+ * <p>作用：运营一次为多组（用户, 商家）预生成草稿，代替逐个调用 /ai-draft。
+ */
+public class AiDraftBatchRequest {
+
+    /**
+     * 待生成的（用户, 商家）列表，数量上限见 ai.batch.max-items。
+     */
+    private List<AiDraftBatchItem> items;
+
+    public List<AiDraftBatchItem> getItems() {
+        return items;
+    }
+
+    public void setItems(List<AiDraftBatchItem> items) {
+        this.items = items;
+    }
+}
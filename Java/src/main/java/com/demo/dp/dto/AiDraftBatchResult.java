@@ -0,0 +1,78 @@
+package com.demo.dp.dto;
+
+/**
+ * 批量生成点评草稿中单项的结果。
+ *
+ * <p>成功时 draft 有值、error 为空；失败时 draft 为空、error 为错误提示。
+ */
+public class AiDraftBatchResult {
+
+    /**
+     * 该项在请求 items 中的下标，结果按完成顺序推送，前端据此对应回请求项。
+     */
+    private int index;
+
+    private Long userId;
+
+    private Long shopId;
+
+    /**
+     * 生成的草稿文本。
+     */
+    private String draft;
+
+    /**
+     * 失败时的错误提示。
+     */
+    private String error;
+
+    public AiDraftBatchResult() {}
+
+    public AiDraftBatchResult(int index, Long userId, Long shopId, String draft, String error) {
+        this.index = index;
+        this.userId = userId;
+        this.shopId = shopId;
+        this.draft = draft;
+        this.error = error;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getShopId() {
+        return shopId;
+    }
+
+    public void setShopId(Long shopId) {
+        this.shopId = shopId;
+    }
+
+    public String getDraft() {
+        return draft;
+    }
+
+    public void setDraft(String draft) {
+        this.draft = draft;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
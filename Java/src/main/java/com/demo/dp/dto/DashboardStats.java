@@ -8,6 +8,7 @@ package com.demo.dp.dto;
  *   <li>商家总数、点评总数、订单总数</li>
  *   <li>AI 调用统计（总数、成功率）</li>
  *   <li>今日新增数据统计</li>
+ *   <li>AI 调用耗时分位数（最近一段时间的滑动窗口）</li>
  * </ul>
  * 
  * @author System
@@ -57,6 +58,32 @@ public class DashboardStats {
      */
     private long todayNewOrders;
 
+    /**
+     * 最近一段时间（ai.latency.dashboard-window-minutes，默认 5 分钟）成功 AI 调用耗时的 p50（毫秒），没有调用时为 0。
+     */
+    private long aiLatencyP50Ms;
+
+    /**
+     * 同一窗口内成功 AI 调用耗时的 p95（毫秒）。
+     */
+    private long aiLatencyP95Ms;
+
+    /**
+     * 同一窗口内成功 AI 调用耗时的 p99（毫秒）。
+     */
+    private long aiLatencyP99Ms;
+
+    /**
+     * 同一窗口内成功 AI 调用耗时的最大值（毫秒）。
+     */
+    private long aiLatencyMaxMs;
+
+    /**
+     * 计数是否已从数据库完成初始化。为 false 时（如应用刚启动、数据库暂不可用）各项计数均为 0，
+     * 前端应提示"统计初始化中"而不是把 0 当作真实数据。
+     */
+    private boolean ready;
+
     // region 构造函数
 
     /**
@@ -158,6 +185,46 @@ public class DashboardStats {
         this.todayNewOrders = todayNewOrders;
     }
 
+    public long getAiLatencyP50Ms() {
+        return aiLatencyP50Ms;
+    }
+
+    public void setAiLatencyP50Ms(long aiLatencyP50Ms) {
+        this.aiLatencyP50Ms = aiLatencyP50Ms;
+    }
+
+    public long getAiLatencyP95Ms() {
+        return aiLatencyP95Ms;
+    }
+
+    public void setAiLatencyP95Ms(long aiLatencyP95Ms) {
+        this.aiLatencyP95Ms = aiLatencyP95Ms;
+    }
+
+    public long getAiLatencyP99Ms() {
+        return aiLatencyP99Ms;
+    }
+
+    public void setAiLatencyP99Ms(long aiLatencyP99Ms) {
+        this.aiLatencyP99Ms = aiLatencyP99Ms;
+    }
+
+    public long getAiLatencyMaxMs() {
+        return aiLatencyMaxMs;
+    }
+
+    public void setAiLatencyMaxMs(long aiLatencyMaxMs) {
+        this.aiLatencyMaxMs = aiLatencyMaxMs;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void setReady(boolean ready) {
+        this.ready = ready;
+    }
+
     // endregion
 }
 
@@ -0,0 +1,120 @@
+package com.demo.dp.dto;
+
+/**
+ * 仪表盘趋势数据点 DTO：一个小时或一天的各项新增量。
+ * 
+ * <p>由 /api/dashboard/trends 按时间升序返回，没有数据的时间段各项为 0。
+ * 
+ * @author System
+ * @version 1.0
+ */
+public class DashboardTrendPoint {
+
+    /**
+     * 时间段开始时间（按天为 yyyy-MM-dd，按小时为 yyyy-MM-dd HH:00）。
+     */
+    private String bucket;
+
+    /**
+     * 新增正常商家数。
+     */
+    private long newShops;
+
+    /**
+     * 新增正常点评数。
+     */
+    private long newReviews;
+
+    /**
+     * 新增订单数。
+     */
+    private long newOrders;
+
+    /**
+     * AI 调用次数（包括成功和失败）。
+     */
+    private long aiCalls;
+
+    /**
+     * AI 调用成功返回次数（调用成功、命中缓存、合并请求）。
+     */
+    private long aiSuccess;
+
+    /**
+     * AI 调用失败次数。
+     */
+    private long aiFailed;
+
+    /**
+     * 成功调用大模型的平均耗时（毫秒），没有调用时为 0。
+     */
+    private double aiAvgLatencyMs;
+
+    // region getters/setters
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    public void setBucket(String bucket) {
+        this.bucket = bucket;
+    }
+
+    public long getNewShops() {
+        return newShops;
+    }
+
+    public void setNewShops(long newShops) {
+        this.newShops = newShops;
+    }
+
+    public long getNewReviews() {
+        return newReviews;
+    }
+
+    public void setNewReviews(long newReviews) {
+        this.newReviews = newReviews;
+    }
+
+    public long getNewOrders() {
+        return newOrders;
+    }
+
+    public void setNewOrders(long newOrders) {
+        this.newOrders = newOrders;
+    }
+
+    public long getAiCalls() {
+        return aiCalls;
+    }
+
+    public void setAiCalls(long aiCalls) {
+        this.aiCalls = aiCalls;
+    }
+
+    public long getAiSuccess() {
+        return aiSuccess;
+    }
+
+    public void setAiSuccess(long aiSuccess) {
+        this.aiSuccess = aiSuccess;
+    }
+
+    public long getAiFailed() {
+        return aiFailed;
+    }
+
+    public void setAiFailed(long aiFailed) {
+        this.aiFailed = aiFailed;
+    }
+
+    public double getAiAvgLatencyMs() {
+        return aiAvgLatencyMs;
+    }
+
+    public void setAiAvgLatencyMs(double aiAvgLatencyMs) {
+        this.aiAvgLatencyMs = aiAvgLatencyMs;
+    }
+
+    // endregion
+}
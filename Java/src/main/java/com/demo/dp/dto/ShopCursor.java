@@ -0,0 +1,109 @@
+package com.demo.dp.dto;
+
+import com.demo.dp.domain.entity.Shop;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 商家列表游标（keyset 分页）。
+ *
+ * <p>商家列表的排序规则为 {@code avg_score DESC, created_at DESC, id DESC}，
+ * 游标记录上一页最后一条记录的这三个排序键，下一页从该位置之后继续"定位"读取，
+ * 不再依赖 {@code LIMIT offset, size} 扫描并丢弃前面的所有行。
+ *
+ * <p>avg_score、created_at 允许为 NULL：排序与游标条件都使用 {@code COALESCE(avg_score, 0)} 与
+ * {@code COALESCE(created_at, '1970-01-01 00:00:00')}（见 ShopMapper.xml 的 sortScore/sortCreatedAt），
+ * 游标中也按同样的值编码，保证 NULL 行不会在翻页时被跳过或重复。
+ *
+ * <p>对外暴露的是不透明字符串（Base64URL 编码），前端只需原样回传，不应解析其内容。
+ *
+ * @author System
+ * @version 1.0
+ */
+public class ShopCursor {
+
+    /**
+     * created_at 为 NULL 时参与排序的值，必须与 ShopMapper.xml 中 sortCreatedAt 的默认值一致。
+     */
+    public static final LocalDateTime NULL_CREATED_AT = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    /**
+     * 上一页最后一条记录的平均评分。
+     */
+    private final double avgScore;
+
+    /**
+     * 上一页最后一条记录的创建时间。
+     */
+    private final LocalDateTime createdAt;
+
+    /**
+     * 上一页最后一条记录的主键ID，用于评分和创建时间都相同时的最终排序。
+     */
+    private final long id;
+
+    public ShopCursor(double avgScore, LocalDateTime createdAt, long id) {
+        this.avgScore = avgScore;
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    /**
+     * 以某个商家作为"上一页最后一条"构造游标。
+     *
+     * @param shop 当前页最后一条商家记录
+     * @return 指向该记录之后的游标
+     */
+    public static ShopCursor after(Shop shop) {
+        double score = shop.getAvgScore() == null ? 0.0 : shop.getAvgScore();
+        LocalDateTime createdAt = shop.getCreatedAt() == null ? NULL_CREATED_AT : shop.getCreatedAt();
+        return new ShopCursor(score, createdAt, shop.getId());
+    }
+
+    /**
+     * 编码为不透明的游标字符串。
+     *
+     * @return Base64URL 编码的游标
+     */
+    public String encode() {
+        String raw = avgScore + "|" + createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析前端回传的游标字符串。
+     *
+     * @param token 游标字符串；为空表示从第一页开始
+     * @return 解析后的游标；token 为空时返回 null
+     * @throws IllegalArgumentException 游标格式非法
+     */
+    public static ShopCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+            return new ShopCursor(Double.parseDouble(parts[0]), LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException | java.time.format.DateTimeParseException e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+    }
+
+    public double getAvgScore() {
+        return avgScore;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+}
@@ -24,6 +24,15 @@ public interface AiCallLogMapper {
      */
     int insert(AiCallLog log);
 
+    /**
+     * 批量插入调用日志（一条多行 INSERT），供 AiCallLogWriter 攒批写入。
+     * created_at 为空时使用数据库当前时间。
+     *
+     * @param logs 日志列表，不能为空
+     * @return 影响行数
+     */
+    int insertBatch(@Param("logs") java.util.List<AiCallLog> logs);
+
     /**
      * 根据主键查询调用日志。
      *
@@ -39,10 +48,17 @@ public interface AiCallLogMapper {
      */
     long countAll();
 
+    /**
+     * 统计成功返回结果的调用数量（status &gt;= 1，包括调用成功、命中缓存、合并请求）。
+     *
+     * @return 成功数量
+     */
+    long countSucceeded();
+
     /**
      * 根据状态统计 AI 调用日志数量。
      *
-     * @param status 状态：1=成功，0=失败
+     * @param status 状态：1=成功，0=失败，2=命中缓存，3=合并请求
      * @return 符合条件的调用日志数量
      */
     long countByStatus(@Param("status") Integer status);
@@ -53,7 +69,7 @@ public interface AiCallLogMapper {
      * @param offset 查询偏移量
      * @param limit 每页数量
      * @param type 调用类型（可选）：generate/recommend
-     * @param status 状态（可选）：1=成功，0=失败
+     * @param status 状态（可选）：1=成功，0=失败，2=命中缓存，3=合并请求
      * @param userId 用户ID（可选）
      * @return 调用日志列表
      */
@@ -4,6 +4,7 @@ import com.demo.dp.domain.entity.OrderRecord;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -42,6 +43,14 @@ public interface OrderRecordMapper {
     OrderRecord findLatestByUserAndShop(@Param("userId") Long userId,
                                         @Param("shopId") Long shopId);
 
+    /**
+     * 批量查询每个（用户, 商家）组合的最近一条消费记录：只查请求的组合，不会展开成 用户 × 商家 的笛卡尔积。
+     *
+     * @param pairs （用户ID, 商家ID）组合，每个元素为 {userId, shopId}，不能为空
+     * @return 消费记录列表，没有消费的组合不返回
+     */
+    List<OrderRecord> findLatestByUserShopPairs(@Param("pairs") Collection<Long[]> pairs);
+
     /**
      * 统计所有订单总数。
      *
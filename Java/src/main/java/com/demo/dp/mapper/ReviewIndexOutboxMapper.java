@@ -0,0 +1,89 @@
+package com.demo.dp.mapper;
+
+import com.demo.dp.domain.entity.ReviewIndexOutbox;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 点评关键词索引任务 Mapper，对应表 review_index_outbox。
+ *
+ * <p>功能：
+ * <ul>
+ *     <li>发表点评时写入任务</li>
+ *     <li>后台索引任务锁定到期任务、处理成功后删除、失败后记录重试</li>
+ *     <li>统计积压与索引延迟</li>
+ * </ul>
+ */
+@Mapper
+public interface ReviewIndexOutboxMapper {
+
+    /**
+     * 写入一条索引任务。
+     *
+     * @param reviewId  点评ID
+     * @param createdAt 入队时间
+     * @return 影响行数
+     */
+    int insert(@Param("reviewId") Long reviewId, @Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * 在当前事务内锁定一批已到期、未超过重试上限的任务（FOR UPDATE SKIP LOCKED），
+     * 多个实例同时处理时各自拿到不同的行。
+     *
+     * @param now         当前时间
+     * @param maxAttempts 重试上限
+     * @param limit       最多锁定条数
+     * @return 任务列表，按 id 升序
+     */
+    List<ReviewIndexOutbox> lockDue(@Param("now") LocalDateTime now,
+                                    @Param("maxAttempts") int maxAttempts,
+                                    @Param("limit") int limit);
+
+    /**
+     * 删除已处理完成的任务。
+     *
+     * @param ids 任务ID
+     * @return 影响行数
+     */
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 记录一次处理失败：attempts + 1，推迟到 nextAttemptAt 后再处理。
+     *
+     * @param id            任务ID
+     * @param error         失败原因（截断到 255 字符）
+     * @param nextAttemptAt 下次可处理时间
+     * @return 影响行数
+     */
+    int markFailed(@Param("id") Long id,
+                   @Param("error") String error,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    /**
+     * 统计未超过重试上限的积压任务数。
+     *
+     * @param maxAttempts 重试上限
+     * @return 积压任务数
+     */
+    long countPending(@Param("maxAttempts") int maxAttempts);
+
+    /**
+     * 统计已达到重试上限、不再处理的任务数（死信）。
+     *
+     * @param maxAttempts 重试上限
+     * @return 死信任务数
+     */
+    long countDead(@Param("maxAttempts") int maxAttempts);
+
+    /**
+     * 最早一条积压任务的入队时间。
+     *
+     * @param maxAttempts 重试上限
+     * @return 入队时间，没有积压时返回 null
+     */
+    LocalDateTime findOldestPendingCreatedAt(@Param("maxAttempts") int maxAttempts);
+}
@@ -4,6 +4,7 @@ import com.demo.dp.domain.entity.ReviewKeyword;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -12,6 +13,7 @@ import java.util.List;
  * <p>功能：
  * <ul>
  *     <li>批量插入关键词</li>
+ *     <li>按点评删除关键词（重建索引前清理旧数据）</li>
  *     <li>按店铺与关键词召回点评（用于推荐）</li>
  * </ul>
  */
@@ -26,6 +28,14 @@ public interface ReviewKeywordMapper {
      */
     int insertBatch(@Param("list") List<ReviewKeyword> keywords);
 
+    /**
+     * 删除指定点评的全部关键词。重建索引时先删后插，重复处理同一点评不会产生重复关键词。
+     *
+     * @param reviewIds 点评ID
+     * @return 影响行数
+     */
+    int deleteByReviewIds(@Param("reviewIds") Collection<Long> reviewIds);
+
     /**
      * 按店铺与关键词召回点评（结果返回点评ID）。
      *
@@ -4,6 +4,7 @@ import com.demo.dp.domain.entity.Review;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -34,6 +35,24 @@ public interface ReviewMapper {
      */
     Review findById(@Param("id") Long id);
 
+    /**
+     * 根据 ID 批量查询（不限状态），用于后台批量建关键词索引。
+     *
+     * @param ids 点评ID
+     * @return 点评列表
+     */
+    List<Review> findByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 按 id 升序读取 afterId 之后的一页点评（只含 id、content），用于关键词全量重建。
+     * 基于主键范围扫描（keyset 分页），每页耗时与 afterId 的位置无关。
+     *
+     * @param afterId 从该 ID 之后开始（不含）
+     * @param limit 每页条数
+     * @return 点评列表，按 id 升序
+     */
+    List<Review> findContentPageAfterId(@Param("afterId") long afterId, @Param("limit") int limit);
+
     /**
      * 基于关键词和权重的推荐查询（按店铺）。
      *
@@ -46,6 +65,21 @@ public interface ReviewMapper {
                                          @Param("keyword") String keyword,
                                          @Param("limit") int limit);
 
+    /**
+     * 关键词索引召回：关联 review_keyword 与 review，一次查询返回完整的点评行。
+     *
+     * <p>排序与 {@link ReviewKeywordMapper#findReviewIdsByShopAndKeyword} 相同：
+     * 关键词权重、点赞数、评分、创建时间依次降序；只返回正常状态（status=1）的点评。
+     *
+     * @param shopId  商家ID
+     * @param keyword 关键词（精确匹配 review_keyword.keyword）
+     * @param limit   返回数量上限
+     * @return 点评列表（已排序）
+     */
+    List<Review> findByShopAndIndexedKeyword(@Param("shopId") Long shopId,
+                                             @Param("keyword") String keyword,
+                                             @Param("limit") int limit);
+
     /**
      * 推荐兜底：仅按点赞/评分/时间排序返回 TOP N。
      *
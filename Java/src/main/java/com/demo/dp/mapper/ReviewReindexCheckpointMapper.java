@@ -0,0 +1,28 @@
+package com.demo.dp.mapper;
+
+import com.demo.dp.domain.entity.ReviewReindexCheckpoint;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 点评关键词全量重建断点 Mapper，对应表 review_reindex_checkpoint。
+ */
+@Mapper
+public interface ReviewReindexCheckpointMapper {
+
+    /**
+     * 按任务名称查询断点。
+     *
+     * @param jobName 任务名称
+     * @return 断点，不存在时返回 null
+     */
+    ReviewReindexCheckpoint findByJobName(@Param("jobName") String jobName);
+
+    /**
+     * 写入或覆盖断点（INSERT ... ON DUPLICATE KEY UPDATE）。
+     *
+     * @param checkpoint 断点
+     * @return 影响行数
+     */
+    int upsert(ReviewReindexCheckpoint checkpoint);
+}
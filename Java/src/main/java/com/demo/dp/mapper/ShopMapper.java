@@ -22,6 +22,9 @@ import java.util.List;
  *   <li>update：更新商家记录</li>
  *   <li>findByConditions：根据多条件分页查询商家列表</li>
  *   <li>countByConditions：根据多条件统计商家总数</li>
+ *   <li>findByConditionsAfter：根据多条件游标（keyset）分页查询商家列表</li>
+ *   <li>countByConditionsCapped：有上限的商家计数（近似总数）</li>
+ *   <li>findByIds / findAllActive：批量查询，配合内存关键词索引使用</li>
  * </ul>
  * 
  * @author System
@@ -95,6 +98,7 @@ public interface ShopMapper {
      * <ol>
      *   <li>首先按avg_score降序（评分高的在前）</li>
      *   <li>评分相同时按created_at降序（新创建的在前）</li>
+     *   <li>前两者都相同时按id降序，保证分页顺序稳定</li>
      * </ol>
      * 
      * <p>只返回status=1（正常状态）的商家，已删除的商家（status=0）不会出现在结果中。
@@ -158,6 +162,76 @@ public interface ShopMapper {
                           @Param("minScore") Double minScore,
                           @Param("maxPrice") Double maxPrice);
 
+    /**
+     * 游标（keyset）分页查询商家列表。
+     *
+     * <p>筛选条件与 {@link #findByConditions(int, int, String, String, Double, Double)} 相同，
+     * 排序为 avg_score DESC, created_at DESC, id DESC。与 OFFSET 分页不同，
+     * 该方法从上一页最后一条记录 (afterScore, afterCreatedAt, afterId) 之后直接定位读取，
+     * 翻到很深的页时也不会扫描并丢弃前面的行。
+     *
+     * @param limit 返回的记录数
+     * @param category 分类筛选条件，可选
+     * @param keyword 搜索关键词，可选
+     * @param minScore 最低评分，可选
+     * @param maxPrice 最高人均价格，可选
+     * @param afterScore 上一页最后一条记录的平均评分；为null表示查询第一页
+     * @param afterCreatedAt 上一页最后一条记录的创建时间
+     * @param afterId 上一页最后一条记录的ID
+     * @return 游标之后的商家列表
+     */
+    List<Shop> findByConditionsAfter(@Param("limit") int limit,
+                                     @Param("category") String category,
+                                     @Param("keyword") String keyword,
+                                     @Param("minScore") Double minScore,
+                                     @Param("maxPrice") Double maxPrice,
+                                     @Param("afterScore") Double afterScore,
+                                     @Param("afterCreatedAt") java.time.LocalDateTime afterCreatedAt,
+                                     @Param("afterId") Long afterId);
+
+    /**
+     * 有上限的商家计数，用于近似总数。
+     *
+     * <p>最多扫描 cap 行：返回值小于 cap 时为精确总数，等于 cap 时表示总数至少为 cap。
+     *
+     * @param category 分类筛选条件，可选
+     * @param keyword 搜索关键词，可选
+     * @param minScore 最低评分，可选
+     * @param maxPrice 最高人均价格，可选
+     * @param cap 计数上限
+     * @return 不超过 cap 的计数结果
+     */
+    long countByConditionsCapped(@Param("category") String category,
+                                 @Param("keyword") String keyword,
+                                 @Param("minScore") Double minScore,
+                                 @Param("maxPrice") Double maxPrice,
+                                 @Param("cap") int cap);
+
+    /**
+     * 根据ID列表批量查询正常状态（status = 1）的商家。
+     *
+     * <p>用于关键词检索：内存索引确定当页的商家ID后，一次查询取回这些行。
+     * 返回顺序不保证与传入顺序一致，调用方需自行按ID重新排序。
+     *
+     * @param ids 商家ID列表，不能为空
+     * @return 商家列表（不存在或已下线的ID会被忽略）
+     */
+    List<Shop> findByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * 查询全部正常状态（status=1）的商家，用于启动时构建内存检索索引。
+     *
+     * @return 全部正常状态的商家
+     */
+    List<Shop> findAllActive();
+
+    /**
+     * 统计正常状态的商家总数（status=1），带语句超时，供仪表盘计数器校正使用。
+     *
+     * @return 商家总数
+     */
+    long countActive();
+
     /**
      * 统计指定日期范围内创建的商家总数（status=1）。
      *
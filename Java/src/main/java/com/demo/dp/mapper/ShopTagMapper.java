@@ -4,6 +4,7 @@ import com.demo.dp.domain.entity.ShopTag;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -20,13 +21,21 @@ import java.util.List;
 public interface ShopTagMapper {
 
     /**
-     * 查询指定商家的标签关联列表。
+     * 查询指定商家的标签关联列表，按权重从高到低（同权重按更新时间倒序）。
      *
      * @param shopId 商家ID
      * @return 关联列表
      */
     List<ShopTag> findByShopId(@Param("shopId") Long shopId);
 
+    /**
+     * 批量查询多个商家的标签关联，按商家分组、组内按权重从高到低。
+     *
+     * @param shopIds 商家ID列表，不能为空
+     * @return 关联列表
+     */
+    List<ShopTag> findByShopIds(@Param("shopIds") Collection<Long> shopIds);
+
     /**
      * 批量插入商家标签关联。
      *
@@ -0,0 +1,98 @@
+package com.demo.dp.mapper;
+
+import com.demo.dp.domain.entity.StatRollup;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 仪表盘趋势汇总 Mapper，对应表 stat_rollup。
+ *
+ * <p>功能：
+ * <ul>
+ *     <li>累加内存中攒下的增量（写入路径）</li>
+ *     <li>从原始表按小时分组统计，覆盖指定时间段的小时数据，再由小时数据汇总天数据（补算任务）</li>
+ *     <li>按时间段读取趋势数据</li>
+ * </ul>
+ */
+@Mapper
+public interface StatRollupMapper {
+
+    /**
+     * 批量累加增量：行不存在时插入，存在时各项数值相加。
+     *
+     * @param rows 增量行（period、bucketStart 与各项增量）
+     * @return 影响行数
+     */
+    int addDeltas(@Param("list") List<StatRollup> rows);
+
+    /**
+     * 删除指定粒度、时间段 [from, to) 内的汇总行。
+     *
+     * @param period 粒度
+     * @param from   开始时间（含）
+     * @param to     结束时间（不含）
+     * @return 影响行数
+     */
+    int deleteRange(@Param("period") String period,
+                    @Param("from") LocalDateTime from,
+                    @Param("to") LocalDateTime to);
+
+    /**
+     * 批量插入由原始表统计出的汇总行（reconciled = 1）。
+     *
+     * @param rows 汇总行
+     * @return 影响行数
+     */
+    int insertReconciled(@Param("list") List<StatRollup> rows);
+
+    /**
+     * 由小时数据汇总出 [from, to) 内各天的天数据（调用方先删除这些天的旧数据）。
+     *
+     * @param from 开始时间（零点，含）
+     * @param to   结束时间（零点，不含）
+     * @return 影响行数
+     */
+    int insertDaysFromHours(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * 读取指定粒度、时间段 [from, to) 内的汇总行，按时间升序。
+     *
+     * @param period 粒度
+     * @param from   开始时间（含）
+     * @param to     结束时间（不含）
+     * @return 汇总行，没有数据的时间段不返回
+     */
+    List<StatRollup> findRange(@Param("period") String period,
+                               @Param("from") LocalDateTime from,
+                               @Param("to") LocalDateTime to);
+
+    /**
+     * 最近一个已由原始表重新统计的小时。
+     *
+     * @return 时间段开始时间，没有时返回 null
+     */
+    LocalDateTime findLatestReconciledHour();
+
+    /**
+     * 按小时统计 [from, to) 内新增的正常商家数（只填充 bucketStart、newShops）。
+     */
+    List<StatRollup> aggregateShopsByHour(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * 按小时统计 [from, to) 内新增的正常点评数（只填充 bucketStart、newReviews）。
+     */
+    List<StatRollup> aggregateReviewsByHour(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * 按小时统计 [from, to) 内新增的订单数（只填充 bucketStart、newOrders）。
+     */
+    List<StatRollup> aggregateOrdersByHour(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * 按小时统计 [from, to) 内的 AI 调用次数、成功/失败次数与耗时（只填充 bucketStart 与 ai* 字段）。
+     */
+    List<StatRollup> aggregateAiCallsByHour(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
@@ -27,6 +27,11 @@ public interface TagMapper {
      */
     List<Tag> findAll();
 
+    /**
+     * 根据 ID 列表批量查询标签（用于一次性解析多个标签，避免逐个 findById）
+     */
+    List<Tag> findByIds(@Param("ids") List<Long> ids);
+
     /**
      * 插入新标签
      */
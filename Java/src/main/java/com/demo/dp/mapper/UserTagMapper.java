@@ -4,6 +4,7 @@ import com.demo.dp.domain.entity.UserTag;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -20,13 +21,21 @@ import java.util.List;
 public interface UserTagMapper {
 
     /**
-     * 查询指定用户的标签关联列表。
+     * 查询指定用户的标签关联列表，按权重从高到低（同权重按更新时间倒序）。
      *
      * @param userId 用户ID
      * @return 关联列表
      */
     List<UserTag> findByUserId(@Param("userId") Long userId);
 
+    /**
+     * 批量查询多个用户的标签关联，按用户分组、组内按权重从高到低。
+     *
+     * @param userIds 用户ID列表，不能为空
+     * @return 关联列表
+     */
+    List<UserTag> findByUserIds(@Param("userIds") Collection<Long> userIds);
+
     /**
      * 批量插入用户标签关联。
      *
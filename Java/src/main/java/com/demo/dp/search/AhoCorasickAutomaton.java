@@ -0,0 +1,178 @@
+package com.demo.dp.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Aho-Corasick 多模式匹配自动机：一次扫描文本即可找出词典中所有词的全部出现位置，
+ * 耗时与文本长度加命中次数成正比，与词典大小无关。
+ *
+ * <p>实现要点：
+ * <ul>
+ *   <li>构建：先把所有词插入字典树，再按层序（BFS）计算失败指针与输出链接（最近的、本身是词尾的后缀状态）</li>
+ *   <li>存储：每个状态的转移压缩为按字符排序的 char[] + int[]，扫描时二分查找；
+ *       中文词典的字符集很大，稀疏数组比 char -> state 的 HashMap 省内存且没有装箱</li>
+ *   <li>大小写：构建和扫描时都按 {@link Character#toLowerCase(char)} 归一，扫描时不复制文本</li>
+ *   <li>重叠匹配：同一位置可命中多个词，如"微辣"同时命中"微辣"和"辣"</li>
+ * </ul>
+ *
+ * <p>构建后不可变，线程安全。
+ */
+public final class AhoCorasickAutomaton {
+
+    private static final int ROOT = 0;
+
+    private final String[] terms;
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] fail;
+    /**
+     * 以该状态结尾的词的下标，没有为 -1。
+     */
+    private final int[] termAt;
+    /**
+     * 输出链接：沿失败指针方向最近的、本身是词尾的状态，没有为 -1。
+     */
+    private final int[] outputLink;
+
+    /**
+     * 构建自动机。空白词被忽略，重复的词只保留第一次出现的下标。
+     *
+     * @param terms 词典，下标即 {@link #forEachMatch} 回调的词下标
+     */
+    public AhoCorasickAutomaton(List<String> terms) {
+        this.terms = terms.toArray(new String[0]);
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> ends = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        ends.add(-1);
+        for (int t = 0; t < this.terms.length; t++) {
+            String term = this.terms[t];
+            if (term == null || term.isBlank()) {
+                continue;
+            }
+            int state = ROOT;
+            for (int i = 0; i < term.length(); i++) {
+                char c = Character.toLowerCase(term.charAt(i));
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    ends.add(-1);
+                    trie.get(state).put(c, next);
+                }
+                state = next;
+            }
+            if (ends.get(state) < 0) {
+                ends.set(state, t);
+            }
+        }
+
+        int size = trie.size();
+        this.edgeChars = new char[size][];
+        this.edgeTargets = new int[size][];
+        this.termAt = new int[size];
+        for (int s = 0; s < size; s++) {
+            TreeMap<Character, Integer> edges = trie.get(s);
+            char[] chars = new char[edges.size()];
+            int[] targets = new int[edges.size()];
+            int k = 0;
+            for (var e : edges.entrySet()) {
+                chars[k] = e.getKey();
+                targets[k] = e.getValue();
+                k++;
+            }
+            edgeChars[s] = chars;
+            edgeTargets[s] = targets;
+            termAt[s] = ends.get(s);
+        }
+
+        this.fail = new int[size];
+        this.outputLink = new int[size];
+        Arrays.fill(outputLink, -1);
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : edgeTargets[ROOT]) {
+            fail[child] = ROOT;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            for (int k = 0; k < edgeChars[s].length; k++) {
+                char c = edgeChars[s][k];
+                int child = edgeTargets[s][k];
+                int f = fail[s];
+                int target;
+                while ((target = next(f, c)) < 0 && f != ROOT) {
+                    f = fail[f];
+                }
+                fail[child] = target < 0 ? ROOT : target;
+                int fc = fail[child];
+                outputLink[child] = termAt[fc] >= 0 ? fc : outputLink[fc];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * 扫描文本，每命中一次（含重叠出现、同一个词多次出现）回调一次该词的下标，按命中结束位置的顺序。
+     * 不分配与词典等长的数组，开销只与文本长度和命中次数有关。
+     *
+     * @param text 文本，可为 null
+     * @param action 命中回调，参数为词下标
+     */
+    public void forEachMatch(String text, IntConsumer action) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int target;
+            while ((target = next(state, c)) < 0 && state != ROOT) {
+                state = fail[state];
+            }
+            state = target < 0 ? ROOT : target;
+            for (int s = termAt[state] >= 0 ? state : outputLink[state]; s >= 0; s = outputLink[s]) {
+                action.accept(termAt[s]);
+            }
+        }
+    }
+
+    /**
+     * 词典大小。
+     *
+     * @return 词数（含被忽略的空白词）
+     */
+    public int size() {
+        return terms.length;
+    }
+
+    /**
+     * 第 index 个词。
+     *
+     * @param index 下标
+     * @return 词
+     */
+    public String term(int index) {
+        return terms[index];
+    }
+
+    /**
+     * 自动机状态数，用于监控。
+     *
+     * @return 状态数
+     */
+    public int stateCount() {
+        return fail.length;
+    }
+
+    private int next(int state, char c) {
+        int k = Arrays.binarySearch(edgeChars[state], c);
+        return k < 0 ? -1 : edgeTargets[state][k];
+    }
+}
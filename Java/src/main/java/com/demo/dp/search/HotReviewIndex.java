@@ -0,0 +1,395 @@
+package com.demo.dp.search;
+
+import com.demo.dp.domain.entity.Review;
+import com.demo.dp.mapper.ReviewMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 商家热门点评内存索引：每个商家维护一份按"点赞数、评分、创建时间"排序的有界 TOP K 点评列表，
+ * 替代推荐兜底路径上 {@code ReviewMapper.findTopByShop} / {@code findTopByShopAndKeyword} 对商家全部点评的排序。
+ *
+ * <p>维护方式：
+ * <ul>
+ *   <li>某商家第一次被查询时，用 findTopByShop 从数据库加载前 K 条；加载结果少于 K 条说明
+ *       该商家的全部点评都在内存中（complete），此时关键词过滤的结果也是精确的</li>
+ *   <li>ReviewServiceImpl 在新增点评、点赞的事务提交后调用 {@link #onReviewCreated} / {@link #onReviewLiked}
+ *       增量更新：新点评或点赞后的点评若能挤进前 K 名则插入并淘汰最后一名。点赞数只增不减，
+ *       因此被淘汰的点评不会在不被通知的情况下重新进入前 K 名，列表始终是真实的 TOP K</li>
+ *   <li>加载期间（数据库查询在锁外执行）到达的新增、点赞事件先记在该商家的加载标记上，加载完成后
+ *       依次应用到加载结果再放入缓存，查询开始后提交的写入不会丢失；点赞按"读到的点赞数 + 1"与列表中的值取大，
+ *       查询结果已包含该次点赞时不会重复计数</li>
+ *   <li>每个商家的列表有存活时间，过期后重新从数据库加载，纠正并发点赞、直接改库等造成的少量偏差</li>
+ *   <li>同时缓存的商家数有上限，超过时淘汰最久未访问的商家</li>
+ * </ul>
+ *
+ * <p>返回的 Review 对象会被多个请求共享，调用方不应修改；增量更新时总是替换为新的副本而不是原地修改。
+ *
+ * @author System
+ * @version 1.0
+ */
+@Component
+public class HotReviewIndex {
+
+    /**
+     * 排序规则：与 ReviewMapper.xml 中 findTopByShop 一致（like_count DESC, rating DESC, created_at DESC），
+     * 最后按 id 降序保证顺序稳定、条目唯一。
+     */
+    private static final Comparator<Review> ORDER = Comparator
+            .comparingInt((Review r) -> r.getLikeCount() == null ? 0 : r.getLikeCount()).reversed()
+            .thenComparing((Review r) -> r.getRating() == null ? 0 : r.getRating(), Comparator.reverseOrder())
+            .thenComparing(Review::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(Review::getId, Comparator.reverseOrder());
+
+    private final ReviewMapper reviewMapper;
+    private final int topK;
+    private final int maxShops;
+    private final long ttlNanos;
+
+    /**
+     * 商家ID -> 热门点评列表，访问顺序，超过 maxShops 时淘汰最久未访问的商家。
+     */
+    private final LinkedHashMap<Long, ShopTopK> shops = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 商家ID -> 正在加载的标记，加载期间到达的事件缓冲在这里。与 shops 使用同一把锁。
+     */
+    private final Map<Long, Loading> loading = new HashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+
+    /**
+     * @param reviewMapper 点评数据访问层，用于首次加载/过期重载
+     * @param topK 每个商家保留的点评条数
+     * @param maxShops 最多同时缓存的商家数
+     * @param ttlSeconds 每个商家列表的存活时间（秒）
+     */
+    public HotReviewIndex(ReviewMapper reviewMapper,
+                          @Value("${review.hot.top-k:50}") int topK,
+                          @Value("${review.hot.max-shops:10000}") int maxShops,
+                          @Value("${review.hot.ttl-seconds:600}") long ttlSeconds) {
+        if (topK <= 0 || maxShops <= 0) {
+            throw new IllegalArgumentException("review.hot.top-k 与 review.hot.max-shops 必须大于0");
+        }
+        this.reviewMapper = reviewMapper;
+        this.topK = topK;
+        this.maxShops = maxShops;
+        this.ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+    }
+
+    /**
+     * 商家热门点评 TOP N，等价于 {@code findTopByShop(shopId, limit)}。
+     *
+     * @param shopId 商家ID
+     * @param limit 返回数量
+     * @return 已排序的点评；limit 超过 K 时直接查询数据库
+     */
+    public List<Review> top(Long shopId, int limit) {
+        if (limit > topK) {
+            misses.increment();
+            return reviewMapper.findTopByShop(shopId, limit);
+        }
+        return shopTopK(shopId).top(null, limit);
+    }
+
+    /**
+     * 正文包含关键词的热门点评 TOP N，等价于 {@code findTopByShopAndKeyword(shopId, keyword, limit)}。
+     *
+     * <p>在内存的 TOP K 中按关键词过滤：命中数达到 limit，或该商家全部点评都在内存中时直接返回；
+     * 否则说明 TOP K 之外可能还有匹配的点评，回退到数据库查询。
+     *
+     * @param shopId 商家ID
+     * @param keyword 关键词，为空时等价于 {@link #top}
+     * @param limit 返回数量
+     * @return 已排序的点评
+     */
+    public List<Review> topByKeyword(Long shopId, String keyword, int limit) {
+        if (keyword == null || keyword.isEmpty()) {
+            return top(shopId, limit);
+        }
+        if (limit <= topK) {
+            ShopTopK entry = shopTopK(shopId);
+            List<Review> matched = entry.top(keyword, limit);
+            if (matched.size() >= limit || entry.isComplete()) {
+                return matched;
+            }
+        }
+        misses.increment();
+        return reviewMapper.findTopByShopAndKeyword(shopId, keyword, limit);
+    }
+
+    /**
+     * 新增点评后调用（应在事务提交之后）。
+     *
+     * @param review 新插入的点评（需包含ID）
+     */
+    public void onReviewCreated(Review review) {
+        if (review == null || review.getId() == null || review.getStatus() == null || review.getStatus() != 1) {
+            return;
+        }
+        Review copy = copyOf(review);
+        apply(review.getShopId(), entry -> entry.offer(copy), entry -> entry.offer(copy));
+    }
+
+    /**
+     * 点赞后调用（应在事务提交之后）。点评已在列表中时在内存里的点赞数基础上加一，
+     * 否则以数据库读到的点赞数加一尝试挤进列表。
+     *
+     * @param review 点赞前从数据库读取的点评
+     */
+    public void onReviewLiked(Review review) {
+        if (review == null || review.getId() == null) {
+            return;
+        }
+        apply(review.getShopId(), entry -> entry.like(review), entry -> entry.likeAtLeast(review));
+    }
+
+    /**
+     * 丢弃某商家的列表，下次查询时重新加载；正在进行的加载结果不再放入缓存。
+     *
+     * @param shopId 商家ID
+     */
+    public void invalidate(Long shopId) {
+        synchronized (shops) {
+            shops.remove(shopId);
+            loading.remove(shopId);
+        }
+    }
+
+    /**
+     * 供监控使用的统计信息：shops（已缓存商家数）、topK、hits、misses（回退数据库次数）、loads（加载次数）。
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (shops) {
+            stats.put("shops", shops.size());
+        }
+        stats.put("maxShops", maxShops);
+        stats.put("topK", topK);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("loads", loads.sum());
+        return stats;
+    }
+
+    /**
+     * 取商家的列表，不存在或已过期时从数据库加载。数据库查询在锁外执行：先放入加载标记，
+     * 查询期间到达的事件缓冲在标记上，查询完成后在锁内应用到结果再放入缓存。
+     * 同一商家已有加载在进行时，本次查询的结果只用于本次请求，不放入缓存。
+     */
+    private ShopTopK shopTopK(Long shopId) {
+        ShopTopK entry = loadedShopTopK(shopId);
+        if (entry != null) {
+            hits.increment();
+            return entry;
+        }
+        Loading marker;
+        synchronized (shops) {
+            marker = loading.containsKey(shopId) ? null : new Loading();
+            if (marker != null) {
+                loading.put(shopId, marker);
+            }
+        }
+        loads.increment();
+        List<Review> rows;
+        try {
+            rows = reviewMapper.findTopByShop(shopId, topK);
+        } catch (RuntimeException e) {
+            if (marker != null) {
+                synchronized (shops) {
+                    loading.remove(shopId, marker);
+                }
+            }
+            throw e;
+        }
+        ShopTopK loaded = new ShopTopK(rows == null ? List.of() : rows, System.nanoTime());
+        if (marker == null) {
+            return loaded;
+        }
+        synchronized (shops) {
+            if (!loading.remove(shopId, marker)) {
+                // 加载期间被 invalidate，结果可能已过时
+                return loaded;
+            }
+            marker.replay(loaded);
+            shops.put(shopId, loaded);
+            Iterator<Map.Entry<Long, ShopTopK>> it = shops.entrySet().iterator();
+            while (shops.size() > maxShops && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 把一个事件应用到商家的列表：已加载时直接应用；正在加载时缓冲，加载完成后以 replay 应用到加载结果；
+     * 都不是时忽略（下次加载会从数据库读到）。
+     */
+    private void apply(Long shopId, Consumer<ShopTopK> action, Consumer<ShopTopK> replay) {
+        ShopTopK entry;
+        synchronized (shops) {
+            entry = loadedShopTopK(shopId);
+            if (entry == null) {
+                Loading marker = shopId == null ? null : loading.get(shopId);
+                if (marker != null) {
+                    marker.events.add(replay);
+                }
+                return;
+            }
+        }
+        action.accept(entry);
+    }
+
+    /**
+     * 取已加载且未过期的列表，不触发加载。
+     */
+    private ShopTopK loadedShopTopK(Long shopId) {
+        if (shopId == null) {
+            return null;
+        }
+        synchronized (shops) {
+            ShopTopK entry = shops.get(shopId);
+            if (entry != null && isExpired(entry)) {
+                shops.remove(shopId);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private boolean isExpired(ShopTopK entry) {
+        return System.nanoTime() - entry.loadedAt >= ttlNanos;
+    }
+
+    private static Review copyOf(Review r) {
+        Review c = new Review();
+        c.setId(r.getId());
+        c.setShopId(r.getShopId());
+        c.setUserId(r.getUserId());
+        c.setRating(r.getRating());
+        c.setContent(r.getContent());
+        c.setImages(r.getImages());
+        c.setIsAiGenerated(r.getIsAiGenerated());
+        c.setLikeCount(r.getLikeCount() == null ? 0 : r.getLikeCount());
+        c.setStatus(r.getStatus());
+        c.setCreatedAt(r.getCreatedAt());
+        return c;
+    }
+
+    /**
+     * 单个商家的有界 TOP K：有序集合负责排序和淘汰最后一名，ID 映射负责按点评ID定位条目。
+     */
+    private final class ShopTopK {
+        private final TreeSet<Review> sorted = new TreeSet<>(ORDER);
+        private final Map<Long, Review> byId = new HashMap<>();
+        private final long loadedAt;
+
+        /**
+         * 是否包含该商家的全部正常点评：加载时不足 K 条为 true，发生过淘汰后为 false。
+         */
+        private boolean complete;
+
+        private ShopTopK(List<Review> rows, long loadedAt) {
+            for (Review r : rows) {
+                Review c = copyOf(r);
+                sorted.add(c);
+                byId.put(c.getId(), c);
+            }
+            this.complete = rows.size() < topK;
+            this.loadedAt = loadedAt;
+        }
+
+        private synchronized boolean isComplete() {
+            return complete;
+        }
+
+        /**
+         * 按顺序返回前 limit 条；keyword 不为空时只返回正文包含该关键词的点评。
+         */
+        private synchronized List<Review> top(String keyword, int limit) {
+            List<Review> result = new ArrayList<>(Math.min(limit, sorted.size()));
+            for (Review r : sorted) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                if (keyword == null || (r.getContent() != null && r.getContent().contains(keyword))) {
+                    result.add(r);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * 尝试插入一条点评（同ID的旧条目先移除），超过 K 条时淘汰最后一名。
+         */
+        private synchronized void offer(Review review) {
+            Review old = byId.remove(review.getId());
+            if (old != null) {
+                sorted.remove(old);
+            }
+            if (sorted.size() >= topK && ORDER.compare(review, sorted.last()) >= 0) {
+                // 没有挤进前 K 名
+                complete = false;
+                return;
+            }
+            sorted.add(review);
+            byId.put(review.getId(), review);
+            if (sorted.size() > topK) {
+                Review evicted = sorted.pollLast();
+                byId.remove(evicted.getId());
+                complete = false;
+            }
+        }
+
+        private synchronized void like(Review fromDb) {
+            Review current = byId.get(fromDb.getId());
+            Review updated = copyOf(current != null ? current : fromDb);
+            updated.setLikeCount(updated.getLikeCount() + 1);
+            offer(updated);
+        }
+
+        /**
+         * 重放加载期间的点赞：加载结果可能已包含这次点赞，点赞数取"点赞前读到的值 + 1"与列表中的值的较大者。
+         */
+        private synchronized void likeAtLeast(Review fromDb) {
+            Review current = byId.get(fromDb.getId());
+            int atLeast = (fromDb.getLikeCount() == null ? 0 : fromDb.getLikeCount()) + 1;
+            if (current != null && current.getLikeCount() >= atLeast) {
+                return;
+            }
+            Review updated = copyOf(current != null ? current : fromDb);
+            updated.setLikeCount(atLeast);
+            offer(updated);
+        }
+    }
+
+    /**
+     * 某商家的加载标记：按到达顺序缓冲加载期间的事件，在 shops 锁内读写。
+     */
+    private static final class Loading {
+        private final List<Consumer<ShopTopK>> events = new ArrayList<>();
+
+        private void replay(ShopTopK loaded) {
+            for (Consumer<ShopTopK> event : events) {
+                event.accept(loaded);
+            }
+        }
+    }
+}
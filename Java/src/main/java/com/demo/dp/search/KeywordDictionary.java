@@ -0,0 +1,164 @@
+package com.demo.dp.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * 点评关键词词典：点评关键词抽取（写入 review_keyword）与根据标签推断用户偏好共用的同一份词典，
+ * 启动时编译为 {@link AhoCorasickAutomaton}，一次扫描找出文本中的全部关键词，词典扩充到数千词也不会变慢。
+ *
+ * <p>词典来源（review.keywords.*）：
+ * <ul>
+ *   <li>terms：application.yml 中的词列表，顺序即优先级（推断偏好时取最靠前的命中词）</li>
+ *   <li>file：可选的外部词典文件（如 classpath:keywords.txt 或 file:/etc/dp/keywords.txt），
+ *       UTF-8，每行一个词，# 开头为注释；追加在 terms 之后</li>
+ * </ul>
+ * 匹配不区分大小写，重复的词只保留第一次出现的位置。
+ *
+ * @author System
+ * @version 1.0
+ */
+@Component
+public class KeywordDictionary {
+
+    private static final Logger log = LoggerFactory.getLogger(KeywordDictionary.class);
+
+    private final AhoCorasickAutomaton automaton;
+
+    /**
+     * @param resourceLoader 用于加载外部词典文件
+     * @param terms 配置中的词列表（按优先级排列）
+     * @param file 外部词典文件位置，为空表示不加载
+     */
+    public KeywordDictionary(ResourceLoader resourceLoader,
+                             @Value("${review.keywords.terms:辣,微辣,不辣,清淡,环境,服务,价格,性价比,分量,麻,干净,卫生,态度,排队,等位,贵,便宜,份量}") List<String> terms,
+                             @Value("${review.keywords.file:}") String file) {
+        Set<String> all = new LinkedHashSet<>();
+        for (String term : terms) {
+            addTerm(all, term);
+        }
+        if (file != null && !file.isBlank()) {
+            loadFile(resourceLoader.getResource(file), all);
+        }
+        this.automaton = new AhoCorasickAutomaton(new ArrayList<>(all));
+        log.info("点评关键词词典已加载, terms={}, states={}", automaton.size(), automaton.stateCount());
+    }
+
+    /**
+     * 统计文本中每个关键词的出现次数（含重叠出现，如"微辣"同时计入"微辣"和"辣"）。
+     *
+     * @param text 文本，可为 null
+     * @return 关键词 -> 出现次数，只包含出现过的词，按词典顺序排列
+     */
+    public Map<String, Integer> countMatches(String text) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        Hits hits = new Hits();
+        automaton.forEachMatch(text, hits);
+        int[] indices = hits.sorted();
+        for (int i = 0; i < indices.length; ) {
+            int j = i;
+            while (j < indices.length && indices[j] == indices[i]) {
+                j++;
+            }
+            result.put(automaton.term(indices[i]), j - i);
+            i = j;
+        }
+        return result;
+    }
+
+    /**
+     * 找出在任一文本中出现过的关键词。
+     *
+     * @param texts 文本集合（如标签名称），元素可为 null
+     * @return 命中的关键词，按词典顺序（即优先级）排列、去重
+     */
+    public List<String> matchAny(Collection<String> texts) {
+        List<String> result = new ArrayList<>();
+        if (texts == null || texts.isEmpty()) {
+            return result;
+        }
+        Hits hits = new Hits();
+        for (String text : texts) {
+            automaton.forEachMatch(text, hits);
+        }
+        int[] indices = hits.sorted();
+        for (int i = 0; i < indices.length; i++) {
+            if (i == 0 || indices[i] != indices[i - 1]) {
+                result.add(automaton.term(indices[i]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 词典大小。
+     *
+     * @return 词数
+     */
+    public int size() {
+        return automaton.size();
+    }
+
+    private static void loadFile(Resource resource, Set<String> all) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.strip().startsWith("#")) {
+                    addTerm(all, line);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("点评关键词词典文件加载失败: " + resource, e);
+        }
+    }
+
+    private static void addTerm(Set<String> all, String term) {
+        if (term != null && !term.isBlank()) {
+            all.add(term.strip().toLowerCase());
+        }
+    }
+
+    /**
+     * 命中的词下标（稀疏收集）：命中通常只有几个，不为每次扫描分配与词典等长的计数数组。
+     */
+    private static final class Hits implements IntConsumer {
+        private int[] indices = new int[8];
+        private int size;
+
+        @Override
+        public void accept(int index) {
+            if (size == indices.length) {
+                indices = Arrays.copyOf(indices, size * 2);
+            }
+            indices[size++] = index;
+        }
+
+        /**
+         * 按词下标（即词典顺序）排序后的命中，重复命中相邻。
+         */
+        private int[] sorted() {
+            int[] result = Arrays.copyOf(indices, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
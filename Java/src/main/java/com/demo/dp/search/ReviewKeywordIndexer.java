@@ -0,0 +1,306 @@
+package com.demo.dp.search;
+
+import com.demo.dp.domain.entity.Review;
+import com.demo.dp.domain.entity.ReviewIndexOutbox;
+import com.demo.dp.domain.entity.ReviewKeyword;
+import com.demo.dp.mapper.ReviewIndexOutboxMapper;
+import com.demo.dp.mapper.ReviewKeywordMapper;
+import com.demo.dp.mapper.ReviewMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 点评关键词异步索引：发表点评时只在同一事务内写入一行 review_index_outbox 任务，
+ * 关键词抽取与 review_keyword 写入由后台定时任务批量完成，点评发表接口的耗时不再包含建索引。
+ *
+ * <p>处理规则：
+ * <ul>
+ *   <li>每轮在一个事务内锁定最多 batch-size 条到期任务（FOR UPDATE SKIP LOCKED，多实例互不重复），
+ *       一次查出这些点评、一次删除旧关键词、一次多行 INSERT 写入新关键词，再删除任务行，跨多条点评合并写库</li>
+ *   <li>拿到满批时继续处理下一批，每次调度最多 max-rounds 批，积压时能尽快追上又不长期占用调度线程</li>
+ *   <li>整批失败时回滚，再逐条在各自的事务中重试，避免一条异常点评拖住整批；
+ *       单条仍失败时 attempts + 1，并按 retry-base-ms 起的指数退避（上限 retry-max-ms）推迟，
+ *       达到 max-attempts 后不再处理（死信），保留 last_error 供排查</li>
+ *   <li>写关键词总是"先删后插"，同一点评被重复处理（如逐条重试与其他实例并发）也不会产生重复关键词</li>
+ * </ul>
+ *
+ * <p>索引延迟（点评发表到关键词可被召回的时间）通过 {@link #stats()} 暴露：
+ * lastLagMs 为最近一批中最早入队任务从入队到索引完成的耗时，oldestPendingAgeMs 为当前积压中最早任务的等待时间。
+ *
+ * @author System
+ * @version 1.0
+ */
+@Component
+public class ReviewKeywordIndexer {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewKeywordIndexer.class);
+
+    private final ReviewIndexOutboxMapper outboxMapper;
+    private final ReviewMapper reviewMapper;
+    private final ReviewKeywordMapper reviewKeywordMapper;
+    private final KeywordDictionary keywordDictionary;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxRounds;
+    private final int maxAttempts;
+    private final long retryBaseMs;
+    private final long retryMaxMs;
+
+    private final LongAdder indexedReviews = new LongAdder();
+    private final LongAdder indexedKeywords = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile long lastLagMs;
+    private volatile long maxLagMs;
+
+    /**
+     * @param outboxMapper        索引任务 Mapper
+     * @param reviewMapper        点评 Mapper
+     * @param reviewKeywordMapper 点评关键词 Mapper
+     * @param keywordDictionary   关键词词典
+     * @param transactionTemplate 编程式事务
+     * @param batchSize           每批最多处理的任务数
+     * @param maxRounds           每次调度最多处理的批数
+     * @param maxAttempts         单个任务最多失败次数，达到后不再处理
+     * @param retryBaseMs         第一次失败后的重试间隔（毫秒），之后每次翻倍
+     * @param retryMaxMs          重试间隔上限（毫秒）
+     */
+    public ReviewKeywordIndexer(ReviewIndexOutboxMapper outboxMapper,
+                                ReviewMapper reviewMapper,
+                                ReviewKeywordMapper reviewKeywordMapper,
+                                KeywordDictionary keywordDictionary,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${review.index.batch-size:200}") int batchSize,
+                                @Value("${review.index.max-rounds:10}") int maxRounds,
+                                @Value("${review.index.max-attempts:8}") int maxAttempts,
+                                @Value("${review.index.retry-base-ms:1000}") long retryBaseMs,
+                                @Value("${review.index.retry-max-ms:300000}") long retryMaxMs) {
+        if (batchSize <= 0 || maxRounds <= 0 || maxAttempts <= 0) {
+            throw new IllegalArgumentException("review.index 的 batch-size、max-rounds、max-attempts 必须大于0");
+        }
+        this.outboxMapper = outboxMapper;
+        this.reviewMapper = reviewMapper;
+        this.reviewKeywordMapper = reviewKeywordMapper;
+        this.keywordDictionary = keywordDictionary;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxRounds = maxRounds;
+        this.maxAttempts = maxAttempts;
+        this.retryBaseMs = Math.max(1, retryBaseMs);
+        this.retryMaxMs = Math.max(this.retryBaseMs, retryMaxMs);
+    }
+
+    /**
+     * 登记一条点评的索引任务。应在写入点评的同一事务内调用，点评回滚时任务一起回滚。
+     *
+     * @param reviewId 点评ID
+     */
+    public void enqueue(Long reviewId) {
+        outboxMapper.insert(reviewId, LocalDateTime.now());
+    }
+
+    /**
+     * 定时处理积压的索引任务。调度线程池大小见 spring.task.scheduling.pool.size，不与其他定时任务排队。
+     */
+    @Scheduled(initialDelayString = "${review.index.poll-interval-ms:500}",
+            fixedDelayString = "${review.index.poll-interval-ms:500}")
+    public void poll() {
+        for (int round = 0; round < maxRounds; round++) {
+            if (processBatch() < batchSize) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 重建一批点评的关键词：删除这些点评的旧关键词，再一次写入新抽取的关键词。
+     * 应在事务内调用，保证删除与写入同时生效。
+     *
+     * @param reviews 点评列表
+     * @return 写入的关键词条数
+     */
+    public int writeKeywords(Collection<Review> reviews) {
+        if (reviews == null || reviews.isEmpty()) {
+            return 0;
+        }
+        List<Long> reviewIds = new ArrayList<>(reviews.size());
+        List<ReviewKeyword> keywords = new ArrayList<>();
+        for (Review review : reviews) {
+            reviewIds.add(review.getId());
+            keywords.addAll(extractKeywords(review.getId(), review.getContent()));
+        }
+        reviewKeywordMapper.deleteByReviewIds(reviewIds);
+        if (!keywords.isEmpty()) {
+            reviewKeywordMapper.insertBatch(keywords);
+        }
+        return keywords.size();
+    }
+
+    /**
+     * 供监控使用的统计信息：indexedReviews、indexedKeywords、batches、retries（逐条重试次数）、
+     * failures（单条失败次数）、lastLagMs、maxLagMs，以及从数据库读取的 pending（积压）、
+     * deadLetters（死信）、oldestPendingAgeMs。
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("batchSize", batchSize);
+        stats.put("maxAttempts", maxAttempts);
+        stats.put("indexedReviews", indexedReviews.sum());
+        stats.put("indexedKeywords", indexedKeywords.sum());
+        stats.put("batches", batches.sum());
+        stats.put("retries", retries.sum());
+        stats.put("failures", failures.sum());
+        stats.put("lastLagMs", lastLagMs);
+        stats.put("maxLagMs", maxLagMs);
+        try {
+            stats.put("pending", outboxMapper.countPending(maxAttempts));
+            stats.put("deadLetters", outboxMapper.countDead(maxAttempts));
+            LocalDateTime oldest = outboxMapper.findOldestPendingCreatedAt(maxAttempts);
+            stats.put("oldestPendingAgeMs", oldest == null ? 0L : ageMs(oldest));
+        } catch (Exception e) {
+            log.warn("读取点评索引积压统计失败", e);
+        }
+        return stats;
+    }
+
+    /**
+     * 处理一批任务。
+     *
+     * @return 本批锁定的任务数
+     */
+    private int processBatch() {
+        List<ReviewIndexOutbox> locked = new ArrayList<>();
+        int[] counts;
+        try {
+            counts = transactionTemplate.execute(status -> {
+                locked.addAll(outboxMapper.lockDue(LocalDateTime.now(), maxAttempts, batchSize));
+                return locked.isEmpty() ? null : process(locked);
+            });
+        } catch (Exception e) {
+            if (locked.isEmpty()) {
+                log.error("拉取点评索引任务失败", e);
+                return 0;
+            }
+            log.warn("点评索引整批处理失败，逐条重试, size={}", locked.size(), e);
+            for (ReviewIndexOutbox task : locked) {
+                processOne(task);
+            }
+            return locked.size();
+        }
+        if (counts != null) {
+            batches.increment();
+            recordSuccess(locked, counts);
+        }
+        return locked.size();
+    }
+
+    /**
+     * 在独立事务中处理单个任务，失败时记录并推迟重试。
+     */
+    private void processOne(ReviewIndexOutbox task) {
+        retries.increment();
+        try {
+            int[] counts = transactionTemplate.execute(status -> process(List.of(task)));
+            recordSuccess(List.of(task), counts);
+        } catch (Exception e) {
+            failures.increment();
+            int attempts = (task.getAttempts() == null ? 0 : task.getAttempts()) + 1;
+            long delayMs = retryBaseMs << Math.min(attempts - 1, 30);
+            LocalDateTime next = LocalDateTime.now().plus(Duration.ofMillis(Math.min(delayMs, retryMaxMs)));
+            String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            try {
+                outboxMapper.markFailed(task.getId(), error, next);
+            } catch (Exception markError) {
+                log.error("记录点评索引任务失败状态出错, taskId={}", task.getId(), markError);
+            }
+            if (attempts >= maxAttempts) {
+                log.error("点评索引任务达到重试上限，不再处理, taskId={}, reviewId={}",
+                        task.getId(), task.getReviewId(), e);
+            } else {
+                log.warn("点评索引任务失败, taskId={}, reviewId={}, attempts={}, nextAttemptAt={}",
+                        task.getId(), task.getReviewId(), attempts, next);
+            }
+        }
+    }
+
+    /**
+     * 建索引并删除任务；已不存在的点评直接删除任务。调用方负责事务。
+     *
+     * @return {点评数, 关键词条数}
+     */
+    private int[] process(List<ReviewIndexOutbox> tasks) {
+        Set<Long> reviewIds = new LinkedHashSet<>();
+        List<Long> taskIds = new ArrayList<>(tasks.size());
+        for (ReviewIndexOutbox task : tasks) {
+            reviewIds.add(task.getReviewId());
+            taskIds.add(task.getId());
+        }
+        List<Review> reviews = reviewMapper.findByIds(reviewIds);
+        int keywords = writeKeywords(reviews);
+        outboxMapper.deleteByIds(taskIds);
+        return new int[]{reviews.size(), keywords};
+    }
+
+    /**
+     * 事务提交后累计处理量并记录索引延迟。
+     */
+    private void recordSuccess(List<ReviewIndexOutbox> tasks, int[] counts) {
+        indexedReviews.add(counts[0]);
+        indexedKeywords.add(counts[1]);
+        LocalDateTime earliest = null;
+        for (ReviewIndexOutbox task : tasks) {
+            if (task.getCreatedAt() != null && (earliest == null || task.getCreatedAt().isBefore(earliest))) {
+                earliest = task.getCreatedAt();
+            }
+        }
+        if (earliest != null) {
+            long lag = ageMs(earliest);
+            lastLagMs = lag;
+            if (lag > maxLagMs) {
+                maxLagMs = lag;
+            }
+        }
+    }
+
+    private static long ageMs(LocalDateTime since) {
+        return Math.max(0, Duration.between(since, LocalDateTime.now()).toMillis());
+    }
+
+    /**
+     * 关键词抽取：用共享的关键词词典（Aho-Corasick 自动机）一次扫描正文，找出全部命中的关键词，
+     * 以命中次数作为权重（如正文出现两次"辣"，权重为 2.0）。
+     * 可后续替换为 NLP/LLM 标注。
+     */
+    private List<ReviewKeyword> extractKeywords(Long reviewId, String content) {
+        List<ReviewKeyword> list = new ArrayList<>();
+        if (content == null || content.isBlank()) {
+            return list;
+        }
+        for (Map.Entry<String, Integer> hit : keywordDictionary.countMatches(content).entrySet()) {
+            ReviewKeyword kw = new ReviewKeyword();
+            kw.setReviewId(reviewId);
+            kw.setKeyword(hit.getKey());
+            kw.setWeight(hit.getValue().doubleValue());
+            list.add(kw);
+        }
+        return list;
+    }
+}
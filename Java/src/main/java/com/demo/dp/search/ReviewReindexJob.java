@@ -0,0 +1,387 @@
+package com.demo.dp.search;
+
+import com.demo.dp.domain.entity.Review;
+import com.demo.dp.domain.entity.ReviewReindexCheckpoint;
+import com.demo.dp.mapper.ReviewMapper;
+import com.demo.dp.mapper.ReviewReindexCheckpointMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 点评关键词全量重建任务：修改关键词词典后，为历史点评重新生成 review_keyword。
+ *
+ * <p>执行方式：
+ * <ul>
+ *   <li>读取线程按 id 升序分页读取 review 表（只取 id、content，{@code WHERE id > 上一页最后的 id LIMIT chunk-size}），
+ *       每页在一个短的只读事务中读取，读完即交给工作线程池；不长时间占用连接、不持有长事务的一致性快照，
+ *       请求停止后在下一页之前生效</li>
+ *   <li>工作线程（parallelism 个）抽取关键词，并在各自的事务中"先删后插"写入：一次 DELETE、一次多行 INSERT</li>
+ *   <li>在途的段数不超过 max-in-flight-chunks，写库变慢时读取线程阻塞等待，内存占用有上界
+ *       （约 max-in-flight-chunks × chunk-size 条点评）</li>
+ *   <li>各段完成顺序不固定，只有某段及其之前的所有段都写完，断点才推进到该段最后一条点评的 id；
+ *       断点最多每 checkpoint-interval-ms 写一次 review_reindex_checkpoint</li>
+ *   <li>任务停止、失败或进程退出后，再次启动时从断点继续；断点之后已经写过的段会被重复处理，
+ *       由于写入是"先删后插"，结果不变</li>
+ * </ul>
+ *
+ * <p>同一进程内同时只运行一个重建任务；{@link #status()} 返回进度与吞吐（rowsPerSecond）。
+ * 与 {@link ReviewKeywordIndexer} 的增量索引可以同时运行，两者对同一点评都是整体替换关键词。
+ *
+ * @author System
+ * @version 1.0
+ */
+@Component
+public class ReviewReindexJob {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewReindexJob.class);
+
+    /**
+     * 断点表中的任务名称。
+     */
+    static final String JOB_NAME = "review-keyword";
+
+    private final ReviewMapper reviewMapper;
+    private final ReviewReindexCheckpointMapper checkpointMapper;
+    private final ReviewKeywordIndexer reviewKeywordIndexer;
+    private final TransactionTemplate writeTransaction;
+    private final TransactionTemplate readTransaction;
+    private final int chunkSize;
+    private final int parallelism;
+    private final int maxInFlightChunks;
+    private final long checkpointIntervalMs;
+
+    private volatile Run current;
+
+    /**
+     * @param reviewMapper         点评 Mapper
+     * @param checkpointMapper     断点 Mapper
+     * @param reviewKeywordIndexer 关键词抽取与写入
+     * @param transactionTemplate  写入使用的事务
+     * @param transactionManager   用于创建分页读取使用的只读事务
+     * @param chunkSize            每段点评数（一次 DELETE + 一次多行 INSERT）
+     * @param parallelism          工作线程数
+     * @param maxInFlightChunks    最多同时在途的段数
+     * @param checkpointIntervalMs 断点最短写入间隔（毫秒）
+     */
+    public ReviewReindexJob(ReviewMapper reviewMapper,
+                            ReviewReindexCheckpointMapper checkpointMapper,
+                            ReviewKeywordIndexer reviewKeywordIndexer,
+                            TransactionTemplate transactionTemplate,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${review.reindex.chunk-size:1000}") int chunkSize,
+                            @Value("${review.reindex.parallelism:4}") int parallelism,
+                            @Value("${review.reindex.max-in-flight-chunks:8}") int maxInFlightChunks,
+                            @Value("${review.reindex.checkpoint-interval-ms:2000}") long checkpointIntervalMs) {
+        if (chunkSize <= 0 || parallelism <= 0 || maxInFlightChunks <= 0) {
+            throw new IllegalArgumentException("review.reindex 的 chunk-size、parallelism、max-in-flight-chunks 必须大于0");
+        }
+        this.reviewMapper = reviewMapper;
+        this.checkpointMapper = checkpointMapper;
+        this.reviewKeywordIndexer = reviewKeywordIndexer;
+        this.writeTransaction = transactionTemplate;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.maxInFlightChunks = Math.max(maxInFlightChunks, parallelism);
+        this.checkpointIntervalMs = checkpointIntervalMs;
+    }
+
+    /**
+     * 在后台线程启动重建任务。
+     *
+     * @param resume true 表示从上次未完成的断点继续（上次已完成则从头开始），false 表示从头开始
+     * @return 是否启动；已有任务在运行时返回 false
+     */
+    public synchronized boolean start(boolean resume) {
+        if (current != null && current.finishedAt == null) {
+            return false;
+        }
+        ReviewReindexCheckpoint previous = resume ? checkpointMapper.findByJobName(JOB_NAME) : null;
+        boolean continuing = previous != null
+                && !ReviewReindexCheckpoint.STATUS_COMPLETED.equals(previous.getStatus());
+        Run run = continuing
+                ? new Run(previous.getLastReviewId(), previous.getProcessedReviews(), previous.getWrittenKeywords())
+                : new Run(0L, 0L, 0L);
+        saveCheckpoint(run, run.startId, ReviewReindexCheckpoint.STATUS_RUNNING, null);
+        current = run;
+        Thread reader = new Thread(() -> execute(run), "review-reindex");
+        reader.setDaemon(true);
+        reader.start();
+        log.info("点评关键词全量重建开始, fromReviewId={}, resume={}", run.startId, continuing);
+        return true;
+    }
+
+    /**
+     * 请求停止正在运行的任务：不再读取新的点评，已提交的段写完后保存断点退出。
+     *
+     * @return 是否有正在运行的任务
+     */
+    public boolean stop() {
+        Run run = current;
+        if (run == null || run.finishedAt != null) {
+            return false;
+        }
+        run.stopRequested = true;
+        return true;
+    }
+
+    /**
+     * 任务进度：本进程内运行过任务时返回内存中的实时进度，否则返回断点表中的记录。
+     *
+     * @return status、running、fromReviewId、checkpointReviewId、processedReviews、writtenKeywords、
+     * elapsedMs、rowsPerSecond 等
+     */
+    public Map<String, Object> status() {
+        Run run = current;
+        Map<String, Object> stats = new HashMap<>();
+        if (run == null) {
+            ReviewReindexCheckpoint checkpoint = checkpointMapper.findByJobName(JOB_NAME);
+            stats.put("running", false);
+            if (checkpoint != null) {
+                stats.put("status", checkpoint.getStatus());
+                stats.put("checkpointReviewId", checkpoint.getLastReviewId());
+                stats.put("processedReviews", checkpoint.getProcessedReviews());
+                stats.put("writtenKeywords", checkpoint.getWrittenKeywords());
+                stats.put("lastError", checkpoint.getLastError());
+                stats.put("startedAt", checkpoint.getStartedAt());
+                stats.put("finishedAt", checkpoint.getFinishedAt());
+            }
+            return stats;
+        }
+        long elapsedMs = run.elapsedMs();
+        long processed = run.processed.sum();
+        stats.put("running", run.finishedAt == null);
+        stats.put("status", run.status);
+        stats.put("fromReviewId", run.startId);
+        stats.put("checkpointReviewId", run.checkpointId);
+        stats.put("processedReviews", run.baseProcessed + processed);
+        stats.put("writtenKeywords", run.baseKeywords + run.keywords.sum());
+        stats.put("processedThisRun", processed);
+        stats.put("elapsedMs", elapsedMs);
+        stats.put("rowsPerSecond", elapsedMs == 0 ? 0L : processed * 1000 / elapsedMs);
+        stats.put("inFlightChunks", run.inFlight.get());
+        stats.put("lastError", run.error);
+        stats.put("startedAt", run.startedAt);
+        stats.put("finishedAt", run.finishedAt);
+        return stats;
+    }
+
+    /**
+     * 读取线程主流程：分页读取、分段提交、等待全部段写完、保存最终状态。
+     */
+    private void execute(Run run) {
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "review-reindex-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        Semaphore permits = new Semaphore(maxInFlightChunks);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        try {
+            long afterId = run.startId;
+            while (!run.stopRequested && failure.get() == null) {
+                long from = afterId;
+                List<Review> page = readTransaction.execute(
+                        status -> reviewMapper.findContentPageAfterId(from, chunkSize));
+                if (page == null || page.isEmpty()) {
+                    break;
+                }
+                submit(run, page, workers, permits, failure);
+                if (page.size() < chunkSize) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } catch (Exception e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            // 等待所有已提交的段写完
+            permits.acquireUninterruptibly(maxInFlightChunks);
+            workers.shutdown();
+        }
+        finish(run, failure.get());
+    }
+
+    /**
+     * 提交一段点评给工作线程；在途段数达到上限时阻塞。
+     */
+    private void submit(Run run, List<Review> chunk, ExecutorService workers, Semaphore permits,
+                        AtomicReference<Throwable> failure) {
+        permits.acquireUninterruptibly();
+        long lastId = chunk.get(chunk.size() - 1).getId();
+        Segment segment = run.register(lastId);
+        run.inFlight.incrementAndGet();
+        workers.execute(() -> {
+            try {
+                Integer written = writeTransaction.execute(status -> reviewKeywordIndexer.writeKeywords(chunk));
+                run.processed.add(chunk.size());
+                run.keywords.add(written == null ? 0 : written);
+                long advanced = run.complete(segment);
+                if (advanced >= 0) {
+                    maybeSaveCheckpoint(run, advanced);
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+                log.error("点评关键词重建写入失败, lastReviewId={}", lastId, e);
+            } finally {
+                run.inFlight.decrementAndGet();
+                permits.release();
+            }
+        });
+    }
+
+    /**
+     * 断点推进后按最短间隔写库，并输出一次进度日志。
+     */
+    private void maybeSaveCheckpoint(Run run, long checkpointId) {
+        synchronized (run) {
+            long now = System.nanoTime();
+            if (now - run.lastCheckpointNanos < checkpointIntervalMs * 1_000_000L
+                    || checkpointId <= run.savedCheckpointId) {
+                return;
+            }
+            run.lastCheckpointNanos = now;
+            saveCheckpoint(run, checkpointId, ReviewReindexCheckpoint.STATUS_RUNNING, null);
+            long elapsedMs = run.elapsedMs();
+            long processed = run.processed.sum();
+            log.info("点评关键词重建进度, checkpointReviewId={}, processed={}, rowsPerSecond={}",
+                    checkpointId, processed, elapsedMs == 0 ? 0 : processed * 1000 / elapsedMs);
+        }
+    }
+
+    private void finish(Run run, Throwable failure) {
+        String status;
+        String error = null;
+        if (failure != null) {
+            status = ReviewReindexCheckpoint.STATUS_FAILED;
+            error = failure.getClass().getSimpleName() + ": " + failure.getMessage();
+            log.error("点评关键词全量重建失败, checkpointReviewId={}", run.checkpointId, failure);
+        } else if (run.stopRequested) {
+            status = ReviewReindexCheckpoint.STATUS_STOPPED;
+        } else {
+            status = ReviewReindexCheckpoint.STATUS_COMPLETED;
+        }
+        synchronized (run) {
+            run.status = status;
+            run.error = error;
+            run.finishedNanos = System.nanoTime();
+            run.finishedAt = LocalDateTime.now();
+            try {
+                saveCheckpoint(run, run.checkpointId, status, error);
+            } catch (Exception e) {
+                log.error("保存点评关键词重建断点失败", e);
+            }
+        }
+        long elapsedMs = run.elapsedMs();
+        long processed = run.processed.sum();
+        log.info("点评关键词全量重建结束, status={}, checkpointReviewId={}, processed={}, keywords={}, costMs={}, rowsPerSecond={}",
+                status, run.checkpointId, processed, run.keywords.sum(), elapsedMs,
+                elapsedMs == 0 ? 0 : processed * 1000 / elapsedMs);
+    }
+
+    private void saveCheckpoint(Run run, long checkpointId, String status, String error) {
+        ReviewReindexCheckpoint checkpoint = new ReviewReindexCheckpoint();
+        checkpoint.setJobName(JOB_NAME);
+        checkpoint.setLastReviewId(checkpointId);
+        checkpoint.setProcessedReviews(run.baseProcessed + run.processed.sum());
+        checkpoint.setWrittenKeywords(run.baseKeywords + run.keywords.sum());
+        checkpoint.setStatus(status);
+        checkpoint.setLastError(error);
+        checkpoint.setStartedAt(run.startedAt);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpoint.setFinishedAt(run.finishedAt);
+        checkpointMapper.upsert(checkpoint);
+        run.savedCheckpointId = checkpointId;
+    }
+
+    /**
+     * 已提交的一段点评。
+     */
+    private static final class Segment {
+        private final long lastId;
+        private boolean done;
+
+        private Segment(long lastId) {
+            this.lastId = lastId;
+        }
+    }
+
+    /**
+     * 一次运行的状态。断点只在连续完成的段上推进：pending 按提交顺序保存未推进的段，
+     * 队首的段完成后依次弹出，断点推进到最后一个弹出段的 lastId。
+     */
+    private static final class Run {
+        private final long startId;
+        private final long baseProcessed;
+        private final long baseKeywords;
+        private final long startNanos = System.nanoTime();
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder keywords = new LongAdder();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final Deque<Segment> pending = new ArrayDeque<>();
+
+        private volatile boolean stopRequested;
+        private volatile long checkpointId;
+        private volatile String status = ReviewReindexCheckpoint.STATUS_RUNNING;
+        private volatile String error;
+        private volatile LocalDateTime finishedAt;
+        private volatile long finishedNanos;
+        private long savedCheckpointId;
+        private long lastCheckpointNanos;
+
+        private Run(Long startId, Long baseProcessed, Long baseKeywords) {
+            this.startId = startId == null ? 0L : startId;
+            this.baseProcessed = baseProcessed == null ? 0L : baseProcessed;
+            this.baseKeywords = baseKeywords == null ? 0L : baseKeywords;
+            this.checkpointId = this.startId;
+            this.lastCheckpointNanos = startNanos;
+        }
+
+        private synchronized Segment register(long lastId) {
+            Segment segment = new Segment(lastId);
+            pending.addLast(segment);
+            return segment;
+        }
+
+        /**
+         * 标记一段完成。
+         *
+         * @return 推进后的断点；断点没有推进时返回 -1
+         */
+        private synchronized long complete(Segment segment) {
+            segment.done = true;
+            long advanced = -1;
+            while (!pending.isEmpty() && pending.peekFirst().done) {
+                advanced = pending.pollFirst().lastId;
+            }
+            if (advanced >= 0) {
+                checkpointId = advanced;
+            }
+            return advanced;
+        }
+
+        private long elapsedMs() {
+            long end = finishedAt == null ? System.nanoTime() : finishedNanos;
+            return (end - startNanos) / 1_000_000L;
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package com.demo.dp.search;
+
+import com.demo.dp.domain.entity.Shop;
+import com.demo.dp.dto.ShopCursor;
+import com.demo.dp.mapper.ShopMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 商家关键词内存倒排索引：替代 {@code name LIKE '%kw%' OR address LIKE '%kw%'} 的全表扫描。
+ *
+ * <p>索引结构：
+ * <ul>
+ *   <li>对商家名称和地址（小写后）切分出所有 1-gram 和 2-gram 字符片段，每个片段维护一个商家ID倒排表。
+ *       中文名称/地址没有天然分词边界，字符 n-gram 可以覆盖任意子串查询</li>
+ *   <li>查询时取关键词所有 2-gram（单字关键词取 1-gram）的倒排表求交集得到候选集，
+ *       再用 {@code contains} 校验，保证结果与 LIKE 子串匹配完全一致</li>
+ *   <li>同时保存每个商家的分类、评分、价格、创建时间，筛选、排序、计数都在内存中完成，
+ *       数据库只需按ID取回当页的商家</li>
+ * </ul>
+ *
+ * <p>只收录 status=1 的商家。索引在应用启动完成后从 shop 表全量构建，
+ * 之后由 ShopServiceImpl 在创建/更新/删除商家的事务提交后增量维护，并定时全量重建以纠正偏差
+ * （例如直接修改数据库导致的不一致）。构建完成前 {@link #isReady()} 返回 false，
+ * 此时调用方应回退到 SQL 查询。
+ *
+ * @author System
+ * @version 1.0
+ */
+@Component
+public class ShopSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ShopSearchIndex.class);
+
+    /**
+     * 排序规则：与 ShopMapper.xml 中一致，avg_score DESC, created_at DESC, id DESC。
+     */
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparingDouble((Entry e) -> e.sortScore).reversed()
+            .thenComparing((Entry e) -> e.createdAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing((Entry e) -> e.id, Comparator.reverseOrder());
+
+    private final ShopMapper shopMapper;
+
+    /**
+     * 商家ID -> 索引条目。全量重建时整体替换，避免查询看到构建了一半的索引。
+     */
+    private volatile Map<Long, Entry> docs = new ConcurrentHashMap<>();
+
+    /**
+     * 字符片段（1-gram/2-gram）-> 商家ID集合。
+     */
+    private volatile Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+
+    /**
+     * 是否已完成首次构建。
+     */
+    private volatile boolean ready;
+
+    public ShopSearchIndex(ShopMapper shopMapper) {
+        this.shopMapper = shopMapper;
+    }
+
+    /**
+     * 应用启动完成后全量构建索引。构建失败（如数据库不可用）时保持未就绪状态，查询回退到 SQL。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * 定时全量重建，纠正增量维护之外的数据变更。
+     */
+    @Scheduled(initialDelayString = "${shop.search.rebuild-interval-ms:600000}",
+            fixedDelayString = "${shop.search.rebuild-interval-ms:600000}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * 从 shop 表全量重建索引。
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        try {
+            List<Shop> shops = shopMapper.findAllActive();
+            Map<Long, Entry> newDocs = new ConcurrentHashMap<>();
+            Map<String, Set<Long>> newPostings = new ConcurrentHashMap<>();
+            for (Shop shop : shops) {
+                add(newDocs, newPostings, shop);
+            }
+            // 构建完成后整体替换；增量维护与重建互斥（synchronized），不会丢失更新
+            docs = newDocs;
+            postings = newPostings;
+            ready = true;
+            log.info("商家关键词索引构建完成, shops={}, grams={}, costMs={}",
+                    docs.size(), postings.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("商家关键词索引构建失败，关键词搜索将回退到 SQL LIKE 查询", e);
+        }
+    }
+
+    /**
+     * 索引是否可用。
+     *
+     * @return 首次构建成功后返回 true
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 新增或更新一个商家的索引；status 不为 1 时从索引中移除。
+     *
+     * @param shop 商家（需包含数据库中的最新字段值）
+     */
+    public synchronized void upsert(Shop shop) {
+        if (shop == null || shop.getId() == null) {
+            return;
+        }
+        removeInternal(shop.getId());
+        if (shop.getStatus() != null && shop.getStatus() == 1) {
+            add(docs, postings, shop);
+        }
+    }
+
+    /**
+     * 从索引中移除一个商家。
+     *
+     * @param shopId 商家ID
+     */
+    public synchronized void remove(Long shopId) {
+        removeInternal(shopId);
+    }
+
+    /**
+     * 按关键词及其他筛选条件检索，返回已排序的全部命中商家ID。
+     *
+     * @param keyword 关键词，不能为空
+     * @param category 分类筛选条件，可选
+     * @param minScore 最低评分，可选
+     * @param maxPrice 最高人均价格，可选
+     * @return 按 avg_score DESC, created_at DESC, id DESC 排序的商家ID
+     */
+    public List<Long> search(String keyword, String category, Double minScore, Double maxPrice) {
+        List<Entry> hits = match(keyword, category, minScore, maxPrice);
+        hits.sort(ORDER);
+        List<Long> ids = new ArrayList<>(hits.size());
+        for (Entry e : hits) {
+            ids.add(e.id);
+        }
+        return ids;
+    }
+
+    /**
+     * 按关键词检索并做游标分页：返回排在游标之后的前 limit 个商家ID。
+     *
+     * @param keyword 关键词，不能为空
+     * @param category 分类筛选条件，可选
+     * @param minScore 最低评分，可选
+     * @param maxPrice 最高人均价格，可选
+     * @param cursor 上一页游标，为null表示第一页
+     * @param limit 返回数量
+     * @return 已排序的商家ID
+     */
+    public List<Long> searchAfter(String keyword, String category, Double minScore, Double maxPrice,
+                                  ShopCursor cursor, int limit) {
+        List<Entry> hits = match(keyword, category, minScore, maxPrice);
+        if (cursor != null) {
+            Entry pivot = new Entry(cursor.getId(), null, null, null, cursor.getAvgScore(), null, cursor.getCreatedAt());
+            hits.removeIf(e -> ORDER.compare(e, pivot) <= 0);
+        }
+        hits.sort(ORDER);
+        List<Long> ids = new ArrayList<>(Math.min(limit, hits.size()));
+        for (int i = 0; i < hits.size() && i < limit; i++) {
+            ids.add(hits.get(i).id);
+        }
+        return ids;
+    }
+
+    /**
+     * 统计关键词及筛选条件命中的商家数量（不排序）。
+     *
+     * @param keyword 关键词，不能为空
+     * @param category 分类筛选条件，可选
+     * @param minScore 最低评分，可选
+     * @param maxPrice 最高人均价格，可选
+     * @return 命中数量
+     */
+    public long count(String keyword, String category, Double minScore, Double maxPrice) {
+        return match(keyword, category, minScore, maxPrice).size();
+    }
+
+    /**
+     * 候选召回 + 子串校验 + 条件筛选。
+     */
+    private List<Entry> match(String keyword, String category, Double minScore, Double maxPrice) {
+        String kw = keyword.toLowerCase();
+        Map<Long, Entry> docs = this.docs;
+        List<Entry> result = new ArrayList<>();
+        for (Long id : candidates(kw)) {
+            Entry e = docs.get(id);
+            if (e == null) {
+                continue;
+            }
+            // 与 SQL 的 name LIKE '%kw%' OR address LIKE '%kw%' 保持一致
+            if (!e.name.contains(kw) && !e.address.contains(kw)) {
+                continue;
+            }
+            if (category != null && !category.isEmpty() && !category.equals(e.category)) {
+                continue;
+            }
+            // 与 SQL 的 avg_score >= minScore 一致：评分为 NULL 的商家不满足
+            if (minScore != null && (e.avgScore == null || e.avgScore < minScore)) {
+                continue;
+            }
+            if (maxPrice != null && (e.avgPrice == null || e.avgPrice > maxPrice)) {
+                continue;
+            }
+            result.add(e);
+        }
+        return result;
+    }
+
+    /**
+     * 取关键词所有片段的倒排表交集，从最短的倒排表开始求交，减少比较次数。
+     */
+    private Set<Long> candidates(String kw) {
+        Map<String, Set<Long>> postings = this.postings;
+        Set<String> grams = kw.length() == 1 ? Set.of(kw) : grams(kw, 2);
+        List<Set<Long>> lists = new ArrayList<>(grams.size());
+        for (String g : grams) {
+            Set<Long> list = postings.get(g);
+            if (list == null || list.isEmpty()) {
+                return Set.of();
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<Long> result = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.retainAll(lists.get(i));
+        }
+        return result;
+    }
+
+    private static void add(Map<Long, Entry> docs, Map<String, Set<Long>> postings, Shop shop) {
+        Entry e = new Entry(shop.getId(),
+                lower(shop.getName()),
+                lower(shop.getAddress()),
+                shop.getCategory(),
+                shop.getAvgScore(),
+                shop.getAvgPrice(),
+                shop.getCreatedAt() == null ? ShopCursor.NULL_CREATED_AT : shop.getCreatedAt());
+        docs.put(e.id, e);
+        for (String g : gramsOf(e)) {
+            postings.computeIfAbsent(g, k -> ConcurrentHashMap.newKeySet()).add(e.id);
+        }
+    }
+
+    private void removeInternal(Long shopId) {
+        Entry old = docs.remove(shopId);
+        if (old == null) {
+            return;
+        }
+        for (String g : gramsOf(old)) {
+            Set<Long> list = postings.get(g);
+            if (list != null) {
+                list.remove(shopId);
+                if (list.isEmpty()) {
+                    postings.remove(g);
+                }
+            }
+        }
+    }
+
+    private static Set<String> gramsOf(Entry e) {
+        Set<String> grams = new HashSet<>();
+        grams.addAll(grams(e.name, 1));
+        grams.addAll(grams(e.name, 2));
+        grams.addAll(grams(e.address, 1));
+        grams.addAll(grams(e.address, 2));
+        return grams;
+    }
+
+    /**
+     * 切分长度为 n 的字符片段。
+     */
+    private static Set<String> grams(String text, int n) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + n <= text.length(); i++) {
+            grams.add(text.substring(i, i + n));
+        }
+        return grams;
+    }
+
+    private static String lower(String s) {
+        return s == null ? "" : s.toLowerCase();
+    }
+
+    /**
+     * 供调试/监控使用的索引规模信息。
+     *
+     * @return shops（已收录商家数）与 grams（片段数）
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("ready", ready);
+        stats.put("shops", docs.size());
+        stats.put("grams", postings.size());
+        return stats;
+    }
+
+    /**
+     * 索引条目：保存检索、筛选、排序所需的字段。
+     */
+    private static final class Entry {
+        private final Long id;
+        private final String name;
+        private final String address;
+        private final String category;
+        /**
+         * 原始评分，可能为 NULL，用于筛选
+         */
+        private final Double avgScore;
+        /**
+         * 排序用评分，NULL 按 0 处理（与 ShopMapper.xml 的 sortScore 一致）
+         */
+        private final double sortScore;
+        private final Double avgPrice;
+        /**
+         * 创建时间，NULL 按 {@link ShopCursor#NULL_CREATED_AT} 处理，只用于排序
+         */
+        private final LocalDateTime createdAt;
+
+        private Entry(Long id, String name, String address, String category,
+                      Double avgScore, Double avgPrice, LocalDateTime createdAt) {
+            this.id = id;
+            this.name = name;
+            this.address = address;
+            this.category = category;
+            this.avgScore = avgScore;
+            this.sortScore = avgScore == null ? 0.0 : avgScore;
+            this.avgPrice = avgPrice;
+            this.createdAt = createdAt;
+        }
+    }
+}
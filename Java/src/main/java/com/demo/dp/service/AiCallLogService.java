@@ -25,7 +25,7 @@ public interface AiCallLogService {
      * 筛选条件包括：
      * <ul>
      *   <li>调用类型筛选：按 type 字段筛选（generate/recommend）</li>
-     *   <li>状态筛选：按 status 字段筛选（1=成功，0=失败）</li>
+     *   <li>状态筛选：按 status 字段筛选（1=成功，0=失败，2=命中缓存，3=合并请求）</li>
      *   <li>用户筛选：按 userId 字段筛选</li>
      * </ul>
      * 
@@ -34,7 +34,7 @@ public interface AiCallLogService {
      * @param page 页码，从0开始计数。例如：0表示第一页，1表示第二页
      * @param size 每页返回的记录数。建议值：10、20、50等
      * @param type 调用类型筛选条件，可选。例如："generate"、"recommend"。传入null或空字符串表示不筛选
-     * @param status 状态筛选条件，可选。1=成功，0=失败。传入null表示不筛选
+     * @param status 状态筛选条件，可选。1=成功，0=失败，2=命中缓存，3=合并请求。传入null表示不筛选
      * @param userId 用户ID筛选条件，可选。传入null表示不筛选
      * @return 符合条件的 AI 调用日志列表，如果没有任何符合条件的记录则返回空列表
      */
@@ -19,6 +19,45 @@ public interface AiReviewService {
      */
     String generateDraft(Long userId, Long shopId, String context);
 
+    /**
+     * 异步生成点评草稿：大模型调用期间不占用调用线程，结果通过 CompletableFuture 返回。
+     *
+     * @param userId 用户ID
+     * @param shopId 商家ID
+     * @param context 上下文信息（如用户偏好）
+     * @return 生成的点评草稿内容
+     */
+    java.util.concurrent.CompletableFuture<String> generateDraftAsync(Long userId, Long shopId, String context);
+
+    /**
+     * 流式生成点评草稿：大模型每输出一段文本就回调一次 onToken，全部完成后 Future 返回完整草稿。
+     * 调用日志额外记录首个 token 的耗时。
+     *
+     * @param userId 用户ID
+     * @param shopId 商家ID
+     * @param context 上下文信息（如用户偏好）
+     * @param maxTokens 生成的最大 token 数（可空，为空时使用默认值）
+     * @param onToken 增量文本回调
+     * @return 完整的点评草稿内容
+     */
+    java.util.concurrent.CompletableFuture<String> streamDraft(Long userId, Long shopId, String context,
+                                                               Integer maxTokens,
+                                                               java.util.function.Consumer<String> onToken);
+
+    /**
+     * 批量生成点评草稿：一次性批量查询所有组合的消费记录与标签，再以有限并发调用大模型，
+     * 每完成一项回调一次 onResult（按完成顺序），全部完成后把整批调用日志一次写入。
+     *
+     * @param items 待生成的（用户, 商家）列表
+     * @param onResult 单项结果回调，串行执行，不应阻塞
+     * @param cancelled 返回 true 后不再启动新的项（如客户端已断开），在途的项照常结束并记录日志
+     * @return 全部结果，按请求顺序排列；取消时只包含已完成的项
+     */
+    java.util.concurrent.CompletableFuture<java.util.List<com.demo.dp.dto.AiDraftBatchResult>> generateDraftBatch(
+            java.util.List<com.demo.dp.dto.AiDraftBatchItem> items,
+            java.util.function.Consumer<com.demo.dp.dto.AiDraftBatchResult> onResult,
+            java.util.function.BooleanSupplier cancelled);
+
     /**
      * 基于用户偏好为商家推荐点评列表。
      *
@@ -1,6 +1,9 @@
 package com.demo.dp.service;
 
 import com.demo.dp.dto.DashboardStats;
+import com.demo.dp.dto.DashboardTrendPoint;
+
+import java.util.List;
 
 /**
  * 仪表盘数据统计服务接口：定义仪表盘相关的数据统计操作。
@@ -40,5 +43,16 @@ public interface DashboardService {
      * @return 统计数据对象，包含所有统计字段
      */
     DashboardStats getStats();
-}
 
+    /**
+     * 获取仪表盘趋势数据。
+     *
+     * <p>只读取趋势汇总表 stat_rollup（按小时/按天预先汇总），不扫描原始表，查询 90 天也只读 90 行。
+     *
+     * @param granularity 粒度：day（按天，最多 90 天）或 hour（按小时，最多 7 天）
+     * @param days        最近多少天（含今天）
+     * @return 按时间升序的数据点，没有数据的时间段各项为 0
+     * @throws IllegalArgumentException 粒度或天数不合法时抛出
+     */
+    List<DashboardTrendPoint> getTrends(String granularity, int days);
+}
@@ -1,6 +1,7 @@
 package com.demo.dp.service;
 
 import com.demo.dp.domain.entity.Shop;
+import com.demo.dp.dto.ShopCursor;
 
 import java.util.List;
 
@@ -10,6 +11,7 @@ import java.util.List;
  * <p>该接口定义了商家管理相关的所有业务方法，包括：
  * <ul>
  *   <li>查询商家列表（支持分页、搜索、分类筛选、评分筛选、价格筛选）</li>
+ *   <li>游标（keyset）分页查询商家列表，以及有上限的近似计数</li>
  *   <li>查询商家详情</li>
  *   <li>创建新商家</li>
  *   <li>更新商家信息（支持部分更新）</li>
@@ -64,6 +66,38 @@ public interface ShopService {
      */
     long countShops(String category, String keyword, Double minScore, Double maxPrice);
 
+    /**
+     * 游标（keyset）分页查询商家列表。
+     *
+     * <p>筛选条件与排序规则与 {@link #listShops(int, int, String, String, Double, Double)} 相同，
+     * 但不再使用页码：调用方传入上一页返回的游标，服务端从该位置之后直接读取 size 条记录。
+     * 无论翻到第几页，数据库都只读取当页的数据，适合管理端深翻页。
+     *
+     * @param cursor 上一页最后一条记录对应的游标；为null表示查询第一页
+     * @param size 每页返回的记录数
+     * @param category 分类筛选条件，可选
+     * @param keyword 搜索关键词，可选
+     * @param minScore 最低评分，可选
+     * @param maxPrice 最高人均价格，可选
+     * @return 游标之后的商家列表，已按排序规则排列
+     */
+    List<Shop> listShopsAfter(ShopCursor cursor, int size, String category, String keyword, Double minScore, Double maxPrice);
+
+    /**
+     * 获取符合条件的商家近似总数。
+     *
+     * <p>最多统计 cap 条记录：返回值小于 cap 时为精确总数，等于 cap 时表示"至少 cap 条"。
+     * 用于只需要展示"1000+"这类提示的列表页，避免每次翻页都做一次全量 COUNT。
+     *
+     * @param category 分类筛选条件，可选
+     * @param keyword 搜索关键词，可选
+     * @param minScore 最低评分，可选
+     * @param maxPrice 最高人均价格，可选
+     * @param cap 计数上限，必须大于0
+     * @return 不超过 cap 的商家数量
+     */
+    long countShopsCapped(String category, String keyword, Double minScore, Double maxPrice, int cap);
+
     /**
      * 根据商家ID查询商家详情。
      * 
@@ -2,7 +2,9 @@ package com.demo.dp.service;
 
 import com.demo.dp.domain.entity.Tag;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 标签服务接口：封装标签与标签绑定相关业务。
@@ -62,6 +64,20 @@ public interface TagService {
      * @return 标签列表
      */
     List<Tag> listTagsOfUser(Long userId);
-}
 
+    /**
+     * 批量查询多个商家已绑定的标签，一次查询完成。
+     *
+     * @param shopIds 商家ID集合
+     * @return 商家ID -> 标签列表；没有标签的商家不在结果中
+     */
+    Map<Long, List<Tag>> listTagsOfShops(Collection<Long> shopIds);
 
+    /**
+     * 批量查询多个用户已绑定的标签，一次查询完成。
+     *
+     * @param userIds 用户ID集合
+     * @return 用户ID -> 标签列表；没有标签的用户不在结果中
+     */
+    Map<Long, List<Tag>> listTagsOfUsers(Collection<Long> userIds);
+}
@@ -1,19 +1,47 @@
 package com.demo.dp.service;
 
+import com.demo.dp.ai.AiCallLogWriter;
 import com.demo.dp.ai.AiClient;
+import com.demo.dp.ai.AiResponseCache;
+import com.demo.dp.ai.AiUnavailableException;
+import com.demo.dp.ai.LlmRequestCoalescer;
 import com.demo.dp.ai.PromptBuilder;
+import com.demo.dp.ai.TagProfile;
+import com.demo.dp.ai.TokenEstimator;
+import com.demo.dp.ai.provider.LlmResult;
 import com.demo.dp.domain.entity.AiCallLog;
 import com.demo.dp.domain.entity.OrderRecord;
 import com.demo.dp.domain.entity.Review;
-import com.demo.dp.mapper.AiCallLogMapper;
+import com.demo.dp.domain.entity.Tag;
+import com.demo.dp.dto.AiDraftBatchItem;
+import com.demo.dp.dto.AiDraftBatchResult;
 import com.demo.dp.mapper.OrderRecordMapper;
-import com.demo.dp.mapper.ReviewKeywordMapper;
 import com.demo.dp.mapper.ReviewMapper;
+import com.demo.dp.search.HotReviewIndex;
+import com.demo.dp.search.KeywordDictionary;
 import com.demo.dp.service.TagService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
 /**
  * AI 点评服务实现类：实现AI相关的业务逻辑。
  * 
@@ -29,87 +57,286 @@ public class AiReviewServiceImpl implements AiReviewService {
      */
     private static final Logger log = LoggerFactory.getLogger(AiReviewServiceImpl.class);
 
+    /**
+     * 流式生成允许的最大 max_tokens。
+     */
+    private static final int MAX_STREAM_TOKENS = 1000;
+
     private final AiClient aiClient;
     private final PromptBuilder promptBuilder;
     private final ReviewMapper reviewMapper;
     private final OrderRecordMapper orderRecordMapper;
-    private final AiCallLogMapper aiCallLogMapper;
-    private final ReviewKeywordMapper reviewKeywordMapper;
+    private final AiCallLogWriter aiCallLogWriter;
+    private final AiResponseCache aiResponseCache;
+    private final LlmRequestCoalescer llmRequestCoalescer;
     private final TagService tagService;
+    private final HotReviewIndex hotReviewIndex;
+    private final KeywordDictionary keywordDictionary;
+    private final Executor ioExecutor;
+    private final int batchMaxItems;
+    private final int batchParallelism;
 
     /**
-     * 构造函数：注入大模型客户端、Prompt 组装器、点评查询、订单查询、AI 调用日志 Mapper。
+     * 构造函数：注入大模型客户端、Prompt 组装器、点评查询、订单查询、AI 调用日志写入器。
      *
      * @param aiClient          大模型客户端
      * @param promptBuilder     Prompt 组装器
      * @param reviewMapper      点评数据访问层
      * @param orderRecordMapper 消费记录数据访问层，用于提供生成上下文
-     * @param aiCallLogMapper   AI 调用日志记录 Mapper
+     * @param aiCallLogWriter   AI 调用日志异步批量写入器
+     * @param aiResponseCache   大模型响应缓存，按 Prompt 指纹复用生成结果
+     * @param llmRequestCoalescer 大模型请求合并，相同 Prompt 的并发调用共享一次上游请求
+     * @param hotReviewIndex    商家热门点评内存索引，用于推荐兜底召回
+     * @param keywordDictionary 关键词词典，用于根据标签推断偏好关键词
+     * @param ioExecutor        请求内并行查询线程池，用于并行加载用户标签与商家标签
+     * @param batchMaxItems     批量生成单次最多的项数（ai.batch.max-items，默认 500）
+     * @param batchParallelism  批量生成同时在途的大模型调用数（ai.batch.parallelism，默认 8）
      */
     public AiReviewServiceImpl(AiClient aiClient,
                                PromptBuilder promptBuilder,
                                ReviewMapper reviewMapper,
                                OrderRecordMapper orderRecordMapper,
-                               AiCallLogMapper aiCallLogMapper,
-                               ReviewKeywordMapper reviewKeywordMapper,
-                               TagService tagService) {
+                               AiCallLogWriter aiCallLogWriter,
+                               AiResponseCache aiResponseCache,
+                               LlmRequestCoalescer llmRequestCoalescer,
+                               TagService tagService,
+                               HotReviewIndex hotReviewIndex,
+                               KeywordDictionary keywordDictionary,
+                               @Qualifier("ioExecutor") Executor ioExecutor,
+                               @Value("${ai.batch.max-items:500}") int batchMaxItems,
+                               @Value("${ai.batch.parallelism:8}") int batchParallelism) {
+        if (batchMaxItems <= 0 || batchParallelism <= 0) {
+            throw new IllegalArgumentException("ai.batch.max-items、ai.batch.parallelism 必须大于0");
+        }
         this.aiClient = aiClient;
         this.promptBuilder = promptBuilder;
         this.reviewMapper = reviewMapper;
         this.orderRecordMapper = orderRecordMapper;
-        this.aiCallLogMapper = aiCallLogMapper;
-        this.reviewKeywordMapper = reviewKeywordMapper;
+        this.aiCallLogWriter = aiCallLogWriter;
+        this.aiResponseCache = aiResponseCache;
+        this.llmRequestCoalescer = llmRequestCoalescer;
         this.tagService = tagService;
+        this.hotReviewIndex = hotReviewIndex;
+        this.keywordDictionary = keywordDictionary;
+        this.ioExecutor = ioExecutor;
+        this.batchMaxItems = batchMaxItems;
+        this.batchParallelism = batchParallelism;
     }
 
     /**
-     * 生成点评草稿示例。
+     * 生成点评草稿示例（阻塞版本）：等待 {@link #generateDraftAsync} 完成。
      */
     @Override
     public String generateDraft(Long userId, Long shopId, String context) {
+        try {
+            return generateDraftAsync(userId, shopId, context).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : e;
+        }
+    }
+
+    /**
+     * 异步生成点评草稿：组装 Prompt（查询消费记录与标签）在调用线程完成，
+     * 大模型调用通过非阻塞 HTTP 发出，等待响应期间不占用线程；调用结束后提交调用日志。
+     * 相同 Prompt 在缓存有效期内直接返回缓存结果，日志状态记为命中缓存；
+     * 已有相同 Prompt 的调用在途时合并到该调用，日志状态记为合并请求。
+     */
+    @Override
+    public CompletableFuture<String> generateDraftAsync(Long userId, Long shopId, String context) {
         long start = System.currentTimeMillis();
-        // 构造 Prompt：带上用户/商家标签、最近消费记录作为上下文
-        OrderRecord latestOrder = orderRecordMapper.findLatestByUserAndShop(userId, shopId);
-        java.util.List<com.demo.dp.domain.entity.Tag> userTags = tagService.listTagsOfUser(userId);
-        java.util.List<com.demo.dp.domain.entity.Tag> shopTags = tagService.listTagsOfShop(shopId);
-        String prompt = promptBuilder.buildGeneratePrompt(userId, shopId, context, latestOrder, userTags, shopTags);
+        String prompt = buildDraftPrompt(userId, shopId, context);
+        String fingerprint = aiResponseCache.fingerprint(prompt, AiClient.DEFAULT_MAX_TOKENS);
+        LlmResult cached = aiResponseCache.get(fingerprint);
+        if (cached != null) {
+            submitGenerateLog(userId, shopId, prompt, cached, null, start, null, AiCallLog.STATUS_CACHE_HIT);
+            return CompletableFuture.completedFuture(cached.getText());
+        }
 
-        String response = null;
-        int status = 1;
-        String errorMsg = null;
+        // 相同 Prompt 的并发请求（重复点击、前端重试）只向大模型发出一次调用
+        LlmRequestCoalescer.Flight flight = llmRequestCoalescer.execute(fingerprint,
+                () -> aiClient.callLlmAsync(prompt));
+        int successStatus = flight.isCoalesced() ? AiCallLog.STATUS_COALESCED : AiCallLog.STATUS_SUCCESS;
+        return flight.getFuture().whenComplete((response, error) -> {
+            if (error == null && !flight.isCoalesced()) {
+                aiResponseCache.put(fingerprint, response);
+            }
+            submitGenerateLog(userId, shopId, prompt, response, error, start, null, successStatus);
+        }).thenApply(LlmResult::getText);
+    }
+
+    /**
+     * 流式生成点评草稿：Prompt 与非流式相同，max_tokens 取请求值并限制在 1~{@value #MAX_STREAM_TOKENS}。
+     * 首个 token 到达时记录耗时（TTFT），调用结束后与总耗时一起写入调用日志。
+     * 命中响应缓存时把缓存结果作为一段文本回调后立即结束。
+     */
+    @Override
+    public CompletableFuture<String> streamDraft(Long userId, Long shopId, String context,
+                                                 Integer maxTokens, Consumer<String> onToken) {
+        long start = System.currentTimeMillis();
+        String prompt = buildDraftPrompt(userId, shopId, context);
+        int safeMaxTokens = maxTokens == null
+                ? AiClient.DEFAULT_MAX_TOKENS
+                : Math.min(Math.max(maxTokens, 1), MAX_STREAM_TOKENS);
+        String fingerprint = aiResponseCache.fingerprint(prompt, safeMaxTokens);
+        LlmResult cached = aiResponseCache.get(fingerprint);
+        if (cached != null) {
+            int firstTokenMs = (int) (System.currentTimeMillis() - start);
+            onToken.accept(cached.getText());
+            submitGenerateLog(userId, shopId, prompt, cached, null, start, firstTokenMs, AiCallLog.STATUS_CACHE_HIT);
+            return CompletableFuture.completedFuture(cached.getText());
+        }
+
+        AtomicLong firstTokenAt = new AtomicLong();
+        Consumer<String> timedOnToken = token -> {
+            firstTokenAt.compareAndSet(0, System.currentTimeMillis());
+            onToken.accept(token);
+        };
+        CompletableFuture<LlmResult> call;
         try {
-            response = aiClient.callLlm(prompt);
-            return response;
+            call = aiClient.streamLlm(prompt, safeMaxTokens, timedOnToken);
         } catch (Exception e) {
-            status = 0;
-            errorMsg = e.getMessage();
-            log.error("AI generateDraft failed, userId={}, shopId={}", userId, shopId, e);
-            throw e;
-        } finally {
-            // 记录调用日志（成功/失败都记）
-            AiCallLog logRow = new AiCallLog();
-            logRow.setUserId(userId);
-            logRow.setType("generate");
-            logRow.setPrompt(prompt);
-            // 仅记录摘要，避免大文本；失败时记录错误信息
-            logRow.setResponseRef(response == null ? errorMsg : abbreviate(response, 500));
-            logRow.setLatencyMs((int) (System.currentTimeMillis() - start));
-            logRow.setStatus(status);
-            aiCallLogMapper.insert(logRow);
+            call = CompletableFuture.failedFuture(e);
+        }
+        return call.whenComplete((response, error) -> {
+            if (error == null) {
+                aiResponseCache.put(fingerprint, response);
+            }
+            long first = firstTokenAt.get();
+            submitGenerateLog(userId, shopId, prompt, response, error, start,
+                    first == 0 ? null : (int) (first - start), AiCallLog.STATUS_SUCCESS);
+        }).thenApply(LlmResult::getText);
+    }
+
+    /**
+     * 批量生成点评草稿。
+     *
+     * <p>执行过程：
+     * <ul>
+     *   <li>预取：所有组合的最近消费记录一次查询（窗口函数取每组最新一条），用户标签、商家标签各一次查询（并行）</li>
+     *   <li>命中响应缓存的项直接返回；其余项以最多 ai.batch.parallelism 个并发调用大模型，
+     *       一项结束再启动下一项，不会一次把几百个请求压到上游（相同 Prompt 同样会被合并）</li>
+     *   <li>每项完成即回调 onResult；调用日志先收集在内存中，全部结束后一次多行 INSERT 写入</li>
+     *   <li>cancelled 返回 true（如客户端已断开）后不再启动新的项，在途的项结束后整批以已完成的结果结束</li>
+     * </ul>
+     * 单项失败只影响该项，错误信息放在结果的 error 中。
+     */
+    @Override
+    public CompletableFuture<List<AiDraftBatchResult>> generateDraftBatch(List<AiDraftBatchItem> items,
+                                                                         Consumer<AiDraftBatchResult> onResult,
+                                                                         BooleanSupplier cancelled) {
+        if (items == null || items.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
         }
+        if (items.size() > batchMaxItems) {
+            throw new IllegalArgumentException("批量生成单次最多 " + batchMaxItems + " 项");
+        }
+        Set<Long> userIds = new LinkedHashSet<>();
+        Set<Long> shopIds = new LinkedHashSet<>();
+        Map<String, Long[]> pairs = new LinkedHashMap<>();
+        for (AiDraftBatchItem item : items) {
+            if (item == null || item.getUserId() == null || item.getShopId() == null) {
+                throw new IllegalArgumentException("批量生成的每一项都必须包含 userId 和 shopId");
+            }
+            userIds.add(item.getUserId());
+            shopIds.add(item.getShopId());
+            pairs.putIfAbsent(item.getUserId() + ":" + item.getShopId(), new Long[]{item.getUserId(), item.getShopId()});
+        }
+
+        // 预取：三次批量查询代替每项各查一次消费记录和两类标签
+        CompletableFuture<Map<Long, List<Tag>>> userTagsFuture =
+                CompletableFuture.supplyAsync(() -> tagService.listTagsOfUsers(userIds), ioExecutor);
+        Map<Long, List<Tag>> shopTags = tagService.listTagsOfShops(shopIds);
+        Map<String, OrderRecord> latestOrders = new HashMap<>();
+        for (OrderRecord order : orderRecordMapper.findLatestByUserShopPairs(pairs.values())) {
+            latestOrders.put(order.getUserId() + ":" + order.getShopId(), order);
+        }
+        Map<Long, List<Tag>> userTags = userTagsFuture.join();
+
+        DraftBatch batch = new DraftBatch(items.size(), onResult, cancelled);
+        for (int i = 0; i < items.size(); i++) {
+            AiDraftBatchItem item = items.get(i);
+            Long userId = item.getUserId();
+            Long shopId = item.getShopId();
+            // 批量生成只需要标签名称，不推断偏好关键词
+            TagProfile profile = new TagProfile(userTags.get(userId), shopTags.get(shopId), null);
+            String prompt = promptBuilder.buildGeneratePrompt(userId, shopId, item.getPreference(),
+                    latestOrders.get(userId + ":" + shopId), profile);
+            batch.prompts[i] = prompt;
+        }
+        batch.pump(items);
+        return batch.done.thenApply(results -> {
+            // 整批调用日志一次写入（在 IO 线程池执行，不占用大模型回调线程）
+            List<AiCallLog> rows = new ArrayList<>(batch.logRows);
+            CompletableFuture.runAsync(() -> aiCallLogWriter.writeBatch(rows), ioExecutor);
+            return results;
+        });
+    }
+
+    /**
+     * 构造草稿 Prompt：带上用户/商家标签、最近消费记录作为上下文。
+     */
+    private String buildDraftPrompt(Long userId, Long shopId, String context) {
+        OrderRecord latestOrder = orderRecordMapper.findLatestByUserAndShop(userId, shopId);
+        TagProfile profile = loadTagProfile(userId, shopId);
+        return promptBuilder.buildGeneratePrompt(userId, shopId, context, latestOrder, profile);
+    }
+
+    /**
+     * 提交一条 generate 类型的调用日志（成功/失败都记）：只入队，由后台线程批量写库，不占用请求线程。
+     */
+    private void submitGenerateLog(Long userId, Long shopId, String prompt, LlmResult response, Throwable error,
+                                   long start, Integer firstTokenMs, int successStatus) {
+        aiCallLogWriter.submit(buildGenerateLog(userId, shopId, prompt, response, error, start,
+                firstTokenMs, successStatus));
+    }
+
+    /**
+     * 构造一条 generate 类型的调用日志。
+     * error 不为空时状态记为失败，否则记为 successStatus（调用成功或命中缓存），并记录产生结果的提供方。
+     */
+    private AiCallLog buildGenerateLog(Long userId, Long shopId, String prompt, LlmResult response, Throwable error,
+                                       long start, Integer firstTokenMs, int successStatus) {
+        int status = successStatus;
+        String errorMsg = null;
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            status = AiCallLog.STATUS_FAILED;
+            errorMsg = cause.getMessage();
+            // 上游失败的堆栈已由提供方记录，这里只记录业务上下文
+            log.warn("AI generateDraft failed, userId={}, shopId={}, error={}", userId, shopId, errorMsg);
+        }
+        AiCallLog logRow = new AiCallLog();
+        logRow.setUserId(userId);
+        logRow.setType("generate");
+        logRow.setPrompt(prompt);
+        logRow.setPromptTokens(TokenEstimator.estimate(prompt));
+        // 仅记录摘要，避免大文本；失败时记录错误信息
+        logRow.setResponseRef(response == null ? errorMsg : abbreviate(response.getText(), 500));
+        logRow.setProvider(response == null ? null : response.getProvider());
+        logRow.setLatencyMs((int) (System.currentTimeMillis() - start));
+        logRow.setFirstTokenMs(firstTokenMs);
+        logRow.setStatus(status);
+        return logRow;
     }
 
     /**
      * 基于用户偏好推荐点评：优先按关键词匹配，再按点赞/评分/时间排序；无匹配时兜底返回热门点评。
+     *
+     * <p>用户标签与商家标签在请求开始时并行加载一次，封装为 {@link TagProfile}，
+     * 推断偏好、构建排序关键词、拼装推荐理由都复用这一份数据。
      */
     @Override
     public java.util.List<com.demo.dp.dto.AiRecommendItemResponse> recommendReviews(Long userId, Long shopId, String preference, int limit) {
         // 入参兜底：避免 limit 非法或过大
         int safeLimit = Math.min(Math.max(limit, 1), 10); // 1~10 之间
 
+        // 本次请求的标签画像：只加载一次，整条链路复用
+        TagProfile profile = loadTagProfile(userId, shopId);
+
         // 如果未显式传入偏好，则尝试根据用户标签与商家标签推断一个偏好关键词
         String effectivePreference = (preference == null || preference.isBlank())
-                ? inferPreferenceFromTags(userId, shopId)
+                ? inferPreferenceFromTags(userId, profile)
                 : preference;
 
         java.util.List<Review> candidates;
@@ -119,46 +346,48 @@ public class AiReviewServiceImpl implements AiReviewService {
         if (!keywordHit.isEmpty()) {
             candidates = keywordHit;
         } else {
-            // 2) 正文 LIKE 匹配
-            java.util.List<Review> textHit = reviewMapper.findTopByShopAndKeyword(shopId, effectivePreference, safeLimit);
+            // 2) 正文关键词匹配：优先在商家热门点评 TOP K 中过滤，内存中无法确定结果时才回退到 LIKE 查询
+            java.util.List<Review> textHit = hotReviewIndex.topByKeyword(shopId, effectivePreference, safeLimit);
             if (textHit != null && !textHit.isEmpty()) {
                 candidates = textHit;
             } else {
-                // 3) 兜底：热门点评
-                candidates = reviewMapper.findTopByShop(shopId, safeLimit);
+                // 3) 兜底：热门点评（内存 TOP K）
+                candidates = hotReviewIndex.top(shopId, safeLimit);
             }
         }
 
         // 基于标签/偏好关键词进行二次排序
-        java.util.List<String> preferenceKeywords = buildPreferenceKeywords(userId, shopId, effectivePreference);
+        java.util.List<String> preferenceKeywords = buildPreferenceKeywords(profile, effectivePreference);
         java.util.List<Review> reranked = rerankByKeywords(candidates, preferenceKeywords);
         // 保证不超过 safeLimit 条
         if (reranked.size() > safeLimit) {
             reranked = reranked.subList(0, safeLimit);
         }
         // 构造带推荐理由的返回结构
-        return buildRecommendResponses(reranked, userId, shopId, preferenceKeywords);
+        return buildRecommendResponses(reranked, profile, preferenceKeywords);
+    }
+
+    /**
+     * 加载本次请求的标签画像：用户标签与商家标签相互独立，用户标签提交到 ioExecutor 并行加载，
+     * 商家标签在当前线程加载，两者都完成后再组装。匿名用户（userId 为 null）不查询用户标签。
+     */
+    private TagProfile loadTagProfile(Long userId, Long shopId) {
+        CompletableFuture<java.util.List<com.demo.dp.domain.entity.Tag>> userTagsFuture = userId == null
+                ? CompletableFuture.completedFuture(java.util.List.of())
+                : CompletableFuture.supplyAsync(() -> tagService.listTagsOfUser(userId), ioExecutor);
+        java.util.List<com.demo.dp.domain.entity.Tag> shopTags = tagService.listTagsOfShop(shopId);
+        return new TagProfile(userTagsFuture.join(), shopTags, keywordDictionary);
     }
 
     /**
-     * 使用关键词索引做召回。
+     * 使用关键词索引做召回：一次关联查询直接返回已排序、已过滤状态的完整点评。
      */
     private java.util.List<Review> recommendByKeywordIndex(Long shopId, String preference, int limit) {
-        java.util.List<Review> result = new java.util.ArrayList<>();
         if (preference == null || preference.isBlank()) {
-            return result;
-        }
-        java.util.List<Long> reviewIds = reviewKeywordMapper.findReviewIdsByShopAndKeyword(shopId, preference, limit);
-        if (reviewIds == null || reviewIds.isEmpty()) {
-            return result;
-        }
-        for (Long id : reviewIds) {
-            Review r = reviewMapper.findById(id);
-            if (r != null && r.getStatus() != null && r.getStatus() == 1) {
-                result.add(r);
-            }
+            return new java.util.ArrayList<>();
         }
-        return result;
+        java.util.List<Review> reviews = reviewMapper.findByShopAndIndexedKeyword(shopId, preference, limit);
+        return reviews == null ? new java.util.ArrayList<>() : reviews;
     }
 
     /**
@@ -184,47 +413,15 @@ public class AiReviewServiceImpl implements AiReviewService {
      *     <li>从一个关键词词典中，查找同时出现在用户标签或商家标签中的词，作为偏好</li>
      *     <li>若找到第一个匹配（如“辣”、“清淡”、“环境”等），返回该词；否则返回 null</li>
      * </ul>
+     *
+     * <p>标签匹配结果已在 {@link TagProfile} 中按词典顺序算好，这里直接取第一个。
      */
-    private String inferPreferenceFromTags(Long userId, Long shopId) {
+    private String inferPreferenceFromTags(Long userId, TagProfile profile) {
         if (userId == null) {
             return null;
         }
-        java.util.List<com.demo.dp.domain.entity.Tag> userTags = tagService.listTagsOfUser(userId);
-        java.util.List<com.demo.dp.domain.entity.Tag> shopTags = tagService.listTagsOfShop(shopId);
-        if ((userTags == null || userTags.isEmpty()) && (shopTags == null || shopTags.isEmpty())) {
-            return null;
-        }
-        java.util.Set<String> names = new java.util.HashSet<>();
-        if (userTags != null) {
-            for (com.demo.dp.domain.entity.Tag t : userTags) {
-                if (t.getName() != null) {
-                    names.add(t.getName());
-                }
-            }
-        }
-        if (shopTags != null) {
-            for (com.demo.dp.domain.entity.Tag t : shopTags) {
-                if (t.getName() != null) {
-                    names.add(t.getName());
-                }
-            }
-        }
-        if (names.isEmpty()) {
-            return null;
-        }
-        // 关键词词典：可根据实际标签命名调整
-        String[] dict = new String[]{
-                "辣", "微辣", "不辣", "清淡",
-                "环境", "服务", "价格", "性价比", "分量"
-        };
-        for (String kw : dict) {
-            for (String n : names) {
-                if (n.contains(kw)) {
-                    return kw;
-                }
-            }
-        }
-        return null;
+        java.util.List<String> derived = profile.getDerivedKeywords();
+        return derived.isEmpty() ? null : derived.get(0);
     }
 
     /**
@@ -234,36 +431,13 @@ public class AiReviewServiceImpl implements AiReviewService {
      *     <li>包含根据用户/商家标签推断出的关键词（如“辣”、“环境”等）；</li>
      * </ul>
      */
-    private java.util.List<String> buildPreferenceKeywords(Long userId, Long shopId, String effectivePreference) {
-        java.util.Set<String> set = new java.util.HashSet<>();
+    private java.util.List<String> buildPreferenceKeywords(TagProfile profile, String effectivePreference) {
+        java.util.Set<String> set = new java.util.LinkedHashSet<>();
         if (effectivePreference != null && !effectivePreference.isBlank()) {
             set.add(effectivePreference);
         }
-        // 再根据标签名称再扩展一些关键词（与 inferPreferenceFromTags 使用同一词典）
-        java.util.List<com.demo.dp.domain.entity.Tag> userTags = userId == null ? java.util.List.of() : tagService.listTagsOfUser(userId);
-        java.util.List<com.demo.dp.domain.entity.Tag> shopTags = tagService.listTagsOfShop(shopId);
-        java.util.Set<String> names = new java.util.HashSet<>();
-        for (com.demo.dp.domain.entity.Tag t : userTags) {
-            if (t.getName() != null) {
-                names.add(t.getName());
-            }
-        }
-        for (com.demo.dp.domain.entity.Tag t : shopTags) {
-            if (t.getName() != null) {
-                names.add(t.getName());
-            }
-        }
-        String[] dict = new String[]{
-                "辣", "微辣", "不辣", "清淡",
-                "环境", "服务", "价格", "性价比", "分量"
-        };
-        for (String kw : dict) {
-            for (String n : names) {
-                if (n.contains(kw)) {
-                    set.add(kw);
-                }
-            }
-        }
+        // 再根据标签名称扩展一些关键词（与 inferPreferenceFromTags 使用同一词典）
+        set.addAll(profile.getDerivedKeywords());
         return new java.util.ArrayList<>(set);
     }
 
@@ -314,17 +488,14 @@ public class AiReviewServiceImpl implements AiReviewService {
      */
     private java.util.List<com.demo.dp.dto.AiRecommendItemResponse> buildRecommendResponses(
             java.util.List<Review> reviews,
-            Long userId,
-            Long shopId,
+            TagProfile profile,
             java.util.List<String> keywords) {
         java.util.List<com.demo.dp.dto.AiRecommendItemResponse> result = new java.util.ArrayList<>();
         if (reviews == null || reviews.isEmpty()) {
             return result;
         }
-        java.util.List<com.demo.dp.domain.entity.Tag> userTags = userId == null ? java.util.List.of() : tagService.listTagsOfUser(userId);
-        java.util.List<com.demo.dp.domain.entity.Tag> shopTags = tagService.listTagsOfShop(shopId);
-        String userTagStr = buildTagString(userTags);
-        String shopTagStr = buildTagString(shopTags);
+        String userTagStr = profile.getUserTagStr();
+        String shopTagStr = profile.getShopTagStr();
 
         for (Review r : reviews) {
             com.demo.dp.dto.AiRecommendItemResponse item = new com.demo.dp.dto.AiRecommendItemResponse();
@@ -335,22 +506,6 @@ public class AiReviewServiceImpl implements AiReviewService {
         return result;
     }
 
-    private String buildTagString(java.util.List<com.demo.dp.domain.entity.Tag> tags) {
-        if (tags == null || tags.isEmpty()) {
-            return "";
-        }
-        StringBuilder sb = new StringBuilder();
-        for (com.demo.dp.domain.entity.Tag t : tags) {
-            if (t.getName() != null && !t.getName().isBlank()) {
-                if (!sb.isEmpty()) {
-                    sb.append("、");
-                }
-                sb.append(t.getName());
-            }
-        }
-        return sb.toString();
-    }
-
     private String buildReasonForReview(Review review,
                                         String userTagStr,
                                         String shopTagStr,
@@ -380,5 +535,120 @@ public class AiReviewServiceImpl implements AiReviewService {
         }
         return reason.toString();
     }
-}
 
+    /**
+     * 单项失败的提示：快速拒绝（熔断、限流）的提示可直接展示，上游错误详情只记日志。
+     */
+    private static String batchErrorMessage(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof AiUnavailableException aue && aue.isRejected()
+                ? aue.getMessage()
+                : "AI 生成失败，请稍后重试";
+    }
+
+    /**
+     * 一次批量生成的执行状态：按下标依次启动，同时在途的大模型调用不超过 batchParallelism。
+     *
+     * <p>启动逻辑用"工作中计数"串行化：任意线程（请求线程或大模型回调线程）都可以触发 {@link #pump}，
+     * 但同一时刻只有一个线程在启动新项；同步完成的调用（命中缓存、本地 mock）不会造成递归调用栈增长。
+     */
+    private final class DraftBatch {
+        private final String[] prompts;
+        private final AiDraftBatchResult[] results;
+        private final Consumer<AiDraftBatchResult> onResult;
+        private final BooleanSupplier cancelled;
+        private final ConcurrentLinkedQueue<AiCallLog> logRows = new ConcurrentLinkedQueue<>();
+        private final CompletableFuture<List<AiDraftBatchResult>> done = new CompletableFuture<>();
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger remaining;
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private DraftBatch(int size, Consumer<AiDraftBatchResult> onResult, BooleanSupplier cancelled) {
+            this.prompts = new String[size];
+            this.results = new AiDraftBatchResult[size];
+            this.onResult = onResult;
+            this.cancelled = cancelled;
+            this.remaining = new AtomicInteger(size);
+        }
+
+        private void pump(List<AiDraftBatchItem> items) {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                if (cancelled.getAsBoolean()) {
+                    finishIfIdle();
+                    continue;
+                }
+                while (active.get() < batchParallelism && next.get() < prompts.length) {
+                    active.incrementAndGet();
+                    int index = next.getAndIncrement();
+                    launch(items, index);
+                }
+            } while (wip.decrementAndGet() != 0);
+        }
+
+        /**
+         * 已取消且没有在途的项：以已完成的结果结束（未启动的项不再生成）。
+         */
+        private void finishIfIdle() {
+            if (active.get() == 0) {
+                List<AiDraftBatchResult> finished = new ArrayList<>();
+                for (AiDraftBatchResult result : results) {
+                    if (result != null) {
+                        finished.add(result);
+                    }
+                }
+                done.complete(finished);
+            }
+        }
+
+        private void launch(List<AiDraftBatchItem> items, int index) {
+            AiDraftBatchItem item = items.get(index);
+            String prompt = prompts[index];
+            long start = System.currentTimeMillis();
+            String fingerprint = aiResponseCache.fingerprint(prompt, AiClient.DEFAULT_MAX_TOKENS);
+            LlmResult cached = aiResponseCache.get(fingerprint);
+            CompletableFuture<LlmResult> call;
+            int successStatus;
+            boolean leader;
+            if (cached != null) {
+                call = CompletableFuture.completedFuture(cached);
+                successStatus = AiCallLog.STATUS_CACHE_HIT;
+                leader = false;
+            } else {
+                LlmRequestCoalescer.Flight flight = llmRequestCoalescer.execute(fingerprint,
+                        () -> aiClient.callLlmAsync(prompt));
+                call = flight.getFuture();
+                successStatus = flight.isCoalesced() ? AiCallLog.STATUS_COALESCED : AiCallLog.STATUS_SUCCESS;
+                leader = !flight.isCoalesced();
+            }
+            call.whenComplete((response, error) -> {
+                if (error == null && leader) {
+                    aiResponseCache.put(fingerprint, response);
+                }
+                logRows.add(buildGenerateLog(item.getUserId(), item.getShopId(), prompt, response, error,
+                        start, null, successStatus));
+                AiDraftBatchResult result = new AiDraftBatchResult(index, item.getUserId(), item.getShopId(),
+                        response == null ? null : response.getText(),
+                        error == null ? null : batchErrorMessage(error));
+                results[index] = result;
+                synchronized (this) {
+                    try {
+                        onResult.accept(result);
+                    } catch (Exception e) {
+                        // 回调异常（如客户端已断开）不影响其余项继续生成
+                        log.debug("AI 批量生成结果回调异常: {}", e.getMessage());
+                    }
+                }
+                active.decrementAndGet();
+                if (remaining.decrementAndGet() == 0) {
+                    done.complete(List.of(results));
+                } else {
+                    pump(items);
+                }
+            });
+        }
+    }
+}
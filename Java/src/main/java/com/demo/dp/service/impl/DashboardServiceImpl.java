@@ -1,23 +1,28 @@
 package com.demo.dp.service.impl;
 
+import com.demo.dp.domain.entity.StatRollup;
 import com.demo.dp.dto.DashboardStats;
-import com.demo.dp.mapper.AiCallLogMapper;
-import com.demo.dp.mapper.OrderRecordMapper;
-import com.demo.dp.mapper.ReviewMapper;
-import com.demo.dp.mapper.ShopMapper;
+import com.demo.dp.dto.DashboardTrendPoint;
+import com.demo.dp.mapper.StatRollupMapper;
 import com.demo.dp.service.DashboardService;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.demo.dp.stats.AiLatencyRegistry;
+import com.demo.dp.stats.DashboardCounterRegistry;
+import com.demo.dp.stats.DashboardCounterRegistry.Counter;
+import com.demo.dp.stats.LatencyHistogram;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 仪表盘数据统计服务实现类：实现仪表盘相关的数据统计业务逻辑。
  * 
- * <p>该类负责聚合查询多个数据源的统计数据，包括：
+ * <p>该类负责汇总以下统计数据：
  * <ul>
  *   <li>商家总数统计（只统计正常状态的商家）</li>
  *   <li>点评总数统计（只统计正常状态的点评）</li>
@@ -26,7 +31,12 @@ import java.time.LocalTime;
  *   <li>今日新增数据统计</li>
  * </ul>
  * 
- * <p>注意：该方法会执行多个数据库查询，如果数据量很大，建议后续使用缓存优化。
+ * <p>各项数值由 {@link DashboardCounterRegistry} 在内存中增量维护（启动时从数据库统计初始值，
+ * 写入路径在事务提交后增减，定时用数据库校正），这里只读取计数，不再每次请求执行多条 COUNT(*)。
+ * 计数器由后台线程完成初始化，请求路径（包括仪表盘 SSE 推送的每个 tick）从不执行 COUNT 查询；
+ * 初始化完成前返回的计数均为 0，并以 ready=false 标明。
+ * 
+ * <p>趋势数据只读取趋势汇总表 stat_rollup（由 StatRollupBuffer 增量写入、StatRollupCatchUpJob 定时补算）。
  * 
  * @author System
  * @version 1.0
@@ -34,136 +44,126 @@ import java.time.LocalTime;
 @Service
 public class DashboardServiceImpl implements DashboardService {
 
-    /**
-     * 日志记录器，用于输出调用链路和错误信息。
-     */
-    private static final Logger log = LoggerFactory.getLogger(DashboardServiceImpl.class);
+    /** 按天查询的最大天数 */
+    private static final int MAX_DAYS_BY_DAY = 90;
+    /** 按小时查询的最大天数 */
+    private static final int MAX_DAYS_BY_HOUR = 7;
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter HOUR_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00");
 
-    private final ShopMapper shopMapper;
-    private final ReviewMapper reviewMapper;
-    private final OrderRecordMapper orderRecordMapper;
-    private final AiCallLogMapper aiCallLogMapper;
+    private final DashboardCounterRegistry dashboardCounters;
+    private final StatRollupMapper statRollupMapper;
+    private final AiLatencyRegistry aiLatencyRegistry;
 
     /**
-     * 构造函数：注入各个数据访问层的 Mapper。
+     * 构造函数：注入仪表盘计数器、趋势汇总 Mapper 和 AI 调用耗时统计。
      *
-     * @param shopMapper 商家数据访问层
-     * @param reviewMapper 点评数据访问层
-     * @param orderRecordMapper 订单数据访问层
-     * @param aiCallLogMapper AI 调用日志数据访问层
+     * @param dashboardCounters 仪表盘计数器
+     * @param statRollupMapper  趋势汇总 Mapper
+     * @param aiLatencyRegistry AI 调用耗时统计
      */
-    public DashboardServiceImpl(ShopMapper shopMapper,
-                                ReviewMapper reviewMapper,
-                                OrderRecordMapper orderRecordMapper,
-                                AiCallLogMapper aiCallLogMapper) {
-        this.shopMapper = shopMapper;
-        this.reviewMapper = reviewMapper;
-        this.orderRecordMapper = orderRecordMapper;
-        this.aiCallLogMapper = aiCallLogMapper;
+    public DashboardServiceImpl(DashboardCounterRegistry dashboardCounters,
+                                StatRollupMapper statRollupMapper,
+                                AiLatencyRegistry aiLatencyRegistry) {
+        this.dashboardCounters = dashboardCounters;
+        this.statRollupMapper = statRollupMapper;
+        this.aiLatencyRegistry = aiLatencyRegistry;
     }
 
     /**
      * 获取仪表盘统计数据。
      * 
-     * <p>该方法会聚合查询多个数据源的统计数据：
+     * <p>直接读取内存计数，耗时与数据量无关：
      * <ol>
-     *   <li>查询商家总数（status=1）</li>
-     *   <li>查询点评总数（status=1）</li>
-     *   <li>查询订单总数</li>
-     *   <li>查询 AI 调用总数和成功次数，计算成功率</li>
-     *   <li>查询今日新增数据（商家、点评、订单）</li>
+     *   <li>商家总数（status=1）、点评总数（status=1）、订单总数</li>
+     *   <li>AI 调用总数和成功次数，计算成功率（命中响应缓存、合并请求同样算作成功返回）</li>
+     *   <li>今日新增数据（商家、点评、订单）</li>
+     *   <li>最近一段时间成功 AI 调用耗时的 p50/p95/p99/max（内存中的滑动窗口直方图）</li>
      * </ol>
-     * 
-     * <p>注意：如果某个统计项查询失败，会记录日志但不影响其他统计项的返回。
+     * 计数器尚未完成初始化时计数项均为 0、ready 为 false（内存中只有启动后的增量，不是真实总数）。
      * 
      * @return 统计数据对象，包含所有统计字段
      */
     @Override
     public DashboardStats getStats() {
         DashboardStats stats = new DashboardStats();
-
-        try {
-            // 1. 查询商家总数（只统计 status=1 的正常商家）
-            long shopCount = shopMapper.countByConditions(null, null, null, null);
-            stats.setShopCount(shopCount);
-            log.debug("查询商家总数: {}", shopCount);
-        } catch (Exception e) {
-            log.error("查询商家总数失败", e);
-            stats.setShopCount(0);
-        }
-
-        try {
-            // 2. 查询点评总数（需要扩展 ReviewMapper 支持全量统计）
-            // 注意：当前 ReviewMapper 只有按商家统计的方法，需要新增全量统计方法
-            // 暂时使用一个较大的 shopId 来估算，或者扩展 Mapper
-            // 这里先使用一个临时方案：遍历所有商家统计（性能较差，后续需要优化）
-            long reviewCount = reviewMapper.countAll();
-            stats.setReviewCount(reviewCount);
-            log.debug("查询点评总数: {}", reviewCount);
-        } catch (Exception e) {
-            log.error("查询点评总数失败", e);
-            stats.setReviewCount(0);
+        if (dashboardCounters.isReady()) {
+            Map<Counter, Long> values = dashboardCounters.snapshot();
+            long aiCallCount = values.get(Counter.AI_CALLS);
+            long aiCallSuccessCount = Math.min(values.get(Counter.AI_CALLS_SUCCEEDED), aiCallCount);
+            stats.setReady(true);
+            stats.setShopCount(values.get(Counter.SHOPS));
+            stats.setReviewCount(values.get(Counter.REVIEWS));
+            stats.setOrderCount(values.get(Counter.ORDERS));
+            stats.setAiCallCount(aiCallCount);
+            // 计算成功率：成功次数 / 总次数
+            stats.setAiCallSuccessRate(aiCallCount > 0 ? (double) aiCallSuccessCount / aiCallCount : 0.0);
+            stats.setTodayNewShops(values.get(Counter.TODAY_SHOPS));
+            stats.setTodayNewReviews(values.get(Counter.TODAY_REVIEWS));
+            stats.setTodayNewOrders(values.get(Counter.TODAY_ORDERS));
         }
+        LatencyHistogram.Snapshot latency = aiLatencyRegistry.dashboardSnapshot();
+        stats.setAiLatencyP50Ms(latency.percentile(0.50));
+        stats.setAiLatencyP95Ms(latency.percentile(0.95));
+        stats.setAiLatencyP99Ms(latency.percentile(0.99));
+        stats.setAiLatencyMaxMs(latency.getMax());
+        return stats;
+    }
 
-        try {
-            // 3. 查询订单总数（需要扩展 OrderRecordMapper 支持全量统计）
-            long orderCount = orderRecordMapper.countAll();
-            stats.setOrderCount(orderCount);
-            log.debug("查询订单总数: {}", orderCount);
-        } catch (Exception e) {
-            log.error("查询订单总数失败", e);
-            stats.setOrderCount(0);
+    /**
+     * 获取仪表盘趋势数据。
+     *
+     * <p>按天时返回 [今天 - (days - 1), 今天] 每天一个点；按小时时返回最近 days * 24 个小时（含当前小时）。
+     * 最近几秒内的写入可能尚未从内存写入汇总表（dashboard.rollup.flush-interval-ms）。
+     *
+     * @param granularity 粒度：day 或 hour
+     * @param days        最近多少天（含今天）
+     * @return 按时间升序的数据点
+     */
+    @Override
+    public List<DashboardTrendPoint> getTrends(String granularity, int days) {
+        boolean byHour;
+        if ("day".equalsIgnoreCase(granularity)) {
+            byHour = false;
+        } else if ("hour".equalsIgnoreCase(granularity)) {
+            byHour = true;
+        } else {
+            throw new IllegalArgumentException("granularity 只能是 day 或 hour");
         }
-
-        try {
-            // 4. 查询 AI 调用统计
-            long aiCallCount = aiCallLogMapper.countAll();
-            long aiCallSuccessCount = aiCallLogMapper.countByStatus(1);
-            
-            // 计算成功率：成功次数 / 总次数
-            double aiCallSuccessRate = aiCallCount > 0 
-                    ? (double) aiCallSuccessCount / aiCallCount 
-                    : 0.0;
-            
-            stats.setAiCallCount(aiCallCount);
-            stats.setAiCallSuccessRate(aiCallSuccessRate);
-            log.debug("查询 AI 调用统计: 总数={}, 成功数={}, 成功率={}", 
-                    aiCallCount, aiCallSuccessCount, aiCallSuccessRate);
-        } catch (Exception e) {
-            log.error("查询 AI 调用统计失败", e);
-            stats.setAiCallCount(0);
-            stats.setAiCallSuccessRate(0.0);
+        int maxDays = byHour ? MAX_DAYS_BY_HOUR : MAX_DAYS_BY_DAY;
+        if (days < 1 || days > maxDays) {
+            throw new IllegalArgumentException("days 必须在 1 到 " + maxDays + " 之间");
         }
 
-        try {
-            // 5. 查询今日新增数据
-            // 计算今天的开始时间（00:00:00）和结束时间（23:59:59）
-            LocalDate today = LocalDate.now();
-            LocalDateTime todayStart = LocalDateTime.of(today, LocalTime.MIN);
-            LocalDateTime todayEnd = LocalDateTime.of(today, LocalTime.MAX);
+        ChronoUnit unit = byHour ? ChronoUnit.HOURS : ChronoUnit.DAYS;
+        int points = byHour ? days * 24 : days;
+        LocalDateTime end = LocalDateTime.now().truncatedTo(unit).plus(1, unit);
+        LocalDateTime from = end.minus(points, unit);
+        String period = byHour ? StatRollup.PERIOD_HOUR : StatRollup.PERIOD_DAY;
 
-            // 今日新增商家数
-            long todayNewShops = shopMapper.countByDateRange(todayStart, todayEnd);
-            stats.setTodayNewShops(todayNewShops);
-
-            // 今日新增点评数
-            long todayNewReviews = reviewMapper.countByDateRange(todayStart, todayEnd);
-            stats.setTodayNewReviews(todayNewReviews);
-
-            // 今日新增订单数
-            long todayNewOrders = orderRecordMapper.countByDateRange(todayStart, todayEnd);
-            stats.setTodayNewOrders(todayNewOrders);
-
-            log.debug("查询今日新增数据: 商家={}, 点评={}, 订单={}", 
-                    todayNewShops, todayNewReviews, todayNewOrders);
-        } catch (Exception e) {
-            log.error("查询今日新增数据失败", e);
-            stats.setTodayNewShops(0);
-            stats.setTodayNewReviews(0);
-            stats.setTodayNewOrders(0);
+        Map<LocalDateTime, StatRollup> rows = new HashMap<>();
+        for (StatRollup row : statRollupMapper.findRange(period, from, end)) {
+            rows.put(row.getBucketStart(), row);
         }
 
-        return stats;
+        // 没有数据的时间段补 0，保证前端按下标画图时时间轴连续
+        DateTimeFormatter format = byHour ? HOUR_FORMAT : DAY_FORMAT;
+        List<DashboardTrendPoint> result = new ArrayList<>(points);
+        for (LocalDateTime bucket = from; bucket.isBefore(end); bucket = bucket.plus(1, unit)) {
+            StatRollup row = rows.getOrDefault(bucket, new StatRollup(period, bucket));
+            DashboardTrendPoint point = new DashboardTrendPoint();
+            point.setBucket(bucket.format(format));
+            point.setNewShops(Math.max(0, row.getNewShops()));
+            point.setNewReviews(row.getNewReviews());
+            point.setNewOrders(row.getNewOrders());
+            point.setAiCalls(row.getAiCalls());
+            point.setAiSuccess(row.getAiSuccess());
+            point.setAiFailed(row.getAiFailed());
+            point.setAiAvgLatencyMs(row.getAiLatencyCount() > 0
+                    ? (double) row.getAiLatencySumMs() / row.getAiLatencyCount() : 0.0);
+            result.add(point);
+        }
+        return result;
     }
 }
-
@@ -3,6 +3,8 @@ package com.demo.dp.service.impl;
 import com.demo.dp.domain.entity.OrderRecord;
 import com.demo.dp.mapper.OrderRecordMapper;
 import com.demo.dp.service.OrderRecordService;
+import com.demo.dp.stats.DashboardCounterRegistry;
+import com.demo.dp.util.TransactionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,9 +19,12 @@ import java.util.List;
 public class OrderRecordServiceImpl implements OrderRecordService {
 
     private final OrderRecordMapper orderRecordMapper;
+    private final DashboardCounterRegistry dashboardCounters;
 
-    public OrderRecordServiceImpl(OrderRecordMapper orderRecordMapper) {
+    public OrderRecordServiceImpl(OrderRecordMapper orderRecordMapper,
+                                  DashboardCounterRegistry dashboardCounters) {
         this.orderRecordMapper = orderRecordMapper;
+        this.dashboardCounters = dashboardCounters;
     }
 
     /**
@@ -36,6 +41,8 @@ public class OrderRecordServiceImpl implements OrderRecordService {
         record.setItems(itemsJson);
         record.setCreatedAt(LocalDateTime.now());
         orderRecordMapper.insert(record);
+        // 事务提交后再计入仪表盘订单数，回滚时不会多计
+        TransactionUtils.afterCommit(() -> dashboardCounters.onOrderCreated(record.getCreatedAt()));
         return record;
     }
 
@@ -1,16 +1,16 @@
 package com.demo.dp.service;
 
 import com.demo.dp.domain.entity.Review;
-import com.demo.dp.domain.entity.ReviewKeyword;
-import com.demo.dp.mapper.ReviewKeywordMapper;
 import com.demo.dp.mapper.ReviewMapper;
+import com.demo.dp.search.HotReviewIndex;
+import com.demo.dp.search.ReviewKeywordIndexer;
+import com.demo.dp.stats.DashboardCounterRegistry;
+import com.demo.dp.util.TransactionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 /**
  * 点评服务实现类：实现点评相关的业务逻辑。
@@ -21,12 +21,18 @@ import java.util.Set;
 public class ReviewServiceImpl implements ReviewService {
 
     private final ReviewMapper reviewMapper;
-    private final ReviewKeywordMapper reviewKeywordMapper;
+    private final HotReviewIndex hotReviewIndex;
+    private final ReviewKeywordIndexer reviewKeywordIndexer;
+    private final DashboardCounterRegistry dashboardCounters;
 
     public ReviewServiceImpl(ReviewMapper reviewMapper,
-                             ReviewKeywordMapper reviewKeywordMapper) {
+                             HotReviewIndex hotReviewIndex,
+                             ReviewKeywordIndexer reviewKeywordIndexer,
+                             DashboardCounterRegistry dashboardCounters) {
         this.reviewMapper = reviewMapper;
-        this.reviewKeywordMapper = reviewKeywordMapper;
+        this.hotReviewIndex = hotReviewIndex;
+        this.reviewKeywordIndexer = reviewKeywordIndexer;
+        this.dashboardCounters = dashboardCounters;
     }
 
     /**
@@ -62,11 +68,13 @@ public class ReviewServiceImpl implements ReviewService {
         r.setCreatedAt(LocalDateTime.now());
         reviewMapper.insert(r);
 
-        // 简单关键词抽取并入库（用于推荐召回）
-        List<ReviewKeyword> keywords = extractKeywords(r.getId(), content);
-        if (!keywords.isEmpty()) {
-            reviewKeywordMapper.insertBatch(keywords);
-        }
+        // 关键词索引（用于推荐召回）只在同一事务内登记任务，由 ReviewKeywordIndexer 异步批量抽取入库
+        reviewKeywordIndexer.enqueue(r.getId());
+        // 事务提交后再更新商家热门点评列表，回滚时内存中不会出现不存在的点评
+        TransactionUtils.afterCommit(() -> {
+            hotReviewIndex.onReviewCreated(r);
+            dashboardCounters.onReviewCreated(r.getCreatedAt());
+        });
         return r;
     }
 
@@ -89,37 +97,7 @@ public class ReviewServiceImpl implements ReviewService {
         if (rows == 0) {
             throw new RuntimeException("点赞失败，点评ID: " + reviewId);
         }
-    }
-
-    /**
-     * 关键词抽取：基于规则的简单命中，用于 MVP。
-     * 可后续替换为 NLP/LLM 标注。
-     */
-    private List<ReviewKeyword> extractKeywords(Long reviewId, String content) {
-        List<ReviewKeyword> list = new ArrayList<>();
-        if (content == null || content.isBlank()) {
-            return list;
-        }
-        String c = content.toLowerCase();
-        // 简单规则：包含关键词则打标签
-        Set<String> dict = Set.of(
-                "辣", "微辣", "不辣", "麻", "清淡",
-                "环境", "干净", "卫生",
-                "服务", "态度",
-                "排队", "等位",
-                "性价比", "价格", "贵", "便宜",
-                "分量", "份量"
-        );
-        for (String k : dict) {
-            if (c.contains(k)) {
-                ReviewKeyword kw = new ReviewKeyword();
-                kw.setReviewId(reviewId);
-                kw.setKeyword(k);
-                kw.setWeight(1.0);
-                list.add(kw);
-            }
-        }
-        return list;
+        TransactionUtils.afterCommit(() -> hotReviewIndex.onReviewLiked(review));
     }
 
     /**
@@ -1,13 +1,24 @@
 package com.demo.dp.service.impl;
 
+import com.demo.dp.cache.CacheRegistry;
+import com.demo.dp.cache.LocalCache;
 import com.demo.dp.domain.entity.Shop;
+import com.demo.dp.dto.ShopCursor;
 import com.demo.dp.mapper.ShopMapper;
+import com.demo.dp.search.ShopSearchIndex;
+import com.demo.dp.stats.DashboardCounterRegistry;
 import com.demo.dp.service.ShopService;
+import com.demo.dp.util.TransactionUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 商家服务实现类：实现商家相关的业务逻辑。
@@ -18,6 +29,14 @@ import java.util.List;
  * <p>使用 {@code @Service} 注解标识为Spring服务组件，会被Spring容器自动管理。
  * 使用依赖注入的方式获取 {@link ShopMapper} 实例，用于数据库操作。
  * 
+ * <p>带关键词的列表查询优先走 {@link ShopSearchIndex} 内存倒排索引：筛选、排序、计数都在内存完成，
+ * 数据库只按ID取回当页商家；索引未就绪时回退到 SQL LIKE 查询。
+ * 创建/更新/删除商家后，在事务提交后同步维护索引。
+ * 
+ * <p>{@link #getById(Long)} 使用有容量上限和过期时间的本地缓存（读穿透），商家详情页等高频读取
+ * 不再每次访问数据库；更新、删除商家在事务提交后失效对应缓存。缓存统计可通过
+ * GET /api/metrics/caches 查看。
+ * 
  * @author System
  * @version 1.0
  */
@@ -30,13 +49,41 @@ public class ShopServiceImpl implements ShopService {
      */
     private final ShopMapper shopMapper;
 
+    /**
+     * 商家关键词内存索引，用于替代 LIKE '%kw%' 全表扫描。
+     */
+    private final ShopSearchIndex shopSearchIndex;
+
+    /**
+     * 仪表盘计数器，商家新建、上下线、删除后在事务提交时增减计数。
+     */
+    private final DashboardCounterRegistry dashboardCounters;
+
+    /**
+     * 商家详情本地缓存（商家ID -> 商家），容量和过期时间由 shop.cache.* 配置。
+     */
+    private final LocalCache<Long, Shop> shopCache;
+
     /**
      * 构造函数，通过依赖注入获取ShopMapper实例。
      * 
      * @param shopMapper 商家数据访问对象，由Spring容器自动注入
+     * @param shopSearchIndex 商家关键词内存索引，由Spring容器自动注入
+     * @param dashboardCounters 仪表盘计数器，商家上下线时增减计数
+     * @param cacheRegistry 本地缓存登记处，用于创建并登记商家缓存
+     * @param cacheMaxSize 商家缓存最大条目数
+     * @param cacheTtlSeconds 商家缓存过期时间（秒）
      */
-    public ShopServiceImpl(ShopMapper shopMapper) {
+    public ShopServiceImpl(ShopMapper shopMapper,
+                           ShopSearchIndex shopSearchIndex,
+                           DashboardCounterRegistry dashboardCounters,
+                           CacheRegistry cacheRegistry,
+                           @Value("${shop.cache.max-size:10000}") int cacheMaxSize,
+                           @Value("${shop.cache.ttl-seconds:300}") long cacheTtlSeconds) {
         this.shopMapper = shopMapper;
+        this.shopSearchIndex = shopSearchIndex;
+        this.dashboardCounters = dashboardCounters;
+        this.shopCache = cacheRegistry.create("shop", cacheMaxSize, Duration.ofSeconds(cacheTtlSeconds));
     }
 
     /**
@@ -59,6 +106,15 @@ public class ShopServiceImpl implements ShopService {
         // 计算数据库查询的偏移量：offset = 页码 * 每页大小
         // 例如：第1页（page=0）每页10条（size=10），offset=0，表示从第0条开始取10条
         int offset = page * size;
+
+        // 带关键词且索引可用：在内存索引中筛选排序，只按ID取回当页商家
+        if (useSearchIndex(keyword)) {
+            List<Long> ids = shopSearchIndex.search(keyword, category, minScore, maxPrice);
+            if (offset >= ids.size()) {
+                return new ArrayList<>();
+            }
+            return loadInOrder(ids.subList(offset, Math.min(offset + size, ids.size())));
+        }
         
         // 调用Mapper方法执行数据库查询，返回符合条件的商家列表
         return shopMapper.findByConditions(offset, size, category, keyword, minScore, maxPrice);
@@ -78,22 +134,87 @@ public class ShopServiceImpl implements ShopService {
      */
     @Override
     public long countShops(String category, String keyword, Double minScore, Double maxPrice) {
+        // 带关键词且索引可用：直接在内存中计数
+        if (useSearchIndex(keyword)) {
+            return shopSearchIndex.count(keyword, category, minScore, maxPrice);
+        }
+
         // 调用Mapper方法执行COUNT查询，返回符合条件的商家总数
         return shopMapper.countByConditions(category, keyword, minScore, maxPrice);
     }
 
+    /**
+     * 游标（keyset）分页查询商家列表的实现方法。
+     *
+     * <p>将游标拆解为 (avgScore, createdAt, id) 三个排序键传给Mapper，
+     * 由SQL在排序索引上直接定位到上一页末尾之后的位置。cursor为null时查询第一页。
+     *
+     * @param cursor 上一页游标，可为null
+     * @param size 每页大小
+     * @param category 分类筛选条件，可选
+     * @param keyword 搜索关键词，可选
+     * @param minScore 最低评分，可选
+     * @param maxPrice 最高人均价格，可选
+     * @return 游标之后的商家列表
+     */
+    @Override
+    public List<Shop> listShopsAfter(ShopCursor cursor, int size, String category, String keyword, Double minScore, Double maxPrice) {
+        if (useSearchIndex(keyword)) {
+            return loadInOrder(shopSearchIndex.searchAfter(keyword, category, minScore, maxPrice, cursor, size));
+        }
+        if (cursor == null) {
+            // 第一页：不带游标条件
+            return shopMapper.findByConditionsAfter(size, category, keyword, minScore, maxPrice, null, null, null);
+        }
+        return shopMapper.findByConditionsAfter(size, category, keyword, minScore, maxPrice,
+                cursor.getAvgScore(), cursor.getCreatedAt(), cursor.getId());
+    }
+
+    /**
+     * 有上限的商家计数的实现方法。
+     *
+     * @param category 分类筛选条件，可选
+     * @param keyword 搜索关键词，可选
+     * @param minScore 最低评分，可选
+     * @param maxPrice 最高人均价格，可选
+     * @param cap 计数上限
+     * @return 不超过 cap 的商家数量
+     */
+    @Override
+    public long countShopsCapped(String category, String keyword, Double minScore, Double maxPrice, int cap) {
+        if (useSearchIndex(keyword)) {
+            return Math.min(shopSearchIndex.count(keyword, category, minScore, maxPrice), cap);
+        }
+        return shopMapper.countByConditionsCapped(category, keyword, minScore, maxPrice, cap);
+    }
+
     /**
      * 根据ID查询商家详情的实现方法。
      * 
-     * <p>直接调用Mapper的findById方法，如果商家不存在则返回null。
+     * <p>读穿透缓存：先查本地缓存，未命中再调用Mapper的findById方法并写入缓存。
+     * 商家不存在时返回null，且不缓存null（避免新建商家后短时间内查不到）。
+     * 读库与写缓存之间如果发生了失效（更新/删除提交），本次结果不写入缓存，避免旧数据在 TTL 内一直可见。
+     * 
+     * <p>返回的对象可能被多个请求共享，调用方不应修改它。
      * 
      * @param id 商家ID
      * @return 商家对象，不存在则返回null
      */
     @Override
     public Shop getById(Long id) {
+        if (id == null) {
+            return null;
+        }
+        Shop cached = shopCache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        // 读库前取失效序号：读库期间如果该商家被更新/删除并失效了缓存，读到的旧值不会写回缓存
+        long stamp = shopCache.stamp();
         // 调用Mapper方法根据主键ID查询商家信息
-        return shopMapper.findById(id);
+        Shop shop = shopMapper.findById(id);
+        shopCache.put(id, shop, stamp);
+        return shop;
     }
 
     /**
@@ -134,6 +255,15 @@ public class ShopServiceImpl implements ShopService {
         
         // 执行数据库插入操作，MyBatis会自动将生成的主键ID设置到shop对象的id属性中
         shopMapper.insert(shop);
+
+        // 事务提交后将新商家加入关键词索引
+        // 重新按ID读取一次，使索引中的创建时间与数据库一致（游标分页依赖该值）
+        Long shopId = shop.getId();
+        TransactionUtils.afterCommit(() -> shopSearchIndex.upsert(shopMapper.findById(shopId)));
+        if (isActive(shop)) {
+            LocalDateTime createdAt = shop.getCreatedAt();
+            TransactionUtils.afterCommit(() -> dashboardCounters.onShopActiveChanged(createdAt, 1));
+        }
         
         // 返回包含主键ID的商家对象
         return shop;
@@ -155,7 +285,8 @@ public class ShopServiceImpl implements ShopService {
      * 3. 合并数据：只更新非null字段
      * 4. 更新updatedAt字段
      * 5. 执行数据库更新操作
-     * 6. 重新查询并返回更新后的完整商家信息
+     * 6. 事务提交后失效缓存、刷新关键词索引
+     * 7. 返回合并后的完整商家信息（不再重新查询数据库）
      * 
      * @param shop 包含要更新字段的商家对象，必须包含id字段
      * @return 更新后的完整商家对象
@@ -169,6 +300,7 @@ public class ShopServiceImpl implements ShopService {
         if (existing == null) {
             throw new RuntimeException("商家不存在，ID: " + shop.getId());
         }
+        boolean wasActive = isActive(existing);
         
         // 合并数据：只更新非空字段，实现部分更新功能
         // 如果传入的字段为null，则不更新该字段，保持数据库中的原值
@@ -220,9 +352,22 @@ public class ShopServiceImpl implements ShopService {
         
         // 执行数据库更新操作
         shopMapper.update(existing);
+
+        // 事务提交后失效缓存，并刷新关键词索引（名称、地址、评分、状态等都可能变化）
+        Long shopId = existing.getId();
+        TransactionUtils.afterCommit(() -> {
+            shopCache.invalidate(shopId);
+            shopSearchIndex.upsert(existing);
+        });
+        // 状态在正常与下线之间切换时增减仪表盘计数
+        boolean nowActive = isActive(existing);
+        if (wasActive != nowActive) {
+            LocalDateTime createdAt = existing.getCreatedAt();
+            TransactionUtils.afterCommit(() -> dashboardCounters.onShopActiveChanged(createdAt, nowActive ? 1 : -1));
+        }
         
-        // 重新查询并返回更新后的完整商家信息，确保返回的数据是最新的
-        return shopMapper.findById(shop.getId());
+        // 返回合并后的完整商家信息：existing 已包含数据库原值与本次更新的字段，无需再查一次数据库
+        return existing;
     }
 
     /**
@@ -255,6 +400,7 @@ public class ShopServiceImpl implements ShopService {
         if (shop == null) {
             throw new RuntimeException("商家不存在，ID: " + id);
         }
+        boolean wasActive = isActive(shop);
         
         // 软删除：将status设置为0，表示已删除/下线
         // 不物理删除数据，保留历史记录
@@ -265,6 +411,56 @@ public class ShopServiceImpl implements ShopService {
         
         // 执行数据库更新操作，将status更新为0
         shopMapper.update(shop);
+
+        // 事务提交后失效缓存，并从关键词索引中移除
+        TransactionUtils.afterCommit(() -> {
+            shopCache.invalidate(id);
+            shopSearchIndex.remove(id);
+            if (wasActive) {
+                dashboardCounters.onShopActiveChanged(shop.getCreatedAt(), -1);
+            }
+        });
+    }
+
+    /**
+     * 商家是否为正常状态（status=1），仪表盘只统计正常商家。
+     */
+    private static boolean isActive(Shop shop) {
+        return shop.getStatus() != null && shop.getStatus() == 1;
+    }
+
+    /**
+     * 判断本次查询是否走内存关键词索引：只有带关键词且索引已就绪时才使用。
+     * 
+     * @param keyword 搜索关键词
+     * @return true 表示使用内存索引
+     */
+    private boolean useSearchIndex(String keyword) {
+        return keyword != null && !keyword.isEmpty() && shopSearchIndex.isReady();
+    }
+
+    /**
+     * 按ID批量取回商家，并按传入的ID顺序排列（IN 查询不保证顺序）。
+     * 
+     * @param ids 已排序的商家ID
+     * @return 与ID顺序一致的商家列表
+     */
+    private List<Shop> loadInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Shop> byId = new HashMap<>();
+        for (Shop s : shopMapper.findByIds(ids)) {
+            byId.put(s.getId(), s);
+        }
+        List<Shop> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Shop s = byId.get(id);
+            if (s != null) {
+                result.add(s);
+            }
+        }
+        return result;
     }
 }
 
@@ -3,40 +3,87 @@ package com.demo.dp.service.impl;
 import com.demo.dp.domain.entity.ShopTag;
 import com.demo.dp.domain.entity.Tag;
 import com.demo.dp.domain.entity.UserTag;
-import com.demo.dp.mapper.ShopMapper;
 import com.demo.dp.mapper.ShopTagMapper;
 import com.demo.dp.mapper.TagMapper;
 import com.demo.dp.mapper.UserMapper;
 import com.demo.dp.mapper.UserTagMapper;
+import com.demo.dp.service.ShopService;
 import com.demo.dp.service.TagService;
+import com.demo.dp.util.TransactionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 标签服务实现类：实现标签及其与用户/商家的绑定逻辑。
+ *
+ * <p>标签字典缓存：tag 表很小且几乎不变，首次使用时整表加载到内存（标签ID -> 标签），
+ * 之后查询商家/用户标签只需一次关联表查询，标签ID解析变为内存查找，
+ * 不再对每条关联记录调用一次 {@code tagMapper.findById}（N+1 查询）。
+ * 新建标签在事务提交后加入字典；字典中找不到的ID（如其他实例新建的标签）用一次
+ * {@code findByIds} 批量补齐。
  */
 @Service
 public class TagServiceImpl implements TagService {
 
+    private static final Logger log = LoggerFactory.getLogger(TagServiceImpl.class);
+
     private final TagMapper tagMapper;
     private final ShopTagMapper shopTagMapper;
     private final UserTagMapper userTagMapper;
-    private final ShopMapper shopMapper;
+    private final ShopService shopService;
     private final UserMapper userMapper;
 
+    /**
+     * 标签字典：标签ID -> 标签。首次使用时整表加载。
+     */
+    private final Map<Long, Tag> tagDictionary = new ConcurrentHashMap<>();
+
+    /**
+     * 标签字典是否已完成整表加载。
+     */
+    private volatile boolean dictionaryLoaded;
+
+    /**
+     * 负缓存：数据库中也不存在的标签ID（shop_tag/user_tag 中的悬空关联）-> 过期时间（System.nanoTime）。
+     * 过期前不再为这些ID查库，避免悬空关联让每次请求都多一次 findByIds。
+     */
+    private final Map<Long, Long> missingTagIds = new ConcurrentHashMap<>();
+
+    /**
+     * 负缓存条目上限，超过时整体清空（悬空关联通常很少，上限只用于防止异常数据撑大内存）。
+     */
+    private static final int MAX_MISSING_TAG_IDS = 10000;
+
+    private final long missingTtlNanos;
+
     public TagServiceImpl(TagMapper tagMapper,
                           ShopTagMapper shopTagMapper,
                           UserTagMapper userTagMapper,
-                          ShopMapper shopMapper,
-                          UserMapper userMapper) {
+                          ShopService shopService,
+                          UserMapper userMapper,
+                          @Value("${tag.missing-ttl-seconds:60}") long missingTtlSeconds) {
+        if (missingTtlSeconds <= 0) {
+            throw new IllegalArgumentException("tag.missing-ttl-seconds 必须大于0");
+        }
         this.tagMapper = tagMapper;
         this.shopTagMapper = shopTagMapper;
         this.userTagMapper = userTagMapper;
-        this.shopMapper = shopMapper;
+        this.shopService = shopService;
         this.userMapper = userMapper;
+        this.missingTtlNanos = TimeUnit.SECONDS.toNanos(missingTtlSeconds);
     }
 
     @Override
@@ -46,6 +93,11 @@ public class TagServiceImpl implements TagService {
         tag.setName(name);
         tag.setType(type);
         tagMapper.insert(tag);
+        // 事务提交后加入标签字典
+        TransactionUtils.afterCommit(() -> {
+            tagDictionary.put(tag.getId(), tag);
+            missingTagIds.remove(tag.getId());
+        });
         return tag;
     }
 
@@ -62,8 +114,8 @@ public class TagServiceImpl implements TagService {
     @Override
     @Transactional
     public void assignTagsToShop(Long shopId, List<Long> tagIds) {
-        // 校验商家是否存在
-        if (shopMapper.findById(shopId) == null) {
+        // 校验商家是否存在（走商家详情缓存，不必每次访问数据库）
+        if (shopService.getById(shopId) == null) {
             throw new RuntimeException("商家不存在，ID: " + shopId);
         }
         // 清空原有绑定
@@ -86,14 +138,11 @@ public class TagServiceImpl implements TagService {
     @Override
     public List<Tag> listTagsOfShop(Long shopId) {
         List<ShopTag> links = shopTagMapper.findByShopId(shopId);
-        List<Tag> result = new ArrayList<>();
+        List<Long> tagIds = new ArrayList<>(links.size());
         for (ShopTag link : links) {
-            Tag tag = tagMapper.findById(link.getTagId());
-            if (tag != null) {
-                result.add(tag);
-            }
+            tagIds.add(link.getTagId());
         }
-        return result;
+        return resolveTags(tagIds);
     }
 
     @Override
@@ -123,15 +172,135 @@ public class TagServiceImpl implements TagService {
     @Override
     public List<Tag> listTagsOfUser(Long userId) {
         List<UserTag> links = userTagMapper.findByUserId(userId);
-        List<Tag> result = new ArrayList<>();
+        List<Long> tagIds = new ArrayList<>(links.size());
         for (UserTag link : links) {
-            Tag tag = tagMapper.findById(link.getTagId());
+            tagIds.add(link.getTagId());
+        }
+        return resolveTags(tagIds);
+    }
+
+    @Override
+    public Map<Long, List<Tag>> listTagsOfShops(Collection<Long> shopIds) {
+        Map<Long, List<Long>> tagIdsByShop = new LinkedHashMap<>();
+        if (shopIds == null || shopIds.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        for (ShopTag link : shopTagMapper.findByShopIds(shopIds)) {
+            tagIdsByShop.computeIfAbsent(link.getShopId(), k -> new ArrayList<>()).add(link.getTagId());
+        }
+        return resolveTagGroups(tagIdsByShop);
+    }
+
+    @Override
+    public Map<Long, List<Tag>> listTagsOfUsers(Collection<Long> userIds) {
+        Map<Long, List<Long>> tagIdsByUser = new LinkedHashMap<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        for (UserTag link : userTagMapper.findByUserIds(userIds)) {
+            tagIdsByUser.computeIfAbsent(link.getUserId(), k -> new ArrayList<>()).add(link.getTagId());
+        }
+        return resolveTagGroups(tagIdsByUser);
+    }
+
+    /**
+     * 按分组解析标签ID：先汇总所有ID统一解析一次（字典缺失的ID只查一次库），再按分组取回。
+     *
+     * @param tagIdsByOwner 所属ID -> 标签ID列表
+     * @return 所属ID -> 标签列表
+     */
+    private Map<Long, List<Tag>> resolveTagGroups(Map<Long, List<Long>> tagIdsByOwner) {
+        Map<Long, List<Tag>> result = new LinkedHashMap<>();
+        if (tagIdsByOwner.isEmpty()) {
+            return result;
+        }
+        List<Long> allIds = new ArrayList<>();
+        tagIdsByOwner.values().forEach(allIds::addAll);
+        resolveTags(allIds);
+        for (Map.Entry<Long, List<Long>> entry : tagIdsByOwner.entrySet()) {
+            result.put(entry.getKey(), resolveTags(entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * 将标签ID列表解析为标签列表，保持传入顺序；不存在的标签ID会被忽略。
+     *
+     * <p>优先从标签字典中查找，字典中缺失的ID用一次批量查询补齐并写回字典。
+     * 数据库中也不存在的ID记入负缓存（tag.missing-ttl-seconds 内不再查库）并打印一次告警。
+     *
+     * @param tagIds 标签ID列表
+     * @return 标签列表
+     */
+    private List<Tag> resolveTags(List<Long> tagIds) {
+        List<Tag> result = new ArrayList<>(tagIds.size());
+        if (tagIds.isEmpty()) {
+            return result;
+        }
+        ensureDictionaryLoaded();
+        long now = System.nanoTime();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : tagIds) {
+            if (id != null && !tagDictionary.containsKey(id) && !isKnownMissing(id, now)) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Set<Long> notFound = new HashSet<>(missing);
+            for (Tag tag : tagMapper.findByIds(missing)) {
+                tagDictionary.put(tag.getId(), tag);
+                notFound.remove(tag.getId());
+            }
+            if (!notFound.isEmpty()) {
+                if (missingTagIds.size() + notFound.size() > MAX_MISSING_TAG_IDS) {
+                    missingTagIds.clear();
+                }
+                for (Long id : notFound) {
+                    missingTagIds.put(id, now + missingTtlNanos);
+                }
+                log.warn("标签关联指向不存在的标签，已跳过, tagIds={}", notFound);
+            }
+        }
+        for (Long id : tagIds) {
+            Tag tag = id == null ? null : tagDictionary.get(id);
             if (tag != null) {
                 result.add(tag);
             }
         }
         return result;
     }
+
+    /**
+     * 是否为负缓存中未过期的不存在ID；已过期的条目顺便删除。
+     */
+    private boolean isKnownMissing(Long id, long now) {
+        Long expiresAt = missingTagIds.get(id);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (now - expiresAt < 0) {
+            return true;
+        }
+        missingTagIds.remove(id, expiresAt);
+        return false;
+    }
+
+    /**
+     * 首次使用时整表加载标签字典。
+     */
+    private void ensureDictionaryLoaded() {
+        if (dictionaryLoaded) {
+            return;
+        }
+        synchronized (tagDictionary) {
+            if (!dictionaryLoaded) {
+                for (Tag tag : tagMapper.findAll()) {
+                    tagDictionary.put(tag.getId(), tag);
+                }
+                dictionaryLoaded = true;
+            }
+        }
+    }
 }
 
 
@@ -0,0 +1,146 @@
+package com.demo.dp.stats;
+
+import com.demo.dp.domain.entity.AiCallLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AI 调用耗时统计：按"调用类型/提供方"分别维护滑动窗口耗时直方图（{@link LatencyHistogram}），
+ * 计算最近 1/5/15 分钟（ai.latency.windows-minutes）的 p50/p95/p99/max，用于调整超时配置。
+ *
+ * <p>记录规则：
+ * <ul>
+ *   <li>由 AiCallLogWriter 在日志提交时记录（早于写库，队列满被丢弃的日志同样计入）</li>
+ *   <li>成功调用按实际提供方分组；失败调用统一记入提供方 {@value #PROVIDER_FAILED}，超时的耗时会集中在这里</li>
+ *   <li>流式调用（日志带首 token 耗时）的总耗时取决于输出长度，且超时配置与非流式不同，
+ *       记入单独的类型"原类型{@value #STREAM_SUFFIX}"（如 generate-stream），不与非流式调用混在一起；
+ *       在首个 token 之前失败的流式调用没有首 token 耗时，仍记入原类型的失败分组</li>
+ *   <li>命中响应缓存、合并请求没有真正调用大模型，不计入</li>
+ *   <li>新的调用类型、提供方第一次出现时自动创建直方图，无需配置</li>
+ * </ul>
+ *
+ * <p>仪表盘展示的是最近 dashboard-window-minutes 分钟内所有成功调用合并后的分位数
+ * （各直方图分桶规则相同，按桶相加即为精确合并）。
+ *
+ * @author System
+ * @version 1.0
+ */
+@Component
+public class AiLatencyRegistry {
+
+    /** 失败调用的提供方分组名 */
+    public static final String PROVIDER_FAILED = "failed";
+    private static final String PROVIDER_UNKNOWN = "unknown";
+    private static final String TYPE_UNKNOWN = "unknown";
+    /** 流式调用的类型后缀 */
+    static final String STREAM_SUFFIX = "-stream";
+
+    private final long slotMs;
+    private final int slots;
+    private final List<Integer> windowsMinutes;
+    private final long dashboardWindowMs;
+
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * @param slotSeconds            直方图时间片长度（秒），决定窗口边界的精度
+     * @param windowsMinutes         对外提供的窗口（分钟）
+     * @param dashboardWindowMinutes 仪表盘展示所用的窗口（分钟）
+     */
+    public AiLatencyRegistry(@Value("${ai.latency.slot-seconds:10}") int slotSeconds,
+                             @Value("${ai.latency.windows-minutes:1,5,15}") List<Integer> windowsMinutes,
+                             @Value("${ai.latency.dashboard-window-minutes:5}") int dashboardWindowMinutes) {
+        if (slotSeconds <= 0 || dashboardWindowMinutes <= 0 || windowsMinutes.isEmpty()
+                || windowsMinutes.stream().anyMatch(m -> m == null || m <= 0)) {
+            throw new IllegalArgumentException("ai.latency 的 slot-seconds、windows-minutes、dashboard-window-minutes 必须大于0");
+        }
+        this.slotMs = TimeUnit.SECONDS.toMillis(slotSeconds);
+        this.windowsMinutes = List.copyOf(windowsMinutes);
+        this.dashboardWindowMs = TimeUnit.MINUTES.toMillis(dashboardWindowMinutes);
+        long longestMs = Math.max(dashboardWindowMs,
+                TimeUnit.MINUTES.toMillis(this.windowsMinutes.stream().max(Integer::compare).orElse(1)));
+        // 多保留一个时间片：当前时间片尚未结束，窗口要覆盖完整的 longestMs
+        this.slots = (int) ((longestMs + slotMs - 1) / slotMs) + 1;
+    }
+
+    /**
+     * 记录一次 AI 调用的耗时。没有耗时、命中缓存、合并请求的记录忽略。
+     *
+     * @param row 调用日志
+     */
+    public void record(AiCallLog row) {
+        if (row == null || row.getLatencyMs() == null) {
+            return;
+        }
+        int status = row.getStatus() != null ? row.getStatus() : AiCallLog.STATUS_SUCCESS;
+        String provider;
+        if (status == AiCallLog.STATUS_FAILED) {
+            provider = PROVIDER_FAILED;
+        } else if (status == AiCallLog.STATUS_SUCCESS) {
+            provider = row.getProvider() != null ? row.getProvider() : PROVIDER_UNKNOWN;
+        } else {
+            return;
+        }
+        String type = row.getType() != null ? row.getType() : TYPE_UNKNOWN;
+        if (row.getFirstTokenMs() != null) {
+            type += STREAM_SUFFIX;
+        }
+        histograms.computeIfAbsent(type + "/" + provider, k -> new LatencyHistogram(slotMs, slots))
+                .record(row.getLatencyMs());
+    }
+
+    /**
+     * 仪表盘窗口内所有成功调用合并后的耗时快照。
+     *
+     * @return 快照
+     */
+    public LatencyHistogram.Snapshot dashboardSnapshot() {
+        return merged(dashboardWindowMs);
+    }
+
+    /**
+     * 供监控使用的统计信息：每个窗口下各"类型/提供方"的 count、p50、p95、p99、max（毫秒），
+     * 以及所有成功调用合并后的 all。
+     *
+     * @return 窗口（如 "5m"）-> 分组 -> 统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> windows = new LinkedHashMap<>();
+        for (int minutes : windowsMinutes) {
+            long windowMs = TimeUnit.MINUTES.toMillis(minutes);
+            Map<String, Object> groups = new TreeMap<>();
+            for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+                groups.put(entry.getKey(), entry.getValue().snapshot(windowMs).summary());
+            }
+            groups.put("all", merged(windowMs).summary());
+            windows.put(minutes + "m", groups);
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("slotSeconds", TimeUnit.MILLISECONDS.toSeconds(slotMs));
+        stats.put("groups", new ArrayList<>(new TreeMap<>(histograms).keySet()));
+        stats.put("windows", windows);
+        return stats;
+    }
+
+    /**
+     * 合并窗口内各成功调用直方图的计数。
+     */
+    private LatencyHistogram.Snapshot merged(long windowMs) {
+        LatencyHistogram.Snapshot merged = new LatencyHistogram.Snapshot();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            if (entry.getKey().endsWith("/" + PROVIDER_FAILED)) {
+                continue;
+            }
+            merged.add(entry.getValue().snapshot(windowMs));
+        }
+        return merged;
+    }
+}
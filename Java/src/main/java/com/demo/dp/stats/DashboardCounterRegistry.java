@@ -0,0 +1,451 @@
+package com.demo.dp.stats;
+
+import com.demo.dp.domain.entity.AiCallLog;
+import com.demo.dp.mapper.AiCallLogMapper;
+import com.demo.dp.mapper.OrderRecordMapper;
+import com.demo.dp.mapper.ReviewMapper;
+import com.demo.dp.mapper.ShopMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 仪表盘计数器：在内存中增量维护仪表盘上的各项总数与今日新增数，代替每次请求执行多条 COUNT(*)。
+ *
+ * <p>维护方式：
+ * <ul>
+ *   <li>应用启动完成后由后台线程从数据库统计一次作为初始值（seed），不阻塞启动，也不在请求路径上执行；
+ *       有查询失败或超时时每 seed-retry-ms 重试，直到初始化完成。完成前 {@link #isReady()} 为 false</li>
+ *   <li>商家、点评、订单的新增/删除在事务提交后调用 on* 方法增减计数；AI 调用日志在批量写入成功后计数</li>
+ *   <li>计数器为 LongAdder（内部按线程分段累加），高并发写入时不会在同一个原子变量上竞争</li>
+ *   <li>今日新增数按自然日分组，跨天后第一次读写时切换到新的一天并从 0 开始</li>
+ *   <li>定时（dashboard.counters.reconcile-interval-ms）用数据库统计结果校正，纠正直接改库、
+ *       多实例部署（其他实例的写入不会通知本实例）等造成的偏差，偏差量记录在 {@link #stats()} 中</li>
+ * </ul>
+ *
+ * <p>初始化与校正需要执行 8 条相互独立的 COUNT 查询。dashboard.counters.parallel 为 true（默认）时
+ * 同时提交到 ioExecutor 并行执行，总耗时接近最慢的一条而不是所有查询之和。超时分两层：
+ * <ul>
+ *   <li>每条查询在 Mapper XML 中设置了语句超时（timeout="3"，秒），由驱动在数据库端取消，
+ *       慢查询不会在放弃等待后继续占用 ioExecutor 线程和数据库连接</li>
+ *   <li>校正线程等待结果的截止时间（query-timeout-ms）由本轮所有查询共用，从全部查询提交后开始计时；
+ *       并行执行时各查询几乎同时开始，共用截止时间与逐条计时差别不大</li>
+ * </ul>
+ * 超时或失败的项保留原内存值（初始化前即为 0），不影响其他项。
+ * 每条查询的耗时记录在 {@link #stats()} 的 queryLatencyMs 中（超时或失败记为 -1）。
+ *
+ * <p>on* 方法同时转发给 {@link StatRollupBuffer}，按小时累计趋势汇总的增量。
+ *
+ * <p>校正时以"统计前的内存值"为基准加上差值，而不是直接覆盖，统计期间并发发生的增减不会丢失；
+ * 统计期间提交的写入可能被计入两次，偏差在下一次校正时消除。
+ *
+ * @author System
+ * @version 1.0
+ */
+@Component
+public class DashboardCounterRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardCounterRegistry.class);
+
+    /**
+     * 计数项。
+     */
+    public enum Counter {
+        /** 正常状态的商家数 */
+        SHOPS,
+        /** 正常状态的点评数 */
+        REVIEWS,
+        /** 订单数 */
+        ORDERS,
+        /** AI 调用总次数 */
+        AI_CALLS,
+        /** 成功返回结果的 AI 调用次数（调用成功 + 命中缓存 + 合并请求） */
+        AI_CALLS_SUCCEEDED,
+        /** 今日新增的正常状态商家数 */
+        TODAY_SHOPS,
+        /** 今日新增的正常状态点评数 */
+        TODAY_REVIEWS,
+        /** 今日新增订单数 */
+        TODAY_ORDERS
+    }
+
+    private final ShopMapper shopMapper;
+    private final ReviewMapper reviewMapper;
+    private final OrderRecordMapper orderRecordMapper;
+    private final AiCallLogMapper aiCallLogMapper;
+    private final StatRollupBuffer statRollupBuffer;
+    private final Executor queryExecutor;
+    private final long queryTimeoutMs;
+    private final long seedRetryMs;
+
+    private final Map<Counter, LongAdder> totals = new EnumMap<>(Counter.class);
+    private final Object dayLock = new Object();
+    private volatile Day today = new Day(LocalDate.now());
+
+    private volatile boolean ready;
+    private volatile LocalDateTime lastReconciledAt;
+    private volatile Map<Counter, Long> lastDrift = Map.of();
+    private volatile Map<Counter, Long> lastQueryLatencyMs = Map.of();
+    private volatile long lastReconcileCostMs;
+    private final LongAdder reconciles = new LongAdder();
+    private volatile Thread seeder;
+
+    /**
+     * @param shopMapper        商家 Mapper
+     * @param reviewMapper      点评 Mapper
+     * @param orderRecordMapper 订单 Mapper
+     * @param aiCallLogMapper   AI 调用日志 Mapper
+     * @param statRollupBuffer  趋势汇总增量缓冲，on* 方法同时转发给它
+     * @param ioExecutor        并行执行统计查询的线程池
+     * @param parallel          是否并行执行统计查询；false 时在校正线程中依次执行
+     * @param queryTimeoutMs    等待一轮统计查询结果的共用截止时间（毫秒），单条语句的超时见 Mapper XML
+     * @param seedRetryMs       初始化未完成时的重试间隔（毫秒）
+     */
+    public DashboardCounterRegistry(ShopMapper shopMapper,
+                                    ReviewMapper reviewMapper,
+                                    OrderRecordMapper orderRecordMapper,
+                                    AiCallLogMapper aiCallLogMapper,
+                                    StatRollupBuffer statRollupBuffer,
+                                    @Qualifier("ioExecutor") Executor ioExecutor,
+                                    @Value("${dashboard.counters.parallel:true}") boolean parallel,
+                                    @Value("${dashboard.counters.query-timeout-ms:3000}") long queryTimeoutMs,
+                                    @Value("${dashboard.counters.seed-retry-ms:10000}") long seedRetryMs) {
+        if (seedRetryMs <= 0) {
+            throw new IllegalArgumentException("dashboard.counters.seed-retry-ms 必须大于0");
+        }
+        this.shopMapper = shopMapper;
+        this.reviewMapper = reviewMapper;
+        this.orderRecordMapper = orderRecordMapper;
+        this.aiCallLogMapper = aiCallLogMapper;
+        this.statRollupBuffer = statRollupBuffer;
+        this.queryExecutor = parallel ? ioExecutor : Runnable::run;
+        this.queryTimeoutMs = queryTimeoutMs;
+        this.seedRetryMs = seedRetryMs;
+        for (Counter counter : List.of(Counter.SHOPS, Counter.REVIEWS, Counter.ORDERS,
+                Counter.AI_CALLS, Counter.AI_CALLS_SUCCEEDED)) {
+            totals.put(counter, new LongAdder());
+        }
+    }
+
+    /**
+     * 应用启动完成后在后台线程中从数据库统计初始值。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        Thread t = new Thread(this::seed, "dashboard-counters-seed");
+        t.setDaemon(true);
+        seeder = t;
+        t.start();
+    }
+
+    /**
+     * 应用关闭时停止仍在重试的初始化线程。
+     */
+    @PreDestroy
+    public void shutdown() {
+        Thread t = seeder;
+        if (t != null) {
+            t.interrupt();
+        }
+    }
+
+    /**
+     * 定时用数据库统计结果校正计数。
+     */
+    @Scheduled(initialDelayString = "${dashboard.counters.reconcile-interval-ms:300000}",
+            fixedDelayString = "${dashboard.counters.reconcile-interval-ms:300000}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    /**
+     * 从数据库统计各项计数并校正内存值。某一项统计失败或超时时保留该项的内存值。
+     */
+    public synchronized void reconcile() {
+        long start = System.currentTimeMillis();
+        Day day = currentDay();
+        LocalDateTime dayStart = LocalDateTime.of(day.date, LocalTime.MIN);
+        LocalDateTime dayEnd = LocalDateTime.of(day.date, LocalTime.MAX);
+        Map<Counter, LongAdder> targets = new EnumMap<>(totals);
+        targets.put(Counter.TODAY_SHOPS, day.shops);
+        targets.put(Counter.TODAY_REVIEWS, day.reviews);
+        targets.put(Counter.TODAY_ORDERS, day.orders);
+
+        Map<Counter, CompletableFuture<Sample>> futures = new EnumMap<>(Counter.class);
+        futures.put(Counter.SHOPS, query(targets.get(Counter.SHOPS),
+                shopMapper::countActive));
+        futures.put(Counter.REVIEWS, query(targets.get(Counter.REVIEWS), reviewMapper::countAll));
+        futures.put(Counter.ORDERS, query(targets.get(Counter.ORDERS), orderRecordMapper::countAll));
+        futures.put(Counter.AI_CALLS, query(targets.get(Counter.AI_CALLS), aiCallLogMapper::countAll));
+        futures.put(Counter.AI_CALLS_SUCCEEDED, query(targets.get(Counter.AI_CALLS_SUCCEEDED),
+                aiCallLogMapper::countSucceeded));
+        futures.put(Counter.TODAY_SHOPS, query(day.shops, () -> shopMapper.countByDateRange(dayStart, dayEnd)));
+        futures.put(Counter.TODAY_REVIEWS, query(day.reviews, () -> reviewMapper.countByDateRange(dayStart, dayEnd)));
+        futures.put(Counter.TODAY_ORDERS, query(day.orders, () -> orderRecordMapper.countByDateRange(dayStart, dayEnd)));
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(queryTimeoutMs);
+        Map<Counter, Long> drift = new EnumMap<>(Counter.class);
+        Map<Counter, Long> latencies = new EnumMap<>(Counter.class);
+        boolean complete = true;
+        for (Map.Entry<Counter, CompletableFuture<Sample>> entry : futures.entrySet()) {
+            Counter counter = entry.getKey();
+            try {
+                Sample sample = entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                // 以查询开始前的内存值为基准加上差值，统计期间并发的增减不会被覆盖
+                long diff = sample.actual - sample.before;
+                if (diff != 0) {
+                    targets.get(counter).add(diff);
+                }
+                drift.put(counter, diff);
+                latencies.put(counter, sample.latencyMs);
+            } catch (TimeoutException e) {
+                // cancel 不会中断已在执行的 JDBC 语句，语句由 Mapper 中的 timeout 在数据库端取消
+                entry.getValue().cancel(false);
+                latencies.put(counter, -1L);
+                complete = false;
+                log.warn("仪表盘计数器统计超时, counter={}, timeoutMs={}", counter, queryTimeoutMs);
+            } catch (ExecutionException e) {
+                latencies.put(counter, -1L);
+                complete = false;
+                log.error("仪表盘计数器统计失败, counter={}", counter, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                latencies.put(counter, -1L);
+                complete = false;
+            }
+        }
+        lastDrift = drift;
+        lastQueryLatencyMs = latencies;
+        lastReconcileCostMs = System.currentTimeMillis() - start;
+        lastReconciledAt = LocalDateTime.now();
+        reconciles.increment();
+        if (!ready && complete) {
+            ready = true;
+            log.info("仪表盘计数器初始化完成, values={}, costMs={}, queryLatencyMs={}",
+                    snapshot(), lastReconcileCostMs, latencies);
+        } else if (drift.values().stream().anyMatch(d -> d != 0)) {
+            log.info("仪表盘计数器校正, drift={}, costMs={}", drift, lastReconcileCostMs);
+        }
+    }
+
+    /**
+     * 是否已从数据库完成初始化。完成前内存中只有启动后的增量，不应作为总数展示。
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 当前各项计数。
+     *
+     * @return 计数项 -> 值
+     */
+    public Map<Counter, Long> snapshot() {
+        Day day = currentDay();
+        Map<Counter, Long> values = new EnumMap<>(Counter.class);
+        for (Map.Entry<Counter, LongAdder> entry : totals.entrySet()) {
+            values.put(entry.getKey(), Math.max(0, entry.getValue().sum()));
+        }
+        values.put(Counter.TODAY_SHOPS, Math.max(0, day.shops.sum()));
+        values.put(Counter.TODAY_REVIEWS, Math.max(0, day.reviews.sum()));
+        values.put(Counter.TODAY_ORDERS, Math.max(0, day.orders.sum()));
+        return values;
+    }
+
+    /**
+     * 商家正常状态发生变化（新建正常商家、下线、删除、重新上线）。
+     *
+     * @param createdAt 商家创建时间，用于判断是否计入今日新增
+     * @param delta     +1 表示变为正常状态，-1 表示不再是正常状态
+     */
+    public void onShopActiveChanged(LocalDateTime createdAt, int delta) {
+        totals.get(Counter.SHOPS).add(delta);
+        Day day = dayOf(createdAt);
+        if (day != null) {
+            day.shops.add(delta);
+        }
+        statRollupBuffer.onShopActiveChanged(createdAt, delta);
+    }
+
+    /**
+     * 新增一条正常状态的点评。
+     *
+     * @param createdAt 点评创建时间
+     */
+    public void onReviewCreated(LocalDateTime createdAt) {
+        totals.get(Counter.REVIEWS).increment();
+        Day day = dayOf(createdAt);
+        if (day != null) {
+            day.reviews.increment();
+        }
+        statRollupBuffer.onReviewCreated(createdAt);
+    }
+
+    /**
+     * 新增一条订单。
+     *
+     * @param createdAt 订单创建时间
+     */
+    public void onOrderCreated(LocalDateTime createdAt) {
+        totals.get(Counter.ORDERS).increment();
+        Day day = dayOf(createdAt);
+        if (day != null) {
+            day.orders.increment();
+        }
+        statRollupBuffer.onOrderCreated(createdAt);
+    }
+
+    /**
+     * 一批 AI 调用日志已写入数据库。
+     *
+     * @param rows 已写入的日志
+     */
+    public void onAiCallsLogged(List<AiCallLog> rows) {
+        long succeeded = 0;
+        for (AiCallLog row : rows) {
+            Integer status = row.getStatus();
+            // 与 countSucceeded 一致：status >= 1，未设置状态时数据库默认写入 1
+            if (status == null || status >= AiCallLog.STATUS_SUCCESS) {
+                succeeded++;
+            }
+        }
+        totals.get(Counter.AI_CALLS).add(rows.size());
+        totals.get(Counter.AI_CALLS_SUCCEEDED).add(succeeded);
+        statRollupBuffer.onAiCallsLogged(rows);
+    }
+
+    /**
+     * 供监控使用的统计信息：ready、values、lastReconciledAt、reconciles、lastDrift（最近一次校正时数据库与内存的差值）、
+     * lastReconcileCostMs（最近一次校正总耗时）、queryLatencyMs（最近一次各条查询的耗时，超时或失败为 -1）。
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("ready", ready);
+        stats.put("values", snapshot());
+        stats.put("lastReconciledAt", lastReconciledAt);
+        stats.put("reconciles", reconciles.sum());
+        stats.put("lastDrift", lastDrift);
+        stats.put("lastReconcileCostMs", lastReconcileCostMs);
+        stats.put("queryLatencyMs", lastQueryLatencyMs);
+        return stats;
+    }
+
+    /**
+     * 初始化线程：统计一次，有查询失败或超时则间隔 seedRetryMs 重试，直到初始化完成或应用关闭。
+     */
+    private void seed() {
+        while (!ready && !Thread.currentThread().isInterrupted()) {
+            try {
+                reconcile();
+            } catch (Exception e) {
+                log.error("仪表盘计数器初始化失败", e);
+            }
+            if (ready) {
+                break;
+            }
+            log.warn("仪表盘计数器初始化未完成, {}ms 后重试", seedRetryMs);
+            try {
+                Thread.sleep(seedRetryMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+        seeder = null;
+    }
+
+    /**
+     * 提交一条统计查询：在执行线程中先记下当前内存值，再执行查询并计时。
+     */
+    private CompletableFuture<Sample> query(LongAdder adder, CountQuery query) {
+        return CompletableFuture.supplyAsync(() -> {
+            long before = adder.sum();
+            long begin = System.nanoTime();
+            long actual = query.count();
+            return new Sample(before, actual, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+        }, queryExecutor);
+    }
+
+    /**
+     * 创建时间属于今天时返回今天的计数，否则返回 null（如跨零点提交的写入）。
+     */
+    private Day dayOf(LocalDateTime createdAt) {
+        Day day = currentDay();
+        if (createdAt == null || !createdAt.toLocalDate().equals(day.date)) {
+            return null;
+        }
+        return day;
+    }
+
+    /**
+     * 当前自然日的计数，跨天后切换到新的一天。
+     */
+    private Day currentDay() {
+        Day day = today;
+        LocalDate now = LocalDate.now();
+        if (day.date.equals(now)) {
+            return day;
+        }
+        synchronized (dayLock) {
+            if (!today.date.equals(now)) {
+                today = new Day(now);
+            }
+            return today;
+        }
+    }
+
+    @FunctionalInterface
+    private interface CountQuery {
+        long count();
+    }
+
+    /**
+     * 一条统计查询的结果：查询前的内存值、数据库值、查询耗时。
+     */
+    private static final class Sample {
+        private final long before;
+        private final long actual;
+        private final long latencyMs;
+
+        private Sample(long before, long actual, long latencyMs) {
+            this.before = before;
+            this.actual = actual;
+            this.latencyMs = latencyMs;
+        }
+    }
+
+    /**
+     * 某一自然日的新增计数。
+     */
+    private static final class Day {
+        private final LocalDate date;
+        private final LongAdder shops = new LongAdder();
+        private final LongAdder reviews = new LongAdder();
+        private final LongAdder orders = new LongAdder();
+
+        private Day(LocalDate date) {
+            this.date = date;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.demo.dp.stats;
+
+import com.demo.dp.dto.DashboardStats;
+import com.demo.dp.service.DashboardService;
+import com.demo.dp.util.SseEventQueue;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 仪表盘统计推送：按固定间隔计算一次 {@link DashboardStats}，把变化的字段通过 SSE 推送给所有订阅者。
+ *
+ * <p>工作方式：
+ * <ul>
+ *   <li>每个 tick（dashboard.push.interval-ms，默认 1 秒）在专用线程中计算一次统计（读取内存计数器），
+ *       与上一次推送的值逐字段比较，只把变化的字段组成 delta 事件，序列化一次后发给所有订阅者，
+ *       订阅者数量只影响写出次数，不影响统计的计算次数</li>
+ *   <li>新订阅者先收到一条完整的 snapshot 事件，之后只收到 delta 事件；断线重连后重新收到 snapshot</li>
+ *   <li>没有订阅者时 tick 直接返回；数据没有变化时每 heartbeat-interval-ms 发送一条注释行保活，
+ *       及时发现已断开的连接</li>
+ *   <li>客户端断开或连接超时（timeout-ms）时移除订阅者；订阅者数量上限为 max-subscribers，
+ *       snapshot 尚未发出的连接同样占用名额</li>
+ * </ul>
+ *
+ * <p>统计在专用线程中计算，事件写出交给每个订阅者自己的 {@link SseEventQueue}（在 sseExecutor 上执行），
+ * 推送线程只把事件放入队列，不会被某个写出缓慢的客户端阻塞。某个订阅者积压的事件超过 queue-capacity
+ * （客户端跟不上）时断开该连接，客户端重连后重新收到 snapshot。
+ *
+ * @author System
+ * @version 1.0
+ */
+@Component
+public class DashboardStatsBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardStatsBroadcaster.class);
+
+    private static final TypeReference<LinkedHashMap<String, Object>> FIELDS_TYPE = new TypeReference<>() {
+    };
+
+    private final DashboardService dashboardService;
+    private final ObjectMapper objectMapper;
+    private final long intervalMs;
+    private final long heartbeatIntervalMs;
+    private final long timeoutMs;
+    private final int maxSubscribers;
+    private final int queueCapacity;
+    private final Executor sseExecutor;
+
+    /** 已发出 snapshot、接收 delta 的订阅者 */
+    private final Set<SseEventQueue> subscribers = new CopyOnWriteArraySet<>();
+    /** 未关闭的连接数，包括 snapshot 尚未发出的连接，用于订阅者上限 */
+    private final AtomicInteger connections = new AtomicInteger();
+    private ScheduledExecutorService scheduler;
+
+    /** 最近一次推送的完整字段值，只在推送线程中读写 */
+    private volatile Map<String, Object> lastSent;
+    private long lastSentAtMs;
+
+    private final LongAdder ticks = new LongAdder();
+    private final LongAdder deltas = new LongAdder();
+    private final LongAdder slowDropped = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile long lastTickCostMs;
+    private volatile LocalDateTime lastDeltaAt;
+
+    /**
+     * @param dashboardService    仪表盘统计服务
+     * @param objectMapper        JSON 序列化
+     * @param intervalMs          推送间隔（毫秒）
+     * @param heartbeatIntervalMs 没有变化时的保活间隔（毫秒）
+     * @param timeoutMs           单个 SSE 连接的最长保持时间（毫秒），到期后客户端重连
+     * @param maxSubscribers      同时订阅的连接数上限
+     * @param queueCapacity       每个订阅者最多积压的事件数，超过时断开该连接
+     * @param sseExecutor         SSE 事件写出线程池
+     */
+    public DashboardStatsBroadcaster(DashboardService dashboardService,
+                                     ObjectMapper objectMapper,
+                                     @Value("${dashboard.push.interval-ms:1000}") long intervalMs,
+                                     @Value("${dashboard.push.heartbeat-interval-ms:15000}") long heartbeatIntervalMs,
+                                     @Value("${dashboard.push.timeout-ms:1800000}") long timeoutMs,
+                                     @Value("${dashboard.push.max-subscribers:100}") int maxSubscribers,
+                                     @Value("${dashboard.push.queue-capacity:30}") int queueCapacity,
+                                     @Qualifier("sseExecutor") Executor sseExecutor) {
+        if (intervalMs <= 0 || heartbeatIntervalMs <= 0 || timeoutMs <= 0 || maxSubscribers <= 0
+                || queueCapacity <= 0) {
+            throw new IllegalArgumentException("dashboard.push 的 interval-ms、heartbeat-interval-ms、timeout-ms、"
+                    + "max-subscribers、queue-capacity 必须大于0");
+        }
+        this.dashboardService = dashboardService;
+        this.objectMapper = objectMapper;
+        this.intervalMs = intervalMs;
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+        this.timeoutMs = timeoutMs;
+        this.maxSubscribers = maxSubscribers;
+        this.queueCapacity = queueCapacity;
+        this.sseExecutor = sseExecutor;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "dashboard-push");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::tick, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        for (SseEventQueue events : subscribers) {
+            events.complete(null);
+        }
+        subscribers.clear();
+    }
+
+    /**
+     * 新增一个订阅者。snapshot 事件由推送线程放入该连接的发送队列，之后才加入订阅者，保证先收到 snapshot 再收到 delta。
+     *
+     * @return SSE 连接；连接数（含 snapshot 尚未发出的）已达上限时返回 null
+     */
+    public SseEmitter subscribe() {
+        if (connections.incrementAndGet() > maxSubscribers) {
+            connections.decrementAndGet();
+            rejected.increment();
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        SseEventQueue events = new SseEventQueue(emitter, sseExecutor, queueCapacity, connections::decrementAndGet);
+        scheduler.execute(() -> sendSnapshot(events));
+        return emitter;
+    }
+
+    /**
+     * 供监控使用的统计信息：subscribers、pending（snapshot 尚未发出的连接）、ticks（有订阅者时的计算次数）、
+     * deltas（推送的 delta 事件数）、slowDropped（积压超过 queue-capacity 被断开的连接）、
+     * rejected（超过上限被拒绝的订阅）、lastTickCostMs、lastDeltaAt。
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        int active = subscribers.size();
+        stats.put("subscribers", active);
+        stats.put("pending", Math.max(0, connections.get() - active));
+        stats.put("maxSubscribers", maxSubscribers);
+        stats.put("intervalMs", intervalMs);
+        stats.put("ticks", ticks.sum());
+        stats.put("deltas", deltas.sum());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("slowDropped", slowDropped.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("lastTickCostMs", lastTickCostMs);
+        stats.put("lastDeltaAt", lastDeltaAt);
+        return stats;
+    }
+
+    /**
+     * 计算一次统计，把变化的字段推送给所有订阅者。
+     */
+    private void tick() {
+        subscribers.removeIf(SseEventQueue::isClosed);
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            Map<String, Object> current = currentFields();
+            Map<String, Object> previous = lastSent;
+            Map<String, Object> delta = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> entry : current.entrySet()) {
+                if (previous == null || !Objects.equals(previous.get(entry.getKey()), entry.getValue())) {
+                    delta.put(entry.getKey(), entry.getValue());
+                }
+            }
+            lastSent = current;
+            if (!delta.isEmpty()) {
+                String json = objectMapper.writeValueAsString(delta);
+                broadcast(SseEmitter.event().name("delta").data(json, MediaType.APPLICATION_JSON));
+                deltas.increment();
+                lastDeltaAt = LocalDateTime.now();
+                lastSentAtMs = start;
+            } else if (start - lastSentAtMs >= heartbeatIntervalMs) {
+                broadcast(SseEmitter.event().comment("ping"));
+                lastSentAtMs = start;
+            }
+            ticks.increment();
+        } catch (Exception e) {
+            log.error("仪表盘统计推送失败", e);
+        } finally {
+            lastTickCostMs = System.currentTimeMillis() - start;
+        }
+    }
+
+    /**
+     * 把完整的最近一次推送值（还没有推送过时先计算一次）放入新订阅者的发送队列，之后加入订阅者。
+     */
+    private void sendSnapshot(SseEventQueue events) {
+        try {
+            Map<String, Object> snapshot = lastSent;
+            if (snapshot == null) {
+                snapshot = currentFields();
+                lastSent = snapshot;
+            }
+            if (events.offer(SseEmitter.event().name("snapshot")
+                    .data(objectMapper.writeValueAsString(snapshot), MediaType.APPLICATION_JSON))) {
+                subscribers.add(events);
+            }
+        } catch (Exception e) {
+            log.error("仪表盘统计快照发送失败", e);
+            events.fail(e);
+        }
+    }
+
+    /**
+     * 把同一个事件（只序列化一次）放入所有订阅者的发送队列，不等待写出。
+     * 已关闭的连接直接移除；积压已满的连接在写完已排队的事件后关闭，客户端重连后重新收到 snapshot。
+     */
+    private void broadcast(SseEmitter.SseEventBuilder event) {
+        Set<ResponseBodyEmitter.DataWithMediaType> data = event.build();
+        for (SseEventQueue events : subscribers) {
+            if (events.offer(data)) {
+                continue;
+            }
+            subscribers.remove(events);
+            if (!events.isClosed()) {
+                // 不在推送线程中 completeWithError：该连接可能正卡在写出上，结束请求会等待写出完成
+                slowDropped.increment();
+                events.complete(null);
+            }
+        }
+    }
+
+    private Map<String, Object> currentFields() {
+        DashboardStats stats = dashboardService.getStats();
+        return objectMapper.convertValue(stats, FIELDS_TYPE);
+    }
+}
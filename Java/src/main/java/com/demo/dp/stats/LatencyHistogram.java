@@ -0,0 +1,224 @@
+package com.demo.dp.stats;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 滑动窗口耗时直方图：按对数-线性分桶（与 HdrHistogram 的思路相同）记录耗时，按最近 N 秒计算分位数。
+ *
+ * <p>分桶方式：
+ * <ul>
+ *   <li>0 ~ 15ms 每 1ms 一个桶</li>
+ *   <li>之后每个 2 的幂区间 [2^k, 2^(k+1)) 等分为 16 个桶，相对误差不超过 1/16（约 6%）</li>
+ *   <li>超过 {@link #MAX_TRACKABLE_MS} 的值记入最后一个桶，最大值仍按实际值记录</li>
+ * </ul>
+ * 桶的数量固定（{@link #BUCKETS} 个），与样本数无关；分桶规则对所有直方图相同，不同直方图按桶相加即可合并。
+ *
+ * <p>滑动窗口：时间按 slotMs 切成时间片，环形数组保存最近 slots 个时间片，每个时间片是一组计数。
+ * 记录时只做一次数组下标计算和一次原子加；时间片过期后由第一个写入者清零复用。
+ * 查询最近 windowMs 时合并窗口内的时间片，窗口边界的精度为一个时间片。
+ *
+ * <p>清零与并发写入之间不加锁：清零瞬间与之并发的少量写入可能丢失，对分位数统计可以忽略。
+ *
+ * @author System
+ * @version 1.0
+ */
+public class LatencyHistogram {
+
+    /** 线性区间的子桶数（2^4），决定相对精度 */
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** 可精确分桶的最大耗时：2^20 ms（约 17 分钟） */
+    public static final long MAX_TRACKABLE_MS = (1L << 20) - 1;
+    /** 桶的数量 */
+    public static final int BUCKETS = bucketIndex(MAX_TRACKABLE_MS) + 1;
+
+    private final long slotMs;
+    private final Slot[] ring;
+
+    /**
+     * @param slotMs 时间片长度（毫秒）
+     * @param slots  保留的时间片数，可查询的最长窗口为 slotMs * (slots - 1)
+     */
+    public LatencyHistogram(long slotMs, int slots) {
+        if (slotMs <= 0 || slots < 2) {
+            throw new IllegalArgumentException("slotMs 必须大于0，slots 至少为2");
+        }
+        this.slotMs = slotMs;
+        this.ring = new Slot[slots];
+        for (int i = 0; i < slots; i++) {
+            ring[i] = new Slot();
+        }
+    }
+
+    /**
+     * 记录一次耗时。
+     *
+     * @param latencyMs 耗时（毫秒），负数按 0 处理
+     */
+    public void record(long latencyMs) {
+        record(latencyMs, System.currentTimeMillis());
+    }
+
+    void record(long latencyMs, long nowMs) {
+        long value = Math.max(0, latencyMs);
+        long epoch = nowMs / slotMs;
+        Slot slot = ring[(int) (epoch % ring.length)];
+        if (slot.epoch != epoch) {
+            slot.reset(epoch);
+        }
+        slot.counts.incrementAndGet(bucketIndex(Math.min(value, MAX_TRACKABLE_MS)));
+        slot.max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * 合并最近 windowMs 内的时间片（含当前未结束的时间片）。
+     *
+     * @param windowMs 窗口长度（毫秒），超过可保留的长度时按可保留的长度计算
+     * @return 窗口内的计数快照
+     */
+    public Snapshot snapshot(long windowMs) {
+        return snapshot(windowMs, System.currentTimeMillis());
+    }
+
+    Snapshot snapshot(long windowMs, long nowMs) {
+        long current = nowMs / slotMs;
+        long slots = Math.min(ring.length - 1, Math.max(1, (windowMs + slotMs - 1) / slotMs));
+        Snapshot snapshot = new Snapshot();
+        for (long epoch = current - slots + 1; epoch <= current; epoch++) {
+            Slot slot = ring[(int) (Math.floorMod(epoch, (long) ring.length))];
+            if (slot.epoch != epoch) {
+                continue;
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                long c = slot.counts.get(i);
+                if (c != 0) {
+                    snapshot.counts[i] += c;
+                    snapshot.count += c;
+                }
+            }
+            snapshot.max = Math.max(snapshot.max, slot.max.get());
+        }
+        return snapshot;
+    }
+
+    /**
+     * 耗时所在桶的下标。
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int sub = (int) ((value >> shift) & (SUB_BUCKETS - 1));
+        return SUB_BUCKETS + shift * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * 桶内的最大值（该桶代表的耗时上界）。
+     */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        int sub = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        long lower = ((long) (SUB_BUCKETS + sub)) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    /**
+     * 某一时间片的计数。
+     */
+    private static final class Slot {
+        private volatile long epoch = -1;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong max = new AtomicLong();
+
+        private synchronized void reset(long newEpoch) {
+            if (epoch == newEpoch) {
+                return;
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, 0);
+            }
+            max.set(0);
+            epoch = newEpoch;
+        }
+    }
+
+    /**
+     * 一段窗口内的计数快照，可与其他快照合并后计算分位数。
+     */
+    public static final class Snapshot {
+        private final long[] counts = new long[BUCKETS];
+        private long count;
+        private long max;
+
+        /**
+         * 把另一个快照的计数合并到本快照。
+         *
+         * @param other 另一个快照
+         */
+        public void add(Snapshot other) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += other.counts[i];
+            }
+            count += other.count;
+            max = Math.max(max, other.max);
+        }
+
+        /**
+         * 样本数。
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * 最大值（毫秒，精确值）。
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * 分位数（毫秒）：第 ceil(percentile * count) 个样本所在桶的上界，不超过最大值；没有样本时为 0。
+         *
+         * @param percentile 0.0 ~ 1.0，例如 0.99
+         * @return 分位数
+         */
+        public long percentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        /**
+         * 常用统计：count、p50、p95、p99、max（毫秒）。
+         *
+         * @return 统计信息
+         */
+        public Map<String, Object> summary() {
+            Map<String, Object> summary = new HashMap<>();
+            summary.put("count", count);
+            summary.put("p50", percentile(0.50));
+            summary.put("p95", percentile(0.95));
+            summary.put("p99", percentile(0.99));
+            summary.put("max", max);
+            return summary;
+        }
+    }
+}
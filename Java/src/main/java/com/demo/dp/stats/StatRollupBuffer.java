@@ -0,0 +1,292 @@
+package com.demo.dp.stats;
+
+import com.demo.dp.domain.entity.AiCallLog;
+import com.demo.dp.domain.entity.StatRollup;
+import com.demo.dp.mapper.StatRollupMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 仪表盘趋势汇总的增量缓冲：写入路径把增量按小时攒在内存中，定时合并写入 stat_rollup。
+ *
+ * <p>工作方式：
+ * <ul>
+ *   <li>由 {@link DashboardCounterRegistry} 的 on* 方法在事务提交后转发调用，按记录的创建时间归入对应小时</li>
+ *   <li>每个小时的各项增量为 LongAdder，写入路径之间不竞争，也不访问数据库</li>
+ *   <li>定时（dashboard.rollup.flush-interval-ms）把各小时的增量取出，连同按天合计的增量一次
+ *       INSERT ... ON DUPLICATE KEY UPDATE 累加写入；写入失败时把增量加回，下次再写</li>
+ *   <li>取出增量时先读总和再减去该值（而不是清零），取出期间并发的增量留到下一次</li>
+ *   <li>商家上下线按商家的创建时间计入（趋势口径是"该小时创建、目前仍正常的商家数"）；创建时间早于
+ *       当前小时往前 overlap-hours 小时的不计入：这些小时不会再被补算，一条 -1 会永久留在汇总表中，
+ *       而新增趋势关心的是最近创建的商家，早期小时的数值保持补算时的结果</li>
+ * </ul>
+ *
+ * <p>应用重启时未写入的增量会丢失，多实例部署时各实例只写自己的增量，
+ * 由 {@link StatRollupCatchUpJob} 定时从原始表重新统计覆盖。
+ *
+ * @author System
+ * @version 1.0
+ */
+@Component
+public class StatRollupBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(StatRollupBuffer.class);
+
+    /** 已写完的空小时保留的时长，避免刚取到该小时计数的写入线程把增量加到已移除的对象上 */
+    private static final long IDLE_BUCKET_RETAIN_HOURS = 2;
+
+    private final StatRollupMapper statRollupMapper;
+    private final int overlapHours;
+
+    private final Map<LocalDateTime, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private final LongAdder skippedShopChanges = new LongAdder();
+    private volatile LocalDateTime lastFlushedAt;
+
+    /**
+     * @param statRollupMapper 趋势汇总 Mapper
+     * @param overlapHours     补算任务每次重新统计的最近小时数，更早创建的商家上下线不计入趋势
+     */
+    public StatRollupBuffer(StatRollupMapper statRollupMapper,
+                            @Value("${dashboard.rollup.overlap-hours:2}") int overlapHours) {
+        if (overlapHours <= 0) {
+            throw new IllegalArgumentException("dashboard.rollup.overlap-hours 必须大于0");
+        }
+        this.statRollupMapper = statRollupMapper;
+        this.overlapHours = overlapHours;
+    }
+
+    /**
+     * 商家正常状态发生变化，计入商家创建时间所在的小时；创建时间早于补算窗口（overlap-hours）时不计入。
+     *
+     * @param createdAt 商家创建时间
+     * @param delta     +1 表示变为正常状态，-1 表示不再是正常状态
+     */
+    public void onShopActiveChanged(LocalDateTime createdAt, int delta) {
+        if (createdAt != null && createdAt.truncatedTo(ChronoUnit.HOURS)
+                .isBefore(LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(overlapHours))) {
+            skippedShopChanges.increment();
+            return;
+        }
+        bucketOf(createdAt).newShops.add(delta);
+    }
+
+    /**
+     * 新增一条正常状态的点评。
+     *
+     * @param createdAt 点评创建时间
+     */
+    public void onReviewCreated(LocalDateTime createdAt) {
+        bucketOf(createdAt).newReviews.increment();
+    }
+
+    /**
+     * 新增一条订单。
+     *
+     * @param createdAt 订单创建时间
+     */
+    public void onOrderCreated(LocalDateTime createdAt) {
+        bucketOf(createdAt).newOrders.increment();
+    }
+
+    /**
+     * 一批 AI 调用日志已写入数据库。成功/失败与耗时的口径与补算任务的统计 SQL 一致。
+     *
+     * @param rows 已写入的日志
+     */
+    public void onAiCallsLogged(List<AiCallLog> rows) {
+        for (AiCallLog row : rows) {
+            Bucket bucket = bucketOf(row.getCreatedAt());
+            bucket.aiCalls.increment();
+            // 未设置状态时数据库默认写入 1
+            int status = row.getStatus() != null ? row.getStatus() : AiCallLog.STATUS_SUCCESS;
+            if (status == AiCallLog.STATUS_FAILED) {
+                bucket.aiFailed.increment();
+            } else {
+                bucket.aiSuccess.increment();
+            }
+            if (status == AiCallLog.STATUS_SUCCESS && row.getLatencyMs() != null) {
+                bucket.aiLatencySumMs.add(row.getLatencyMs());
+                bucket.aiLatencyCount.increment();
+            }
+        }
+    }
+
+    /**
+     * 定时把攒下的增量写入数据库。
+     */
+    @Scheduled(initialDelayString = "${dashboard.rollup.flush-interval-ms:5000}",
+            fixedDelayString = "${dashboard.rollup.flush-interval-ms:5000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    /**
+     * 把攒下的增量写入数据库（小时行与按天合计的天行）。与补算任务互斥。
+     *
+     * @return 是否写入成功（没有增量时也返回 true）
+     */
+    public boolean flush() {
+        synchronized (flushLock) {
+            Map<LocalDateTime, StatRollup> drained = new TreeMap<>();
+            for (Map.Entry<LocalDateTime, Bucket> entry : buckets.entrySet()) {
+                StatRollup row = entry.getValue().drain(entry.getKey());
+                if (!row.isEmpty()) {
+                    drained.put(entry.getKey(), row);
+                }
+            }
+            evictIdleBuckets();
+            if (drained.isEmpty()) {
+                return true;
+            }
+
+            List<StatRollup> rows = new ArrayList<>(drained.values());
+            Map<LocalDateTime, StatRollup> days = new TreeMap<>();
+            for (StatRollup hour : drained.values()) {
+                LocalDateTime day = hour.getBucketStart().truncatedTo(ChronoUnit.DAYS);
+                days.computeIfAbsent(day, d -> new StatRollup(StatRollup.PERIOD_DAY, d)).add(hour);
+            }
+            rows.addAll(days.values());
+            try {
+                statRollupMapper.addDeltas(rows);
+                flushes.increment();
+                flushedRows.add(rows.size());
+                lastFlushedAt = LocalDateTime.now();
+                return true;
+            } catch (Exception e) {
+                // 把取出的增量加回去，下次再写
+                for (StatRollup hour : drained.values()) {
+                    bucketOf(hour.getBucketStart()).restore(hour);
+                }
+                flushFailures.increment();
+                log.error("趋势汇总增量写入失败, hours={}", drained.size(), e);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 先写入攒下的增量，再在持有写入锁的情况下执行任务（补算任务用），任务执行期间不会有增量写入，
+     * 避免补算覆盖的行与增量写入交错。补算任务按天分段调用，每段单独持锁。
+     *
+     * @param task 要执行的任务
+     * @return 写入增量是否成功；失败时不执行任务
+     */
+    public boolean flushThen(Runnable task) {
+        synchronized (flushLock) {
+            if (!flush()) {
+                return false;
+            }
+            task.run();
+            return true;
+        }
+    }
+
+    /**
+     * 供监控使用的统计信息：bufferedHours（内存中的小时数）、flushes、flushedRows、flushFailures、lastFlushedAt、
+     * skippedShopChanges（创建时间早于补算窗口、未计入趋势的商家上下线次数）。
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("bufferedHours", buckets.size());
+        stats.put("flushes", flushes.sum());
+        stats.put("flushedRows", flushedRows.sum());
+        stats.put("flushFailures", flushFailures.sum());
+        stats.put("lastFlushedAt", lastFlushedAt);
+        stats.put("skippedShopChanges", skippedShopChanges.sum());
+        return stats;
+    }
+
+    /**
+     * 移除已经写完、且早于当前时间 IDLE_BUCKET_RETAIN_HOURS 小时的空小时。
+     */
+    private void evictIdleBuckets() {
+        LocalDateTime threshold = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(IDLE_BUCKET_RETAIN_HOURS);
+        buckets.entrySet().removeIf(entry -> entry.getKey().isBefore(threshold) && entry.getValue().isEmpty());
+    }
+
+    /**
+     * 创建时间所在小时的增量，创建时间为空时按当前时间。
+     */
+    private Bucket bucketOf(LocalDateTime createdAt) {
+        LocalDateTime time = createdAt != null ? createdAt : LocalDateTime.now();
+        return buckets.computeIfAbsent(time.truncatedTo(ChronoUnit.HOURS), h -> new Bucket());
+    }
+
+    /**
+     * 某一小时尚未写入数据库的增量。
+     */
+    private static final class Bucket {
+        private final LongAdder newShops = new LongAdder();
+        private final LongAdder newReviews = new LongAdder();
+        private final LongAdder newOrders = new LongAdder();
+        private final LongAdder aiCalls = new LongAdder();
+        private final LongAdder aiSuccess = new LongAdder();
+        private final LongAdder aiFailed = new LongAdder();
+        private final LongAdder aiLatencySumMs = new LongAdder();
+        private final LongAdder aiLatencyCount = new LongAdder();
+
+        /**
+         * 取出当前增量：读总和后减去该值，期间并发的增量保留在计数中。
+         */
+        private StatRollup drain(LocalDateTime hour) {
+            StatRollup row = new StatRollup(StatRollup.PERIOD_HOUR, hour);
+            row.setNewShops(take(newShops));
+            row.setNewReviews(take(newReviews));
+            row.setNewOrders(take(newOrders));
+            row.setAiCalls(take(aiCalls));
+            row.setAiSuccess(take(aiSuccess));
+            row.setAiFailed(take(aiFailed));
+            row.setAiLatencySumMs(take(aiLatencySumMs));
+            row.setAiLatencyCount(take(aiLatencyCount));
+            return row;
+        }
+
+        /**
+         * 写入失败时把取出的增量加回。
+         */
+        private void restore(StatRollup row) {
+            newShops.add(row.getNewShops());
+            newReviews.add(row.getNewReviews());
+            newOrders.add(row.getNewOrders());
+            aiCalls.add(row.getAiCalls());
+            aiSuccess.add(row.getAiSuccess());
+            aiFailed.add(row.getAiFailed());
+            aiLatencySumMs.add(row.getAiLatencySumMs());
+            aiLatencyCount.add(row.getAiLatencyCount());
+        }
+
+        private boolean isEmpty() {
+            return newShops.sum() == 0 && newReviews.sum() == 0 && newOrders.sum() == 0 && aiCalls.sum() == 0
+                    && aiSuccess.sum() == 0 && aiFailed.sum() == 0 && aiLatencySumMs.sum() == 0
+                    && aiLatencyCount.sum() == 0;
+        }
+
+        private static long take(LongAdder adder) {
+            long value = adder.sum();
+            if (value != 0) {
+                adder.add(-value);
+            }
+            return value;
+        }
+    }
+}
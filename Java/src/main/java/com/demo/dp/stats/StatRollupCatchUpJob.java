@@ -0,0 +1,233 @@
+package com.demo.dp.stats;
+
+import com.demo.dp.domain.entity.StatRollup;
+import com.demo.dp.mapper.StatRollupMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * 仪表盘趋势汇总补算任务：定时从原始表按小时重新统计最近的时间段，覆盖 stat_rollup 中的增量数据。
+ *
+ * <p>增量写入（{@link StatRollupBuffer}）在重启丢失未写入的增量、直接改库、多实例部署等情况下会有偏差，
+ * 补算以原始表为准纠正：
+ * <ul>
+ *   <li>从"最近一个已补算的小时"与"当前时间往前 overlap-hours 小时"中较早者开始，到当前小时为止；
+ *       从未补算过（新部署）时回填最近 backfill-days 天</li>
+ *   <li>按天分段，每段一个事务：删除这段的小时行，按 created_at 分组统计商家、点评、订单、AI 调用日志后
+ *       写入小时行（reconciled = 1），再删除当天的天行并由当天所有小时行重新汇总</li>
+ *   <li>每段补算期间持有增量写入锁，段开始前先把内存中的增量写入；锁按段获取和释放，
+ *       回填多天时增量写入可以在段之间进行</li>
+ *   <li>启动后的首轮补算（新部署时可能回填很多天）在后台线程中执行，不阻塞启动</li>
+ * </ul>
+ *
+ * <p>每段只按 created_at 范围扫描一天的原始数据（依赖 created_at 索引），趋势接口不访问原始表。
+ * 补算开始后、统计查询前提交的写入会在下次增量写入时再计入一次，偏差在下一轮补算时消除。
+ *
+ * @author System
+ * @version 1.0
+ */
+@Component
+public class StatRollupCatchUpJob {
+
+    private static final Logger log = LoggerFactory.getLogger(StatRollupCatchUpJob.class);
+
+    private final StatRollupMapper statRollupMapper;
+    private final StatRollupBuffer statRollupBuffer;
+    private final TransactionTemplate transactionTemplate;
+    private final int overlapHours;
+    private final int backfillDays;
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile LocalDateTime lastRunAt;
+    private volatile LocalDateTime lastFrom;
+    private volatile long lastHours;
+    private volatile long lastCostMs;
+    private volatile Thread initialRun;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * @param statRollupMapper    趋势汇总 Mapper
+     * @param statRollupBuffer    增量缓冲
+     * @param transactionTemplate 事务模板
+     * @param overlapHours        每次至少重新统计最近多少小时
+     * @param backfillDays        从未补算过时回填多少天
+     */
+    public StatRollupCatchUpJob(StatRollupMapper statRollupMapper,
+                                StatRollupBuffer statRollupBuffer,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${dashboard.rollup.overlap-hours:2}") int overlapHours,
+                                @Value("${dashboard.rollup.backfill-days:90}") int backfillDays) {
+        if (overlapHours <= 0 || backfillDays <= 0) {
+            throw new IllegalArgumentException("dashboard.rollup 的 overlap-hours、backfill-days 必须大于0");
+        }
+        this.statRollupMapper = statRollupMapper;
+        this.statRollupBuffer = statRollupBuffer;
+        this.transactionTemplate = transactionTemplate;
+        this.overlapHours = overlapHours;
+        this.backfillDays = backfillDays;
+    }
+
+    /**
+     * 应用启动完成后在后台线程中补算一次（新部署时回填历史数据）。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        Thread t = new Thread(this::run, "stat-rollup-catch-up");
+        t.setDaemon(true);
+        initialRun = t;
+        t.start();
+    }
+
+    /**
+     * 应用关闭时让仍在回填的首轮补算在当前段结束后停止。
+     */
+    @PreDestroy
+    public void shutdown() {
+        Thread t = initialRun;
+        if (t != null) {
+            t.interrupt();
+        }
+    }
+
+    /**
+     * 定时补算。
+     */
+    @Scheduled(initialDelayString = "${dashboard.rollup.catch-up-interval-ms:600000}",
+            fixedDelayString = "${dashboard.rollup.catch-up-interval-ms:600000}")
+    public void scheduledRun() {
+        run();
+    }
+
+    /**
+     * 执行一轮补算，失败时记录日志，下一轮从最近一个已补算的小时继续。
+     * 上一轮（如启动时的回填）仍在执行时直接跳过，不占用调度线程等待。
+     */
+    public void run() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("趋势汇总补算仍在执行，跳过本轮");
+            return;
+        }
+        try {
+            catchUp();
+        } catch (Exception e) {
+            failures.increment();
+            log.error("趋势汇总补算失败", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * 供监控使用的统计信息：runs、failures、lastRunAt、lastFrom（最近一轮的开始小时）、lastHours、lastCostMs。
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("runs", runs.sum());
+        stats.put("failures", failures.sum());
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("lastFrom", lastFrom);
+        stats.put("lastHours", lastHours);
+        stats.put("lastCostMs", lastCostMs);
+        return stats;
+    }
+
+    private void catchUp() {
+        long start = System.currentTimeMillis();
+        LocalDateTime currentHour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime end = currentHour.plusHours(1);
+        LocalDateTime latest = statRollupMapper.findLatestReconciledHour();
+        LocalDateTime from;
+        if (latest == null) {
+            from = currentHour.truncatedTo(ChronoUnit.DAYS).minusDays(backfillDays - 1L);
+        } else {
+            LocalDateTime overlapStart = currentHour.minusHours(overlapHours);
+            from = latest.isBefore(overlapStart) ? latest : overlapStart;
+        }
+
+        LocalDateTime segmentStart = from;
+        while (segmentStart.isBefore(end)) {
+            if (Thread.currentThread().isInterrupted()) {
+                log.info("趋势汇总补算中断, 已补算到 {}", segmentStart);
+                return;
+            }
+            LocalDateTime day = segmentStart.truncatedTo(ChronoUnit.DAYS);
+            LocalDateTime nextDay = day.plusDays(1);
+            LocalDateTime segmentEnd = nextDay.isBefore(end) ? nextDay : end;
+            LocalDateTime hoursFrom = segmentStart;
+            if (!statRollupBuffer.flushThen(() -> transactionTemplate.executeWithoutResult(
+                    status -> reconcileDay(day, hoursFrom, segmentEnd)))) {
+                failures.increment();
+                log.warn("趋势汇总增量写入失败，本轮补算停在 {}", segmentStart);
+                return;
+            }
+            segmentStart = segmentEnd;
+        }
+
+        runs.increment();
+        lastRunAt = LocalDateTime.now();
+        lastFrom = from;
+        lastHours = ChronoUnit.HOURS.between(from, end);
+        lastCostMs = System.currentTimeMillis() - start;
+        log.info("趋势汇总补算完成, from={}, hours={}, costMs={}", from, lastHours, lastCostMs);
+    }
+
+    /**
+     * 重新统计 [from, to) 内的小时行，再重新汇总这一天的天行。
+     */
+    private void reconcileDay(LocalDateTime day, LocalDateTime from, LocalDateTime to) {
+        Map<LocalDateTime, StatRollup> hours = new TreeMap<>();
+        merge(hours, statRollupMapper.aggregateShopsByHour(from, to), (row, src) -> row.setNewShops(src.getNewShops()));
+        merge(hours, statRollupMapper.aggregateReviewsByHour(from, to), (row, src) -> row.setNewReviews(src.getNewReviews()));
+        merge(hours, statRollupMapper.aggregateOrdersByHour(from, to), (row, src) -> row.setNewOrders(src.getNewOrders()));
+        merge(hours, statRollupMapper.aggregateAiCallsByHour(from, to), (row, src) -> {
+            row.setAiCalls(src.getAiCalls());
+            row.setAiSuccess(src.getAiSuccess());
+            row.setAiFailed(src.getAiFailed());
+            row.setAiLatencySumMs(src.getAiLatencySumMs());
+            row.setAiLatencyCount(src.getAiLatencyCount());
+        });
+
+        // 段内最后一小时即使没有数据也写一行，作为"已补算到此"的标记，避免没有新数据时每轮都从头回填
+        LocalDateTime lastHour = to.minusHours(1);
+        hours.computeIfAbsent(lastHour, h -> new StatRollup(StatRollup.PERIOD_HOUR, h));
+
+        statRollupMapper.deleteRange(StatRollup.PERIOD_HOUR, from, to);
+        statRollupMapper.insertReconciled(new ArrayList<>(hours.values()));
+        LocalDateTime nextDay = day.plusDays(1);
+        statRollupMapper.deleteRange(StatRollup.PERIOD_DAY, day, nextDay);
+        statRollupMapper.insertDaysFromHours(day, nextDay);
+    }
+
+    /**
+     * 把一类统计结果按小时合并到 hours 中。
+     */
+    private static void merge(Map<LocalDateTime, StatRollup> hours, List<StatRollup> rows,
+                              BiConsumer<StatRollup, StatRollup> setter) {
+        for (StatRollup src : rows) {
+            StatRollup row = hours.computeIfAbsent(src.getBucketStart(),
+                    h -> new StatRollup(StatRollup.PERIOD_HOUR, h));
+            setter.accept(row, src);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.demo.dp.util;
+
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个 SSE 连接的有界发送队列。
+ *
+ * <p>{@code SseEmitter.send} 是阻塞写：客户端网络慢时会卡住调用线程。产生事件的线程（大模型 HTTP 回调线程、
+ * 定时推送线程等）只把事件放入本队列，由 sseExecutor 上的一个任务按顺序写出；同一连接同一时刻最多一个写任务，
+ * 保证事件顺序。队列满（客户端跟不上）时 {@link #offer} 返回 false，之后的普通事件也不再接收，
+ * 由调用方决定跳过还是断开；{@link #complete} 的最后一个事件不受容量限制。
+ *
+ * <p>连接结束（完成、超时、出错、客户端断开）后 {@link #isClosed()} 为 true，调用方据此停止产生新事件。
+ * 本类占用了 emitter 的 onCompletion/onTimeout/onError 回调，需要感知连接结束的调用方通过构造参数传入 onClose。
+ */
+public final class SseEventQueue {
+
+    private final SseEmitter emitter;
+    private final Executor executor;
+    private final int capacity;
+    private final Runnable onClose;
+
+    private final Queue<Set<ResponseBodyEmitter.DataWithMediaType>> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean closeNotified = new AtomicBoolean();
+    private volatile boolean overflowed;
+    private volatile boolean completeRequested;
+    private volatile boolean closed;
+
+    /**
+     * @param emitter SSE 连接
+     * @param executor 写出事件的线程池
+     * @param capacity 最多排队的事件数
+     * @param onClose 连接结束时执行一次，可为 null
+     */
+    public SseEventQueue(SseEmitter emitter, Executor executor, int capacity, Runnable onClose) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("SSE 发送队列容量必须大于0");
+        }
+        this.emitter = emitter;
+        this.executor = executor;
+        this.capacity = capacity;
+        this.onClose = onClose;
+        emitter.onCompletion(this::markClosed);
+        emitter.onTimeout(this::markClosed);
+        emitter.onError(e -> markClosed());
+    }
+
+    /**
+     * 放入一个事件。
+     *
+     * @param event 事件
+     * @return 已放入返回 true；连接已结束、已请求结束或队列满（此后一直返回 false）时返回 false
+     */
+    public boolean offer(SseEmitter.SseEventBuilder event) {
+        return offer(event.build());
+    }
+
+    /**
+     * 放入一个已序列化的事件（同一事件发给多个连接时只序列化一次）。
+     *
+     * @param data {@code SseEventBuilder.build()} 的结果
+     * @return 同 {@link #offer(SseEmitter.SseEventBuilder)}
+     */
+    public boolean offer(Set<ResponseBodyEmitter.DataWithMediaType> data) {
+        if (closed || completeRequested || overflowed) {
+            return false;
+        }
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            overflowed = true;
+            return false;
+        }
+        queue.add(data);
+        scheduleDrain();
+        return true;
+    }
+
+    /**
+     * 写出已排队的事件和最后一个事件（不受容量限制，可为 null）后正常关闭连接。
+     *
+     * @param lastEvent 最后一个事件
+     */
+    public void complete(SseEmitter.SseEventBuilder lastEvent) {
+        if (closed || completeRequested) {
+            return;
+        }
+        if (lastEvent != null) {
+            size.incrementAndGet();
+            queue.add(lastEvent.build());
+        }
+        completeRequested = true;
+        scheduleDrain();
+    }
+
+    /**
+     * 丢弃排队的事件，以错误结束连接。
+     *
+     * @param error 原因
+     */
+    public void fail(Throwable error) {
+        if (closed) {
+            return;
+        }
+        markClosed();
+        queue.clear();
+        size.set(0);
+        emitter.completeWithError(error);
+    }
+
+    /**
+     * @return 连接是否已结束
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return 是否因队列满拒绝过事件
+     */
+    public boolean isOverflowed() {
+        return overflowed;
+    }
+
+    /**
+     * @return 排队中的事件数
+     */
+    public int size() {
+        return size.get();
+    }
+
+    private void scheduleDrain() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            draining.set(false);
+            fail(e);
+        }
+    }
+
+    private void drain() {
+        try {
+            Set<ResponseBodyEmitter.DataWithMediaType> data;
+            while (!closed && (data = queue.poll()) != null) {
+                size.decrementAndGet();
+                emitter.send(data);
+            }
+            if (completeRequested && !closed && queue.isEmpty()) {
+                markClosed();
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开或连接已超时关闭
+            fail(e);
+        } finally {
+            draining.set(false);
+        }
+        // 写出期间新放入的事件，或写完后才请求的结束
+        if (!closed && (!queue.isEmpty() || completeRequested)) {
+            scheduleDrain();
+        }
+    }
+
+    private void markClosed() {
+        closed = true;
+        if (onClose != null && closeNotified.compareAndSet(false, true)) {
+            onClose.run();
+        }
+    }
+}
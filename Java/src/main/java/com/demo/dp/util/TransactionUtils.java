@@ -0,0 +1,34 @@
+package com.demo.dp.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 事务相关的小工具。
+ *
+ * <p>内存索引、缓存等进程内状态必须在数据库事务真正提交之后再更新，
+ * 否则事务回滚时内存中会留下数据库里并不存在的数据。
+ */
+public final class TransactionUtils {
+
+    private TransactionUtils() {
+    }
+
+    /**
+     * 在当前事务提交成功后执行指定动作；当前没有活动事务时立即执行。
+     *
+     * @param action 提交后要执行的动作
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
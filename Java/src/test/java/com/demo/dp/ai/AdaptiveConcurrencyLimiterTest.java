@@ -0,0 +1,119 @@
+package com.demo.dp.ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link AdaptiveConcurrencyLimiter} 单元测试：满载拒绝、只在用满时增长、每个往返最多减一次、
+ * 非拥塞失败不调整；以及 {@link LlmCallGuard} 对失败原因的分类。
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void rejectsWhenLimitReached() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 0.5);
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+
+        assertThat(limiter.tryAcquire()).isFalse();
+        assertThat(limiter.stats().get("rejected")).isEqualTo(1L);
+    }
+
+    @Test
+    void growsOnlyWhenLimitIsUsed() {
+        AdaptiveConcurrencyLimiter limiter = limiter(4, 0.5);
+        // 每次只有 1 个在途，远低于 4 × 0.5，不增长
+        for (int i = 0; i < 100; i++) {
+            long start = System.nanoTime();
+            limiter.tryAcquire();
+            limiter.onComplete(AdaptiveConcurrencyLimiter.Outcome.SUCCESS, start, 10);
+        }
+        assertThat(limiter.stats().get("limit")).isEqualTo(4);
+
+        // 每轮把名额用满再全部成功，上限逐轮增长
+        for (int round = 0; round < 10; round++) {
+            long start = System.nanoTime();
+            int acquired = 0;
+            while (limiter.tryAcquire()) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limiter.onComplete(AdaptiveConcurrencyLimiter.Outcome.SUCCESS, start, 10);
+            }
+        }
+        assertThat((int) limiter.stats().get("limit")).isGreaterThan(4);
+        assertThat(limiter.stats().get("inFlight")).isEqualTo(0);
+    }
+
+    @Test
+    void decreasesAtMostOncePerRoundTrip() {
+        AdaptiveConcurrencyLimiter limiter = limiter(20, 0.5);
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+        }
+        // 同一批在途调用一起超时，只减一次
+        for (int i = 0; i < 10; i++) {
+            limiter.onComplete(AdaptiveConcurrencyLimiter.Outcome.CONGESTION, start, -1);
+        }
+        assertThat(limiter.stats().get("limit")).isEqualTo(10);
+        assertThat(limiter.stats().get("decreases")).isEqualTo(1L);
+
+        // 减小之后发出的调用再超时，可以再减
+        long later = System.nanoTime();
+        limiter.tryAcquire();
+        limiter.onComplete(AdaptiveConcurrencyLimiter.Outcome.CONGESTION, later, -1);
+        assertThat(limiter.stats().get("limit")).isEqualTo(5);
+    }
+
+    @Test
+    void slowSuccessCountsAsCongestion() {
+        AdaptiveConcurrencyLimiter limiter = limiter(20, 0.5);
+        long start = System.nanoTime();
+        limiter.tryAcquire();
+
+        limiter.onComplete(AdaptiveConcurrencyLimiter.Outcome.SUCCESS, start, 5000);
+
+        assertThat(limiter.stats().get("limit")).isEqualTo(10);
+    }
+
+    @Test
+    void nonCongestionFailureOnlyReleases() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 0.5);
+        long start = System.nanoTime();
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+
+        limiter.onComplete(AdaptiveConcurrencyLimiter.Outcome.FAILURE, start, 10);
+        limiter.onComplete(AdaptiveConcurrencyLimiter.Outcome.FAILURE, start, 10);
+
+        assertThat(limiter.stats().get("limit")).isEqualTo(2);
+        assertThat(limiter.stats().get("inFlight")).isEqualTo(0);
+    }
+
+    @Test
+    void classifiesFailures() {
+        assertThat(LlmCallGuard.outcome(null)).isEqualTo(AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        assertThat(LlmCallGuard.outcome(new CompletionException(new TimeoutException())))
+                .isEqualTo(AdaptiveConcurrencyLimiter.Outcome.CONGESTION);
+        assertThat(LlmCallGuard.outcome(new HttpTimeoutException("timeout")))
+                .isEqualTo(AdaptiveConcurrencyLimiter.Outcome.CONGESTION);
+        assertThat(LlmCallGuard.outcome(new AiUnavailableException("busy", 429)))
+                .isEqualTo(AdaptiveConcurrencyLimiter.Outcome.CONGESTION);
+        assertThat(LlmCallGuard.outcome(new AiUnavailableException("down", 503)))
+                .isEqualTo(AdaptiveConcurrencyLimiter.Outcome.CONGESTION);
+        assertThat(LlmCallGuard.outcome(new AiUnavailableException("bad request", 400)))
+                .isEqualTo(AdaptiveConcurrencyLimiter.Outcome.FAILURE);
+        assertThat(LlmCallGuard.outcome(new AiUnavailableException("无法解析", false)))
+                .isEqualTo(AdaptiveConcurrencyLimiter.Outcome.FAILURE);
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter(int initialLimit, double growUtilization) {
+        return new AdaptiveConcurrencyLimiter("test", initialLimit, 1, 100, 0.5, 1000, growUtilization);
+    }
+}
@@ -0,0 +1,247 @@
+package com.demo.dp.ai.provider;
+
+import com.demo.dp.ai.AdaptiveConcurrencyLimiter;
+import com.demo.dp.ai.AiUnavailableException;
+import com.demo.dp.ai.CircuitBreaker;
+import com.demo.dp.ai.LlmCallGuard;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link LlmRouter} 测试：用本地 HTTP stub（JDK HttpServer）模拟 OpenAI 兼容接口，
+ * 验证对冲、故障转移、熔断后的排序，以及流式调用只在首个增量之前转移。
+ */
+class LlmRouterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ExecutorService stubExecutor;
+    private HttpServer server;
+    private HttpClient httpClient;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        stubExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(stubExecutor);
+        server.start();
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        stubExecutor.shutdownNow();
+    }
+
+    @Test
+    void failsOverToNextProviderOnError() throws Exception {
+        AtomicInteger primaryHits = stub("/primary", 0, 500, "{\"error\":\"boom\"}");
+        stub("/secondary", 0, 200, completion("来自备用"));
+        LlmRouter router = new LlmRouter(List.of(provider("primary", "/primary"), provider("secondary", "/secondary")),
+                0, 10, 1, 4.0);
+
+        LlmResult result = router.complete("prompt", 50).get(5, TimeUnit.SECONDS);
+
+        assertThat(result.getProvider()).isEqualTo("secondary");
+        assertThat(result.getText()).isEqualTo("来自备用");
+        assertThat(primaryHits.get()).isEqualTo(1);
+        assertThat(router.stats().get("failovers")).isEqualTo(1L);
+    }
+
+    @Test
+    void hedgesSlowPrimary() throws Exception {
+        stub("/slow", 2000, 200, completion("慢"));
+        stub("/fast", 0, 200, completion("快"));
+        LlmRouter router = new LlmRouter(List.of(provider("slow", "/slow"), provider("fast", "/fast")),
+                100, 10, 1, 4.0);
+
+        long start = System.nanoTime();
+        LlmResult result = router.complete("prompt", 50).get(5, TimeUnit.SECONDS);
+
+        assertThat(result.getProvider()).isEqualTo("fast");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1500);
+        assertThat(router.stats().get("hedges")).isEqualTo(1L);
+        assertThat(router.stats().get("hedgeWins")).isEqualTo(1L);
+    }
+
+    @Test
+    void allProvidersFailingFailsWithLastError() {
+        stub("/a", 0, 500, "{}");
+        stub("/b", 0, 400, "{}");
+        LlmRouter router = new LlmRouter(List.of(provider("a", "/a"), provider("b", "/b")), 0, 10, 1, 4.0);
+
+        assertThatThrownBy(() -> router.complete("prompt", 50).get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(AiUnavailableException.class);
+    }
+
+    @Test
+    void openBreakerMovesProviderToBack() throws Exception {
+        AtomicInteger brokenHits = stub("/broken", 0, 503, "{}");
+        AtomicInteger healthyHits = stub("/healthy", 0, 200, completion("ok"));
+        // 一次失败即熔断
+        LlmProvider broken = new OpenAiCompatibleProvider("broken", url("/broken"), "m", "", 2000, 2000, 5000,
+                httpClient, objectMapper, new LlmCallGuard(new CircuitBreaker("broken", 1, 1, 0.5, 60_000, 1),
+                new AdaptiveConcurrencyLimiter("broken", 10, 1, 10, 0.5, 0, 0.5)));
+        LlmRouter router = new LlmRouter(List.of(broken, provider("healthy", "/healthy")), 0, 10, 1, 4.0);
+
+        assertThat(router.complete("prompt", 50).get(5, TimeUnit.SECONDS).getProvider()).isEqualTo("healthy");
+        assertThat(broken.isAvailable()).isFalse();
+        assertThat(router.stats().get("ranking")).isEqualTo(List.of("healthy", "broken"));
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(router.complete("prompt", 50).get(5, TimeUnit.SECONDS).getProvider()).isEqualTo("healthy");
+        }
+        assertThat(brokenHits.get()).isEqualTo(1);
+        assertThat(healthyHits.get()).isEqualTo(4);
+    }
+
+    @Test
+    void streamFailsOverBeforeFirstToken() throws Exception {
+        stub("/stream-broken", 0, 500, "{}");
+        stubStream("/stream-ok", List.of("你", "好"), false);
+        LlmRouter router = new LlmRouter(
+                List.of(provider("broken", "/stream-broken"), provider("ok", "/stream-ok")), 0, 10, 1, 4.0);
+        List<String> tokens = new CopyOnWriteArrayList<>();
+
+        LlmResult result = router.stream("prompt", 50, tokens::add).get(5, TimeUnit.SECONDS);
+
+        assertThat(result.getProvider()).isEqualTo("ok");
+        assertThat(result.getText()).isEqualTo("你好");
+        assertThat(tokens).containsExactly("你", "好");
+        assertThat(router.stats().get("failovers")).isEqualTo(1L);
+    }
+
+    @Test
+    void streamDoesNotFailOverAfterFirstToken() {
+        // 推送一个增量后挂起，由空闲超时结束
+        stubStream("/stream-hang", List.of("半"), true);
+        AtomicInteger backupHits = stub("/stream-backup", 0, 200, completion("不应调用"));
+        LlmProvider hanging = new OpenAiCompatibleProvider("hang", url("/stream-hang"), "m", "", 2000, 200, 5000,
+                httpClient, objectMapper, guard("hang"));
+        LlmRouter router = new LlmRouter(List.of(hanging, provider("backup", "/stream-backup")), 0, 10, 1, 4.0);
+        List<String> tokens = new CopyOnWriteArrayList<>();
+
+        assertThatThrownBy(() -> router.stream("prompt", 50, tokens::add).get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(AiUnavailableException.class);
+        assertThat(tokens).containsExactly("半");
+        assertThat(backupHits.get()).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamSamplesStayOutOfNonStreamingWindow() throws Exception {
+        stubStream("/stream-ttft", List.of("快"), false);
+        LlmRouter router = new LlmRouter(List.of(provider("ttft", "/stream-ttft")), 0, 10, 1, 4.0);
+
+        router.stream("prompt", 50, token -> { }).get(5, TimeUnit.SECONDS);
+
+        Map<String, Object> stats = (Map<String, Object>) ((Map<String, Object>) router.stats().get("providers")).get("ttft");
+        assertThat(stats.get("samples")).isEqualTo(0);
+        assertThat(((Map<String, Object>) stats.get("stream")).get("samples")).isEqualTo(1);
+    }
+
+    private LlmProvider provider(String name, String path) {
+        return new OpenAiCompatibleProvider(name, url(path), "m", "", 3000, 3000, 10_000,
+                httpClient, objectMapper, guard(name));
+    }
+
+    private static LlmCallGuard guard(String name) {
+        return new LlmCallGuard(new CircuitBreaker(name, 20, 10, 0.5, 30_000, 2),
+                new AdaptiveConcurrencyLimiter(name, 20, 2, 200, 0.7, 0, 0.5));
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private String completion(String content) {
+        try {
+            return objectMapper.writeValueAsString(
+                    Map.of("choices", List.of(Map.of("message", Map.of("content", content)))));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 注册一个普通响应的接口，返回命中次数。
+     */
+    private AtomicInteger stub(String path, long delayMs, int status, String body) {
+        AtomicInteger hits = new AtomicInteger();
+        server.createContext(path, exchange -> {
+            hits.incrementAndGet();
+            drain(exchange);
+            sleep(delayMs);
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        return hits;
+    }
+
+    /**
+     * 注册一个 SSE 流式接口：逐个推送增量；hang 为 true 时推送完不结束，直到客户端断开。
+     */
+    private void stubStream(String path, List<String> deltas, boolean hang) {
+        server.createContext(path, exchange -> {
+            drain(exchange);
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (String delta : deltas) {
+                    String json = objectMapper.writeValueAsString(
+                            Map.of("choices", List.of(Map.of("delta", Map.of("content", delta)))));
+                    out.write(("data: " + json + "\n\n").getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                }
+                if (hang) {
+                    sleep(3000);
+                }
+                out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                // 客户端超时后断开
+            }
+        });
+    }
+
+    private static void drain(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+    }
+
+    private static void sleep(long ms) {
+        if (ms <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.demo.dp.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link LocalCache} 单元测试：容量淘汰、TTL，以及"读库-写缓存"与失效交错时不写回旧值。
+ */
+class LocalCacheTest {
+
+    @Test
+    void evictsLeastRecentlyUsedWhenFull() {
+        LocalCache<Long, String> cache = new LocalCache<>(2, Duration.ofMinutes(1));
+        cache.put(1L, "a");
+        cache.put(2L, "b");
+        cache.get(1L);
+        cache.put(3L, "c");
+
+        assertThat(cache.get(1L)).isEqualTo("a");
+        assertThat(cache.get(2L)).isNull();
+        assertThat(cache.get(3L)).isEqualTo("c");
+    }
+
+    @Test
+    void expiredEntryIsMiss() throws InterruptedException {
+        LocalCache<Long, String> cache = new LocalCache<>(10, Duration.ofMillis(20));
+        cache.put(1L, "a");
+        Thread.sleep(40);
+
+        assertThat(cache.get(1L)).isNull();
+    }
+
+    @Test
+    void stalePutAfterInvalidateIsDropped() {
+        LocalCache<Long, String> cache = new LocalCache<>(10, Duration.ofMinutes(1));
+        long stamp = cache.stamp();
+        // 读库之后、写缓存之前，更新提交并失效了缓存
+        cache.invalidate(1L);
+
+        assertThat(cache.put(1L, "old", stamp)).isFalse();
+        assertThat(cache.get(1L)).isNull();
+
+        long fresh = cache.stamp();
+        assertThat(cache.put(1L, "new", fresh)).isTrue();
+        assertThat(cache.get(1L)).isEqualTo("new");
+    }
+
+    @Test
+    void stalePutIsDroppedAfterFresherReaderReplacedTombstone() {
+        LocalCache<Long, String> cache = new LocalCache<>(10, Duration.ofMinutes(1));
+        // 读者 A 在更新前取 stamp 并读到旧行
+        long stampA = cache.stamp();
+        // 更新提交并失效
+        cache.invalidate(1L);
+        // 读者 B 在失效后读到新行并先写入，覆盖了墓碑
+        long stampB = cache.stamp();
+        assertThat(cache.put(1L, "new", stampB)).isTrue();
+
+        // A 的写入迟到，不能用旧值覆盖新值
+        assertThat(cache.put(1L, "old", stampA)).isFalse();
+        assertThat(cache.get(1L)).isEqualTo("new");
+
+        // 失效之后开始的读者仍可刷新
+        assertThat(cache.put(1L, "newer", cache.stamp())).isTrue();
+        assertThat(cache.get(1L)).isEqualTo("newer");
+    }
+
+    @Test
+    void expiredEntryStillBlocksStampsOlderThanItsInvalidation() throws InterruptedException {
+        LocalCache<Long, String> cache = new LocalCache<>(10, Duration.ofMillis(20));
+        long stampA = cache.stamp();
+        cache.invalidate(1L);
+        cache.put(1L, "new", cache.stamp());
+        Thread.sleep(40);
+        // 新值过期被清理后，失效前开始的读者仍不能写入
+        assertThat(cache.get(1L)).isNull();
+
+        assertThat(cache.put(1L, "old", stampA)).isFalse();
+    }
+
+    @Test
+    void invalidateOfOtherKeyDoesNotBlockPut() {
+        LocalCache<Long, String> cache = new LocalCache<>(10, Duration.ofMinutes(1));
+        long stamp = cache.stamp();
+        cache.invalidate(2L);
+
+        assertThat(cache.put(1L, "a", stamp)).isTrue();
+        assertThat(cache.get(1L)).isEqualTo("a");
+    }
+
+    @Test
+    void evictedTombstoneStillBlocksOlderStamps() {
+        LocalCache<Long, String> cache = new LocalCache<>(2, Duration.ofMinutes(1));
+        long stamp = cache.stamp();
+        cache.invalidate(1L);
+        // 墓碑被后续写入挤出
+        cache.put(2L, "b");
+        cache.put(3L, "c");
+
+        assertThat(cache.put(1L, "old", stamp)).isFalse();
+        assertThat(cache.get(1L)).isNull();
+    }
+
+    @Test
+    void invalidateAllBlocksInFlightPuts() {
+        LocalCache<Long, String> cache = new LocalCache<>(10, Duration.ofMinutes(1));
+        long stamp = cache.stamp();
+        cache.invalidateAll();
+
+        assertThat(cache.put(1L, "old", stamp)).isFalse();
+    }
+}
@@ -0,0 +1,90 @@
+package com.demo.dp.search;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link AhoCorasickAutomaton} 与 {@link KeywordDictionary} 单元测试：重叠计数、失败指针跳转、大小写、
+ * 按词典顺序输出。
+ */
+class AhoCorasickAutomatonTest {
+
+    @Test
+    void countsOverlappingMatches() {
+        AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(List.of("辣", "微辣", "不辣"));
+
+        int[] counts = count(automaton, "微辣，不辣的也有，真辣");
+
+        // "微辣"、"不辣" 各自同时命中"辣"
+        assertThat(counts).containsExactly(3, 1, 1);
+    }
+
+    @Test
+    void followsFailureLinksAcrossPartialMatches() {
+        AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(List.of("he", "she", "his", "hers"));
+
+        int[] counts = count(automaton, "ushers");
+
+        assertThat(counts).containsExactly(1, 1, 0, 1);
+    }
+
+    @Test
+    void repeatedAndAdjacentOccurrences() {
+        AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(List.of("aa", "a"));
+
+        assertThat(count(automaton, "aaaa")).containsExactly(3, 4);
+    }
+
+    @Test
+    void ignoresCaseBlankAndDuplicateTerms() {
+        AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(Arrays.asList("WiFi", " ", null, "wifi"));
+
+        assertThat(count(automaton, "免费wifi，WIFI 很快")).containsExactly(2, 0, 0, 0);
+    }
+
+    @Test
+    void emptyTextHasNoMatches() {
+        AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(List.of("辣"));
+        List<Integer> hits = new ArrayList<>();
+
+        automaton.forEachMatch(null, hits::add);
+        automaton.forEachMatch("", hits::add);
+
+        assertThat(hits).isEmpty();
+    }
+
+    @Test
+    void dictionaryCountsInDictionaryOrder() {
+        KeywordDictionary dictionary = new KeywordDictionary(new DefaultResourceLoader(),
+                List.of("环境", "辣", "微辣", "服务"), "");
+
+        Map<String, Integer> counts = dictionary.countMatches("服务好，微辣刚好，环境一般，辣度可以");
+
+        assertThat(counts).containsExactly(Map.entry("环境", 1), Map.entry("辣", 2),
+                Map.entry("微辣", 1), Map.entry("服务", 1));
+        assertThat(dictionary.countMatches("没有关键词")).isEmpty();
+    }
+
+    @Test
+    void dictionaryMatchAnyDeduplicatesInPriorityOrder() {
+        KeywordDictionary dictionary = new KeywordDictionary(new DefaultResourceLoader(),
+                List.of("辣", "微辣", "清淡", "环境"), "");
+
+        List<String> hits = dictionary.matchAny(Arrays.asList("环境好", null, "微辣", "重辣"));
+
+        assertThat(hits).containsExactly("辣", "微辣", "环境");
+    }
+
+    private static int[] count(AhoCorasickAutomaton automaton, String text) {
+        int[] counts = new int[automaton.size()];
+        automaton.forEachMatch(text, index -> counts[index]++);
+        return counts;
+    }
+}
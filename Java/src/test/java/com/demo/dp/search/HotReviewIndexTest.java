@@ -0,0 +1,107 @@
+package com.demo.dp.search;
+
+import com.demo.dp.domain.entity.Review;
+import com.demo.dp.mapper.ReviewMapper;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link HotReviewIndex} 单元测试：加载期间到达的新增、点赞事件在加载完成后应用，不会丢失或重复计数。
+ */
+class HotReviewIndexTest {
+
+    private static final long SHOP_ID = 7L;
+
+    /**
+     * 数据库查询期间要执行的动作，模拟查询开始后其他线程提交的写入。
+     */
+    private Runnable duringLoad = () -> { };
+    private List<Review> rows = List.of();
+    private final AtomicInteger loadCount = new AtomicInteger();
+
+    private final HotReviewIndex index = new HotReviewIndex(mapper(), 3, 100, 600);
+
+    @Test
+    void reviewCreatedDuringLoadIsKept() {
+        rows = List.of(review(1, 5));
+        duringLoad = () -> index.onReviewCreated(review(2, 0));
+
+        assertThat(ids(index.top(SHOP_ID, 3))).containsExactly(1L, 2L);
+        // 第二次查询命中缓存，事件没有因为加载期间没有列表而丢失
+        assertThat(ids(index.top(SHOP_ID, 3))).containsExactly(1L, 2L);
+        assertThat(loadCount).hasValue(1);
+    }
+
+    @Test
+    void likeDuringLoadIsNotCountedTwice() {
+        // 查询结果已包含这次点赞（点赞前读到 5，库里已是 6）
+        rows = List.of(review(1, 6), review(2, 4));
+        duringLoad = () -> index.onReviewLiked(review(1, 5));
+
+        List<Review> top = index.top(SHOP_ID, 3);
+
+        assertThat(ids(top)).containsExactly(1L, 2L);
+        assertThat(top.get(0).getLikeCount()).isEqualTo(6);
+    }
+
+    @Test
+    void likeDuringLoadMissingFromResultIsApplied() {
+        // 查询快照早于点赞提交
+        rows = List.of(review(1, 5), review(2, 5));
+        duringLoad = () -> index.onReviewLiked(review(2, 5));
+
+        List<Review> top = index.top(SHOP_ID, 3);
+
+        assertThat(ids(top)).containsExactly(2L, 1L);
+        assertThat(top.get(0).getLikeCount()).isEqualTo(6);
+    }
+
+    @Test
+    void invalidateDuringLoadKeepsResultOutOfCache() {
+        rows = List.of(review(1, 5));
+        duringLoad = () -> index.invalidate(SHOP_ID);
+
+        index.top(SHOP_ID, 3);
+        duringLoad = () -> { };
+        index.top(SHOP_ID, 3);
+
+        assertThat(loadCount).hasValue(2);
+    }
+
+    private ReviewMapper mapper() {
+        return (ReviewMapper) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ReviewMapper.class},
+                (proxy, method, args) -> {
+                    if (!"findTopByShop".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    loadCount.incrementAndGet();
+                    List<Review> copy = new ArrayList<>();
+                    for (Review row : rows) {
+                        copy.add(review(row.getId(), row.getLikeCount()));
+                    }
+                    duringLoad.run();
+                    return copy;
+                });
+    }
+
+    private static Review review(long id, int likeCount) {
+        Review review = new Review();
+        review.setId(id);
+        review.setShopId(SHOP_ID);
+        review.setStatus(1);
+        review.setRating(5);
+        review.setLikeCount(likeCount);
+        review.setContent("review " + id);
+        return review;
+    }
+
+    private static List<Long> ids(List<Review> reviews) {
+        return reviews.stream().map(Review::getId).toList();
+    }
+}
@@ -0,0 +1,38 @@
+package com.demo.dp.stats;
+
+import com.demo.dp.domain.entity.AiCallLog;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link AiLatencyRegistry} 单元测试：按类型/提供方分组，流式调用单独分组，缓存命中不计入。
+ */
+class AiLatencyRegistryTest {
+
+    @Test
+    void streamingCallsAreGroupedSeparately() {
+        AiLatencyRegistry registry = new AiLatencyRegistry(10, List.of(1, 5), 5);
+        registry.record(row("generate", "qwen", AiCallLog.STATUS_SUCCESS, 800, null));
+        registry.record(row("generate", "qwen", AiCallLog.STATUS_SUCCESS, 6000, 300));
+        registry.record(row("generate", null, AiCallLog.STATUS_FAILED, 15000, null));
+        registry.record(row("generate", "qwen", AiCallLog.STATUS_CACHE_HIT, 2, 1));
+
+        assertThat(registry.stats().get("groups"))
+                .isEqualTo(List.of("generate-stream/qwen", "generate/failed", "generate/qwen"));
+        // 仪表盘只合并成功调用
+        assertThat(registry.dashboardSnapshot().getCount()).isEqualTo(2);
+    }
+
+    private static AiCallLog row(String type, String provider, int status, int latencyMs, Integer firstTokenMs) {
+        AiCallLog row = new AiCallLog();
+        row.setType(type);
+        row.setProvider(provider);
+        row.setStatus(status);
+        row.setLatencyMs(latencyMs);
+        row.setFirstTokenMs(firstTokenMs);
+        return row;
+    }
+}
@@ -0,0 +1,133 @@
+package com.demo.dp.stats;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link LatencyHistogram} 单元测试：对数-线性分桶的边界与精度、分位数、滑动窗口过期、快照合并。
+ */
+class LatencyHistogramTest {
+
+    private static final long SLOT_MS = 1000;
+
+    @Test
+    void smallValuesHaveOneBucketPerMillisecond() {
+        for (long v = 0; v < 16; v++) {
+            assertThat(LatencyHistogram.bucketIndex(v)).isEqualTo((int) v);
+            assertThat(LatencyHistogram.bucketUpperBound((int) v)).isEqualTo(v);
+        }
+        // [16, 32) 仍是每 1ms 一个桶，[32, 64) 每 2ms 一个桶
+        assertThat(LatencyHistogram.bucketIndex(31)).isEqualTo(31);
+        assertThat(LatencyHistogram.bucketIndex(32)).isEqualTo(LatencyHistogram.bucketIndex(33));
+        assertThat(LatencyHistogram.bucketIndex(34)).isEqualTo(LatencyHistogram.bucketIndex(32) + 1);
+        assertThat(LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(32))).isEqualTo(33);
+    }
+
+    @Test
+    void bucketUpperBoundStaysWithinOneSixteenth() {
+        int previous = -1;
+        for (long v = 0; v <= LatencyHistogram.MAX_TRACKABLE_MS; v += 1 + v / 97) {
+            int index = LatencyHistogram.bucketIndex(v);
+            long upper = LatencyHistogram.bucketUpperBound(index);
+            assertThat(index).isGreaterThanOrEqualTo(previous).isLessThan(LatencyHistogram.BUCKETS);
+            assertThat(upper).isGreaterThanOrEqualTo(v).isLessThanOrEqualTo(v + v / 16);
+            previous = index;
+        }
+        assertThat(LatencyHistogram.bucketIndex(LatencyHistogram.MAX_TRACKABLE_MS))
+                .isEqualTo(LatencyHistogram.BUCKETS - 1);
+    }
+
+    @Test
+    void percentilesReportBucketUpperBoundCappedByMax() {
+        LatencyHistogram histogram = new LatencyHistogram(SLOT_MS, 6);
+        long now = 10 * SLOT_MS;
+        for (long v = 1; v <= 100; v++) {
+            histogram.record(v, now);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot(5 * SLOT_MS, now);
+
+        assertThat(snapshot.getCount()).isEqualTo(100);
+        assertThat(snapshot.getMax()).isEqualTo(100);
+        // 50 落在 [50, 51] 桶，95 落在 [92, 95] 桶，99 落在 [96, 99] 桶
+        assertThat(snapshot.percentile(0.50)).isEqualTo(51);
+        assertThat(snapshot.percentile(0.95)).isEqualTo(95);
+        assertThat(snapshot.percentile(0.99)).isEqualTo(99);
+        assertThat(snapshot.percentile(1.0)).isEqualTo(100);
+        assertThat(snapshot.percentile(0.0)).isEqualTo(1);
+    }
+
+    @Test
+    void emptySnapshotReportsZero() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram(SLOT_MS, 6).snapshot(5 * SLOT_MS, 0);
+
+        assertThat(snapshot.getCount()).isZero();
+        assertThat(snapshot.percentile(0.99)).isZero();
+        assertThat(snapshot.getMax()).isZero();
+    }
+
+    @Test
+    void valuesBeyondTrackableRangeKeepExactMax() {
+        LatencyHistogram histogram = new LatencyHistogram(SLOT_MS, 6);
+        long huge = LatencyHistogram.MAX_TRACKABLE_MS * 3;
+        histogram.record(huge, 0);
+        histogram.record(-5, 0);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot(SLOT_MS, 0);
+
+        assertThat(snapshot.getMax()).isEqualTo(huge);
+        assertThat(snapshot.percentile(0.5)).isZero();
+        assertThat(snapshot.percentile(1.0))
+                .isEqualTo(LatencyHistogram.bucketUpperBound(LatencyHistogram.BUCKETS - 1));
+    }
+
+    @Test
+    void windowOnlyCoversRecentSlots() {
+        LatencyHistogram histogram = new LatencyHistogram(SLOT_MS, 6);
+        histogram.record(10, 0);
+        histogram.record(20, 2 * SLOT_MS);
+        histogram.record(30, 4 * SLOT_MS + 500);
+
+        assertThat(histogram.snapshot(SLOT_MS, 4 * SLOT_MS + 900).getCount()).isEqualTo(1);
+        assertThat(histogram.snapshot(3 * SLOT_MS, 4 * SLOT_MS + 900).getCount()).isEqualTo(2);
+        assertThat(histogram.snapshot(5 * SLOT_MS, 4 * SLOT_MS + 900).getCount()).isEqualTo(3);
+        // 窗口超过可保留的长度时按 slots - 1 个时间片计算
+        assertThat(histogram.snapshot(60 * SLOT_MS, 4 * SLOT_MS + 900).getCount()).isEqualTo(3);
+    }
+
+    @Test
+    void expiredSlotIsResetWhenReused() {
+        LatencyHistogram histogram = new LatencyHistogram(SLOT_MS, 3);
+        histogram.record(500, 0);
+        // 3 个时间片后复用同一个环形位置
+        histogram.record(7, 3 * SLOT_MS);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot(2 * SLOT_MS, 3 * SLOT_MS);
+
+        assertThat(snapshot.getCount()).isEqualTo(1);
+        assertThat(snapshot.getMax()).isEqualTo(7);
+    }
+
+    @Test
+    void snapshotsMergeByBucket() {
+        LatencyHistogram fast = new LatencyHistogram(SLOT_MS, 6);
+        LatencyHistogram slow = new LatencyHistogram(SLOT_MS, 6);
+        for (int i = 0; i < 90; i++) {
+            fast.record(10, 0);
+        }
+        for (int i = 0; i < 10; i++) {
+            slow.record(1000, 0);
+        }
+
+        LatencyHistogram.Snapshot merged = new LatencyHistogram.Snapshot();
+        merged.add(fast.snapshot(SLOT_MS, 0));
+        merged.add(slow.snapshot(SLOT_MS, 0));
+
+        assertThat(merged.getCount()).isEqualTo(100);
+        assertThat(merged.getMax()).isEqualTo(1000);
+        assertThat(merged.percentile(0.90)).isEqualTo(10);
+        // 1000 所在桶的上界为 1023，不超过最大值
+        assertThat(merged.percentile(0.95)).isEqualTo(1000);
+    }
+}
@@ -19,6 +19,7 @@ import request from '@/utils/request'
  *   - todayNewShops: 今日新增商家数
  *   - todayNewReviews: 今日新增点评数
  *   - todayNewOrders: 今日新增订单数
+ *   - aiLatencyP50Ms / aiLatencyP95Ms / aiLatencyP99Ms / aiLatencyMaxMs: 近 5 分钟成功 AI 调用耗时分位数（毫秒）
  * 
  * @example
  * getDashboardStats()
@@ -34,3 +35,109 @@ export function getDashboardStats() {
   })
 }
 
+
+/**
+ * 获取仪表盘趋势数据（按天或按小时的新增量）
+ * 
+ * @param {Object} params 查询参数
+ * @param {string} params.granularity 粒度：day（按天，最多 90 天）或 hour（按小时，最多 7 天），默认 day
+ * @param {number} params.days 最近多少天（含今天），默认 30
+ * @returns {Promise<Array>} 按时间升序的数据点，每个包含：
+ *   - bucket: 时间段（yyyy-MM-dd 或 yyyy-MM-dd HH:00）
+ *   - newShops / newReviews / newOrders: 新增商家、点评、订单数
+ *   - aiCalls / aiSuccess / aiFailed: AI 调用次数、成功次数、失败次数
+ *   - aiAvgLatencyMs: AI 调用平均耗时（毫秒）
+ * 
+ * @example
+ * getDashboardTrends({ granularity: 'day', days: 30 })
+ *   .then(points => console.log('最近一天新增点评:', points[points.length - 1].newReviews))
+ */
+export function getDashboardTrends(params) {
+  return request({
+    url: '/dashboard/trends',
+    method: 'get',
+    params
+  })
+}
+
+/**
+ * 订阅仪表盘统计数据的实时推送（SSE：GET /api/dashboard/stream）
+ * 
+ * 说明：
+ * 浏览器自带的 EventSource 不能设置 Authorization 请求头，这里用 fetch 读取响应流并按 SSE 格式解析。
+ * 第一条为 snapshot 事件（完整统计数据），之后的 delta 事件只包含变化的字段，由调用方合并。
+ * 
+ * @param {Object} handlers 事件回调
+ * @param {Function} handlers.onSnapshot 收到完整统计数据时调用，参数为统计数据对象
+ * @param {Function} handlers.onDelta 收到变化字段时调用，参数为只包含变化字段的对象
+ * @param {Function} handlers.onClose 连接结束（服务端关闭、网络错误、HTTP 错误）时调用，参数为错误对象（正常结束时为空）
+ * @returns {Function} 关闭连接的函数
+ * 
+ * @example
+ * const close = subscribeDashboardStats({
+ *   onSnapshot: data => Object.assign(stats, data),
+ *   onDelta: delta => Object.assign(stats, delta),
+ *   onClose: () => setTimeout(reconnect, 5000)
+ * })
+ */
+export function subscribeDashboardStats({ onSnapshot, onDelta, onClose }) {
+  const controller = new AbortController()
+  const token = localStorage.getItem('token')
+  const headers = { Accept: 'text/event-stream' }
+  if (token) {
+    headers.Authorization = `Bearer ${token}`
+  }
+
+  const dispatch = (block) => {
+    let event = 'message'
+    const data = []
+    for (const line of block.split('\n')) {
+      if (line.startsWith('event:')) {
+        event = line.slice(6).trim()
+      } else if (line.startsWith('data:')) {
+        data.push(line.slice(5).replace(/^ /, ''))
+      }
+      // 以冒号开头的注释行（保活）直接忽略
+    }
+    if (!data.length) {
+      return
+    }
+    const payload = JSON.parse(data.join('\n'))
+    if (event === 'snapshot' && onSnapshot) {
+      onSnapshot(payload)
+    } else if (event === 'delta' && onDelta) {
+      onDelta(payload)
+    }
+  }
+
+  const run = async () => {
+    const response = await fetch(`${request.defaults.baseURL}/dashboard/stream`, {
+      headers,
+      signal: controller.signal
+    })
+    if (!response.ok) {
+      throw new Error(`HTTP ${response.status}`)
+    }
+    const reader = response.body.getReader()
+    const decoder = new TextDecoder()
+    let buffer = ''
+    for (;;) {
+      const { value, done } = await reader.read()
+      if (done) {
+        return
+      }
+      buffer += decoder.decode(value, { stream: true }).replace(/\r\n/g, '\n')
+      let index
+      while ((index = buffer.indexOf('\n\n')) >= 0) {
+        dispatch(buffer.slice(0, index))
+        buffer = buffer.slice(index + 2)
+      }
+    }
+  }
+
+  run()
+    .then(() => onClose && !controller.signal.aborted && onClose())
+    .catch(error => onClose && !controller.signal.aborted && onClose(error))
+
+  return () => controller.abort()
+}